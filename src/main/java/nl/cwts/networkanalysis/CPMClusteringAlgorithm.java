@@ -115,16 +115,18 @@ public abstract class CPMClusteringAlgorithm implements Cloneable, QualityCluste
         double quality;
         double[] clusterWeights;
         int i, j;
-        long k;
+        NeighborCursor neighborCursor;
 
         quality = 0;
 
+        neighborCursor = new NeighborCursor(network);
         for (i = 0; i < network.nNodes; i++)
         {
             j = clustering.clusters[i];
-            for (k = network.firstNeighborIndices[i]; k < network.firstNeighborIndices[i + 1]; k++)
-                if (clustering.clusters[network.neighbors.get(k)] == j)
-                    quality += network.edgeWeights.get(k);
+            neighborCursor.reset(i);
+            while (neighborCursor.hasNext())
+                if (clustering.clusters[neighborCursor.nextNeighbor()] == j)
+                    quality += neighborCursor.getEdgeWeight();
         }
         quality += network.totalEdgeWeightSelfLinks;
 
@@ -155,16 +157,20 @@ public abstract class CPMClusteringAlgorithm implements Cloneable, QualityCluste
         double maxQualityFunction, qualityFunction;
         double[] clusterWeights, totalEdgeWeightPerCluster;
         int i, j;
-        long k;
+        NeighborCursor neighborCursor;
 
         clusterWeights = clustering.getClusterWeights(network);
 
         totalEdgeWeightPerCluster = new double[clustering.nClusters];
+        neighborCursor = new NeighborCursor(network);
         for (i = 0; i < network.nNodes; i++)
         {
             if (clustering.clusters[i] == cluster)
-                for (k = network.firstNeighborIndices[i]; k < network.firstNeighborIndices[i + 1]; k++)
-                    totalEdgeWeightPerCluster[clustering.clusters[network.neighbors.get(k)]] += network.edgeWeights.get(k);
+            {
+                neighborCursor.reset(i);
+                while (neighborCursor.hasNext())
+                    totalEdgeWeightPerCluster[clustering.clusters[neighborCursor.nextNeighbor()]] += neighborCursor.getEdgeWeight();
+            }
         }
 
         i = -1;
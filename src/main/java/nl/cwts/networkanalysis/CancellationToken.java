@@ -0,0 +1,151 @@
+package nl.cwts.networkanalysis;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Token for cancelling an algorithm, optionally once a time limit has been
+ * reached.
+ *
+ * <p>
+ * A token is cancelled either explicitly, by calling {@link #cancel()} or
+ * {@link #cancel(int reason)}, or implicitly, when its time limit has been
+ * reached. Once a token has been cancelled, it remains cancelled. The reason
+ * for the first cancellation is recorded (see {@link #getReason()}). An
+ * algorithm that is given a token (see {@link
+ * IncrementalCPMClusteringAlgorithm#setCancellationToken(CancellationToken
+ * cancellationToken)}) regularly checks whether the token has been cancelled
+ * and, if so, stops improving the clustering. A token can be shared by
+ * multiple algorithms running in different threads.
+ * </p>
+ *
+ * @author Ludo Waltman
+ * @author Nees Jan van Eck
+ * @author Vincent Traag
+ */
+public class CancellationToken
+{
+    /**
+     * Reason indicating that the token has not been cancelled.
+     */
+    public static final int NOT_CANCELLED = 0;
+
+    /**
+     * Reason indicating that the token has been cancelled by calling {@link
+     * #cancel()}.
+     */
+    public static final int CANCELLED = 1;
+
+    /**
+     * Reason indicating that the time limit of the token has been reached.
+     */
+    public static final int TIME_LIMIT_REACHED = 2;
+
+    /**
+     * Reason indicating that a maximum amount of memory has been exceeded.
+     */
+    public static final int MAX_MEMORY_EXCEEDED = 3;
+
+    /**
+     * Time at which the token was constructed, in terms of {@link
+     * System#nanoTime()}.
+     */
+    private final long startTime;
+
+    /**
+     * Time limit in nanoseconds.
+     */
+    private final long timeLimit;
+
+    /**
+     * Indicates whether the token has a time limit.
+     */
+    private final boolean hasTimeLimit;
+
+    /**
+     * Reason for the cancellation of the token.
+     */
+    private final AtomicInteger reason;
+
+    /**
+     * Constructs a token without a time limit.
+     */
+    public CancellationToken()
+    {
+        startTime = 0;
+        timeLimit = 0;
+        hasTimeLimit = false;
+        reason = new AtomicInteger(NOT_CANCELLED);
+    }
+
+    /**
+     * Constructs a token with a time limit.
+     *
+     * @param timeLimit Time limit in milliseconds, counted from the
+     *                  construction of the token
+     */
+    public CancellationToken(long timeLimit)
+    {
+        startTime = System.nanoTime();
+        this.timeLimit = TimeUnit.MILLISECONDS.toNanos(timeLimit);
+        hasTimeLimit = true;
+        reason = new AtomicInteger(NOT_CANCELLED);
+    }
+
+    /**
+     * Cancels the token.
+     *
+     * <p>
+     * The reason for the cancellation is {@link #CANCELLED}.
+     * </p>
+     */
+    public void cancel()
+    {
+        cancel(CANCELLED);
+    }
+
+    /**
+     * Cancels the token for a specified reason.
+     *
+     * <p>
+     * If the token has already been cancelled, the reason for the earlier
+     * cancellation is kept.
+     * </p>
+     *
+     * @param reason Reason for the cancellation, for instance {@link
+     *               #MAX_MEMORY_EXCEEDED}
+     *
+     * @throws IllegalArgumentException The reason is {@link #NOT_CANCELLED}
+     */
+    public void cancel(int reason) throws IllegalArgumentException
+    {
+        if (reason == NOT_CANCELLED)
+            throw new IllegalArgumentException("Reason must not be NOT_CANCELLED.");
+
+        this.reason.compareAndSet(NOT_CANCELLED, reason);
+    }
+
+    /**
+     * Returns whether the token has been cancelled or its time limit has been
+     * reached.
+     *
+     * @return Boolean indicating whether the token has been cancelled
+     */
+    public boolean isCancelled()
+    {
+        return getReason() != NOT_CANCELLED;
+    }
+
+    /**
+     * Returns the reason for the cancellation of the token.
+     *
+     * @return Reason for the cancellation, or {@link #NOT_CANCELLED} if the
+     *         token has not been cancelled
+     */
+    public int getReason()
+    {
+        if ((reason.get() == NOT_CANCELLED) && hasTimeLimit && (System.nanoTime() - startTime >= timeLimit))
+            reason.compareAndSet(NOT_CANCELLED, TIME_LIMIT_REACHED);
+        return reason.get();
+    }
+}
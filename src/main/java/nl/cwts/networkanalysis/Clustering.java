@@ -126,6 +126,31 @@ public class Clustering implements Cloneable, Serializable
         objectOutputStream.close();
     }
 
+    /**
+     * Creates a copy of the clustering in which the nodes are renumbered.
+     *
+     * <p>
+     * Node {@code i} in the new clustering corresponds to node {@code
+     * nodeOrder[i]} in this clustering. Clusters are not renumbered. See
+     * {@link Network#createNetworkWithNodeOrder(int[] nodeOrder)}.
+     * </p>
+     *
+     * @param nodeOrder Node in this clustering for each node in the new
+     *                  clustering
+     *
+     * @return Clustering with renumbered nodes
+     */
+    public Clustering createClusteringWithNodeOrder(int[] nodeOrder)
+    {
+        Clustering newClustering;
+        int i;
+
+        newClustering = clone();
+        for (i = 0; i < nNodes; i++)
+            newClustering.clusters[i] = clusters[nodeOrder[i]];
+        return newClustering;
+    }
+
     /**
      * Returns the number of nodes.
      *
@@ -1,14 +1,30 @@
 package nl.cwts.networkanalysis;
 
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
 /**
  * Algorithm for finding the connected components of a network.
  *
+ * <p>
+ * For small networks, the components are found sequentially using
+ * breadth-first search. For large networks, the components are found in
+ * parallel using a lock-free union-find data structure. Both approaches yield
+ * exactly the same clustering.
+ * </p>
+ *
  * @author Ludo Waltman
  * @author Nees Jan van Eck
  * @author Vincent Traag
  */
 public class ComponentsAlgorithm implements ClusteringAlgorithm
 {
+    /**
+     * Minimum number of edges for which {@link #findClustering(Network
+     * network)} finds the connected components in parallel.
+     */
+    private static final long PARALLEL_MIN_N_EDGES = 1 << 20;
+
     /**
      * Constructs a components algorithm.
      */
@@ -19,47 +35,174 @@ public class ComponentsAlgorithm implements ClusteringAlgorithm
     /**
      * Finds the connected components of a network.
      *
+     * <p>
+     * For large networks, the connected components are found in parallel (see
+     * {@link #findClustering(Network network, boolean parallel)}).
+     * </p>
+     *
      * @param network Network
      *
      * @return Connected components
      */
     public Clustering findClustering(Network network)
+    {
+        return findClustering(network, network.nEdges >= PARALLEL_MIN_N_EDGES);
+    }
+
+    /**
+     * Finds the connected components of a network, optionally in parallel.
+     *
+     * <p>
+     * If {@code parallel} is true, the nodes are divided into chunks with
+     * roughly equal numbers of edges, and the edges in the chunks are
+     * processed by multiple threads. Each edge is used to merge the trees of
+     * its two nodes in a union-find data structure. Trees are merged using an
+     * atomic compare-and-set operation, always making the root with the higher
+     * number a child of the root with the lower number, so the root of each
+     * tree is the lowest-numbered node in the component.
+     * </p>
+     *
+     * <p>
+     * In both cases, components are first numbered in the order of their
+     * lowest-numbered node and are then ordered by their number of nodes (see
+     * {@link Clustering#orderClustersByNNodes()}).
+     * </p>
+     *
+     * @param network  Network
+     * @param parallel Indicates whether to find the connected components in
+     *                 parallel
+     *
+     * @return Connected components
+     */
+    public Clustering findClustering(Network network, boolean parallel)
     {
         boolean[] nodesVisited;
-        int i, j, k;
+        int i, j, k, l;
         int[] nodes;
+        NeighborCursor neighborCursor;
 
         Clustering clustering = new Clustering(network.getNNodes());
 
         clustering.nClusters = 0;
-        nodesVisited = new boolean[network.nNodes];
-        nodes = new int[network.nNodes];
-        for (i = 0; i < network.nNodes; i++)
-            if (!nodesVisited[i])
-            {
-                clustering.clusters[i] = clustering.nClusters;
-                nodesVisited[i] = true;
-                nodes[0] = i;
-                j = 1;
-                k = 0;
-                do
+        if (parallel)
+        {
+            findRootsInParallelHelper(network, clustering.clusters);
+
+            // The root of each node has a lower number than the node itself,
+            // so it has already been assigned to a cluster.
+            for (i = 0; i < network.nNodes; i++)
+                if (clustering.clusters[i] == i)
                 {
-                    for (int v : network.neighbors(nodes[k]))
-                        if (!nodesVisited[v])
+                    clustering.clusters[i] = clustering.nClusters;
+                    clustering.nClusters++;
+                }
+                else
+                    clustering.clusters[i] = clustering.clusters[clustering.clusters[i]];
+        }
+        else
+        {
+            nodesVisited = new boolean[network.nNodes];
+            nodes = new int[network.nNodes];
+            neighborCursor = new NeighborCursor(network);
+            for (i = 0; i < network.nNodes; i++)
+                if (!nodesVisited[i])
+                {
+                    clustering.clusters[i] = clustering.nClusters;
+                    nodesVisited[i] = true;
+                    nodes[0] = i;
+                    j = 1;
+                    k = 0;
+                    do
+                    {
+                        neighborCursor.reset(nodes[k]);
+                        while (neighborCursor.hasNext())
                         {
-                            clustering.clusters[v] = clustering.nClusters;
-                            nodesVisited[v] = true;
-                            nodes[j] = v;
-                            j++;
+                            l = neighborCursor.nextNeighbor();
+                            if (!nodesVisited[l])
+                            {
+                                clustering.clusters[l] = clustering.nClusters;
+                                nodesVisited[l] = true;
+                                nodes[j] = l;
+                                j++;
+                            }
                         }
-                    k++;
-                } while (k < j);
+                        k++;
+                    } while (k < j);
 
-                clustering.nClusters++;
-            }
+                    clustering.nClusters++;
+                }
+        }
 
         clustering.orderClustersByNNodes();
 
         return clustering;
     }
+
+    /**
+     * Determines for each node the lowest-numbered node in its component.
+     */
+    private void findRootsInParallelHelper(Network network, int[] roots)
+    {
+        AtomicIntegerArray parents;
+        int[] firstNodePerChunk;
+
+        parents = new AtomicIntegerArray(network.nNodes);
+        IntStream.range(0, network.nNodes).parallel().forEach(node -> parents.lazySet(node, node));
+        firstNodePerChunk = network.getNodeChunksHelper(Runtime.getRuntime().availableProcessors());
+        IntStream.range(0, firstNodePerChunk.length - 1).parallel().forEach(chunk -> uniteNodesHelper(network, firstNodePerChunk[chunk], firstNodePerChunk[chunk + 1], parents));
+        IntStream.range(0, network.nNodes).parallel().forEach(node -> roots[node] = findRootHelper(parents, node));
+    }
+
+    private void uniteNodesHelper(Network network, int firstNode, int endNode, AtomicIntegerArray parents)
+    {
+        int i, j, k, root1, root2;
+        NeighborCursor neighborCursor;
+
+        neighborCursor = new NeighborCursor(network);
+        for (i = firstNode; i < endNode; i++)
+        {
+            neighborCursor.reset(i);
+            while (neighborCursor.hasNext())
+            {
+                // Each edge is stored in both directions, so it suffices to
+                // consider the edges to lower-numbered neighbors.
+                j = neighborCursor.nextNeighbor();
+                if (j >= i)
+                    continue;
+
+                do
+                {
+                    root1 = findRootHelper(parents, i);
+                    root2 = findRootHelper(parents, j);
+                    if (root1 == root2)
+                        break;
+                    if (root1 < root2)
+                    {
+                        k = root1;
+                        root1 = root2;
+                        root2 = k;
+                    }
+                } while (!parents.compareAndSet(root1, root1, root2));
+            }
+        }
+    }
+
+    /**
+     * Finds the root of the tree of a node, splitting the path to the root.
+     */
+    private static int findRootHelper(AtomicIntegerArray parents, int node)
+    {
+        int parent, grandparent;
+
+        parent = parents.get(node);
+        while (parent != node)
+        {
+            grandparent = parents.get(parent);
+            if (grandparent != parent)
+                parents.compareAndSet(node, parent, grandparent);
+            node = parent;
+            parent = grandparent;
+        }
+        return node;
+    }
 }
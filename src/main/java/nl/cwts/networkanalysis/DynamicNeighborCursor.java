@@ -0,0 +1,227 @@
+package nl.cwts.networkanalysis;
+
+/**
+ * Cursor for sequentially iterating over the neighbors of a node in a dynamic
+ * network.
+ *
+ * <p>
+ * The cursor merges the neighbors of a node in the base network of a {@link
+ * DynamicNetwork} with the edges that have been inserted or deleted since the
+ * base network was created. Neighbors are listed in the same order as {@link
+ * DynamicNetwork#getNeighbors(int node)}. The cursor does not allocate any
+ * memory while iterating. Only when a new base network has been installed,
+ * the next call to {@link #reset(int node)} creates a new {@link
+ * NeighborCursor} for the new base network.
+ * </p>
+ *
+ * <p>
+ * A cursor is typically constructed once and then reused for many nodes:
+ * </p>
+ *
+ * <pre>
+ * DynamicNeighborCursor neighborCursor = new DynamicNeighborCursor(dynamicNetwork);
+ * neighborCursor.reset(node);
+ * while (neighborCursor.hasNext())
+ * {
+ *     int neighbor = neighborCursor.nextNeighbor();
+ *     double edgeWeight = neighborCursor.getEdgeWeight();
+ * }
+ * </pre>
+ *
+ * <p>
+ * Inserting or deleting edges while iterating invalidates the cursor. After
+ * an update, the cursor must be positioned again using {@link #reset(int
+ * node)}. A cursor is not thread safe. Each thread should use its own cursor.
+ * </p>
+ *
+ * @author Ludo Waltman
+ * @author Nees Jan van Eck
+ * @author Vincent Traag
+ */
+public final class DynamicNeighborCursor
+{
+    private static final int BASE_NETWORK = 0;
+    private static final int LOWER_DELTA = 1;
+    private static final int UPPER_DELTA = 2;
+    private static final int DONE = 3;
+
+    private final DynamicNetwork dynamicNetwork;
+    private Network network;
+    private NeighborCursor neighborCursor;
+    private DynamicNetwork.Delta lowerDelta;
+    private DynamicNetwork.Delta upperDelta;
+
+    private int node;
+    private int layer;
+    private int entry;
+    private int neighbor;
+    private double edgeWeight;
+    private int nextNeighbor;
+    private double nextEdgeWeight;
+    private boolean hasNextNeighbor;
+
+    /**
+     * Constructs a cursor for a dynamic network.
+     *
+     * <p>
+     * The cursor is not positioned at any node. Use {@link #reset(int node)}
+     * to start iterating over the neighbors of a node.
+     * </p>
+     *
+     * @param dynamicNetwork Dynamic network
+     */
+    public DynamicNeighborCursor(DynamicNetwork dynamicNetwork)
+    {
+        this.dynamicNetwork = dynamicNetwork;
+        layer = DONE;
+    }
+
+    /**
+     * Constructs a cursor for a network with two deltas on top of it. Either
+     * delta may be null.
+     */
+    DynamicNeighborCursor(Network network, DynamicNetwork.Delta lowerDelta, DynamicNetwork.Delta upperDelta)
+    {
+        dynamicNetwork = null;
+        this.network = network;
+        neighborCursor = new NeighborCursor(network);
+        this.lowerDelta = lowerDelta;
+        this.upperDelta = upperDelta;
+        layer = DONE;
+    }
+
+    /**
+     * Positions the cursor at the first neighbor of a node.
+     *
+     * @param node Node
+     */
+    public void reset(int node)
+    {
+        if (dynamicNetwork != null)
+        {
+            if (dynamicNetwork.network != network)
+            {
+                network = dynamicNetwork.network;
+                neighborCursor = new NeighborCursor(network);
+            }
+            lowerDelta = dynamicNetwork.frozenDelta;
+            upperDelta = dynamicNetwork.delta;
+        }
+
+        this.node = node;
+        if (node < network.nNodes)
+        {
+            neighborCursor.reset(node);
+            layer = BASE_NETWORK;
+        }
+        else
+            startLayerHelper(LOWER_DELTA);
+        advanceHelper();
+    }
+
+    /**
+     * Indicates whether the node has more neighbors.
+     *
+     * @return Whether the node has more neighbors
+     */
+    public boolean hasNext()
+    {
+        return hasNextNeighbor;
+    }
+
+    /**
+     * Returns the next neighbor of the node.
+     *
+     * @return Neighbor
+     */
+    public int nextNeighbor()
+    {
+        neighbor = nextNeighbor;
+        edgeWeight = nextEdgeWeight;
+        advanceHelper();
+        return neighbor;
+    }
+
+    /**
+     * Returns the weight of the edge between the node and the neighbor most
+     * recently returned by {@link #nextNeighbor()}.
+     *
+     * @return Edge weight
+     */
+    public double getEdgeWeight()
+    {
+        return edgeWeight;
+    }
+
+    private void startLayerHelper(int layer)
+    {
+        this.layer = layer;
+        if (layer == LOWER_DELTA)
+            entry = (lowerDelta != null) ? lowerDelta.getFirstEntry(node) : -1;
+        else if (layer == UPPER_DELTA)
+            entry = (upperDelta != null) ? upperDelta.getFirstEntry(node) : -1;
+    }
+
+    /**
+     * Looks ahead for the next neighbor of the node. Neighbors in the base
+     * network are listed first, followed by neighbors inserted in the lower
+     * delta and neighbors inserted in the upper delta. Edges deleted in a
+     * delta are skipped.
+     */
+    private void advanceHelper()
+    {
+        hasNextNeighbor = false;
+        while (!hasNextNeighbor && (layer != DONE))
+            if (layer == BASE_NETWORK)
+            {
+                if (neighborCursor.hasNext())
+                {
+                    nextNeighbor = neighborCursor.nextNeighbor();
+                    nextEdgeWeight = applyHelper(lowerDelta, nextNeighbor, neighborCursor.getEdgeWeight());
+                    nextEdgeWeight = applyHelper(upperDelta, nextNeighbor, nextEdgeWeight);
+                    hasNextNeighbor = !Double.isNaN(nextEdgeWeight);
+                }
+                else
+                    startLayerHelper(LOWER_DELTA);
+            }
+            else if (layer == LOWER_DELTA)
+            {
+                if (entry >= 0)
+                {
+                    if ((lowerDelta.flags[entry] & DynamicNetwork.Delta.IN_LOWER) == 0)
+                    {
+                        nextNeighbor = lowerDelta.neighbors[entry];
+                        nextEdgeWeight = applyHelper(upperDelta, nextNeighbor, lowerDelta.apply(entry, Double.NaN));
+                        hasNextNeighbor = !Double.isNaN(nextEdgeWeight);
+                    }
+                    entry = lowerDelta.nextEntries[entry];
+                }
+                else
+                    startLayerHelper(UPPER_DELTA);
+            }
+            else
+            {
+                if (entry >= 0)
+                {
+                    if ((upperDelta.flags[entry] & DynamicNetwork.Delta.IN_LOWER) == 0)
+                    {
+                        nextNeighbor = upperDelta.neighbors[entry];
+                        nextEdgeWeight = upperDelta.apply(entry, Double.NaN);
+                        hasNextNeighbor = !Double.isNaN(nextEdgeWeight);
+                    }
+                    entry = upperDelta.nextEntries[entry];
+                }
+                else
+                    layer = DONE;
+            }
+    }
+
+    private double applyHelper(DynamicNetwork.Delta delta, int neighbor, double edgeWeight)
+    {
+        int entry;
+
+        if ((delta != null) && ((entry = delta.findEntry(node, neighbor)) >= 0))
+            edgeWeight = delta.apply(entry, edgeWeight);
+        return edgeWeight;
+    }
+}
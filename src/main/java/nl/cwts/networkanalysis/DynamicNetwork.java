@@ -0,0 +1,1026 @@
+package nl.cwts.networkanalysis;
+
+import java.util.Arrays;
+
+import nl.cwts.util.LargeDoubleArray;
+import nl.cwts.util.LargeIntArray;
+
+/**
+ * Network in which edges can be inserted and deleted.
+ *
+ * <p>
+ * A dynamic network consists of a base network, stored in the same way as an
+ * ordinary {@link Network}, and a delta that records the edges that have been
+ * inserted or deleted since the base network was created. Inserting or
+ * deleting an edge changes only the delta, so the cost of an update does not
+ * depend on the size of the network. Node weights (if requested), the number
+ * of neighbors of each node, the number of edges, and the total edge weight
+ * are updated incrementally.
+ * </p>
+ *
+ * <p>
+ * When the number of entries in the delta exceeds a threshold relative to the
+ * number of edges in the base network, the delta is frozen and a new base
+ * network is created from the base network and the frozen delta in a
+ * background thread. Meanwhile, updates are recorded in a new delta on top of
+ * the frozen delta. The new base network is installed at the next update
+ * after the background thread has finished. The neighbors of each node in the
+ * new base network are sorted. If creating the new base network fails, the
+ * updates in the frozen delta are kept and the failure is reported by {@link
+ * #compact()}.
+ * </p>
+ *
+ * <p>
+ * To run an algorithm that requires a {@link Network}, use {@link
+ * #getNetwork()}, which incorporates all updates into the base network and
+ * returns the base network. To iterate over the neighbors of a node without
+ * allocating any memory, use a {@link DynamicNeighborCursor}.
+ * </p>
+ *
+ * <p>
+ * A dynamic network is not thread safe. Apart from the background thread used
+ * for creating new base networks, it should be used by a single thread.
+ * </p>
+ *
+ * @author Ludo Waltman
+ * @author Nees Jan van Eck
+ * @author Vincent Traag
+ */
+public class DynamicNetwork
+{
+    /**
+     * Default number of entries in the delta relative to the number of edges
+     * in the base network above which a new base network is created.
+     */
+    public static final double DEFAULT_COMPACTION_THRESHOLD = 0.01;
+
+    /**
+     * Minimum number of entries in the delta for creating a new base network.
+     */
+    private static final int MIN_N_DELTA_ENTRIES_FOR_COMPACTION = 1 << 16;
+
+    /**
+     * Base network.
+     */
+    protected Network network;
+
+    /**
+     * Indicates whether the neighbors of each node in the base network are
+     * sorted.
+     */
+    protected boolean sortedNeighbors;
+
+    /**
+     * Delta that is being incorporated into a new base network by the
+     * background thread, or null if no new base network is being created.
+     */
+    Delta frozenDelta;
+
+    /**
+     * Delta recording the most recent updates.
+     */
+    Delta delta;
+
+    /**
+     * Indicates whether node weights are updated when edges are inserted or
+     * deleted.
+     */
+    protected boolean updateNodeWeights;
+
+    /**
+     * Number of entries in the delta relative to the number of edges in the
+     * base network above which a new base network is created.
+     */
+    protected double compactionThreshold;
+
+    /**
+     * Number of nodes.
+     */
+    protected int nNodes;
+
+    /**
+     * Number of edges.
+     *
+     * <p>
+     * Each edge is counted twice, once in each direction.
+     * </p>
+     */
+    protected long nEdges;
+
+    /**
+     * Node weights.
+     */
+    protected double[] nodeWeights;
+
+    /**
+     * Number of neighbors of each node.
+     */
+    protected int[] nNeighborsPerNode;
+
+    /**
+     * Total edge weight.
+     */
+    protected double totalEdgeWeight;
+
+    /**
+     * Total edge weight of self links.
+     */
+    protected double totalEdgeWeightSelfLinks;
+
+    private Thread compactionThread;
+    private Compaction compaction;
+    private Throwable compactionFailure;
+    private NeighborCursor neighborCursor;
+
+    /**
+     * Constructs a dynamic network based on a network.
+     *
+     * <p>
+     * If {@code updateNodeWeights} is true, the weight of a node is increased
+     * or decreased by the weight of each edge of the node that is inserted or
+     * deleted. This keeps node weights equal to total edge weights if this is
+     * the case for {@code network}. If {@code updateNodeWeights} is false,
+     * node weights do not change.
+     * </p>
+     *
+     * @param network           Network
+     * @param updateNodeWeights Indicates whether to update node weights when
+     *                          edges are inserted or deleted
+     */
+    public DynamicNetwork(Network network, boolean updateNodeWeights)
+    {
+        this(network, updateNodeWeights, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Constructs a dynamic network based on a network, using a specified
+     * threshold for creating a new base network.
+     *
+     * @param network             Network
+     * @param updateNodeWeights   Indicates whether to update node weights when
+     *                            edges are inserted or deleted
+     * @param compactionThreshold Number of entries in the delta relative to the
+     *                            number of edges in the base network above
+     *                            which a new base network is created
+     */
+    public DynamicNetwork(Network network, boolean updateNodeWeights, double compactionThreshold)
+    {
+        int i;
+        long j;
+
+        this.network = network;
+        this.updateNodeWeights = updateNodeWeights;
+        this.compactionThreshold = compactionThreshold;
+        nNodes = network.nNodes;
+        nEdges = network.nEdges;
+        nodeWeights = network.getNodeWeights();
+        nNeighborsPerNode = network.getNNeighborsPerNode();
+        totalEdgeWeight = network.getTotalEdgeWeight();
+        totalEdgeWeightSelfLinks = network.totalEdgeWeightSelfLinks;
+        delta = new Delta(nNodes);
+        neighborCursor = new NeighborCursor(network);
+
+        // Neighbors stored in a compressed format are always sorted, but they
+        // cannot be searched using binary search.
+        sortedNeighbors = (network.neighbors != null) || (network.offHeapNeighbors != null);
+        for (i = 0; (i < nNodes) && sortedNeighbors; i++)
+            for (j = network.firstNeighborIndices[i] + 1; (j < network.firstNeighborIndices[i + 1]) && sortedNeighbors; j++)
+                sortedNeighbors = (getNeighborHelper(network, j - 1) < getNeighborHelper(network, j));
+    }
+
+    /**
+     * Returns the number of nodes.
+     *
+     * @return Number of nodes
+     */
+    public int getNNodes()
+    {
+        return nNodes;
+    }
+
+    /**
+     * Returns the total node weight.
+     *
+     * @return Total node weight
+     */
+    public double getTotalNodeWeight()
+    {
+        return nl.cwts.util.Arrays.calcSum(nodeWeights, 0, nNodes);
+    }
+
+    /**
+     * Returns the node weights.
+     *
+     * @return Node weights
+     */
+    public double[] getNodeWeights()
+    {
+        return Arrays.copyOf(nodeWeights, nNodes);
+    }
+
+    /**
+     * Returns the weight of a node.
+     *
+     * @param node Node
+     *
+     * @return Node weight
+     */
+    public double getNodeWeight(int node)
+    {
+        return nodeWeights[node];
+    }
+
+    /**
+     * Returns the number of edges.
+     *
+     * <p>
+     * Each edge is counted only once, even though an edge runs in two
+     * directions.
+     * </p>
+     *
+     * @return Number of edges
+     */
+    public long getNEdges()
+    {
+        return nEdges / 2;
+    }
+
+    /**
+     * Returns the number of neighbors of a node.
+     *
+     * @param node Node
+     *
+     * @return Number of neighbors
+     */
+    public int getNNeighbors(int node)
+    {
+        return nNeighborsPerNode[node];
+    }
+
+    /**
+     * Returns the list of neighbors of a node.
+     *
+     * <p>
+     * Neighbors in the base network are listed first, followed by neighbors
+     * that have been inserted since the base network was created. Use a
+     * {@link DynamicNeighborCursor} to iterate over the neighbors without
+     * allocating any memory.
+     * </p>
+     *
+     * @param node Node
+     *
+     * @return List of neighbors
+     */
+    public int[] getNeighbors(int node)
+    {
+        int i;
+        int[] neighbors;
+        DynamicNeighborCursor neighborCursor;
+
+        neighbors = new int[nNeighborsPerNode[node]];
+        neighborCursor = new DynamicNeighborCursor(this);
+        neighborCursor.reset(node);
+        for (i = 0; i < neighbors.length; i++)
+            neighbors[i] = neighborCursor.nextNeighbor();
+        return neighbors;
+    }
+
+    /**
+     * Returns the list of edge weights of a node.
+     *
+     * <p>
+     * The edge weights are listed in the same order as the neighbors returned
+     * by {@link #getNeighbors(int node)}.
+     * </p>
+     *
+     * @param node Node
+     *
+     * @return List of edge weights
+     */
+    public double[] getEdgeWeights(int node)
+    {
+        int i;
+        double[] edgeWeights;
+        DynamicNeighborCursor neighborCursor;
+
+        edgeWeights = new double[nNeighborsPerNode[node]];
+        neighborCursor = new DynamicNeighborCursor(this);
+        neighborCursor.reset(node);
+        for (i = 0; i < edgeWeights.length; i++)
+        {
+            neighborCursor.nextNeighbor();
+            edgeWeights[i] = neighborCursor.getEdgeWeight();
+        }
+        return edgeWeights;
+    }
+
+    /**
+     * Returns the weight of the edge between two nodes.
+     *
+     * @param node1 Node 1
+     * @param node2 Node 2
+     *
+     * @return Edge weight, or 0 if there is no edge between the nodes
+     */
+    public double getEdgeWeight(int node1, int node2)
+    {
+        double edgeWeight;
+
+        edgeWeight = getEdgeWeightHelper(node1, node2, false);
+        return !Double.isNaN(edgeWeight) ? edgeWeight : 0;
+    }
+
+    /**
+     * Returns the total edge weight.
+     *
+     * <p>
+     * Edge weights of self links are not included.
+     * </p>
+     *
+     * @return Total edge weight
+     */
+    public double getTotalEdgeWeight()
+    {
+        return totalEdgeWeight;
+    }
+
+    /**
+     * Returns the total edge weight of self links.
+     *
+     * @return Total edge weight of self links
+     */
+    public double getTotalEdgeWeightSelfLinks()
+    {
+        return totalEdgeWeightSelfLinks;
+    }
+
+    /**
+     * Returns the number of entries in the delta, including the delta that is
+     * being incorporated into a new base network.
+     *
+     * @return Number of entries in the delta
+     */
+    public int getNDeltaEntries()
+    {
+        return ((frozenDelta != null) ? frozenDelta.nEntries : 0) + delta.nEntries;
+    }
+
+    /**
+     * Adds a node.
+     *
+     * <p>
+     * The node initially has no neighbors. If node weights are updated when
+     * edges are inserted or deleted, the weight of the node is set to 0.
+     * Otherwise, the weight of the node is set to 1.
+     * </p>
+     *
+     * @return Node
+     */
+    public int addNode()
+    {
+        installNetworkIfCompactedHelper();
+
+        if (nNodes == nodeWeights.length)
+        {
+            nodeWeights = Arrays.copyOf(nodeWeights, Math.max(2 * nNodes, 1));
+            nNeighborsPerNode = Arrays.copyOf(nNeighborsPerNode, Math.max(2 * nNodes, 1));
+        }
+        nodeWeights[nNodes] = updateNodeWeights ? 0 : 1;
+        nNeighborsPerNode[nNodes] = 0;
+        nNodes++;
+        delta.ensureNNodes(nNodes);
+        return nNodes - 1;
+    }
+
+    /**
+     * Inserts an edge with a weight of 1.
+     *
+     * @param node1 Node 1
+     * @param node2 Node 2
+     *
+     * @see #addEdge(int node1, int node2, double edgeWeight)
+     */
+    public void addEdge(int node1, int node2)
+    {
+        addEdge(node1, node2, 1);
+    }
+
+    /**
+     * Inserts an edge.
+     *
+     * <p>
+     * If there already is an edge between the nodes, the weight of the edge
+     * is increased by {@code edgeWeight}. If the nodes are identical, {@code
+     * edgeWeight} is added to the total edge weight of self links.
+     * </p>
+     *
+     * @param node1      Node 1
+     * @param node2      Node 2
+     * @param edgeWeight Edge weight
+     *
+     * @throws IllegalArgumentException Nodes must have non-negative values
+     *                                  less than the number of nodes.
+     */
+    public void addEdge(int node1, int node2, double edgeWeight) throws IllegalArgumentException
+    {
+        installNetworkIfCompactedHelper();
+
+        checkNodesHelper(node1, node2);
+        if (node1 != node2)
+        {
+            addEdgeHelper(node1, node2, edgeWeight);
+            addEdgeHelper(node2, node1, edgeWeight);
+            totalEdgeWeight += edgeWeight;
+            if (updateNodeWeights)
+            {
+                nodeWeights[node1] += edgeWeight;
+                nodeWeights[node2] += edgeWeight;
+            }
+        }
+        else
+            totalEdgeWeightSelfLinks += edgeWeight;
+
+        startCompactionIfNeededHelper();
+    }
+
+    /**
+     * Deletes an edge.
+     *
+     * <p>
+     * Self links cannot be deleted.
+     * </p>
+     *
+     * @param node1 Node 1
+     * @param node2 Node 2
+     *
+     * @return Boolean indicating whether there was an edge between the nodes
+     *
+     * @throws IllegalArgumentException Nodes must have non-negative values
+     *                                  less than the number of nodes.
+     */
+    public boolean removeEdge(int node1, int node2) throws IllegalArgumentException
+    {
+        double edgeWeight;
+
+        installNetworkIfCompactedHelper();
+
+        checkNodesHelper(node1, node2);
+        if (node1 == node2)
+            return false;
+        edgeWeight = removeEdgeHelper(node1, node2);
+        if (Double.isNaN(edgeWeight))
+            return false;
+        removeEdgeHelper(node2, node1);
+        totalEdgeWeight -= edgeWeight;
+        if (updateNodeWeights)
+        {
+            nodeWeights[node1] -= edgeWeight;
+            nodeWeights[node2] -= edgeWeight;
+        }
+
+        startCompactionIfNeededHelper();
+
+        return true;
+    }
+
+    /**
+     * Indicates whether a new base network is being created in the background.
+     *
+     * @return Boolean indicating whether a new base network is being created
+     */
+    public boolean isCompacting()
+    {
+        return (compactionThread != null) && compactionThread.isAlive();
+    }
+
+    /**
+     * Incorporates all updates into the base network.
+     *
+     * <p>
+     * If a new base network is being created in the background, this method
+     * waits until the background thread has finished. Any remaining updates
+     * are then incorporated in the current thread. This includes updates of
+     * self links, which change only the total edge weight of self links.
+     * </p>
+     *
+     * <p>
+     * If creating a new base network in the background has failed since the
+     * previous call of this method, or if creating a new base network in the
+     * current thread fails, an exception is thrown. No updates are lost, and
+     * the dynamic network can still be used. Calling this method again
+     * retries incorporating the updates into the base network.
+     * </p>
+     *
+     * @throws IllegalStateException Creating a new base network failed.
+     */
+    public void compact() throws IllegalStateException
+    {
+        Throwable failure;
+
+        if (compactionThread != null)
+        {
+            joinCompactionThreadHelper();
+            installNetworkIfCompactedHelper();
+        }
+        if ((compactionFailure == null) && ((delta.nEntries > 0) || (nNodes != network.nNodes) || (totalEdgeWeightSelfLinks != network.totalEdgeWeightSelfLinks)))
+        {
+            freezeDeltaHelper().run();
+            installNetworkHelper();
+        }
+        if (compactionFailure != null)
+        {
+            failure = compactionFailure;
+            compactionFailure = null;
+            throw new IllegalStateException("Creating a new base network failed.", failure);
+        }
+    }
+
+    /**
+     * Returns a network that incorporates all updates.
+     *
+     * <p>
+     * All updates are first incorporated into the base network (see {@link
+     * #compact()}). The base network is then returned. The base network must
+     * not be modified.
+     * </p>
+     *
+     * @return Network
+     *
+     * @throws IllegalStateException Creating a new base network failed.
+     */
+    public Network getNetwork() throws IllegalStateException
+    {
+        compact();
+        return network;
+    }
+
+    private void checkNodesHelper(int node1, int node2)
+    {
+        if ((node1 < 0) || (node2 < 0))
+            throw new IllegalArgumentException("Nodes must have non-negative values.");
+        else if ((node1 >= nNodes) || (node2 >= nNodes))
+            throw new IllegalArgumentException("Nodes must have values less than the number of nodes.");
+    }
+
+    private void addEdgeHelper(int node, int neighbor, double edgeWeight)
+    {
+        int entry;
+
+        if (Double.isNaN(getEdgeWeightHelper(node, neighbor, true)))
+        {
+            nNeighborsPerNode[node]++;
+            nEdges++;
+        }
+        entry = delta.findEntry(node, neighbor);
+        delta.flags[entry] |= Delta.PRESENT;
+        delta.edgeWeights[entry] += edgeWeight;
+    }
+
+    private double removeEdgeHelper(int node, int neighbor)
+    {
+        double edgeWeight;
+        int entry;
+
+        edgeWeight = getEdgeWeightHelper(node, neighbor, true);
+        if (!Double.isNaN(edgeWeight))
+        {
+            nNeighborsPerNode[node]--;
+            nEdges--;
+            entry = delta.findEntry(node, neighbor);
+            delta.flags[entry] = (byte)(Delta.REPLACES_LOWER | (delta.flags[entry] & Delta.IN_LOWER));
+            delta.edgeWeights[entry] = 0;
+        }
+        return edgeWeight;
+    }
+
+    /**
+     * Returns the weight of the edge between two nodes, or NaN if there is no
+     * edge between the nodes. If {@code createEntry} is true, an entry for the
+     * edge is created in the delta if there is no such entry yet.
+     */
+    private double getEdgeWeightHelper(int node, int neighbor, boolean createEntry)
+    {
+        double edgeWeight;
+        int entry, frozenEntry;
+        long edge;
+
+        edge = findEdgeHelper(node, neighbor);
+        edgeWeight = (edge >= 0) ? network.getEdgeWeightHelper(node, neighbor, edge) : Double.NaN;
+        frozenEntry = (frozenDelta != null) ? frozenDelta.findEntry(node, neighbor) : -1;
+        if (frozenEntry >= 0)
+            edgeWeight = frozenDelta.apply(frozenEntry, edgeWeight);
+        entry = delta.findEntry(node, neighbor);
+        if ((entry < 0) && createEntry)
+            entry = delta.addEntry(node, neighbor, (edge >= 0) || (frozenEntry >= 0));
+        if (entry >= 0)
+            edgeWeight = delta.apply(entry, edgeWeight);
+        return edgeWeight;
+    }
+
+    /**
+     * Returns the index of the edge between two nodes in the base network, or
+     * -1 if there is no such edge.
+     */
+    private long findEdgeHelper(int node, int neighbor)
+    {
+        int neighbor2;
+        long i, j, k;
+
+        if (node >= network.nNodes)
+            return -1;
+
+        if (sortedNeighbors)
+        {
+            i = network.firstNeighborIndices[node];
+            j = network.firstNeighborIndices[node + 1] - 1;
+            while (i <= j)
+            {
+                k = (i + j) >>> 1;
+                if (getNeighborHelper(network, k) < neighbor)
+                    i = k + 1;
+                else if (getNeighborHelper(network, k) > neighbor)
+                    j = k - 1;
+                else
+                    return k;
+            }
+        }
+        else
+        {
+            // Neighbors stored in a compressed format are sorted, so the scan
+            // can stop at the first neighbor that is larger.
+            neighborCursor.reset(node);
+            while (neighborCursor.hasNext())
+            {
+                neighbor2 = neighborCursor.nextNeighbor();
+                if (neighbor2 == neighbor)
+                    return neighborCursor.getEdge();
+                else if ((neighbor2 > neighbor) && (network.compressedNeighbors != null))
+                    break;
+            }
+        }
+        return -1;
+    }
+
+    private static int getNeighborHelper(Network network, long edge)
+    {
+        return (network.neighbors != null) ? network.neighbors.get(edge) : network.offHeapNeighbors.get(edge);
+    }
+
+    private void startCompactionIfNeededHelper()
+    {
+        // After a failure, no new base network is created in the background
+        // until the failure has been reported by compact().
+        if ((compactionThread == null) && (compactionFailure == null) && (delta.nEntries >= MIN_N_DELTA_ENTRIES_FOR_COMPACTION) && (delta.nEntries > compactionThreshold * network.nEdges))
+        {
+            compactionThread = new Thread(freezeDeltaHelper(), "DynamicNetwork compaction");
+            compactionThread.setDaemon(true);
+            compactionThread.start();
+        }
+    }
+
+    private Compaction freezeDeltaHelper()
+    {
+        frozenDelta = delta;
+        delta = new Delta(nNodes);
+        compaction = new Compaction(network, frozenDelta, nNodes, Arrays.copyOf(nodeWeights, nNodes), Arrays.copyOf(nNeighborsPerNode, nNodes), totalEdgeWeightSelfLinks);
+        return compaction;
+    }
+
+    private void joinCompactionThreadHelper()
+    {
+        boolean interrupted;
+
+        interrupted = false;
+        while (compactionThread.isAlive())
+            try
+            {
+                compactionThread.join();
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private void installNetworkIfCompactedHelper()
+    {
+        if ((compactionThread != null) && !compactionThread.isAlive())
+        {
+            // Joining the finished thread makes the new base network visible
+            // to the current thread.
+            joinCompactionThreadHelper();
+            compactionThread = null;
+            installNetworkHelper();
+        }
+    }
+
+    private void installNetworkHelper()
+    {
+        int i;
+
+        if (compaction.compactedNetwork == null)
+        {
+            // Keep the updates in the frozen delta, so that they are
+            // incorporated by the next compaction. The failure is reported by
+            // compact() instead of by an unrelated update.
+            frozenDelta.merge(delta);
+            delta = frozenDelta;
+            frozenDelta = null;
+            compactionFailure = compaction.failure;
+            compaction = null;
+            return;
+        }
+
+        network = compaction.compactedNetwork;
+        sortedNeighbors = (network.neighbors != null);
+        neighborCursor = new NeighborCursor(network);
+        frozenDelta = null;
+        compaction = null;
+
+        // Entries in the delta refer to the new base network instead of the
+        // frozen delta.
+        for (i = 0; i < delta.nEntries; i++)
+            if (findEdgeHelper(delta.nodes[i], delta.neighbors[i]) >= 0)
+                delta.flags[i] |= Delta.IN_LOWER;
+            else
+                delta.flags[i] &= ~Delta.IN_LOWER;
+    }
+
+    /**
+     * Creation of a new base network from a base network and a frozen delta.
+     */
+    private static class Compaction implements Runnable
+    {
+        Network network;
+        Delta delta;
+        int nNodes;
+        double[] nodeWeights;
+        int[] nNeighborsPerNode;
+        double totalEdgeWeightSelfLinks;
+        Network compactedNetwork;
+        Throwable failure;
+
+        Compaction(Network network, Delta delta, int nNodes, double[] nodeWeights, int[] nNeighborsPerNode, double totalEdgeWeightSelfLinks)
+        {
+            this.network = network;
+            this.delta = delta;
+            this.nNodes = nNodes;
+            this.nodeWeights = nodeWeights;
+            this.nNeighborsPerNode = nNeighborsPerNode;
+            this.totalEdgeWeightSelfLinks = totalEdgeWeightSelfLinks;
+        }
+
+        public void run()
+        {
+            try
+            {
+                compactedNetwork = createCompactedNetworkHelper();
+            }
+            catch (RuntimeException | Error e)
+            {
+                failure = e;
+            }
+        }
+
+        private Network createCompactedNetworkHelper()
+        {
+            int i;
+            long j;
+            Network compactedNetwork;
+            DynamicNeighborCursor neighborCursor;
+
+            compactedNetwork = new Network();
+            compactedNetwork.nNodes = nNodes;
+            compactedNetwork.nodeWeights = nodeWeights;
+            compactedNetwork.totalEdgeWeightSelfLinks = totalEdgeWeightSelfLinks;
+            compactedNetwork.firstNeighborIndices = new long[nNodes + 1];
+            for (i = 0; i < nNodes; i++)
+                compactedNetwork.firstNeighborIndices[i + 1] = compactedNetwork.firstNeighborIndices[i] + nNeighborsPerNode[i];
+            compactedNetwork.nEdges = compactedNetwork.firstNeighborIndices[nNodes];
+            compactedNetwork.neighbors = new LargeIntArray(compactedNetwork.nEdges);
+            compactedNetwork.edgeWeights = new LargeDoubleArray(compactedNetwork.nEdges);
+            neighborCursor = new DynamicNeighborCursor(network, delta, null);
+            for (i = 0; i < nNodes; i++)
+            {
+                neighborCursor.reset(i);
+                for (j = compactedNetwork.firstNeighborIndices[i]; j < compactedNetwork.firstNeighborIndices[i + 1]; j++)
+                {
+                    compactedNetwork.neighbors.set(j, neighborCursor.nextNeighbor());
+                    compactedNetwork.edgeWeights.set(j, neighborCursor.getEdgeWeight());
+                }
+                compactedNetwork.sortNeighborsHelper(i);
+            }
+            return compactedNetwork;
+        }
+    }
+
+    /**
+     * Insertions and deletions of edges relative to a base network, possibly
+     * with another delta in between.
+     *
+     * <p>
+     * The delta has an entry for each edge, in each direction, that has been
+     * inserted or deleted. An entry either adds a weight to the edge in the
+     * layers below the delta, or replaces the edge in the layers below the
+     * delta. Entries are found using an open-addressing hash table. The
+     * entries of a node are linked in a list, so that the entries of a node
+     * can be listed without scanning the entire delta.
+     * </p>
+     */
+    static class Delta
+    {
+        /**
+         * Flag indicating that an entry contributes an edge.
+         */
+        static final byte PRESENT = 1;
+
+        /**
+         * Flag indicating that an entry replaces the edge in the layers below
+         * the delta.
+         */
+        static final byte REPLACES_LOWER = 2;
+
+        /**
+         * Flag indicating that the edge of an entry exists, or has an entry,
+         * in the layers below the delta.
+         */
+        static final byte IN_LOWER = 4;
+
+        int nEntries;
+        int[] nodes;
+        int[] neighbors;
+        double[] edgeWeights;
+        byte[] flags;
+        int[] nextEntries;
+        int[] firstEntries;
+        int[] lastEntries;
+        int[] slots;
+
+        Delta(int nNodes)
+        {
+            nEntries = 0;
+            nodes = new int[16];
+            neighbors = new int[16];
+            edgeWeights = new double[16];
+            flags = new byte[16];
+            nextEntries = new int[16];
+            firstEntries = new int[nNodes];
+            Arrays.fill(firstEntries, -1);
+            lastEntries = new int[nNodes];
+            slots = new int[32];
+            Arrays.fill(slots, -1);
+        }
+
+        void ensureNNodes(int nNodes)
+        {
+            int i;
+
+            if (nNodes > firstEntries.length)
+            {
+                i = firstEntries.length;
+                firstEntries = Arrays.copyOf(firstEntries, Math.max(2 * i, nNodes));
+                Arrays.fill(firstEntries, i, firstEntries.length, -1);
+                lastEntries = Arrays.copyOf(lastEntries, firstEntries.length);
+            }
+        }
+
+        int getFirstEntry(int node)
+        {
+            return (node < firstEntries.length) ? firstEntries[node] : -1;
+        }
+
+        /**
+         * Returns the entry of an edge, or -1 if there is no such entry.
+         */
+        int findEntry(int node, int neighbor)
+        {
+            int slot;
+
+            slot = findSlot(node, neighbor);
+            return slots[slot];
+        }
+
+        int addEntry(int node, int neighbor, boolean inLower)
+        {
+            int entry;
+
+            if (nEntries == nodes.length)
+            {
+                nodes = Arrays.copyOf(nodes, 2 * nEntries);
+                neighbors = Arrays.copyOf(neighbors, 2 * nEntries);
+                edgeWeights = Arrays.copyOf(edgeWeights, 2 * nEntries);
+                flags = Arrays.copyOf(flags, 2 * nEntries);
+                nextEntries = Arrays.copyOf(nextEntries, 2 * nEntries);
+            }
+            if (2 * (nEntries + 1) > slots.length)
+                rehash(2 * slots.length);
+            ensureNNodes(node + 1);
+
+            entry = nEntries;
+            nodes[entry] = node;
+            neighbors[entry] = neighbor;
+            edgeWeights[entry] = 0;
+            flags[entry] = inLower ? IN_LOWER : 0;
+            nextEntries[entry] = -1;
+            slots[findSlot(node, neighbor)] = entry;
+            nEntries++;
+
+            // Append the entry to the list of entries of the node, so that
+            // entries are listed in the order in which they were created.
+            if (firstEntries[node] < 0)
+                firstEntries[node] = entry;
+            else
+                nextEntries[lastEntries[node]] = entry;
+            lastEntries[node] = entry;
+
+            return entry;
+        }
+
+        /**
+         * Merges a delta on top of this delta into this delta.
+         *
+         * <p>
+         * Afterwards, each entry of this delta has the same effect as the
+         * corresponding entries of the two deltas applied one after the
+         * other. Flags indicating whether an edge exists in the layers below
+         * refer to the layers below this delta.
+         * </p>
+         */
+        void merge(Delta upperDelta)
+        {
+            byte inLower;
+            int entry, i;
+
+            for (i = 0; i < upperDelta.nEntries; i++)
+            {
+                entry = findEntry(upperDelta.nodes[i], upperDelta.neighbors[i]);
+                if (entry < 0)
+                {
+                    // The edge exists in the layers below this delta if and
+                    // only if it exists in the layers below the upper delta.
+                    entry = addEntry(upperDelta.nodes[i], upperDelta.neighbors[i], (upperDelta.flags[i] & IN_LOWER) != 0);
+                    flags[entry] = upperDelta.flags[i];
+                    edgeWeights[entry] = upperDelta.edgeWeights[i];
+                }
+                else
+                {
+                    inLower = (byte)(flags[entry] & IN_LOWER);
+                    if ((upperDelta.flags[i] & REPLACES_LOWER) != 0)
+                    {
+                        flags[entry] = (byte)((upperDelta.flags[i] & ~IN_LOWER) | inLower);
+                        edgeWeights[entry] = upperDelta.edgeWeights[i];
+                    }
+                    else if ((upperDelta.flags[i] & PRESENT) != 0)
+                    {
+                        if ((flags[entry] & PRESENT) != 0)
+                            edgeWeights[entry] += upperDelta.edgeWeights[i];
+                        else
+                        {
+                            // Keep a deletion in this delta, so that the edge
+                            // in the layers below is replaced.
+                            flags[entry] |= PRESENT;
+                            edgeWeights[entry] = upperDelta.edgeWeights[i];
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Applies an entry to the weight of the edge in the layers below the
+         * delta, where NaN indicates that there is no edge.
+         */
+        double apply(int entry, double edgeWeight)
+        {
+            if ((flags[entry] & REPLACES_LOWER) != 0)
+                return ((flags[entry] & PRESENT) != 0) ? edgeWeights[entry] : Double.NaN;
+            else if ((flags[entry] & PRESENT) != 0)
+                return !Double.isNaN(edgeWeight) ? edgeWeight + edgeWeights[entry] : edgeWeights[entry];
+            else
+                return edgeWeight;
+        }
+
+        private int findSlot(int node, int neighbor)
+        {
+            int mask, slot;
+
+            mask = slots.length - 1;
+            slot = (int)(((((long)node << 32) | neighbor) * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while ((slots[slot] >= 0) && ((nodes[slots[slot]] != node) || (neighbors[slots[slot]] != neighbor)))
+                slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        private void rehash(int nSlots)
+        {
+            int i;
+
+            slots = new int[nSlots];
+            Arrays.fill(slots, -1);
+            for (i = 0; i < nEntries; i++)
+                slots[findSlot(nodes[i], neighbors[i])] = i;
+        }
+    }
+}
@@ -0,0 +1,672 @@
+package nl.cwts.networkanalysis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import nl.cwts.util.LargeDoubleArray;
+import nl.cwts.util.LargeIntArray;
+
+/**
+ * Builder of networks based on lists of edges that may not fit in memory.
+ *
+ * <p>
+ * Edges are added one by one and are buffered in memory in both directions.
+ * When the buffer is full, it is sorted and written to a temporary file as a
+ * sorted run. When the network is built, the runs are merged directly into
+ * the arrays of the network or into a file in the binary network format. The
+ * memory used for buffering edges does not exceed a specified maximum. Apart
+ * from this buffer, only the network itself and a small amount of memory per
+ * node are kept in memory.
+ * </p>
+ *
+ * <p>
+ * The network that is built is identical to the network constructed using
+ * {@link Network#Network(int nNodes, boolean
+ * setNodeWeightsToTotalEdgeWeights, LargeIntArray[] edges, LargeDoubleArray
+ * edgeWeights, boolean sortedEdges, boolean checkIntegrity)} with {@code
+ * sortedEdges} set to false. The number of nodes equals the highest node
+ * number plus one.
+ * </p>
+ *
+ * <p>
+ * A builder can be used to build only one network. Temporary files are
+ * deleted when the network has been built.
+ * </p>
+ *
+ * @author Ludo Waltman
+ * @author Nees Jan van Eck
+ * @author Vincent Traag
+ */
+public class ExternalMemoryNetworkBuilder
+{
+    /**
+     * Default maximum amount of memory in bytes used for buffering edges.
+     */
+    public static final long DEFAULT_MAX_MEMORY = 1L << 30;
+
+    /**
+     * Maximum number of runs that are merged at once.
+     */
+    private static final int MAX_N_RUNS_PER_MERGE = 64;
+
+    /**
+     * Size in bytes of the buffer used for reading or writing a run.
+     */
+    private static final int RUN_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Size in bytes of the buffers used for writing a network in the binary
+     * network format.
+     */
+    private static final int BINARY_FORMAT_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Indicates whether edges have weights.
+     */
+    protected boolean weightedEdges;
+
+    /**
+     * Maximum number of edges in the buffer.
+     */
+    protected long bufferCapacity;
+
+    /**
+     * Directory in which temporary files are created.
+     */
+    protected File tempDirectory;
+
+    /**
+     * Number of nodes.
+     */
+    protected int nNodes;
+
+    /**
+     * Number of neighbors of each node, stored at the index of the node plus
+     * one.
+     */
+    protected long[] nNeighborsPerNode;
+
+    /**
+     * Buffered edges.
+     */
+    protected LargeIntArray[] bufferEdges;
+
+    /**
+     * Weights of buffered edges.
+     */
+    protected LargeDoubleArray bufferEdgeWeights;
+
+    /**
+     * Temporary files storing sorted runs of edges.
+     */
+    protected List<File> runFiles;
+
+    /**
+     * Indicates whether the network has been built.
+     */
+    protected boolean built;
+
+    /**
+     * Constructs a builder using the default maximum amount of memory and the
+     * default temporary-file directory.
+     *
+     * @param weightedEdges Indicates whether edges have weights
+     */
+    public ExternalMemoryNetworkBuilder(boolean weightedEdges)
+    {
+        this(weightedEdges, DEFAULT_MAX_MEMORY, null);
+    }
+
+    /**
+     * Constructs a builder.
+     *
+     * <p>
+     * If {@code tempDirectory} is null, temporary files are created in the
+     * default temporary-file directory.
+     * </p>
+     *
+     * @param weightedEdges Indicates whether edges have weights
+     * @param maxMemory     Maximum amount of memory in bytes used for
+     *                      buffering edges
+     * @param tempDirectory Directory in which temporary files are created
+     */
+    public ExternalMemoryNetworkBuilder(boolean weightedEdges, long maxMemory, File tempDirectory)
+    {
+        this.weightedEdges = weightedEdges;
+        this.tempDirectory = tempDirectory;
+
+        // Sorting the buffer requires a copy of the buffer.
+        bufferCapacity = Math.max(maxMemory / (2 * (2 * Integer.BYTES + (weightedEdges ? Double.BYTES : 0))), 2);
+
+        nNodes = 0;
+        nNeighborsPerNode = new long[1];
+        bufferEdges = new LargeIntArray[2];
+        bufferEdges[0] = new LargeIntArray(0);
+        bufferEdges[1] = new LargeIntArray(0);
+        bufferEdgeWeights = weightedEdges ? new LargeDoubleArray(0) : null;
+        runFiles = new ArrayList<File>();
+        built = false;
+    }
+
+    /**
+     * Adds an edge with weight 1.
+     *
+     * @param node1 Node
+     * @param node2 Node
+     *
+     * @throws IOException Could not write to a temporary file
+     */
+    public void addEdge(int node1, int node2) throws IOException
+    {
+        addEdge(node1, node2, 1);
+    }
+
+    /**
+     * Adds an edge.
+     *
+     * <p>
+     * Each edge must be added only once. The edge weight is ignored if edges do
+     * not have weights.
+     * </p>
+     *
+     * @param node1      Node
+     * @param node2      Node
+     * @param edgeWeight Edge weight
+     *
+     * @throws IOException Could not write to a temporary file
+     */
+    public void addEdge(int node1, int node2, double edgeWeight) throws IOException
+    {
+        int node;
+
+        if (built)
+            throw new IllegalStateException("Network has already been built.");
+        if ((node1 < 0) || (node2 < 0))
+            throw new IllegalArgumentException("Nodes must have non-negative values.");
+
+        if (bufferEdges[0].size() + 2 > bufferCapacity)
+            writeRun();
+
+        node = Math.max(node1, node2);
+        if (node >= nNodes)
+        {
+            if (node + 1 >= nNeighborsPerNode.length)
+                nNeighborsPerNode = Arrays.copyOf(nNeighborsPerNode, (int)Math.min(Math.max(2L * nNeighborsPerNode.length, node + 2L), Integer.MAX_VALUE));
+            nNodes = node + 1;
+        }
+
+        appendEdge(node1, node2, edgeWeight);
+        if (node1 != node2)
+        {
+            appendEdge(node2, node1, edgeWeight);
+            nNeighborsPerNode[node1 + 1]++;
+            nNeighborsPerNode[node2 + 1]++;
+        }
+    }
+
+    /**
+     * Builds the network.
+     *
+     * <p>
+     * If {@code setNodeWeightsToTotalEdgeWeights} is false, the weights of the
+     * nodes are set to 1. If {@code setNodeWeightsToTotalEdgeWeights} is true,
+     * the weight of a node is set equal to the total weight of the edges
+     * between the node and its neighbors.
+     * </p>
+     *
+     * <p>
+     * If {@code checkIntegrity} is true, only the structure of the network is
+     * checked (see {@link Network#INTEGRITY_CHECK_STRUCTURE}). Edges are
+     * buffered in both directions, so they are guaranteed to be stored in
+     * both directions. Checking this would require 8 bytes of memory per
+     * edge.
+     * </p>
+     *
+     * @param setNodeWeightsToTotalEdgeWeights Indicates whether to set node
+     *                                         weights equal to total edge
+     *                                         weights
+     * @param checkIntegrity                   Indicates whether to check the
+     *                                         integrity of the network
+     *
+     * @return Network
+     *
+     * @throws IOException Could not read from or write to a temporary file
+     */
+    public Network build(boolean setNodeWeightsToTotalEdgeWeights, boolean checkIntegrity) throws IOException
+    {
+        double edgeWeight;
+        long i;
+        Network network;
+        RunMerger runMerger;
+
+        network = new Network();
+        network.nNodes = nNodes;
+        network.firstNeighborIndices = getFirstNeighborIndices();
+        network.nEdges = network.firstNeighborIndices[nNodes];
+        network.nodeWeights = setNodeWeightsToTotalEdgeWeights ? new double[nNodes] : nl.cwts.util.Arrays.createDoubleArrayOfOnes(nNodes);
+        network.neighbors = new LargeIntArray(network.nEdges);
+        network.edgeWeights = weightedEdges ? new LargeDoubleArray(network.nEdges) : null;
+        network.totalEdgeWeightSelfLinks = 0;
+
+        runMerger = createRunMerger();
+        try
+        {
+            i = 0;
+            while (runMerger.next())
+            {
+                edgeWeight = runMerger.edgeWeight;
+                if (runMerger.node1 != runMerger.node2)
+                {
+                    network.neighbors.set(i, runMerger.node2);
+                    if (weightedEdges)
+                        network.edgeWeights.set(i, edgeWeight);
+                    if (setNodeWeightsToTotalEdgeWeights)
+                        network.nodeWeights[runMerger.node1] += edgeWeight;
+                    i++;
+                }
+                else
+                    network.totalEdgeWeightSelfLinks += edgeWeight;
+            }
+        }
+        finally
+        {
+            runMerger.close();
+        }
+
+        if (checkIntegrity)
+            network.checkIntegrity(Network.INTEGRITY_CHECK_STRUCTURE);
+
+        return network;
+    }
+
+    /**
+     * Builds the network and writes it to a file in the binary network format.
+     *
+     * <p>
+     * The network is written directly to the file, without constructing the
+     * network in memory. The file can be read using {@link
+     * Network#loadBinary(String filename)}.
+     * </p>
+     *
+     * @param filename                         Filename
+     * @param setNodeWeightsToTotalEdgeWeights Indicates whether to set node
+     *                                         weights equal to total edge
+     *                                         weights
+     *
+     * @throws IOException Could not read from or write to a file
+     *
+     * @see #build(boolean setNodeWeightsToTotalEdgeWeights, boolean
+     * checkIntegrity)
+     */
+    public void buildBinary(String filename, boolean setNodeWeightsToTotalEdgeWeights) throws IOException
+    {
+        ByteBuffer buffer, edgeWeightsBuffer, neighborsBuffer;
+        double edgeWeight, totalEdgeWeightSelfLinks;
+        double[] nodeWeights;
+        FileChannel fileChannel;
+        int i, n;
+        long edgeWeightsPosition, nEdges, neighborsPosition;
+        long[] firstNeighborIndices;
+        RunMerger runMerger;
+
+        firstNeighborIndices = getFirstNeighborIndices();
+        nEdges = firstNeighborIndices[nNodes];
+        nodeWeights = setNodeWeightsToTotalEdgeWeights ? new double[nNodes] : nl.cwts.util.Arrays.createDoubleArrayOfOnes(nNodes);
+        totalEdgeWeightSelfLinks = 0;
+
+        fileChannel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        runMerger = null;
+        try
+        {
+            // Write neighbors and edge weights while merging the runs.
+            neighborsPosition = Network.BINARY_FORMAT_HEADER_SIZE + (long)nNodes * Double.BYTES + ((long)nNodes + 1) * Long.BYTES;
+            edgeWeightsPosition = neighborsPosition + (nEdges + nEdges % 2) * Integer.BYTES;
+            neighborsBuffer = ByteBuffer.allocateDirect(BINARY_FORMAT_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            edgeWeightsBuffer = ByteBuffer.allocateDirect(BINARY_FORMAT_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            runMerger = createRunMerger();
+            while (runMerger.next())
+            {
+                edgeWeight = runMerger.edgeWeight;
+                if (runMerger.node1 != runMerger.node2)
+                {
+                    if (neighborsBuffer.remaining() < Integer.BYTES)
+                        neighborsPosition = writeBinaryFormatHelper(fileChannel, neighborsBuffer, neighborsPosition);
+                    neighborsBuffer.putInt(runMerger.node2);
+                    if (edgeWeightsBuffer.remaining() < Double.BYTES)
+                        edgeWeightsPosition = writeBinaryFormatHelper(fileChannel, edgeWeightsBuffer, edgeWeightsPosition);
+                    edgeWeightsBuffer.putDouble(edgeWeight);
+                    if (setNodeWeightsToTotalEdgeWeights)
+                        nodeWeights[runMerger.node1] += edgeWeight;
+                }
+                else
+                    totalEdgeWeightSelfLinks += edgeWeight;
+            }
+            if (nEdges % 2 == 1)
+            {
+                if (neighborsBuffer.remaining() < Integer.BYTES)
+                    neighborsPosition = writeBinaryFormatHelper(fileChannel, neighborsBuffer, neighborsPosition);
+                neighborsBuffer.putInt(0);
+            }
+            writeBinaryFormatHelper(fileChannel, neighborsBuffer, neighborsPosition);
+            writeBinaryFormatHelper(fileChannel, edgeWeightsBuffer, edgeWeightsPosition);
+
+            // Write header, node weights, and first neighbor indices.
+            buffer = ByteBuffer.allocateDirect(BINARY_FORMAT_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            Network.putBinaryFormatHeaderHelper(buffer, nNodes, nEdges, totalEdgeWeightSelfLinks);
+            fileChannel.position(0);
+            for (i = 0; i < nNodes; i += n)
+            {
+                if (buffer.remaining() < Double.BYTES)
+                    Network.writeBinaryFormatHelper(fileChannel, buffer);
+                n = Math.min(nNodes - i, buffer.remaining() / Double.BYTES);
+                buffer.asDoubleBuffer().put(nodeWeights, i, n);
+                buffer.position(buffer.position() + n * Double.BYTES);
+            }
+            for (i = 0; i < nNodes + 1; i += n)
+            {
+                if (buffer.remaining() < Long.BYTES)
+                    Network.writeBinaryFormatHelper(fileChannel, buffer);
+                n = Math.min(nNodes + 1 - i, buffer.remaining() / Long.BYTES);
+                buffer.asLongBuffer().put(firstNeighborIndices, i, n);
+                buffer.position(buffer.position() + n * Long.BYTES);
+            }
+            Network.writeBinaryFormatHelper(fileChannel, buffer);
+        }
+        finally
+        {
+            if (runMerger != null)
+                runMerger.close();
+            fileChannel.close();
+        }
+    }
+
+    private void appendEdge(int node1, int node2, double edgeWeight)
+    {
+        bufferEdges[0].append(node1);
+        bufferEdges[1].append(node2);
+        if (weightedEdges)
+            bufferEdgeWeights.append(edgeWeight);
+    }
+
+    private long[] getFirstNeighborIndices()
+    {
+        long[] firstNeighborIndices;
+        int i;
+
+        if (built)
+            throw new IllegalStateException("Network has already been built.");
+        built = true;
+
+        firstNeighborIndices = Arrays.copyOf(nNeighborsPerNode, nNodes + 1);
+        nNeighborsPerNode = null;
+        for (i = 1; i <= nNodes; i++)
+            firstNeighborIndices[i] += firstNeighborIndices[i - 1];
+        return firstNeighborIndices;
+    }
+
+    private void writeRun() throws IOException
+    {
+        DataOutputStream outputStream;
+        File runFile;
+        long i;
+
+        Network.sortEdges(bufferEdges, bufferEdgeWeights);
+
+        runFile = File.createTempFile("network", ".run", tempDirectory);
+        runFile.deleteOnExit();
+        runFiles.add(runFile);
+        outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile), RUN_BUFFER_SIZE));
+        try
+        {
+            for (i = 0; i < bufferEdges[0].size(); i++)
+            {
+                outputStream.writeInt(bufferEdges[0].get(i));
+                outputStream.writeInt(bufferEdges[1].get(i));
+                if (weightedEdges)
+                    outputStream.writeDouble(bufferEdgeWeights.get(i));
+            }
+        }
+        finally
+        {
+            outputStream.close();
+        }
+
+        bufferEdges[0].clear();
+        bufferEdges[1].clear();
+        if (weightedEdges)
+            bufferEdgeWeights.clear();
+    }
+
+    private RunMerger createRunMerger() throws IOException
+    {
+        DataOutputStream outputStream;
+        File runFile;
+        int i;
+        List<File> mergedRunFiles;
+        RunMerger runMerger;
+
+        // Keep the buffer in memory if no runs have been written.
+        if (runFiles.isEmpty())
+        {
+            Network.sortEdges(bufferEdges, bufferEdgeWeights);
+            runMerger = new RunMerger(weightedEdges, bufferEdges, bufferEdgeWeights);
+            bufferEdges = null;
+            bufferEdgeWeights = null;
+            return runMerger;
+        }
+        if (bufferEdges[0].size() > 0)
+            writeRun();
+        bufferEdges = null;
+        bufferEdgeWeights = null;
+
+        // Merge runs in groups of consecutive runs until the remaining runs can
+        // be merged at once. Merging consecutive runs keeps the merge stable.
+        while (runFiles.size() > MAX_N_RUNS_PER_MERGE)
+        {
+            mergedRunFiles = new ArrayList<File>();
+            for (i = 0; i < runFiles.size(); i += MAX_N_RUNS_PER_MERGE)
+            {
+                runFile = File.createTempFile("network", ".run", tempDirectory);
+                runFile.deleteOnExit();
+                mergedRunFiles.add(runFile);
+                runMerger = new RunMerger(weightedEdges, runFiles.subList(i, Math.min(i + MAX_N_RUNS_PER_MERGE, runFiles.size())));
+                outputStream = null;
+                try
+                {
+                    outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile), RUN_BUFFER_SIZE));
+                    while (runMerger.next())
+                    {
+                        outputStream.writeInt(runMerger.node1);
+                        outputStream.writeInt(runMerger.node2);
+                        if (weightedEdges)
+                            outputStream.writeDouble(runMerger.edgeWeight);
+                    }
+                }
+                finally
+                {
+                    runMerger.close();
+                    if (outputStream != null)
+                        outputStream.close();
+                }
+            }
+            runFiles = mergedRunFiles;
+        }
+
+        runMerger = new RunMerger(weightedEdges, runFiles);
+        runFiles = new ArrayList<File>();
+        return runMerger;
+    }
+
+    private static long writeBinaryFormatHelper(FileChannel fileChannel, ByteBuffer buffer, long position) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            position += fileChannel.write(buffer, position);
+        buffer.clear();
+        return position;
+    }
+
+    /**
+     * Stable merge of sorted runs of edges.
+     *
+     * <p>
+     * Edges are returned in order of their first node and then their second
+     * node. Edges that are equal are returned in order of the runs.
+     * </p>
+     */
+    private static class RunMerger
+    {
+        boolean weightedEdges;
+        int node1;
+        int node2;
+        double edgeWeight;
+
+        private LargeIntArray[] edges;
+        private LargeDoubleArray edgeWeights;
+        private long nextEdge;
+
+        private List<File> runFiles;
+        private RunReader[] runReaders;
+        private PriorityQueue<RunReader> queue;
+
+        RunMerger(boolean weightedEdges, LargeIntArray[] edges, LargeDoubleArray edgeWeights)
+        {
+            this.weightedEdges = weightedEdges;
+            this.edges = edges;
+            this.edgeWeights = edgeWeights;
+            nextEdge = 0;
+            edgeWeight = 1;
+        }
+
+        RunMerger(boolean weightedEdges, List<File> runFiles) throws IOException
+        {
+            int i;
+
+            this.weightedEdges = weightedEdges;
+            this.runFiles = new ArrayList<File>(runFiles);
+            edgeWeight = 1;
+            runReaders = new RunReader[runFiles.size()];
+            queue = new PriorityQueue<RunReader>(Math.max(runFiles.size(), 1));
+            try
+            {
+                for (i = 0; i < runFiles.size(); i++)
+                {
+                    runReaders[i] = new RunReader(i, runFiles.get(i), weightedEdges);
+                    if (runReaders[i].next())
+                        queue.add(runReaders[i]);
+                }
+            }
+            catch (IOException e)
+            {
+                close();
+                throw e;
+            }
+        }
+
+        boolean next() throws IOException
+        {
+            RunReader runReader;
+
+            if (edges != null)
+            {
+                if (nextEdge >= edges[0].size())
+                    return false;
+                node1 = edges[0].get(nextEdge);
+                node2 = edges[1].get(nextEdge);
+                if (weightedEdges)
+                    edgeWeight = edgeWeights.get(nextEdge);
+                nextEdge++;
+                return true;
+            }
+
+            runReader = queue.poll();
+            if (runReader == null)
+                return false;
+            node1 = runReader.node1;
+            node2 = runReader.node2;
+            edgeWeight = runReader.edgeWeight;
+            if (runReader.next())
+                queue.add(runReader);
+            return true;
+        }
+
+        void close() throws IOException
+        {
+            int i;
+
+            edges = null;
+            edgeWeights = null;
+            if (runReaders != null)
+            {
+                for (i = 0; i < runReaders.length; i++)
+                    if (runReaders[i] != null)
+                        runReaders[i].inputStream.close();
+                for (i = 0; i < runFiles.size(); i++)
+                    runFiles.get(i).delete();
+                runReaders = null;
+            }
+        }
+    }
+
+    /**
+     * Reader of a sorted run of edges.
+     */
+    private static class RunReader implements Comparable<RunReader>
+    {
+        int run;
+        boolean weightedEdges;
+        DataInputStream inputStream;
+        int node1;
+        int node2;
+        double edgeWeight;
+
+        RunReader(int run, File runFile, boolean weightedEdges) throws IOException
+        {
+            this.run = run;
+            this.weightedEdges = weightedEdges;
+            inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(runFile), RUN_BUFFER_SIZE));
+            edgeWeight = 1;
+        }
+
+        boolean next() throws IOException
+        {
+            try
+            {
+                node1 = inputStream.readInt();
+            }
+            catch (EOFException e)
+            {
+                return false;
+            }
+            node2 = inputStream.readInt();
+            if (weightedEdges)
+                edgeWeight = inputStream.readDouble();
+            return true;
+        }
+
+        public int compareTo(RunReader runReader)
+        {
+            if (node1 != runReader.node1)
+                return (node1 < runReader.node1) ? -1 : 1;
+            if (node2 != runReader.node2)
+                return (node2 < runReader.node2) ? -1 : 1;
+            return Integer.compare(run, runReader.run);
+        }
+    }
+}
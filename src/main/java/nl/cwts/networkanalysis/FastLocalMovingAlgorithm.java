@@ -1,6 +1,11 @@
 package nl.cwts.networkanalysis;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
 
 import nl.cwts.util.Arrays;
 
@@ -23,17 +28,50 @@ import nl.cwts.util.Arrays;
  * StandardLocalMovingAlgorithm}.
  * </p>
  *
+ * <p>
+ * Optionally, nodes in large networks are moved by multiple threads in
+ * parallel (see {@link #setParallel(boolean parallel)}).
+ * </p>
+ *
  * @author Ludo Waltman
  * @author Nees Jan van Eck
  * @author Vincent Traag
  */
 public class FastLocalMovingAlgorithm extends IterativeCPMClusteringAlgorithm
 {
+    /**
+     * Minimum number of edges for which nodes are moved in parallel if
+     * parallel local moving is enabled.
+     */
+    private static final long PARALLEL_MIN_N_EDGES = 1 << 20;
+
+    /**
+     * Minimum number of nodes in the queue for which nodes are moved in
+     * parallel. Once the queue has become smaller, the remaining nodes are
+     * moved sequentially.
+     */
+    private static final int PARALLEL_MIN_N_UNSTABLE_NODES = 1 << 12;
+
+    /**
+     * Maximum number of rounds in which nodes are moved in parallel.
+     */
+    private static final int MAX_N_PARALLEL_ROUNDS = 100;
+
+    /**
+     * Number of nodes that a thread removes from the queue at once.
+     */
+    private static final int PARALLEL_BLOCK_SIZE = 256;
+
     /**
      * Random number generator.
      */
     protected Random random;
 
+    /**
+     * Indicates whether nodes in large networks are moved in parallel.
+     */
+    protected boolean parallel;
+
     /**
      * Constructs a fast local moving algorithm.
      */
@@ -67,6 +105,35 @@ public class FastLocalMovingAlgorithm extends IterativeCPMClusteringAlgorithm
         this.random = random;
     }
 
+    /**
+     * Returns whether nodes in large networks are moved in parallel.
+     *
+     * @return Boolean indicating whether nodes are moved in parallel
+     */
+    public boolean isParallel()
+    {
+        return parallel;
+    }
+
+    /**
+     * Sets whether nodes in large networks are moved in parallel.
+     *
+     * <p>
+     * Parallel local moving is disabled by default. If it is enabled, nodes
+     * in networks with at least 2^20 edges are moved in parallel (see {@link
+     * #improveClusteringOneIteration(Network network, Clustering clustering,
+     * boolean parallel)}). The clustering that is obtained then depends on the
+     * scheduling of the threads, and it can therefore not be reproduced using
+     * the random number generator.
+     * </p>
+     *
+     * @param parallel Indicates whether nodes are moved in parallel
+     */
+    public void setParallel(boolean parallel)
+    {
+        this.parallel = parallel;
+    }
+
     /**
      * Improves a clustering by performing one iteration of the fast local
      * moving algorithm.
@@ -82,24 +149,111 @@ public class FastLocalMovingAlgorithm extends IterativeCPMClusteringAlgorithm
      * removing nodes from the queue until the queue is empty.
      * </p>
      *
+     * <p>
+     * If the algorithm is cancelled, it stops removing nodes from the queue.
+     * </p>
+     *
+     * <p>
+     * If parallel local moving is enabled and the network is large, nodes are
+     * moved in parallel (see {@link #improveClusteringOneIteration(Network
+     * network, Clustering clustering, boolean parallel)}).
+     * </p>
+     *
      * @param network    Network
      * @param clustering Clustering
      *
      * @return Boolean indicating whether the clustering has been improved
      */
     protected boolean improveClusteringOneIteration(Network network, Clustering clustering)
+    {
+        return improveClusteringOneIteration(network, clustering, parallel && (network.nEdges >= PARALLEL_MIN_N_EDGES));
+    }
+
+    /**
+     * Improves a clustering by performing one iteration of the fast local
+     * moving algorithm, optionally moving nodes in parallel.
+     *
+     * <p>
+     * If {@code parallel} is true, the queue is processed in rounds by
+     * multiple threads. In each round, the threads repeatedly remove a block
+     * of nodes from the queue and move each node to its optimal cluster. The
+     * weights and the numbers of nodes of the clusters are updated atomically,
+     * so that moves do not require locks. Neighbors of a moved node that do
+     * not belong to the node's new cluster are added to the queue for the next
+     * round, unless they are already in the queue. A thread may see a slightly
+     * outdated cluster assignment of a neighbor while another thread moves the
+     * neighbor, but the neighbor is then added to the queue again. To prevent
+     * two nodes from endlessly swapping their singleton clusters, a node in a
+     * singleton cluster is moved to another singleton cluster only if the
+     * other cluster has a lower number. Once the queue has become small, or
+     * after a maximum number of rounds, the remaining nodes in the queue are
+     * moved sequentially. This guarantees that, like the sequential algorithm,
+     * each node ends up in an optimal cluster, so that the quality of the
+     * resulting clustering is equivalent to the quality obtained using the
+     * sequential algorithm.
+     * </p>
+     *
+     * @param network    Network
+     * @param clustering Clustering
+     * @param parallel   Indicates whether to move nodes in parallel
+     *
+     * @return Boolean indicating whether the clustering has been improved
+     */
+    protected boolean improveClusteringOneIteration(Network network, Clustering clustering, boolean parallel)
     {
         boolean update;
         boolean[] stableNodes;
-        double maxQualityValueIncrement, qualityValueIncrement;
-        double[] clusterWeights, edgeWeightPerCluster;
-        int bestCluster, currentCluster, i, j, l, m, nNeighboringClusters, nUnstableNodes, nUnusedClusters;
-        long k;
-        int[] neighboringClusters, nNodesPerCluster, nodeOrder, unusedClusters;
+        int i, nUnstableNodes;
+        int[] nodeOrder;
 
-        if (network.nNodes == 1)
+        if ((network.nNodes == 1) || isCancelled())
             return false;
 
+        nodeOrder = Arrays.generateRandomPermutation(network.nNodes, random);
+        stableNodes = new boolean[network.nNodes];
+
+        if (parallel)
+        {
+            update = moveNodesInParallelHelper(network, clustering, nodeOrder, stableNodes, Runtime.getRuntime().availableProcessors());
+
+            nUnstableNodes = 0;
+            for (i = 0; i < network.nNodes; i++)
+                if (!stableNodes[i])
+                    nUnstableNodes++;
+        }
+        else
+        {
+            update = false;
+            nUnstableNodes = network.nNodes;
+        }
+
+        if (!isCancelled())
+            update |= moveNodesHelper(network, clustering, nodeOrder, nUnstableNodes, stableNodes);
+
+        if (update)
+            clustering.removeEmptyClusters();
+
+        return update;
+    }
+
+    /**
+     * Moves nodes sequentially until the queue is empty.
+     *
+     * <p>
+     * The queue of nodes is given by nodeOrder[0], ..., nodeOrder[nUnstableNodes
+     * - 1]. Nodes that are not in the queue are marked as stable.
+     * </p>
+     */
+    private boolean moveNodesHelper(Network network, Clustering clustering, int[] nodeOrder, int nUnstableNodes, boolean[] stableNodes)
+    {
+        boolean update;
+        double maxQualityValueIncrement, qualityValueIncrement;
+        double[] clusterWeights, edgeWeightPerCluster;
+        int bestCluster, currentCluster, i, j, k, l, m, nNeighboringClusters, nUnusedClusters;
+        int[] neighboringClusters, nNodesPerCluster, unusedClusters;
+        long nVisitedNodes;
+        NeighborCursor neighborCursor;
+
         update = false;
 
         clusterWeights = new double[network.nNodes];
@@ -119,8 +273,6 @@ public class FastLocalMovingAlgorithm extends IterativeCPMClusteringAlgorithm
                 nUnusedClusters++;
             }
 
-        nodeOrder = Arrays.generateRandomPermutation(network.nNodes, random);
-
         /*
          * Iterate over the nodeOrder array in a cyclical manner. When the end
          * of the array has been reached, start again from the beginning. The
@@ -130,11 +282,15 @@ public class FastLocalMovingAlgorithm extends IterativeCPMClusteringAlgorithm
          */
         edgeWeightPerCluster = new double[network.nNodes];
         neighboringClusters = new int[network.nNodes];
-        stableNodes = new boolean[network.nNodes];
-        nUnstableNodes = network.nNodes;
+        neighborCursor = new NeighborCursor(network);
+        nVisitedNodes = 0;
         i = 0;
-        do
+        while (nUnstableNodes > 0)
         {
+            if (((nVisitedNodes % CANCELLATION_CHECK_INTERVAL) == 0) && isCancelled())
+                break;
+            nVisitedNodes++;
+
             j = nodeOrder[i];
 
             currentCluster = clustering.clusters[j];
@@ -157,15 +313,16 @@ public class FastLocalMovingAlgorithm extends IterativeCPMClusteringAlgorithm
              */
             neighboringClusters[0] = unusedClusters[nUnusedClusters - 1];
             nNeighboringClusters = 1;
-            for (k = network.firstNeighborIndices[j]; k < network.firstNeighborIndices[j + 1]; k++)
+            neighborCursor.reset(j);
+            while (neighborCursor.hasNext())
             {
-                l = clustering.clusters[network.neighbors.get(k)];
+                l = clustering.clusters[neighborCursor.nextNeighbor()];
                 if (edgeWeightPerCluster[l] == 0)
                 {
                     neighboringClusters[nNeighboringClusters] = l;
                     nNeighboringClusters++;
                 }
-                edgeWeightPerCluster[l] += network.edgeWeights.get(k);
+                edgeWeightPerCluster[l] += neighborCursor.getEdgeWeight();
             }
 
             /*
@@ -224,23 +381,363 @@ public class FastLocalMovingAlgorithm extends IterativeCPMClusteringAlgorithm
                 if (bestCluster >= clustering.nClusters)
                     clustering.nClusters = bestCluster + 1;
 
-                for (k = network.firstNeighborIndices[j]; k < network.firstNeighborIndices[j + 1]; k++)
-                    if (stableNodes[network.neighbors.get(k)] && (clustering.clusters[network.neighbors.get(k)] != bestCluster))
+                neighborCursor.reset(j);
+                while (neighborCursor.hasNext())
+                {
+                    k = neighborCursor.nextNeighbor();
+                    if (stableNodes[k] && (clustering.clusters[k] != bestCluster))
                     {
-                        stableNodes[network.neighbors.get(k)] = false;
+                        stableNodes[k] = false;
                         nUnstableNodes++;
-                        nodeOrder[(i + nUnstableNodes < network.nNodes) ? (i + nUnstableNodes) : (i + nUnstableNodes - network.nNodes)] = network.neighbors.get(k);
+                        nodeOrder[(i + nUnstableNodes < network.nNodes) ? (i + nUnstableNodes) : (i + nUnstableNodes - network.nNodes)] = k;
                     }
+                }
 
                 update = true;
             }
 
             i = (i < network.nNodes - 1) ? (i + 1) : 0;
-        } while (nUnstableNodes > 0);
+        }
 
-        if (update)
-            clustering.removeEmptyClusters();
+        return update;
+    }
+
+    /**
+     * Moves nodes in parallel in rounds using a specified number of tasks
+     * until the queue has become small.
+     *
+     * <p>
+     * Initially, the queue consists of all nodes in the order given by
+     * nodeOrder. When the method returns, the remaining queue is given by
+     * nodeOrder[0], ..., nodeOrder[n - 1], where n is the number of nodes
+     * that are not marked as stable. Each node that is marked as stable is in
+     * an optimal cluster, unless one of its neighbors has been moved by
+     * another task while the node was being moved.
+     * </p>
+     */
+    boolean moveNodesInParallelHelper(Network network, Clustering clustering, int[] nodeOrder, boolean[] stableNodes, int nTasks)
+    {
+        AtomicInteger nextQueueSize;
+        AtomicIntegerArray nNodesPerCluster, unstableNodes;
+        AtomicLongArray clusterWeights;
+        boolean update;
+        double[] clusterWeights2;
+        int i, nRounds, nUnstableNodes;
+        int[] nNodesPerCluster2, nextQueue, queue, tmp;
+        ParallelLocalMovingTask[] tasks;
+
+        clusterWeights2 = new double[network.nNodes];
+        nNodesPerCluster2 = new int[network.nNodes];
+        for (i = 0; i < network.nNodes; i++)
+        {
+            clusterWeights2[clustering.clusters[i]] += network.nodeWeights[i];
+            nNodesPerCluster2[clustering.clusters[i]]++;
+        }
+        clusterWeights = new AtomicLongArray(network.nNodes);
+        for (i = 0; i < network.nNodes; i++)
+            clusterWeights.lazySet(i, Double.doubleToRawLongBits(clusterWeights2[i]));
+        clusterWeights2 = null;
+        nNodesPerCluster = new AtomicIntegerArray(nNodesPerCluster2);
+        nNodesPerCluster2 = null;
+
+        unstableNodes = new AtomicIntegerArray(network.nNodes);
+        for (i = 0; i < network.nNodes; i++)
+            unstableNodes.lazySet(i, 1);
+
+        // Distribute the unused clusters over the tasks.
+        tasks = new ParallelLocalMovingTask[nTasks];
+        for (i = 0; i < nTasks; i++)
+            tasks[i] = new ParallelLocalMovingTask(network, clustering.clusters, clusterWeights, nNodesPerCluster, unstableNodes);
+        for (i = network.nNodes - 1; i >= 0; i--)
+            if (nNodesPerCluster.get(i) == 0)
+                tasks[i % nTasks].addUnusedCluster(i);
+
+        update = false;
+        queue = nodeOrder;
+        nextQueue = new int[network.nNodes];
+        nUnstableNodes = network.nNodes;
+        nRounds = 0;
+        while ((nUnstableNodes >= PARALLEL_MIN_N_UNSTABLE_NODES) && (nRounds < MAX_N_PARALLEL_ROUNDS) && !isCancelled())
+        {
+            nextQueueSize = new AtomicInteger();
+            if (moveNodesInParallelRoundHelper(tasks, queue, nUnstableNodes, nextQueue, nextQueueSize))
+                update = true;
+
+            tmp = queue;
+            queue = nextQueue;
+            nextQueue = tmp;
+            nUnstableNodes = nextQueueSize.get();
+            nRounds++;
+        }
+
+        if (queue != nodeOrder)
+            System.arraycopy(queue, 0, nodeOrder, 0, nUnstableNodes);
+        for (i = 0; i < network.nNodes; i++)
+            stableNodes[i] = (unstableNodes.get(i) == 0);
+
+        clustering.nClusters = 0;
+        for (i = 0; i < network.nNodes; i++)
+            if (clustering.clusters[i] >= clustering.nClusters)
+                clustering.nClusters = clustering.clusters[i] + 1;
 
         return update;
     }
+
+    /**
+     * Moves the nodes in a queue in parallel in a single round. Nodes that
+     * become unstable are added to the next queue.
+     */
+    private static boolean moveNodesInParallelRoundHelper(ParallelLocalMovingTask[] tasks, int[] queue, int queueSize, int[] nextQueue, AtomicInteger nextQueueSize)
+    {
+        AtomicBoolean update;
+        AtomicInteger nextQueueIndex;
+
+        update = new AtomicBoolean();
+        nextQueueIndex = new AtomicInteger();
+        IntStream.range(0, tasks.length).parallel().forEach(task ->
+        {
+            if (tasks[task].moveNodes(queue, queueSize, nextQueueIndex, nextQueue, nextQueueSize))
+                update.set(true);
+        });
+        return update.get();
+    }
+
+    /**
+     * Task that moves nodes in parallel with other tasks.
+     *
+     * <p>
+     * The weights of the neighboring clusters of a node are accumulated in a
+     * small hash table, so that the memory used by a task does not depend on
+     * the number of nodes in the network. Each task keeps its own list of
+     * unused clusters. A cluster from this list is claimed by atomically
+     * changing its number of nodes from 0 to 1, which fails if another node
+     * has been moved to the cluster in the meantime. If a node needs to be
+     * moved to an empty cluster but the list of the task has run out of unused
+     * clusters, the node is added to the queue again. It is then moved in a
+     * later round, possibly by another task, or by the sequential algorithm,
+     * which has access to all unused clusters.
+     * </p>
+     */
+    private class ParallelLocalMovingTask
+    {
+        Network network;
+        int[] clusters;
+        AtomicLongArray clusterWeights;
+        AtomicIntegerArray nNodesPerCluster;
+        AtomicIntegerArray unstableNodes;
+
+        private int[] unusedClusters;
+        private int nUnusedClusters;
+        private NeighborCursor neighborCursor;
+        private int tableShift;
+        private int[] tableClusters;
+        private double[] tableEdgeWeights;
+        private int[] usedSlots;
+        private int[] newUnstableNodes;
+        private int nNewUnstableNodes;
+
+        ParallelLocalMovingTask(Network network, int[] clusters, AtomicLongArray clusterWeights, AtomicIntegerArray nNodesPerCluster, AtomicIntegerArray unstableNodes)
+        {
+            this.network = network;
+            this.clusters = clusters;
+            this.clusterWeights = clusterWeights;
+            this.nNodesPerCluster = nNodesPerCluster;
+            this.unstableNodes = unstableNodes;
+
+            unusedClusters = new int[16];
+            neighborCursor = new NeighborCursor(network);
+            ensureTableCapacity(16);
+            newUnstableNodes = new int[PARALLEL_BLOCK_SIZE];
+        }
+
+        void addUnusedCluster(int cluster)
+        {
+            if (nUnusedClusters == unusedClusters.length)
+                unusedClusters = java.util.Arrays.copyOf(unusedClusters, 2 * unusedClusters.length);
+            unusedClusters[nUnusedClusters] = cluster;
+            nUnusedClusters++;
+        }
+
+        /**
+         * Removes blocks of nodes from the queue and moves the nodes until
+         * the queue is empty or the algorithm has been cancelled.
+         */
+        boolean moveNodes(int[] queue, int queueSize, AtomicInteger nextQueueIndex, int[] nextQueue, AtomicInteger nextQueueSize)
+        {
+            boolean update;
+            int endIndex, firstIndex, i;
+
+            update = false;
+            while (!isCancelled() && ((firstIndex = nextQueueIndex.getAndAdd(PARALLEL_BLOCK_SIZE)) < queueSize))
+            {
+                endIndex = Math.min(firstIndex + PARALLEL_BLOCK_SIZE, queueSize);
+                for (i = firstIndex; i < endIndex; i++)
+                    if (moveNode(queue[i], nextQueue, nextQueueSize))
+                        update = true;
+            }
+            flushNewUnstableNodes(nextQueue, nextQueueSize);
+            return update;
+        }
+
+        private boolean moveNode(int node, int[] nextQueue, AtomicInteger nextQueueSize)
+        {
+            boolean singleton;
+            double currentClusterWeight, edgeWeightCurrentCluster, maxQualityValueIncrement, nodeWeight, qualityValueIncrement;
+            int bestCluster, currentCluster, i, j, k, nNeighboringClusters, slot;
+
+            /*
+             * Mark the node as stable before its neighboring clusters are
+             * identified, so that the node is added to the queue again if one
+             * of its neighbors is moved in the meantime.
+             */
+            unstableNodes.set(node, 0);
+
+            currentCluster = clusters[node];
+            nodeWeight = network.nodeWeights[node];
+
+            // Identify the neighboring clusters of the node.
+            ensureTableCapacity((int)(network.firstNeighborIndices[node + 1] - network.firstNeighborIndices[node]));
+            nNeighboringClusters = 0;
+            neighborCursor.reset(node);
+            while (neighborCursor.hasNext())
+            {
+                j = clusters[neighborCursor.nextNeighbor()];
+                slot = (j * 0x9E3779B9) >>> tableShift;
+                while ((tableClusters[slot] >= 0) && (tableClusters[slot] != j))
+                    slot = (slot + 1) & (tableClusters.length - 1);
+                if (tableClusters[slot] < 0)
+                {
+                    tableClusters[slot] = j;
+                    tableEdgeWeights[slot] = 0;
+                    usedSlots[nNeighboringClusters] = slot;
+                    nNeighboringClusters++;
+                }
+                tableEdgeWeights[slot] += neighborCursor.getEdgeWeight();
+            }
+
+            // Determine the optimal cluster of the node.
+            edgeWeightCurrentCluster = 0;
+            for (i = 0; i < nNeighboringClusters; i++)
+                if (tableClusters[usedSlots[i]] == currentCluster)
+                    edgeWeightCurrentCluster = tableEdgeWeights[usedSlots[i]];
+            currentClusterWeight = Double.longBitsToDouble(clusterWeights.get(currentCluster)) - nodeWeight;
+            singleton = (nNodesPerCluster.get(currentCluster) == 1);
+            bestCluster = currentCluster;
+            maxQualityValueIncrement = edgeWeightCurrentCluster - nodeWeight * currentClusterWeight * resolution;
+            for (i = 0; i < nNeighboringClusters; i++)
+            {
+                slot = usedSlots[i];
+                j = tableClusters[slot];
+                tableClusters[slot] = -1;
+                if ((j == currentCluster) || (singleton && (j > currentCluster) && (nNodesPerCluster.get(j) == 1)))
+                    continue;
+
+                qualityValueIncrement = tableEdgeWeights[slot] - nodeWeight * Double.longBitsToDouble(clusterWeights.get(j)) * resolution;
+                if (qualityValueIncrement > maxQualityValueIncrement)
+                {
+                    bestCluster = j;
+                    maxQualityValueIncrement = qualityValueIncrement;
+                }
+            }
+
+            // Consider moving the node to an empty cluster.
+            if (!singleton && (maxQualityValueIncrement < 0))
+                bestCluster = -1;
+
+            if (bestCluster == currentCluster)
+                return false;
+
+            // Move the node to its new cluster.
+            if (bestCluster < 0)
+            {
+                bestCluster = claimUnusedCluster();
+                if (bestCluster < 0)
+                {
+                    // Add the node to the queue again.
+                    if (unstableNodes.compareAndSet(node, 0, 1))
+                        addNewUnstableNode(node, nextQueue, nextQueueSize);
+                    return false;
+                }
+            }
+            else
+                nNodesPerCluster.incrementAndGet(bestCluster);
+            addClusterWeight(bestCluster, nodeWeight);
+            addClusterWeight(currentCluster, -nodeWeight);
+            if (nNodesPerCluster.decrementAndGet(currentCluster) == 0)
+                addUnusedCluster(currentCluster);
+            clusters[node] = bestCluster;
+
+            /*
+             * Add the neighbors of the node that do not belong to the new
+             * cluster and that are not yet in the queue to the queue.
+             */
+            neighborCursor.reset(node);
+            while (neighborCursor.hasNext())
+            {
+                k = neighborCursor.nextNeighbor();
+                if ((clusters[k] != bestCluster) && (unstableNodes.get(k) == 0) && unstableNodes.compareAndSet(k, 0, 1))
+                    addNewUnstableNode(k, nextQueue, nextQueueSize);
+            }
+
+            return true;
+        }
+
+        private int claimUnusedCluster()
+        {
+            int cluster;
+
+            while (nUnusedClusters > 0)
+            {
+                nUnusedClusters--;
+                cluster = unusedClusters[nUnusedClusters];
+                if (nNodesPerCluster.compareAndSet(cluster, 0, 1))
+                    return cluster;
+            }
+            return -1;
+        }
+
+        private void addClusterWeight(int cluster, double weight)
+        {
+            long oldValue;
+
+            do
+                oldValue = clusterWeights.get(cluster);
+            while (!clusterWeights.compareAndSet(cluster, oldValue, Double.doubleToRawLongBits(Double.longBitsToDouble(oldValue) + weight)));
+        }
+
+        private void addNewUnstableNode(int node, int[] nextQueue, AtomicInteger nextQueueSize)
+        {
+            if (nNewUnstableNodes == newUnstableNodes.length)
+                flushNewUnstableNodes(nextQueue, nextQueueSize);
+            newUnstableNodes[nNewUnstableNodes] = node;
+            nNewUnstableNodes++;
+        }
+
+        private void flushNewUnstableNodes(int[] nextQueue, AtomicInteger nextQueueSize)
+        {
+            System.arraycopy(newUnstableNodes, 0, nextQueue, nextQueueSize.getAndAdd(nNewUnstableNodes), nNewUnstableNodes);
+            nNewUnstableNodes = 0;
+        }
+
+        /**
+         * Ensures that the hash table has room for the neighboring clusters
+         * of a node with a specified number of neighbors.
+         */
+        private void ensureTableCapacity(int nNeighbors)
+        {
+            int tableBits;
+
+            if ((tableClusters != null) && (2 * nNeighbors <= tableClusters.length))
+                return;
+
+            tableBits = 4;
+            while ((1 << tableBits) < 2 * nNeighbors)
+                tableBits++;
+            tableShift = 32 - tableBits;
+            tableClusters = new int[1 << tableBits];
+            java.util.Arrays.fill(tableClusters, -1);
+            tableEdgeWeights = new double[1 << tableBits];
+            usedSlots = new int[1 << tableBits];
+        }
+    }
 }
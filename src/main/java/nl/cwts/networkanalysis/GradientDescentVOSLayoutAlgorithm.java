@@ -278,8 +278,8 @@ public class GradientDescentVOSLayoutAlgorithm extends VOSLayoutAlgorithm
         double a, b, distance, distance1, distance2, gradient1, gradient2, gradientLength, qualityValue,
                 oldQualityValue, squaredDistance, stepSize;
         int i, j, k, l, nQualityValueImprovements;
-        long e;
         int[] nodeOrder;
+        NeighborCursor neighborCursor;
 
         nodeOrder = nl.cwts.util.Arrays.generateRandomPermutation(network.nNodes, random);
 
@@ -287,6 +287,7 @@ public class GradientDescentVOSLayoutAlgorithm extends VOSLayoutAlgorithm
         qualityValue = Double.POSITIVE_INFINITY;
         nQualityValueImprovements = 0;
         visitedNodes = new boolean[network.nNodes];
+        neighborCursor = new NeighborCursor(network);
         i = 0;
         while ((i < maxNIterations) && (stepSize >= minStepSize))
         {
@@ -300,10 +301,12 @@ public class GradientDescentVOSLayoutAlgorithm extends VOSLayoutAlgorithm
                 gradient1 = 0;
                 gradient2 = 0;
 
-                for (e = network.firstNeighborIndices[k]; e < network.firstNeighborIndices[k + 1]; e++)
+                neighborCursor.reset(k);
+                while (neighborCursor.hasNext())
                 {
-                    distance1 = layout.coordinates[0][k] - layout.coordinates[0][network.neighbors.get(e)];
-                    distance2 = layout.coordinates[1][k] - layout.coordinates[1][network.neighbors.get(e)];
+                    l = neighborCursor.nextNeighbor();
+                    distance1 = layout.coordinates[0][k] - layout.coordinates[0][l];
+                    distance2 = layout.coordinates[1][k] - layout.coordinates[1][l];
                     squaredDistance = distance1 * distance1 + distance2 * distance2;
 
                     distance = Math.sqrt(squaredDistance);
@@ -311,16 +314,16 @@ public class GradientDescentVOSLayoutAlgorithm extends VOSLayoutAlgorithm
 
                     if (squaredDistance > 0)
                     {
-                        b = network.edgeWeights.get(e) * a / squaredDistance;
+                        b = neighborCursor.getEdgeWeight() * a / squaredDistance;
                         gradient1 += b * distance1;
                         gradient2 += b * distance2;
                     }
 
-                    if (!visitedNodes[network.neighbors.get(e)])
+                    if (!visitedNodes[l])
                         if (attraction != 0)
-                            qualityValue += network.edgeWeights.get(e) * a / attraction;
+                            qualityValue += neighborCursor.getEdgeWeight() * a / attraction;
                         else
-                            qualityValue += network.edgeWeights.get(e) * Math.log(distance);
+                            qualityValue += neighborCursor.getEdgeWeight() * Math.log(distance);
                 }
 
                 for (l = 0; l < network.nNodes; l++)
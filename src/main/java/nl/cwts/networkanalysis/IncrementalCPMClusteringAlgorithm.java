@@ -4,12 +4,30 @@ package nl.cwts.networkanalysis;
  * Abstract base class for incremental clustering algorithms that use the CPM
  * quality function.
  *
+ * <p>
+ * An incremental clustering algorithm can be given a cancellation token (see
+ * {@link #setCancellationToken(CancellationToken cancellationToken)}). Once
+ * the token has been cancelled, the algorithm stops improving the clustering
+ * and returns the clustering obtained so far.
+ * </p>
+ *
  * @author Ludo Waltman
  * @author Nees Jan van Eck
  * @author Vincent Traag
  */
 public abstract class IncrementalCPMClusteringAlgorithm extends CPMClusteringAlgorithm implements IncrementalClusteringAlgorithm
 {
+    /**
+     * Number of node visits after which an algorithm checks whether it has
+     * been cancelled.
+     */
+    protected static final int CANCELLATION_CHECK_INTERVAL = 1 << 10;
+
+    /**
+     * Cancellation token, or null if the algorithm cannot be cancelled.
+     */
+    protected CancellationToken cancellationToken;
+
     /**
      * Constructs an incremental CPM clustering algorithm.
      */
@@ -29,6 +47,32 @@ public abstract class IncrementalCPMClusteringAlgorithm extends CPMClusteringAlg
         super(resolution);
     }
 
+    /**
+     * Returns the cancellation token.
+     *
+     * @return Cancellation token, or null if the algorithm cannot be cancelled
+     */
+    public CancellationToken getCancellationToken()
+    {
+        return cancellationToken;
+    }
+
+    /**
+     * Sets the cancellation token.
+     *
+     * <p>
+     * A cloned algorithm shares the cancellation token of the original
+     * algorithm.
+     * </p>
+     *
+     * @param cancellationToken Cancellation token, or null if the algorithm
+     *                          cannot be cancelled
+     */
+    public void setCancellationToken(CancellationToken cancellationToken)
+    {
+        this.cancellationToken = cancellationToken;
+    }
+
     /**
      * Finds a clustering of the nodes in a network.
      *
@@ -50,4 +94,14 @@ public abstract class IncrementalCPMClusteringAlgorithm extends CPMClusteringAlg
         improveClustering(network, clustering);
         return clustering;
     }
+
+    /**
+     * Returns whether the cancellation token has been cancelled.
+     *
+     * @return Boolean indicating whether the algorithm has been cancelled
+     */
+    protected boolean isCancelled()
+    {
+        return (cancellationToken != null) && cancellationToken.isCancelled();
+    }
 }
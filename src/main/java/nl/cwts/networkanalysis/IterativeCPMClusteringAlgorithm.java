@@ -75,6 +75,12 @@ public abstract class IterativeCPMClusteringAlgorithm extends IncrementalCPMClus
      * an improvement of the clustering.
      * </p>
      *
+     * <p>
+     * If the algorithm is cancelled, no further iterations are performed.
+     * Since an iteration never decreases the quality of the clustering, the
+     * clustering is then the best clustering obtained so far.
+     * </p>
+     *
      * @param network    Network
      * @param clustering Clustering
      *
@@ -87,10 +93,10 @@ public abstract class IterativeCPMClusteringAlgorithm extends IncrementalCPMClus
 
         update = false;
         if (nIterations > 0)
-            for (i = 0; i < nIterations; i++)
+            for (i = 0; (i < nIterations) && !isCancelled(); i++)
                 update |= improveClusteringOneIteration(network, clustering);
         else
-            while (improveClusteringOneIteration(network, clustering))
+            while (!isCancelled() && improveClusteringOneIteration(network, clustering))
                 update = true;
         return update;
     }
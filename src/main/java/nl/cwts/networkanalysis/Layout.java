@@ -135,6 +135,33 @@ public class Layout implements Cloneable, Serializable
         objectOutputStream.close();
     }
 
+    /**
+     * Creates a copy of the layout in which the nodes are renumbered.
+     *
+     * <p>
+     * Node {@code i} in the new layout corresponds to node {@code
+     * nodeOrder[i]} in this layout. See {@link
+     * Network#createNetworkWithNodeOrder(int[] nodeOrder)}.
+     * </p>
+     *
+     * @param nodeOrder Node in this layout for each node in the new layout
+     *
+     * @return Layout with renumbered nodes
+     */
+    public Layout createLayoutWithNodeOrder(int[] nodeOrder)
+    {
+        int i;
+        Layout newLayout;
+
+        newLayout = clone();
+        for (i = 0; i < nNodes; i++)
+        {
+            newLayout.coordinates[0][i] = coordinates[0][nodeOrder[i]];
+            newLayout.coordinates[1][i] = coordinates[1][nodeOrder[i]];
+        }
+        return newLayout;
+    }
+
     /**
      * Returns the number of nodes.
      *
@@ -1,6 +1,8 @@
 package nl.cwts.networkanalysis;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 /**
  * Leiden algorithm.
@@ -23,6 +25,13 @@ import java.util.Random;
  * FastLocalMovingAlgorithm}.
  * </p>
  *
+ * <p>
+ * In the refinement phase, each cluster is refined using a random number
+ * generator of its own, whose seed is derived from the random number generator
+ * of the algorithm. For large networks, clusters are therefore refined in
+ * parallel, without affecting the results.
+ * </p>
+ *
  * @author Ludo Waltman
  * @author Nees Jan van Eck
  * @author Vincent Traag
@@ -34,6 +43,11 @@ public class LeidenAlgorithm extends IterativeCPMClusteringAlgorithm
      */
     public static final double DEFAULT_RANDOMNESS = LocalMergingAlgorithm.DEFAULT_RANDOMNESS;
 
+    /**
+     * Minimum number of edges for which clusters are refined in parallel.
+     */
+    private static final long PARALLEL_MIN_N_EDGES = 1 << 20;
+
     /**
      * Randomness parameter.
      */
@@ -148,6 +162,23 @@ public class LeidenAlgorithm extends IterativeCPMClusteringAlgorithm
         this.localMovingAlgorithm.resolution = resolution;
     }
 
+    /**
+     * Sets the cancellation token.
+     *
+     * <p>
+     * Also sets the cancellation token for the local moving algorithm.
+     * </p>
+     *
+     * @param cancellationToken Cancellation token, or null if the algorithm
+     *                          cannot be cancelled
+     */
+    @Override
+    public void setCancellationToken(CancellationToken cancellationToken)
+    {
+        super.setCancellationToken(cancellationToken);
+        this.localMovingAlgorithm.cancellationToken = cancellationToken;
+    }
+
     /**
      * Sets the randomness parameter.
      *
@@ -167,6 +198,7 @@ public class LeidenAlgorithm extends IterativeCPMClusteringAlgorithm
     {
         this.localMovingAlgorithm = (IncrementalCPMClusteringAlgorithm)localMovingAlgorithm.clone();
         this.localMovingAlgorithm.resolution = resolution;
+        this.localMovingAlgorithm.cancellationToken = cancellationToken;
     }
 
     /**
@@ -189,6 +221,13 @@ public class LeidenAlgorithm extends IterativeCPMClusteringAlgorithm
      * These phases are repeated until no further improvements can be made.
      * </p>
      *
+     * <p>
+     * Clusters are refined without creating subnetworks, and for large
+     * networks they are refined in parallel (see {@link
+     * #refineClustersHelper(Network network, Clustering clustering, int[]
+     * refinedClusters, long seed, int nThreads)}).
+     * </p>
+     *
      * @param network    Network
      * @param clustering Clustering
      *
@@ -197,41 +236,27 @@ public class LeidenAlgorithm extends IterativeCPMClusteringAlgorithm
     protected boolean improveClusteringOneIteration(Network network, Clustering clustering)
     {
         boolean update;
-        Clustering clusteringReducedNetwork, clusteringSubnetwork, refinement;
-        int i, j;
-        int[][] nodesPerCluster;
-        LocalMergingAlgorithm localMergingAlgorithm;
+        Clustering clusteringReducedNetwork, refinement;
+        int i;
         Network reducedNetwork;
-        Network[] subnetworks;
 
         // Update the clustering by moving individual nodes between clusters.
         update = localMovingAlgorithm.improveClustering(network, clustering);
 
         /*
-         * Terminate the algorithm if each node is assigned to its own cluster.
-         * Otherwise create an aggregate network and recursively apply the
-         * algorithm to this network.
+         * Terminate the algorithm if each node is assigned to its own cluster
+         * or if the algorithm has been cancelled. Otherwise create an
+         * aggregate network and recursively apply the algorithm to this
+         * network.
          */
-        if (clustering.nClusters < network.nNodes)
+        if ((clustering.nClusters < network.nNodes) && !isCancelled())
         {
             /*
              * Refine the clustering by iterating over the clusters and by
              * trying to split up each cluster into multiple clusters.
              */
-            localMergingAlgorithm = new LocalMergingAlgorithm(resolution, randomness, random);
-            subnetworks = network.createSubnetworks(clustering);
-            nodesPerCluster = clustering.getNodesPerCluster();
             refinement = new Clustering(network.nNodes);
-            refinement.nClusters = 0;
-            for (i = 0; i < subnetworks.length; i++)
-            {
-                clusteringSubnetwork = localMergingAlgorithm.findClustering(subnetworks[i]);
-
-                for (j = 0; j < subnetworks[i].nNodes; j++)
-                    refinement.clusters[nodesPerCluster[i][j]] = refinement.nClusters + clusteringSubnetwork.clusters[j];
-
-                refinement.nClusters += clusteringSubnetwork.nClusters;
-            }
+            refinement.nClusters = refineClustersHelper(network, clustering, refinement.clusters, random.nextLong(), (network.nEdges >= PARALLEL_MIN_N_EDGES) ? Runtime.getRuntime().availableProcessors() : 1);
 
             if (refinement.nClusters < network.nNodes)
             {
@@ -285,4 +310,117 @@ public class LeidenAlgorithm extends IterativeCPMClusteringAlgorithm
 
         return update;
     }
+
+    /**
+     * Refines each cluster using the local merging algorithm using a specified
+     * number of threads, and returns the number of clusters in the refined
+     * clustering.
+     *
+     * <p>
+     * The clusters are refined directly in the network, without creating
+     * subnetworks (see {@link LocalMergingAlgorithm#refineCluster(Network
+     * network, int[] clusters, int[] nodes, int firstNodeIndex, int
+     * endNodeIndex, int[] refinedClusters)}). Each cluster is refined using a
+     * random number generator whose seed is derived from {@code seed} and the
+     * number of the cluster, so that the results do not depend on the number
+     * of threads. If {@code nThreads} is larger than 1, the clusters are
+     * refined by multiple threads, which repeatedly take the next cluster to
+     * be refined. Clusters are taken in decreasing order of their
+     * number of edges, so that the refinement of a large cluster does not
+     * start when most other clusters have already been refined.
+     * </p>
+     */
+    int refineClustersHelper(Network network, Clustering clustering, int[] refinedClusters, long seed, int nThreads)
+    {
+        AtomicInteger nextIndex;
+        int i, j, nRefinedClusters;
+        int[] clusterOrder, firstNodeIndexPerCluster, nodes, nRefinedClustersPerCluster;
+        long[] keys;
+        LocalMergingAlgorithm localMergingAlgorithm;
+
+        // Order the nodes by cluster.
+        firstNodeIndexPerCluster = new int[clustering.nClusters + 1];
+        for (i = 0; i < network.nNodes; i++)
+            firstNodeIndexPerCluster[clustering.clusters[i] + 1]++;
+        for (i = 1; i <= clustering.nClusters; i++)
+            firstNodeIndexPerCluster[i] += firstNodeIndexPerCluster[i - 1];
+        nodes = new int[network.nNodes];
+        for (i = 0; i < network.nNodes; i++)
+        {
+            j = clustering.clusters[i];
+            nodes[firstNodeIndexPerCluster[j]] = i;
+            firstNodeIndexPerCluster[j]++;
+        }
+        for (i = clustering.nClusters; i > 0; i--)
+            firstNodeIndexPerCluster[i] = firstNodeIndexPerCluster[i - 1];
+        firstNodeIndexPerCluster[0] = 0;
+
+        nRefinedClustersPerCluster = new int[clustering.nClusters];
+        if (nThreads > 1)
+        {
+            // Order the clusters by decreasing number of edges.
+            keys = new long[clustering.nClusters];
+            for (i = 0; i < network.nNodes; i++)
+                keys[clustering.clusters[i]] += network.firstNeighborIndices[i + 1] - network.firstNeighborIndices[i];
+            for (i = 0; i < clustering.nClusters; i++)
+                keys[i] = ((Integer.MAX_VALUE - Math.min(keys[i], Integer.MAX_VALUE)) << 32) | i;
+            java.util.Arrays.parallelSort(keys);
+            clusterOrder = new int[clustering.nClusters];
+            for (i = 0; i < clustering.nClusters; i++)
+                clusterOrder[i] = (int)keys[i];
+            keys = null;
+
+            nextIndex = new AtomicInteger();
+            IntStream.range(0, nThreads).parallel().forEach(thread -> refineClustersInThreadHelper(network, clustering.clusters, nodes, firstNodeIndexPerCluster, clusterOrder, nextIndex, refinedClusters, nRefinedClustersPerCluster, seed));
+        }
+        else
+        {
+            localMergingAlgorithm = new LocalMergingAlgorithm(resolution, randomness, new Random(seed));
+            for (i = 0; i < clustering.nClusters; i++)
+                nRefinedClustersPerCluster[i] = refineClusterHelper(localMergingAlgorithm, network, clustering.clusters, nodes, firstNodeIndexPerCluster[i], firstNodeIndexPerCluster[i + 1], refinedClusters, seed, i);
+        }
+
+        // Number the refined clusters consecutively across the clusters.
+        nRefinedClusters = 0;
+        for (i = 0; i < clustering.nClusters; i++)
+        {
+            j = nRefinedClustersPerCluster[i];
+            nRefinedClustersPerCluster[i] = nRefinedClusters;
+            nRefinedClusters += j;
+        }
+        for (i = 0; i < network.nNodes; i++)
+            refinedClusters[i] += nRefinedClustersPerCluster[clustering.clusters[i]];
+
+        return nRefinedClusters;
+    }
+
+    /**
+     * Refines clusters in one of multiple threads. The thread repeatedly takes
+     * the next cluster in {@code clusterOrder}, until all clusters have been
+     * taken.
+     */
+    private void refineClustersInThreadHelper(Network network, int[] clusters, int[] nodes, int[] firstNodeIndexPerCluster, int[] clusterOrder, AtomicInteger nextIndex, int[] refinedClusters, int[] nRefinedClustersPerCluster, long seed)
+    {
+        int cluster, index;
+        LocalMergingAlgorithm localMergingAlgorithm;
+
+        localMergingAlgorithm = new LocalMergingAlgorithm(resolution, randomness, new Random(seed));
+        while ((index = nextIndex.getAndIncrement()) < clusterOrder.length)
+        {
+            cluster = clusterOrder[index];
+            nRefinedClustersPerCluster[cluster] = refineClusterHelper(localMergingAlgorithm, network, clusters, nodes, firstNodeIndexPerCluster[cluster], firstNodeIndexPerCluster[cluster + 1], refinedClusters, seed, cluster);
+        }
+    }
+
+    private static int refineClusterHelper(LocalMergingAlgorithm localMergingAlgorithm, Network network, int[] clusters, int[] nodes, int firstNodeIndex, int endNodeIndex, int[] refinedClusters, long seed, int cluster)
+    {
+        long z;
+
+        // Derive the seed of the cluster using the SplitMix64 mixing function.
+        z = seed + (cluster + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        localMergingAlgorithm.random.setSeed(z ^ (z >>> 31));
+        return localMergingAlgorithm.refineCluster(network, clusters, nodes, firstNodeIndex, endNodeIndex, refinedClusters);
+    }
 }
@@ -25,7 +25,10 @@ import nl.cwts.util.FastMath;
  *
  * <p>
  * The local merging algorithm is used in the cluster refinement phase of the
- * {@link LeidenAlgorithm}.
+ * {@link LeidenAlgorithm}. In this phase, the algorithm is applied to each
+ * cluster directly in the network, without creating a subnetwork for the
+ * cluster (see {@link #refineCluster(Network network, int[] clusters, int[]
+ * nodes, int firstNodeIndex, int endNodeIndex, int[] refinedClusters)}).
  * </p>
  *
  * @author Ludo Waltman
@@ -49,6 +52,20 @@ public class LocalMergingAlgorithm extends CPMClusteringAlgorithm
      */
     protected Random random;
 
+    /*
+     * Arrays used by refineCluster, which are reused in subsequent calls.
+     */
+    private boolean[] nonSingletonClusters;
+    private double[] clusterWeights, cumTransformedQualityValueIncrementPerCluster, edgeWeightPerCluster, externalEdgeWeightPerCluster;
+    private int[] localClusters, neighboringClusters, nodeOrder;
+
+    /*
+     * Neighbor cursor used by refineCluster, which is reused in subsequent
+     * calls for the same network.
+     */
+    private Network neighborCursorNetwork;
+    private NeighborCursor neighborCursor;
+
     /**
      * Constructs a local merging algorithm.
      */
@@ -82,6 +99,29 @@ public class LocalMergingAlgorithm extends CPMClusteringAlgorithm
         this.random = random;
     }
 
+    /**
+     * Clones the algorithm.
+     *
+     * @return Cloned algorithm
+     */
+    public LocalMergingAlgorithm clone()
+    {
+        LocalMergingAlgorithm localMergingAlgorithm;
+
+        localMergingAlgorithm = (LocalMergingAlgorithm)super.clone();
+        localMergingAlgorithm.nonSingletonClusters = null;
+        localMergingAlgorithm.clusterWeights = null;
+        localMergingAlgorithm.cumTransformedQualityValueIncrementPerCluster = null;
+        localMergingAlgorithm.edgeWeightPerCluster = null;
+        localMergingAlgorithm.externalEdgeWeightPerCluster = null;
+        localMergingAlgorithm.localClusters = null;
+        localMergingAlgorithm.neighboringClusters = null;
+        localMergingAlgorithm.nodeOrder = null;
+        localMergingAlgorithm.neighborCursorNetwork = null;
+        localMergingAlgorithm.neighborCursor = null;
+        return localMergingAlgorithm;
+    }
+
     /**
      * Returns the randomness parameter.
      *
@@ -122,38 +162,122 @@ public class LocalMergingAlgorithm extends CPMClusteringAlgorithm
      * the rest of the network.
      * </p>
      *
+     * <p>
+     * The network is treated as a single cluster that is refined using {@link
+     * #refineCluster(Network network, int[] clusters, int[] nodes, int
+     * firstNodeIndex, int endNodeIndex, int[] refinedClusters)}.
+     * </p>
+     *
      * @param network Network
      *
      * @return Clustering
      */
     public Clustering findClustering(Network network)
+    {
+        Clustering clustering;
+        int i;
+        int[] nodes;
+
+        clustering = new Clustering(network.nNodes);
+
+        if (network.nNodes <= 1)
+            return clustering;
+
+        nodes = new int[network.nNodes];
+        for (i = 0; i < network.nNodes; i++)
+            nodes[i] = i;
+        clustering.nClusters = refineCluster(network, new int[network.nNodes], nodes, 0, network.nNodes, clustering.clusters);
+
+        return clustering;
+    }
+
+    /**
+     * Finds a clustering of the nodes in a cluster of a network using the
+     * local merging algorithm, without creating a subnetwork for the cluster.
+     *
+     * <p>
+     * The clustering is the same as the clustering found by {@link
+     * #findClustering(Network network)} for the induced subnetwork of the
+     * cluster (see {@link Network#createSubnetwork(Clustering clustering, int
+     * cluster)}), given the same state of the random number generator. Rather
+     * than copying the edges of the cluster, the neighbors of the nodes are
+     * obtained directly from the network, ignoring neighbors in other
+     * clusters. Each node is mapped to its index in the cluster using {@code
+     * refinedClusters}. The arrays and the neighbor cursor needed by the
+     * algorithm are reused in subsequent calls.
+     * </p>
+     *
+     * <p>
+     * Only the elements of {@code refinedClusters} for the nodes in the
+     * cluster are used. Calls for different clusters, including concurrent
+     * calls using different instances of the algorithm, can therefore share
+     * the same array.
+     * </p>
+     *
+     * @param network         Network
+     * @param clusters        Cluster of each node in the network
+     * @param nodes           Array containing the nodes in the cluster in
+     *                        increasing order
+     * @param firstNodeIndex  Index of the first node in the cluster in {@code
+     *                        nodes}
+     * @param endNodeIndex    Index after the last node in the cluster in
+     *                        {@code nodes}
+     * @param refinedClusters Array in which the cluster of each node in the
+     *                        cluster is stored, numbered from 0
+     *
+     * @return Number of clusters
+     */
+    public int refineCluster(Network network, int[] clusters, int[] nodes, int firstNodeIndex, int endNodeIndex, int[] refinedClusters)
     {
         boolean update;
-        boolean[] nonSingletonClusters;
         double maxQualityValueIncrement, qualityValueIncrement, r, totalNodeWeight, totalTransformedQualityValueIncrement;
-        double[] clusterWeights, cumTransformedQualityValueIncrementPerCluster, edgeWeightPerCluster, externalEdgeWeightPerCluster;
-        int bestCluster, chosenCluster, i, j, l, m, maxIdx, midIdx, minIdx, nNeighboringClusters;
-        long k;
-        int[] neighboringClusters, nodeOrder;
+        int bestCluster, chosenCluster, cluster, i, j, k, l, m, maxIdx, midIdx, minIdx, nClusters, nNeighboringClusters, nNodes;
 
-        Clustering clustering = new Clustering(network.nNodes);
+        nNodes = endNodeIndex - firstNodeIndex;
 
-        if (network.nNodes == 1)
-            return clustering;
+        if (nNodes == 1)
+        {
+            refinedClusters[nodes[firstNodeIndex]] = 0;
+            return 1;
+        }
+
+        ensureCapacityHelper(nNodes);
+        if (network != neighborCursorNetwork)
+        {
+            neighborCursor = new NeighborCursor(network);
+            neighborCursorNetwork = network;
+        }
 
         update = false;
 
-        totalNodeWeight = network.getTotalNodeWeight();
-        clusterWeights = network.getNodeWeights();
-        nonSingletonClusters = new boolean[network.nNodes];
-        externalEdgeWeightPerCluster = network.getTotalEdgeWeightPerNode();
+        // Map each node to its index in the cluster.
+        cluster = clusters[nodes[firstNodeIndex]];
+        for (i = 0; i < nNodes; i++)
+            refinedClusters[nodes[firstNodeIndex + i]] = i;
+
+        /*
+         * Determine the weight of each node and the total weight of its edges
+         * within the cluster, adding up the weights in the same order as in
+         * the induced subnetwork.
+         */
+        totalNodeWeight = 0;
+        for (i = 0; i < nNodes; i++)
+        {
+            j = nodes[firstNodeIndex + i];
+            totalNodeWeight += network.nodeWeights[j];
+            clusterWeights[i] = network.nodeWeights[j];
+            nonSingletonClusters[i] = false;
+            localClusters[i] = i;
+            externalEdgeWeightPerCluster[i] = 0;
+            neighborCursor.reset(j);
+            while (neighborCursor.hasNext())
+                if (clusters[neighborCursor.nextNeighbor()] == cluster)
+                    externalEdgeWeightPerCluster[i] += neighborCursor.getEdgeWeight();
+        }
 
-        nodeOrder = Arrays.generateRandomPermutation(network.nNodes, random);
+        Arrays.generateRandomPermutation(nodeOrder, nNodes, random);
 
-        edgeWeightPerCluster = new double[network.nNodes];
-        neighboringClusters = new int[network.nNodes];
-        cumTransformedQualityValueIncrementPerCluster = new double[network.nNodes];
-        for (i = 0; i < network.nNodes; i++)
+        for (i = 0; i < nNodes; i++)
         {
             j = nodeOrder[i];
 
@@ -175,7 +299,8 @@ public class LocalMergingAlgorithm extends CPMClusteringAlgorithm
                 /*
                  * Identify the neighboring clusters of the currently selected
                  * node, that is, the clusters with which the currently
-                 * selected node is connected. The old cluster of the currently
+                 * selected node is connected. Neighbors in other clusters of
+                 * the network are ignored. The old cluster of the currently
                  * selected node is also included in the set of neighboring
                  * clusters. In this way, it is always possible that the
                  * currently selected node will be moved back to its old
@@ -183,15 +308,19 @@ public class LocalMergingAlgorithm extends CPMClusteringAlgorithm
                  */
                 neighboringClusters[0] = j;
                 nNeighboringClusters = 1;
-                for (k = network.firstNeighborIndices[j]; k < network.firstNeighborIndices[j + 1]; k++)
+                neighborCursor.reset(nodes[firstNodeIndex + j]);
+                while (neighborCursor.hasNext())
                 {
-                    l = clustering.clusters[network.neighbors.get(k)];
+                    k = neighborCursor.nextNeighbor();
+                    if (clusters[k] != cluster)
+                        continue;
+                    l = localClusters[refinedClusters[k]];
                     if (edgeWeightPerCluster[l] == 0)
                     {
                         neighboringClusters[nNeighboringClusters] = l;
                         nNeighboringClusters++;
                     }
-                    edgeWeightPerCluster[l] += network.edgeWeights.get(k);
+                    edgeWeightPerCluster[l] += neighborCursor.getEdgeWeight();
                 }
 
                 /*
@@ -215,7 +344,7 @@ public class LocalMergingAlgorithm extends CPMClusteringAlgorithm
 
                     if (externalEdgeWeightPerCluster[l] >= clusterWeights[l] * (totalNodeWeight - clusterWeights[l]) * resolution)
                     {
-                        qualityValueIncrement = edgeWeightPerCluster[l] - network.nodeWeights[j] * clusterWeights[l] * resolution;
+                        qualityValueIncrement = edgeWeightPerCluster[l] - network.nodeWeights[nodes[firstNodeIndex + j]] * clusterWeights[l] * resolution;
 
                         if (qualityValueIncrement > maxQualityValueIncrement)
                         {
@@ -258,17 +387,23 @@ public class LocalMergingAlgorithm extends CPMClusteringAlgorithm
                  * Move the currently selected node to its new cluster and
                  * update the clustering statistics.
                  */
-                clusterWeights[chosenCluster] += network.nodeWeights[j];
+                clusterWeights[chosenCluster] += network.nodeWeights[nodes[firstNodeIndex + j]];
 
-                for (k = network.firstNeighborIndices[j]; k < network.firstNeighborIndices[j + 1]; k++)
-                    if (clustering.clusters[network.neighbors.get(k)] == chosenCluster)
-                        externalEdgeWeightPerCluster[chosenCluster] -= network.edgeWeights.get(k);
+                neighborCursor.reset(nodes[firstNodeIndex + j]);
+                while (neighborCursor.hasNext())
+                {
+                    k = neighborCursor.nextNeighbor();
+                    if (clusters[k] != cluster)
+                        continue;
+                    if (localClusters[refinedClusters[k]] == chosenCluster)
+                        externalEdgeWeightPerCluster[chosenCluster] -= neighborCursor.getEdgeWeight();
                     else
-                        externalEdgeWeightPerCluster[chosenCluster] += network.edgeWeights.get(k);
+                        externalEdgeWeightPerCluster[chosenCluster] += neighborCursor.getEdgeWeight();
+                }
 
                 if (chosenCluster != j)
                 {
-                    clustering.clusters[j] = chosenCluster;
+                    localClusters[j] = chosenCluster;
 
                     nonSingletonClusters[chosenCluster] = true;
                     update = true;
@@ -276,9 +411,51 @@ public class LocalMergingAlgorithm extends CPMClusteringAlgorithm
             }
         }
 
+        /*
+         * Number the clusters in the same way as
+         * Clustering.removeEmptyClusters and store the cluster of each node.
+         */
         if (update)
-            clustering.removeEmptyClusters();
+        {
+            for (i = 0; i < nNodes; i++)
+                neighboringClusters[i] = -1;
+            for (i = 0; i < nNodes; i++)
+                neighboringClusters[localClusters[i]] = 0;
+            nClusters = 0;
+            for (i = 0; i < nNodes; i++)
+                if (neighboringClusters[i] == 0)
+                {
+                    neighboringClusters[i] = nClusters;
+                    nClusters++;
+                }
+            for (i = 0; i < nNodes; i++)
+                refinedClusters[nodes[firstNodeIndex + i]] = neighboringClusters[localClusters[i]];
+        }
+        else
+            nClusters = nNodes;
 
-        return clustering;
+        return nClusters;
+    }
+
+    /**
+     * Ensures that the arrays used by refineCluster have room for a
+     * specified number of nodes.
+     */
+    private void ensureCapacityHelper(int nNodes)
+    {
+        int capacity;
+
+        if ((nodeOrder != null) && (nodeOrder.length >= nNodes))
+            return;
+
+        capacity = (nodeOrder != null) ? (int)Math.min(Math.max(nNodes, 2L * nodeOrder.length), Integer.MAX_VALUE - 8) : nNodes;
+        nonSingletonClusters = new boolean[capacity];
+        clusterWeights = new double[capacity];
+        cumTransformedQualityValueIncrementPerCluster = new double[capacity];
+        edgeWeightPerCluster = new double[capacity];
+        externalEdgeWeightPerCluster = new double[capacity];
+        localClusters = new int[capacity];
+        neighboringClusters = new int[capacity];
+        nodeOrder = new int[capacity];
     }
 }
@@ -115,6 +115,23 @@ public class LouvainAlgorithm extends IterativeCPMClusteringAlgorithm
         this.localMovingAlgorithm.resolution = resolution;
     }
 
+    /**
+     * Sets the cancellation token.
+     *
+     * <p>
+     * Also sets the cancellation token for the local moving algorithm.
+     * </p>
+     *
+     * @param cancellationToken Cancellation token, or null if the algorithm
+     *                          cannot be cancelled
+     */
+    @Override
+    public void setCancellationToken(CancellationToken cancellationToken)
+    {
+        super.setCancellationToken(cancellationToken);
+        this.localMovingAlgorithm.cancellationToken = cancellationToken;
+    }
+
     /**
      * Sets the local moving algorithm.
      *
@@ -124,6 +141,7 @@ public class LouvainAlgorithm extends IterativeCPMClusteringAlgorithm
     {
         this.localMovingAlgorithm = (IncrementalCPMClusteringAlgorithm)localMovingAlgorithm.clone();
         this.localMovingAlgorithm.resolution = resolution;
+        this.localMovingAlgorithm.cancellationToken = cancellationToken;
     }
 
     /**
@@ -158,11 +176,12 @@ public class LouvainAlgorithm extends IterativeCPMClusteringAlgorithm
         update = localMovingAlgorithm.improveClustering(network, clustering);
 
         /*
-         * Terminate the algorithm if each node is assigned to its own cluster.
-         * Otherwise create an aggregate network and recursively apply the
-         * algorithm to this network.
+         * Terminate the algorithm if each node is assigned to its own cluster
+         * or if the algorithm has been cancelled. Otherwise create an
+         * aggregate network and recursively apply the algorithm to this
+         * network.
          */
-        if (clustering.nClusters < network.nNodes)
+        if ((clustering.nClusters < network.nNodes) && !isCancelled())
         {
             /*
              * Create an aggregate network based on the clustering of the
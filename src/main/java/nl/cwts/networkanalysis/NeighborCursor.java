@@ -0,0 +1,196 @@
+package nl.cwts.networkanalysis;
+
+import nl.cwts.util.LargeByteArray;
+import nl.cwts.util.LargeDoubleArray;
+import nl.cwts.util.LargeFloatArray;
+import nl.cwts.util.LargeIntArray;
+import nl.cwts.util.OffHeapDoubleArray;
+import nl.cwts.util.OffHeapIntArray;
+
+/**
+ * Cursor for sequentially iterating over the neighbors of a node in a
+ * network.
+ *
+ * <p>
+ * A cursor supports networks in which neighbors are stored as ordinary
+ * integers, networks in which neighbors are stored in a compressed format (see
+ * {@link Network#createCompressedNetwork()}), and networks in which neighbors
+ * are stored outside the Java heap (see {@link
+ * Network#createOffHeapNetwork()}). Likewise, a cursor supports edge weights
+ * stored in double precision, in single precision, or outside the Java heap,
+ * and unit edge weights that are not stored at all. Edge weights of networks
+ * that normalize their edge weights when they are read (see {@link
+ * Network#createNormalizedNetworkViewUsingAssociationStrength()}) are
+ * normalized by the cursor. The storage formats are
+ * determined when the cursor is constructed. The formats are checked by
+ * branches that do not change while iterating, so iterating does not involve
+ * virtual method calls.
+ * </p>
+ *
+ * <p>
+ * A cursor is typically constructed once and then reused for many nodes:
+ * </p>
+ *
+ * <pre>
+ * NeighborCursor neighborCursor = new NeighborCursor(network);
+ * neighborCursor.reset(node);
+ * while (neighborCursor.hasNext())
+ * {
+ *     int neighbor = neighborCursor.nextNeighbor();
+ *     double edgeWeight = neighborCursor.getEdgeWeight();
+ * }
+ * </pre>
+ *
+ * <p>
+ * A cursor is not thread safe. Each thread should use its own cursor.
+ * </p>
+ *
+ * @author Ludo Waltman
+ * @author Nees Jan van Eck
+ * @author Vincent Traag
+ */
+public final class NeighborCursor
+{
+    private final long[] firstNeighborIndices;
+    private final LargeIntArray neighbors;
+    private final OffHeapIntArray offHeapNeighbors;
+    private final long[] firstNeighborPositions;
+    private final LargeByteArray compressedNeighbors;
+    private final LargeDoubleArray edgeWeights;
+    private final LargeFloatArray singlePrecisionEdgeWeights;
+    private final OffHeapDoubleArray offHeapEdgeWeights;
+    private final int edgeWeightNormalization;
+    private final double[] normalizationNodeWeights;
+    private final double normalizationTotalNodeWeight;
+
+    private int node;
+    private int neighbor;
+    private long edge;
+    private long endEdge;
+    private long position;
+
+    /**
+     * Constructs a cursor for a network.
+     *
+     * <p>
+     * The cursor is not positioned at any node. Use {@link #reset(int node)}
+     * to start iterating over the neighbors of a node.
+     * </p>
+     *
+     * @param network Network
+     */
+    public NeighborCursor(Network network)
+    {
+        firstNeighborIndices = network.firstNeighborIndices;
+        neighbors = network.neighbors;
+        offHeapNeighbors = network.offHeapNeighbors;
+        firstNeighborPositions = network.firstNeighborPositions;
+        compressedNeighbors = network.compressedNeighbors;
+        edgeWeights = network.edgeWeights;
+        singlePrecisionEdgeWeights = network.singlePrecisionEdgeWeights;
+        offHeapEdgeWeights = network.offHeapEdgeWeights;
+        edgeWeightNormalization = network.edgeWeightNormalization;
+        normalizationNodeWeights = network.normalizationNodeWeights;
+        normalizationTotalNodeWeight = network.normalizationTotalNodeWeight;
+        edge = 0;
+        endEdge = 0;
+    }
+
+    /**
+     * Positions the cursor at the first neighbor of a node.
+     *
+     * @param node Node
+     */
+    public void reset(int node)
+    {
+        this.node = node;
+        edge = firstNeighborIndices[node];
+        endEdge = firstNeighborIndices[node + 1];
+        if (compressedNeighbors != null)
+            position = firstNeighborPositions[node];
+    }
+
+    /**
+     * Indicates whether the node has more neighbors.
+     *
+     * @return Whether the node has more neighbors
+     */
+    public boolean hasNext()
+    {
+        return edge < endEdge;
+    }
+
+    /**
+     * Returns the next neighbor of the node.
+     *
+     * @return Neighbor
+     */
+    public int nextNeighbor()
+    {
+        int gap;
+
+        if (neighbors != null)
+            neighbor = neighbors.get(edge);
+        else if (offHeapNeighbors != null)
+            neighbor = offHeapNeighbors.get(edge);
+        else
+        {
+            gap = readCompressedValue();
+            if (edge == firstNeighborIndices[node])
+                neighbor = node + ((gap >>> 1) ^ -(gap & 1));
+            else
+                neighbor += gap;
+        }
+        edge++;
+        return neighbor;
+    }
+
+    /**
+     * Returns the index of the edge between the node and the neighbor most
+     * recently returned by {@link #nextNeighbor()}.
+     *
+     * @return Edge index
+     */
+    public long getEdge()
+    {
+        return edge - 1;
+    }
+
+    /**
+     * Returns the weight of the edge between the node and the neighbor most
+     * recently returned by {@link #nextNeighbor()}.
+     *
+     * @return Edge weight
+     */
+    public double getEdgeWeight()
+    {
+        double edgeWeight;
+
+        if (edgeWeights != null)
+            edgeWeight = edgeWeights.get(edge - 1);
+        else if (singlePrecisionEdgeWeights != null)
+            edgeWeight = singlePrecisionEdgeWeights.get(edge - 1);
+        else if (offHeapEdgeWeights != null)
+            edgeWeight = offHeapEdgeWeights.get(edge - 1);
+        else
+            edgeWeight = 1;
+        if (edgeWeightNormalization != Network.NORMALIZATION_NONE)
+            edgeWeight = Network.normalizeEdgeWeightHelper(edgeWeight, edgeWeightNormalization, normalizationNodeWeights[node], normalizationNodeWeights[neighbor], normalizationTotalNodeWeight, normalizationNodeWeights.length);
+        return edgeWeight;
+    }
+
+    private int readCompressedValue()
+    {
+        byte b;
+        int shift, value;
+
+        b = compressedNeighbors.get(position++);
+        value = b & 0x7F;
+        for (shift = 7; b < 0; shift += 7)
+        {
+            b = compressedNeighbors.get(position++);
+            value |= (b & 0x7F) << shift;
+        }
+        return value;
+    }
+}
@@ -6,14 +6,27 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.Objects;
 import java.util.PrimitiveIterator;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
 
-import nl.cwts.util.LargeBooleanArray;
+import nl.cwts.util.IntDoubleConsumer;
+import nl.cwts.util.LargeByteArray;
 import nl.cwts.util.LargeDoubleArray;
+import nl.cwts.util.LargeFloatArray;
 import nl.cwts.util.LargeIntArray;
 import nl.cwts.util.LargeLongArray;
+import nl.cwts.util.OffHeapDoubleArray;
+import nl.cwts.util.OffHeapIntArray;
 
 /**
  * Network.
@@ -24,11 +37,49 @@ import nl.cwts.util.LargeLongArray;
  * </p>
  *
  * <p>
- * Network objects are immutable.
+ * Network objects are immutable, with one exception. The edge weights of a
+ * network can be normalized in place (see {@link
+ * #createNormalizedNetworkUsingAssociationStrength(boolean inPlace)} and
+ * {@link #createNormalizedNetworkUsingFractionalization(boolean inPlace)}),
+ * after which the network must not be used anymore. Edge weights are not
+ * normalized in place if they may be shared with another network or if they
+ * are stored in a read-only memory-mapped file.
  * </p>
  *
  * <p>
  * The adjacency matrix of the network is stored in a sparse compressed format.
+ * Optionally, the neighbors of the nodes can be stored in a more compact
+ * format based on gap encoding (see {@link #createCompressedNetwork()}).
+ * Neighbors can be traversed efficiently in either format using a {@link
+ * NeighborCursor}.
+ * </p>
+ *
+ * <p>
+ * Edge weights are normally stored in double precision. If each edge has a
+ * weight of 1, edge weights are not stored at all (see {@link
+ * #hasUnitEdgeWeights()}). Optionally, edge weights can be stored in single
+ * precision (see {@link #createNetworkWithSinglePrecisionEdgeWeights()}).
+ * </p>
+ *
+ * <p>
+ * Networks that differ only in their node weights or edge weights share the
+ * neighbors with each other, and if possible also the stored edge weights.
+ * For instance, a network created using {@link
+ * #createNetworkWithNodeWeights(double[] nodeWeights)} or {@link
+ * #createNetworkWithoutEdgeWeights()} does not copy the neighbors and the edge
+ * weights. A network created using {@link
+ * #createNormalizedNetworkViewUsingAssociationStrength()} or {@link
+ * #createNormalizedNetworkViewUsingFractionalization()} shares the stored edge
+ * weights with the original network and normalizes the edge weights when they
+ * are read.
+ * </p>
+ *
+ * <p>
+ * For very large networks, the neighbors and the edge weights can be stored
+ * outside the Java heap (see {@link #createOffHeapNetwork()}) or can be read
+ * directly from a memory-mapped file (see {@link #loadBinary(String filename,
+ * boolean offHeap)}). The memory of a network stored outside the Java heap is
+ * released, or the file is unmapped, using {@link #releaseOffHeapMemory()}.
  * </p>
  *
  * @author Ludo Waltman
@@ -39,6 +90,118 @@ public class Network implements Serializable
 {
     private static final long serialVersionUID = 1;
 
+    /**
+     * Level of {@link #checkIntegrity(int level)} at which nothing is checked.
+     */
+    public static final int INTEGRITY_CHECK_NONE = 0;
+
+    /**
+     * Level of {@link #checkIntegrity(int level)} at which the structure of
+     * the network is checked, but not whether edges are stored in both
+     * directions.
+     */
+    public static final int INTEGRITY_CHECK_STRUCTURE = 1;
+
+    /**
+     * Level of {@link #checkIntegrity(int level)} at which the structure of
+     * the network is checked, as well as whether edges are stored in both
+     * directions.
+     */
+    public static final int INTEGRITY_CHECK_FULL = 2;
+
+    /**
+     * Version of the binary file format.
+     *
+     * @see #saveBinary(String filename)
+     * @see #loadBinary(String filename)
+     */
+    public static final int BINARY_FORMAT_VERSION = 1;
+
+    /**
+     * Identifier at the start of each file in the binary file format.
+     */
+    private static final byte[] BINARY_FORMAT_MAGIC = { 'C', 'W', 'T', 'S', 'N', 'E', 'T', 'W' };
+
+    /**
+     * Size in bytes of the header of a file in the binary file format.
+     */
+    static final int BINARY_FORMAT_HEADER_SIZE = 64;
+
+    /**
+     * Maximum size in bytes of a single memory-mapped region or write buffer
+     * used for a file in the binary file format.
+     */
+    private static final int BINARY_FORMAT_CHUNK_SIZE = 1 << 26;
+
+    /**
+     * Number of bits per digit in the radix sort of edges.
+     */
+    private static final int RADIX_SORT_N_BITS = 16;
+
+    /**
+     * Number of buckets per digit in the radix sort of edges.
+     */
+    private static final int RADIX_SORT_N_BUCKETS = 1 << RADIX_SORT_N_BITS;
+
+    /**
+     * Maximum number of neighbors of a node for which insertion sort is used
+     * to sort the neighbors.
+     */
+    private static final int INSERTION_SORT_MAX_N_NEIGHBORS = 32;
+
+    /**
+     * Minimum number of edges for which {@link #createReducedNetwork(Clustering
+     * clustering)} creates a reduced network in parallel.
+     */
+    private static final long PARALLEL_REDUCED_NETWORK_MIN_N_EDGES = 1 << 20;
+
+    /**
+     * Minimum number of edges for which {@link #checkIntegrity(int level)}
+     * performs the check in parallel.
+     */
+    private static final long PARALLEL_INTEGRITY_CHECK_MIN_N_EDGES = 1 << 20;
+
+    /**
+     * Minimum number of edges for which the edge weights are normalized in
+     * parallel.
+     */
+    private static final long PARALLEL_NORMALIZATION_MIN_N_EDGES = 1 << 20;
+
+    /**
+     * Minimum number of edges for which {@link #createSubnetworks(Clustering
+     * clustering)} creates subnetworks in parallel.
+     */
+    private static final long PARALLEL_SUBNETWORKS_MIN_N_EDGES = 1 << 20;
+
+    /**
+     * Minimum number of edges for which {@link
+     * #createNetworkWithNodeOrder(int[] nodeOrder)} creates a network in
+     * parallel.
+     */
+    private static final long PARALLEL_NODE_ORDER_MIN_N_EDGES = 1 << 20;
+
+    /**
+     * Edge weights are not normalized when they are read.
+     */
+    static final int NORMALIZATION_NONE = 0;
+
+    /**
+     * Edge weights are normalized using the association strength when they
+     * are read.
+     */
+    static final int NORMALIZATION_ASSOCIATION_STRENGTH = 1;
+
+    /**
+     * Edge weights are normalized using fractionalization when they are read.
+     */
+    static final int NORMALIZATION_FRACTIONALIZATION = 2;
+
+    /**
+     * Number of chunks per thread when processing clusters or nodes in
+     * parallel.
+     */
+    private static final int N_CHUNKS_PER_THREAD = 16;
+
     /**
      * Number of nodes.
      */
@@ -71,19 +234,119 @@ public class Network implements Serializable
 
     /**
      * Neighbors of each node.
+     *
+     * <p>
+     * If neighbors are stored in compressed format or outside the Java heap,
+     * this array is null.
+     * </p>
      */
     protected LargeIntArray neighbors;
 
+    /**
+     * Neighbors of each node stored outside the Java heap.
+     *
+     * <p>
+     * If neighbors are not stored outside the Java heap, this array is null.
+     * </p>
+     */
+    protected OffHeapIntArray offHeapNeighbors;
+
+    /**
+     * Position of the first neighbor of each node in the {@code
+     * compressedNeighbors} array.
+     *
+     * <p>
+     * If neighbors are not stored in compressed format, this array is null.
+     * </p>
+     */
+    protected long[] firstNeighborPositions;
+
+    /**
+     * Neighbors of each node in compressed format.
+     *
+     * <p>
+     * If neighbors are not stored in compressed format, this array is null.
+     * See {@link #createCompressedNetwork()} for a description of the format.
+     * </p>
+     */
+    protected LargeByteArray compressedNeighbors;
+
     /**
      * Edge weights.
+     *
+     * <p>
+     * If edge weights are stored in single precision or outside the Java
+     * heap, or if each edge has a weight of 1, this array is null.
+     * </p>
      */
     protected LargeDoubleArray edgeWeights;
 
+    /**
+     * Edge weights stored outside the Java heap.
+     *
+     * <p>
+     * If edge weights are not stored outside the Java heap, this array is
+     * null.
+     * </p>
+     */
+    protected OffHeapDoubleArray offHeapEdgeWeights;
+
+    /**
+     * Edge weights in single precision.
+     *
+     * <p>
+     * If edge weights are not stored in single precision, this array is null.
+     * </p>
+     */
+    protected LargeFloatArray singlePrecisionEdgeWeights;
+
     /**
      * Total edge weight of self links.
      */
     protected double totalEdgeWeightSelfLinks;
 
+    /**
+     * Normalization of the edge weights when they are read.
+     *
+     * <p>
+     * For networks created using {@link
+     * #createNormalizedNetworkViewUsingAssociationStrength()} or {@link
+     * #createNormalizedNetworkViewUsingFractionalization()}, the stored edge
+     * weights are the edge weights of the original network, and they are
+     * normalized whenever they are read. For other networks, the normalization
+     * is {@link #NORMALIZATION_NONE}.
+     * </p>
+     */
+    protected int edgeWeightNormalization;
+
+    /**
+     * Node weights of the original network, used for normalizing the edge
+     * weights when they are read.
+     *
+     * <p>
+     * If edge weights are not normalized when they are read, this array is
+     * null.
+     * </p>
+     */
+    protected double[] normalizationNodeWeights;
+
+    /**
+     * Total node weight of the original network, used for normalizing the
+     * edge weights when they are read.
+     */
+    protected double normalizationTotalNodeWeight;
+
+    /**
+     * Indicates whether the stored edge weights may be shared with another
+     * network.
+     *
+     * <p>
+     * Stored edge weights that may be shared with another network are never
+     * overwritten by normalizing edge weights in place.
+     * </p>
+     */
+    protected boolean sharedEdgeWeights;
+
     /**
      * Loads a network from a file.
      *
@@ -95,6 +358,7 @@ public class Network implements Serializable
      * @throws IOException            Could not read the file
      *
      * @see #save(String filename)
+     * @see #loadBinary(String filename)
      */
     public static Network load(String filename) throws ClassNotFoundException, IOException
     {
@@ -110,6 +374,158 @@ public class Network implements Serializable
         return network;
     }
 
+    /**
+     * Loads a network from a file in the binary file format.
+     *
+     * <p>
+     * The node weights, the indices of the first neighbor of each node, the
+     * neighbors, and the edge weights are copied in bulk from the
+     * memory-mapped file to arrays on the Java heap, without any intermediate
+     * objects being created. Loading therefore takes time and memory linear
+     * in the size of the network, but it is much faster than loading a
+     * network using {@link #load(String filename)}. To map the neighbors and
+     * the edge weights without copying them, use {@link #loadBinary(String
+     * filename, boolean offHeap)}.
+     * </p>
+     *
+     * @param filename File from which a network is loaded
+     *
+     * @return Loaded network
+     *
+     * @throws IOException Could not read the file, or the file is not in the
+     *                     binary file format
+     *
+     * @see #saveBinary(String filename)
+     */
+    public static Network loadBinary(String filename) throws IOException
+    {
+        return loadBinary(filename, false);
+    }
+
+    /**
+     * Loads a network from a file in the binary file format, optionally
+     * storing the neighbors and the edge weights outside the Java heap.
+     *
+     * <p>
+     * If {@code offHeap} is true, the neighbors and the edge weights are not
+     * copied. They are read directly from the memory-mapped file (see {@link
+     * OffHeapIntArray#map(FileChannel fileChannel, long position, long
+     * size)}), so loading takes time and memory linear in the number of nodes
+     * rather than in the number of edges. The operating system loads the pages
+     * of the file when they are accessed and shares them with all processes
+     * that load the same file. Only the node weights and the indices of the
+     * first neighbor of each node are copied to the Java heap. The file must
+     * not be modified while the network is in use. The file is unmapped by
+     * {@link #releaseOffHeapMemory()}, or otherwise once the network has been
+     * garbage collected.
+     * </p>
+     *
+     * <p>
+     * If {@code offHeap} is false, the network is loaded as described in
+     * {@link #loadBinary(String filename)}.
+     * </p>
+     *
+     * @param filename File from which a network is loaded
+     * @param offHeap  Indicates whether to store the neighbors and the edge
+     *                 weights outside the Java heap
+     *
+     * @return Loaded network
+     *
+     * @throws IOException Could not read the file, or the file is not in the
+     *                     binary file format
+     *
+     * @see #saveBinary(String filename)
+     */
+    public static Network loadBinary(String filename, boolean offHeap) throws IOException
+    {
+        byte[] magic;
+        ByteBuffer header;
+        FileChannel fileChannel;
+        int i, n, version;
+        long j, m, position;
+        Network network;
+
+        fileChannel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+
+        try
+        {
+            if (fileChannel.size() < BINARY_FORMAT_HEADER_SIZE)
+                throw new IOException("File is not in the binary network file format.");
+
+            header = mapBinaryFormatHelper(fileChannel, 0, BINARY_FORMAT_HEADER_SIZE);
+            magic = new byte[BINARY_FORMAT_MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, BINARY_FORMAT_MAGIC))
+                throw new IOException("File is not in the binary network file format.");
+            version = header.getInt();
+            if (version != BINARY_FORMAT_VERSION)
+                throw new IOException("Version " + version + " of the binary network file format is not supported.");
+
+            network = new Network();
+            network.nNodes = header.getInt();
+            network.nEdges = header.getLong();
+            network.totalEdgeWeightSelfLinks = header.getDouble();
+
+            if ((network.nNodes < 0) || (network.nEdges < 0) || (fileChannel.size() != getBinaryFormatFileSizeHelper(network.nNodes, network.nEdges)))
+                throw new IOException("File in the binary network file format is corrupt.");
+
+            position = BINARY_FORMAT_HEADER_SIZE;
+
+            network.nodeWeights = new double[network.nNodes];
+            for (i = 0; i < network.nNodes; i += n)
+            {
+                n = Math.min(network.nNodes - i, BINARY_FORMAT_CHUNK_SIZE / Double.BYTES);
+                mapBinaryFormatHelper(fileChannel, position, (long)n * Double.BYTES).asDoubleBuffer().get(network.nodeWeights, i, n);
+                position += (long)n * Double.BYTES;
+            }
+
+            network.firstNeighborIndices = new long[network.nNodes + 1];
+            for (i = 0; i < network.nNodes + 1; i += n)
+            {
+                n = Math.min(network.nNodes + 1 - i, BINARY_FORMAT_CHUNK_SIZE / Long.BYTES);
+                mapBinaryFormatHelper(fileChannel, position, (long)n * Long.BYTES).asLongBuffer().get(network.firstNeighborIndices, i, n);
+                position += (long)n * Long.BYTES;
+            }
+
+            if (offHeap)
+            {
+                network.offHeapNeighbors = OffHeapIntArray.map(fileChannel, position, network.nEdges);
+                position += network.nEdges * Integer.BYTES;
+            }
+            else
+            {
+                network.neighbors = new LargeIntArray(network.nEdges);
+                for (j = 0; j < network.nEdges; j += m)
+                {
+                    m = Math.min(network.nEdges - j, BINARY_FORMAT_CHUNK_SIZE / Integer.BYTES);
+                    network.neighbors.updateFrom(mapBinaryFormatHelper(fileChannel, position, m * Integer.BYTES).asIntBuffer(), j);
+                    position += m * Integer.BYTES;
+                }
+            }
+            if (network.nEdges % 2 == 1)
+                position += Integer.BYTES;
+
+            if (offHeap)
+                network.offHeapEdgeWeights = OffHeapDoubleArray.map(fileChannel, position, network.nEdges);
+            else
+            {
+                network.edgeWeights = new LargeDoubleArray(network.nEdges);
+                for (j = 0; j < network.nEdges; j += m)
+                {
+                    m = Math.min(network.nEdges - j, BINARY_FORMAT_CHUNK_SIZE / Double.BYTES);
+                    network.edgeWeights.updateFrom(mapBinaryFormatHelper(fileChannel, position, m * Double.BYTES).asDoubleBuffer(), j);
+                    position += m * Double.BYTES;
+                }
+            }
+        }
+        finally
+        {
+            fileChannel.close();
+        }
+
+        return network;
+    }
+
     /**
      * Constructs a network based on a list of edges.
      *
@@ -280,6 +696,58 @@ public class Network implements Serializable
         this(nNodes, null, setNodeWeightsToTotalEdgeWeights, edges, edgeWeights, sortedEdges, checkIntegrity);
     }
 
+    /**
+     * Constructs a network based on a list of edges, optionally sorting the
+     * neighbors of the nodes in parallel.
+     *
+     * @param nNodes                           Number of nodes
+     * @param setNodeWeightsToTotalEdgeWeights Indicates whether to set node
+     *                                         weights equal to total edge
+     *                                         weights
+     * @param edges                            Edge list
+     * @param sortedEdges                      Indicates whether the edge list
+     *                                         is sorted
+     * @param checkIntegrity                   Indicates whether to check the
+     *                                         integrity of the network
+     * @param parallel                         Indicates whether to sort the
+     *                                         neighbors of the nodes in
+     *                                         parallel
+     *
+     * @see #Network(int nNodes, boolean setNodeWeightsToTotalEdgeWeights,
+     * LargeIntArray[] edges, boolean sortedEdges, boolean checkIntegrity)
+     */
+    public Network(int nNodes, boolean setNodeWeightsToTotalEdgeWeights, LargeIntArray[] edges, boolean sortedEdges, boolean checkIntegrity, boolean parallel)
+    {
+        this(nNodes, null, setNodeWeightsToTotalEdgeWeights, edges, null, sortedEdges, checkIntegrity, parallel);
+    }
+
+    /**
+     * Constructs a network based on a list of edges with edge weights,
+     * optionally sorting the neighbors of the nodes in parallel.
+     *
+     * @param nNodes                           Number of nodes
+     * @param setNodeWeightsToTotalEdgeWeights Indicates whether to set node
+     *                                         weights equal to total edge
+     *                                         weights
+     * @param edges                            Edge list
+     * @param edgeWeights                      Edge weights
+     * @param sortedEdges                      Indicates whether the edge list
+     *                                         is sorted
+     * @param checkIntegrity                   Indicates whether to check the
+     *                                         integrity of the network
+     * @param parallel                         Indicates whether to sort the
+     *                                         neighbors of the nodes in
+     *                                         parallel
+     *
+     * @see #Network(int nNodes, boolean setNodeWeightsToTotalEdgeWeights,
+     * LargeIntArray[] edges, LargeDoubleArray edgeWeights, boolean
+     * sortedEdges, boolean checkIntegrity)
+     */
+    public Network(int nNodes, boolean setNodeWeightsToTotalEdgeWeights, LargeIntArray[] edges, LargeDoubleArray edgeWeights, boolean sortedEdges, boolean checkIntegrity, boolean parallel)
+    {
+        this(nNodes, null, setNodeWeightsToTotalEdgeWeights, edges, edgeWeights, sortedEdges, checkIntegrity, parallel);
+    }
+
     /**
      * Constructs a network based on a list of neighbors.
      *
@@ -360,6 +828,7 @@ public class Network implements Serializable
      * @throws IOException Could not write to the file
      *
      * @see #load(String filename)
+     * @see #saveBinary(String filename)
      */
     public void save(String filename) throws IOException
     {
@@ -373,48 +842,164 @@ public class Network implements Serializable
     }
 
     /**
-     * Returns the number of nodes.
+     * Saves the network in a file in the binary file format.
      *
-     * @return Number of nodes
-     */
-    public int getNNodes()
-    {
-        return nNodes;
-    }
-
-    /**
-     * Returns the total node weight.
+     * <p>
+     * The binary file format starts with a header of 64 bytes. The header
+     * consists of the identifier {@code CWTSNETW}, the version of the file
+     * format (see {@link #BINARY_FORMAT_VERSION}), the number of nodes, the
+     * number of edges, and the total edge weight of self links. The header is
+     * followed by the node weights, the indices of the first neighbor of each
+     * node, the neighbors, and the edge weights, in this order. The neighbors
+     * are padded to a multiple of 8 bytes. All values are stored in
+     * little-endian byte order.
+     * </p>
      *
-     * @return Total node weight
-     */
-    public double getTotalNodeWeight()
-    {
-        return nl.cwts.util.Arrays.calcSum(nodeWeights);
-    }
-
-    /**
-     * Returns the weight of each node.
+     * <p>
+     * Loading a network from a file in the binary file format using {@link
+     * #loadBinary(String filename)} is much faster than loading a network from
+     * a file created using {@link #save(String filename)}.
+     * </p>
      *
-     * @return Weight of each node
-     */
-    public double[] getNodeWeights()
-    {
-        return nodeWeights.clone();
-    }
-
-    /**
-     * Returns the weight of a node.
+     * @param filename File in which the network is saved
      *
-     * @param node Node
+     * @throws IOException Could not write to the file
      *
-     * @return Weight
+     * @see #loadBinary(String filename)
      */
-    public double getNodeWeight(int node)
+    public void saveBinary(String filename) throws IOException
     {
-        return nodeWeights[node];
-    }
+        ByteBuffer buffer;
+        FileChannel fileChannel;
+        int i, n;
+        long j, k, m;
 
-    /**
+        if (compressedNeighbors != null)
+        {
+            createUncompressedNetwork().saveBinary(filename);
+            return;
+        }
+        if (edgeWeightNormalization != NORMALIZATION_NONE)
+        {
+            createNetworkWithStoredEdgeWeightsHelper().saveBinary(filename);
+            return;
+        }
+
+        fileChannel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+        try
+        {
+            buffer = ByteBuffer.allocateDirect(BINARY_FORMAT_CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            putBinaryFormatHeaderHelper(buffer, nNodes, nEdges, totalEdgeWeightSelfLinks);
+
+            for (i = 0; i < nNodes; i += n)
+            {
+                if (buffer.remaining() < Double.BYTES)
+                    writeBinaryFormatHelper(fileChannel, buffer);
+                n = Math.min(nNodes - i, buffer.remaining() / Double.BYTES);
+                buffer.asDoubleBuffer().put(nodeWeights, i, n);
+                buffer.position(buffer.position() + n * Double.BYTES);
+            }
+
+            for (i = 0; i < nNodes + 1; i += n)
+            {
+                if (buffer.remaining() < Long.BYTES)
+                    writeBinaryFormatHelper(fileChannel, buffer);
+                n = Math.min(nNodes + 1 - i, buffer.remaining() / Long.BYTES);
+                buffer.asLongBuffer().put(firstNeighborIndices, i, n);
+                buffer.position(buffer.position() + n * Long.BYTES);
+            }
+
+            for (j = 0; j < nEdges; j += m)
+            {
+                if (buffer.remaining() < Integer.BYTES)
+                    writeBinaryFormatHelper(fileChannel, buffer);
+                m = Math.min(nEdges - j, buffer.remaining() / Integer.BYTES);
+                if (neighbors != null)
+                    neighbors.copyTo(j, j + m, buffer.asIntBuffer());
+                else
+                    offHeapNeighbors.copyTo(j, j + m, buffer.asIntBuffer());
+                buffer.position(buffer.position() + (int)m * Integer.BYTES);
+            }
+            if (nEdges % 2 == 1)
+            {
+                if (buffer.remaining() < Integer.BYTES)
+                    writeBinaryFormatHelper(fileChannel, buffer);
+                buffer.putInt(0);
+            }
+
+            for (j = 0; j < nEdges; j += m)
+            {
+                if (buffer.remaining() < Double.BYTES)
+                    writeBinaryFormatHelper(fileChannel, buffer);
+                m = Math.min(nEdges - j, buffer.remaining() / Double.BYTES);
+                if (edgeWeights != null)
+                {
+                    edgeWeights.copyTo(j, j + m, buffer.asDoubleBuffer());
+                    buffer.position(buffer.position() + (int)m * Double.BYTES);
+                }
+                else if (offHeapEdgeWeights != null)
+                {
+                    offHeapEdgeWeights.copyTo(j, j + m, buffer.asDoubleBuffer());
+                    buffer.position(buffer.position() + (int)m * Double.BYTES);
+                }
+                else
+                    for (k = j; k < j + m; k++)
+                        buffer.putDouble(getEdgeWeightHelper(k));
+            }
+
+            writeBinaryFormatHelper(fileChannel, buffer);
+        }
+        finally
+        {
+            fileChannel.close();
+        }
+    }
+
+    /**
+     * Returns the number of nodes.
+     *
+     * @return Number of nodes
+     */
+    public int getNNodes()
+    {
+        return nNodes;
+    }
+
+    /**
+     * Returns the total node weight.
+     *
+     * @return Total node weight
+     */
+    public double getTotalNodeWeight()
+    {
+        return nl.cwts.util.Arrays.calcSum(nodeWeights);
+    }
+
+    /**
+     * Returns the weight of each node.
+     *
+     * @return Weight of each node
+     */
+    public double[] getNodeWeights()
+    {
+        return nodeWeights.clone();
+    }
+
+    /**
+     * Returns the weight of a node.
+     *
+     * @param node Node
+     *
+     * @return Weight
+     */
+    public double getNodeWeight(int node)
+    {
+        return nodeWeights[node];
+    }
+
+    /**
      * Returns the number of edges.
      *
      * <p>
@@ -484,7 +1069,7 @@ public class Network implements Serializable
         edges[0] = new LargeIntArray(nEdges);
         for (i = 0; i < nNodes; i++)
             edges[0].fill(firstNeighborIndices[i], firstNeighborIndices[i + 1], i);
-        edges[1] = neighbors.clone();
+        edges[1] = (neighbors != null) ? neighbors.clone() : createNetworkWithNeighborsOnHeapHelper().neighbors;
         return edges;
     }
 
@@ -500,7 +1085,7 @@ public class Network implements Serializable
 
         neighborsPerNode = new int[nNodes][];
         for (i = 0; i < nNodes; i++)
-            neighborsPerNode[i] = neighbors.toArray(firstNeighborIndices[i], firstNeighborIndices[i + 1]);
+            neighborsPerNode[i] = getNeighbors(i);
         return neighborsPerNode;
     }
 
@@ -513,24 +1098,77 @@ public class Network implements Serializable
      */
     public int[] getNeighbors(int node)
     {
-        return neighbors.toArray(firstNeighborIndices[node], firstNeighborIndices[node + 1]);
+        int[] neighbors;
+
+        neighbors = new int[getNNeighbors(node)];
+        getNeighbors(node, neighbors);
+        return neighbors;
+    }
+
+    /**
+     * Copies the neighbors of a node to an existing array.
+     *
+     * <p>
+     * This method does not allocate any memory, so a single array of length
+     * at least the maximum number of neighbors of a node can be reused for
+     * all nodes. Neighbors stored as ordinary integers are copied in bulk.
+     * </p>
+     *
+     * @param node      Node
+     * @param neighbors Array to copy the neighbors to
+     *
+     * @return Number of neighbors
+     */
+    public int getNeighbors(int node, int[] neighbors)
+    {
+        int i, nNeighbors;
+        NeighborCursor neighborCursor;
+
+        nNeighbors = getNNeighbors(node);
+        if (this.neighbors != null)
+            this.neighbors.copyTo(firstNeighborIndices[node], firstNeighborIndices[node + 1], neighbors, 0);
+        else
+        {
+            neighborCursor = new NeighborCursor(this);
+            neighborCursor.reset(node);
+            for (i = 0; i < nNeighbors; i++)
+                neighbors[i] = neighborCursor.nextNeighbor();
+        }
+        return nNeighbors;
     }
 
     /**
      * Returns an iterable over all the neighbors of a node.
      *
+     * <p>
+     * If neighbors are stored in compressed format or outside the Java heap,
+     * the neighbors are first copied to a new array. The iterable boxes each
+     * neighbor. Use {@link #forEachNeighbor(int node, IntDoubleConsumer
+     * action)} or a {@link NeighborCursor} to iterate over the neighbors
+     * without copying or boxing them.
+     * </p>
+     *
      * @param node Node
      *
      * @return Iterable over neighbors
      */
     public LargeIntArray.FromToIterable neighbors(int node)
     {
+        if (neighbors == null)
+            return new LargeIntArray(getNeighbors(node)).fromTo(0, getNNeighbors(node));
         return neighbors.fromTo(firstNeighborIndices[node], firstNeighborIndices[node + 1]);
     }
 
     /**
      * Returns an iterable over all the incident edges of a node.
      *
+     * <p>
+     * The iterable boxes each edge. The incident edges of a node form the
+     * range from {@link #getFirstIncidentEdge(int node)} to {@link
+     * #getEndIncidentEdge(int node)}, which can be iterated over without
+     * boxing.
+     * </p>
+     *
      * @param node Node
      *
      * @return Iterable over incident edges
@@ -540,6 +1178,81 @@ public class Network implements Serializable
         return new RangeIterable(firstNeighborIndices[node], firstNeighborIndices[node + 1]);
     }
 
+    /**
+     * Returns the first incident edge of a node.
+     *
+     * <p>
+     * The incident edges of a node are the edges {@code
+     * getFirstIncidentEdge(node)} up to (but not including) {@code
+     * getEndIncidentEdge(node)}. These are the edge indices returned by
+     * {@link NeighborCursor#getEdge()}. For an array with the same layout as
+     * the edges, such as {@link #getEdgeWeights()}, an edge index can be
+     * converted to a segment and an offset using {@link
+     * LargeIntArray#getSegment(long index)} and {@link
+     * LargeIntArray#getOffset(long index)}.
+     * </p>
+     *
+     * @param node Node
+     *
+     * @return First incident edge
+     */
+    public long getFirstIncidentEdge(int node)
+    {
+        return firstNeighborIndices[node];
+    }
+
+    /**
+     * Returns the incident edge following the last incident edge of a node.
+     *
+     * <p>
+     * See {@link #getFirstIncidentEdge(int node)}.
+     * </p>
+     *
+     * @param node Node
+     *
+     * @return End of the incident edges
+     */
+    public long getEndIncidentEdge(int node)
+    {
+        return firstNeighborIndices[node + 1];
+    }
+
+    /**
+     * Performs an action for each neighbor of a node.
+     *
+     * <p>
+     * The action receives each neighbor together with the weight of the edge
+     * between the node and the neighbor, in the same order as {@link
+     * #getNeighbors(int node)}. Neighbors and edge weights are not boxed.
+     * Neighbors and edge weights stored as ordinary arrays are read directly.
+     * Otherwise a {@link NeighborCursor} is used that does not escape this
+     * method, so after inlining the just-in-time compiler can eliminate its
+     * allocation. A single action can be reused for all nodes.
+     * </p>
+     *
+     * @param node   Node
+     * @param action Action taking a neighbor and an edge weight
+     */
+    public void forEachNeighbor(int node, IntDoubleConsumer action)
+    {
+        long endEdge, i;
+        NeighborCursor neighborCursor;
+
+        if ((neighbors != null) && (edgeWeights != null) && (edgeWeightNormalization == NORMALIZATION_NONE))
+        {
+            endEdge = firstNeighborIndices[node + 1];
+            for (i = firstNeighborIndices[node]; i < endEdge; i++)
+                action.accept(neighbors.get(i), edgeWeights.get(i));
+        }
+        else
+        {
+            neighborCursor = new NeighborCursor(this);
+            neighborCursor.reset(node);
+            while (neighborCursor.hasNext())
+                action.accept(neighborCursor.nextNeighbor(), neighborCursor.getEdgeWeight());
+        }
+    }
+
     /**
      * Returns the total edge weight.
      *
@@ -558,7 +1271,7 @@ public class Network implements Serializable
      */
     public double getTotalEdgeWeight()
     {
-        return edgeWeights.calcSum() / 2;
+        return calcEdgeWeightSumOfNodesHelper(0, nNodes) / 2;
     }
 
     /**
@@ -584,7 +1297,7 @@ public class Network implements Serializable
      */
     public double getTotalEdgeWeight(int node)
     {
-        return edgeWeights.calcSum(firstNeighborIndices[node], firstNeighborIndices[node + 1]);
+        return calcEdgeWeightSumOfNodesHelper(node, node + 1);
     }
 
     /**
@@ -600,7 +1313,7 @@ public class Network implements Serializable
      */
     public LargeDoubleArray getEdgeWeights()
     {
-        return edgeWeights.clone();
+        return getEdgeWeightsHelper();
     }
 
     /**
@@ -616,7 +1329,7 @@ public class Network implements Serializable
 
         edgeWeightsPerNode = new double[nNodes][];
         for (i = 0; i < nNodes; i++)
-            edgeWeightsPerNode[i] = edgeWeights.toArray(firstNeighborIndices[i], firstNeighborIndices[i + 1]);
+            edgeWeightsPerNode[i] = getEdgeWeightsHelper(i);
         return edgeWeightsPerNode;
     }
 
@@ -630,20 +1343,68 @@ public class Network implements Serializable
      */
     public double[] getEdgeWeights(int node)
     {
-        return edgeWeights.toArray(firstNeighborIndices[node], firstNeighborIndices[node + 1]);
+        return getEdgeWeightsHelper(node);
+    }
+
+    /**
+     * Copies the edge weights of a node to an existing array. These are the
+     * weights of the edges between the node and its neighbors.
+     *
+     * <p>
+     * This method does not allocate any memory, so a single array of length
+     * at least the maximum number of neighbors of a node can be reused for
+     * all nodes. Edge weights stored in double precision are copied in bulk.
+     * </p>
+     *
+     * @param node        Node
+     * @param edgeWeights Array to copy the edge weights to
+     *
+     * @return Number of edge weights
+     */
+    public int getEdgeWeights(int node, double[] edgeWeights)
+    {
+        int i, nNeighbors;
+        NeighborCursor neighborCursor;
+
+        nNeighbors = getNNeighbors(node);
+        if ((this.edgeWeights != null) && (edgeWeightNormalization == NORMALIZATION_NONE))
+            this.edgeWeights.copyTo(firstNeighborIndices[node], firstNeighborIndices[node + 1], edgeWeights, 0);
+        else
+        {
+            neighborCursor = new NeighborCursor(this);
+            neighborCursor.reset(node);
+            for (i = 0; i < nNeighbors; i++)
+            {
+                neighborCursor.nextNeighbor();
+                edgeWeights[i] = neighborCursor.getEdgeWeight();
+            }
+        }
+        return nNeighbors;
     }
 
     /**
      * Returns an iterable over all the edge weights of all incident edges of a
      * node.
      *
+     * <p>
+     * The iterable boxes each edge weight. Use {@link #forEachNeighbor(int
+     * node, IntDoubleConsumer action)} or a {@link NeighborCursor} to iterate
+     * over the edge weights without boxing them.
+     * </p>
+     *
      * @param node Node
      *
      * @return Iterable over edge weights of a node
      */
     public LargeDoubleArray.FromToIterable edgeWeights(int node)
     {
-        return edgeWeights.fromTo(firstNeighborIndices[node], firstNeighborIndices[node + 1]);
+        double[] edgeWeights;
+
+        if ((this.edgeWeights != null) && (edgeWeightNormalization == NORMALIZATION_NONE))
+            return this.edgeWeights.fromTo(firstNeighborIndices[node], firstNeighborIndices[node + 1]);
+
+        edgeWeights = getEdgeWeights(node);
+        return new LargeDoubleArray(edgeWeights).fromTo(0, edgeWeights.length);
     }
 
     /**
@@ -660,31 +1421,46 @@ public class Network implements Serializable
      * Creates a copy of the network, but without node weights.
      *
      * <p>
-     * Each node is assigned a weight of 1.
+     * Each node is assigned a weight of 1. The neighbors and the edge weights
+     * are shared with this network.
      * </p>
      *
      * @return Network without node weights
      */
     public Network createNetworkWithoutNodeWeights()
     {
-        Network networkWithoutNodeWeights;
+        return createNetworkWithNodeWeightsHelper(nl.cwts.util.Arrays.createDoubleArrayOfOnes(nNodes));
+    }
+
+    /**
+     * Creates a copy of the network, but with different node weights.
+     *
+     * <p>
+     * The neighbors and the edge weights are shared with this network. Only
+     * the node weights are copied.
+     * </p>
+     *
+     * @param nodeWeights Node weights
+     *
+     * @return Network with the specified node weights
+     *
+     * @throws IllegalArgumentException The number of node weights is not
+     *                                  equal to the number of nodes
+     */
+    public Network createNetworkWithNodeWeights(double[] nodeWeights) throws IllegalArgumentException
+    {
+        if (nodeWeights.length != nNodes)
+            throw new IllegalArgumentException("Length of nodeWeights array must be equal to nNodes.");
 
-        networkWithoutNodeWeights = new Network();
-        networkWithoutNodeWeights.nNodes = nNodes;
-        networkWithoutNodeWeights.nEdges = nEdges;
-        networkWithoutNodeWeights.nodeWeights = nl.cwts.util.Arrays.createDoubleArrayOfOnes(nNodes);
-        networkWithoutNodeWeights.firstNeighborIndices = firstNeighborIndices;
-        networkWithoutNodeWeights.neighbors = neighbors;
-        networkWithoutNodeWeights.edgeWeights = edgeWeights;
-        networkWithoutNodeWeights.totalEdgeWeightSelfLinks = totalEdgeWeightSelfLinks;
-        return networkWithoutNodeWeights;
+        return createNetworkWithNodeWeightsHelper(nodeWeights.clone());
     }
 
     /**
      * Creates a copy of the network, but without edge weights.
      *
      * <p>
-     * Each edge is assigned a weight of 1.
+     * Each edge is assigned a weight of 1. Edge weights of 1 are not stored
+     * (see {@link #hasUnitEdgeWeights()}).
      * </p>
      *
      * @return Network without edge weights
@@ -699,7 +1475,10 @@ public class Network implements Serializable
         networkWithoutEdgeWeights.nodeWeights = nodeWeights;
         networkWithoutEdgeWeights.firstNeighborIndices = firstNeighborIndices;
         networkWithoutEdgeWeights.neighbors = neighbors;
-        networkWithoutEdgeWeights.edgeWeights = new LargeDoubleArray(nEdges, 1);
+        networkWithoutEdgeWeights.offHeapNeighbors = offHeapNeighbors;
+        networkWithoutEdgeWeights.firstNeighborPositions = firstNeighborPositions;
+        networkWithoutEdgeWeights.compressedNeighbors = compressedNeighbors;
+        networkWithoutEdgeWeights.edgeWeights = null;
         networkWithoutEdgeWeights.totalEdgeWeightSelfLinks = 0;
         return networkWithoutEdgeWeights;
     }
@@ -709,7 +1488,8 @@ public class Network implements Serializable
      *
      * <p>
      * Each node is assigned a weight of 1, and each edge is assigned a weight
-     * of 1.
+     * of 1. Edge weights of 1 are not stored (see {@link
+     * #hasUnitEdgeWeights()}).
      * </p>
      *
      * @return Network without node and edge weights
@@ -724,115 +1504,522 @@ public class Network implements Serializable
         networkWithoutNodeAndEdgeWeights.nodeWeights = nl.cwts.util.Arrays.createDoubleArrayOfOnes(nNodes);
         networkWithoutNodeAndEdgeWeights.firstNeighborIndices = firstNeighborIndices;
         networkWithoutNodeAndEdgeWeights.neighbors = neighbors;
-        networkWithoutNodeAndEdgeWeights.edgeWeights = new LargeDoubleArray(nEdges, 1);
+        networkWithoutNodeAndEdgeWeights.offHeapNeighbors = offHeapNeighbors;
+        networkWithoutNodeAndEdgeWeights.firstNeighborPositions = firstNeighborPositions;
+        networkWithoutNodeAndEdgeWeights.compressedNeighbors = compressedNeighbors;
+        networkWithoutNodeAndEdgeWeights.edgeWeights = null;
         networkWithoutNodeAndEdgeWeights.totalEdgeWeightSelfLinks = 0;
         return networkWithoutNodeAndEdgeWeights;
     }
 
     /**
-     * Creates a copy of the network in which the edge weights have been
-     * normalized using the association strength.
+     * Indicates whether each edge has a weight of 1.
      *
      * <p>
-     * The normalized weight {@code a'[i][j]} of the edge between nodes {@code
-     * i} and {@code j} is given by
+     * If each edge has a weight of 1, edge weights are not stored. This is
+     * the case for networks constructed without edge weights and for networks
+     * created using {@link #createNetworkWithoutEdgeWeights()}.
      * </p>
      *
-     * <blockquote>
-     * {@code a'[i][j] = a[i][j] / (n[i] * n[j] / (2 * m))},
-     * </blockquote>
+     * @return Whether each edge has a weight of 1
+     */
+    public boolean hasUnitEdgeWeights()
+    {
+        return ((edgeWeights == null) && (singlePrecisionEdgeWeights == null) && (offHeapEdgeWeights == null) && (edgeWeightNormalization == NORMALIZATION_NONE));
+    }
+
+    /**
+     * Indicates whether edge weights are stored in single precision.
      *
-     * <p>
-     * where {@code a[i][j]} is the non-normalized weight of the edge between
-     * nodes {@code i} and {@code j}, {@code n[i]} is the weight of node {@code
-     * i}, and {@code m} is half the total node weight.
-     * </p>
+     * @return Whether edge weights are stored in single precision
      *
-     * <p>
-     * If each node's weight equals the total weight of the edges between the
-     * node and its neighbors, the edge weights are normalized by dividing them
-     * by the expected edge weights in the random configuration model.
-     * </p>
+     * @see #createNetworkWithSinglePrecisionEdgeWeights()
+     */
+    public boolean hasSinglePrecisionEdgeWeights()
+    {
+        return (singlePrecisionEdgeWeights != null);
+    }
+
+    /**
+     * Creates a copy of the network in which edge weights are stored in
+     * single precision.
      *
      * <p>
-     * The node weights are set to 1.
+     * Storing edge weights in single precision halves the memory needed for
+     * edge weights, at the cost of rounding each edge weight to the nearest
+     * single-precision value. The total edge weight of self links is not
+     * rounded. If each edge has a weight of 1, edge weights are not stored
+     * and the network itself is returned. Node weights and neighbors are
+     * shared with this network. Networks derived from a network with
+     * single-precision edge weights, such as subnetworks and reduced networks,
+     * store edge weights in double precision.
      * </p>
      *
-     * @return Normalized network
+     * @return Network with edge weights stored in single precision
      */
-    public Network createNormalizedNetworkUsingAssociationStrength()
+    public Network createNetworkWithSinglePrecisionEdgeWeights()
     {
-        double totalNodeWeight;
         int i;
-        long j;
-        Network normalizedNetwork;
-
-        normalizedNetwork = new Network();
+        NeighborCursor neighborCursor;
+        Network singlePrecisionNetwork;
 
-        normalizedNetwork.nNodes = nNodes;
-        normalizedNetwork.nEdges = nEdges;
-        normalizedNetwork.nodeWeights = nl.cwts.util.Arrays.createDoubleArrayOfOnes(nNodes);
-        normalizedNetwork.firstNeighborIndices = firstNeighborIndices;
-        normalizedNetwork.neighbors = neighbors;
+        if ((edgeWeights == null) && (offHeapEdgeWeights == null) && (edgeWeightNormalization == NORMALIZATION_NONE))
+            return this;
 
-        normalizedNetwork.edgeWeights = edgeWeights.clone();
-        totalNodeWeight = getTotalNodeWeight();
+        singlePrecisionNetwork = new Network();
+        singlePrecisionNetwork.nNodes = nNodes;
+        singlePrecisionNetwork.nEdges = nEdges;
+        singlePrecisionNetwork.nodeWeights = nodeWeights;
+        singlePrecisionNetwork.firstNeighborIndices = firstNeighborIndices;
+        singlePrecisionNetwork.neighbors = neighbors;
+        singlePrecisionNetwork.offHeapNeighbors = offHeapNeighbors;
+        singlePrecisionNetwork.firstNeighborPositions = firstNeighborPositions;
+        singlePrecisionNetwork.compressedNeighbors = compressedNeighbors;
+        singlePrecisionNetwork.singlePrecisionEdgeWeights = new LargeFloatArray(nEdges);
+        neighborCursor = new NeighborCursor(this);
         for (i = 0; i < nNodes; i++)
-            for (j = firstNeighborIndices[i]; j < firstNeighborIndices[i + 1]; j++)
-                normalizedNetwork.edgeWeights.divide(j, ((nodeWeights[i] * nodeWeights[neighbors.get(j)]) / totalNodeWeight));
-
-        normalizedNetwork.totalEdgeWeightSelfLinks = 0;
-
-        return normalizedNetwork;
+        {
+            neighborCursor.reset(i);
+            while (neighborCursor.hasNext())
+            {
+                neighborCursor.nextNeighbor();
+                singlePrecisionNetwork.singlePrecisionEdgeWeights.set(neighborCursor.getEdge(), (float)neighborCursor.getEdgeWeight());
+            }
+        }
+        singlePrecisionNetwork.totalEdgeWeightSelfLinks = totalEdgeWeightSelfLinks;
+        return singlePrecisionNetwork;
     }
 
     /**
-     * Creates a copy of the network in which the edge weights have been
-     * normalized using fractionalization.
+     * Indicates whether the neighbors of the nodes are stored in compressed
+     * format.
      *
-     * <p>
-     * The normalized weight {@code a'[i][j]} of the edge between nodes {@code
-     * i} and {@code j} is given by
-     * </p>
+     * @return Whether the neighbors are stored in compressed format
      *
-     * <blockquote>
-     * {@code a'[i][j] = a[i][j] * (n / n[i] + n / n[j]) / 2},
-     * </blockquote>
+     * @see #createCompressedNetwork()
+     */
+    public boolean isCompressed()
+    {
+        return (compressedNeighbors != null);
+    }
+
+    /**
+     * Creates a copy of the network in which the neighbors of the nodes are
+     * stored in compressed format.
      *
      * <p>
-     * where {@code a[i][j]} is the non-normalized weight of the edge between
-     * nodes {@code i} and {@code j}, {@code n[i]} is the weight of node {@code
-     * i}, and {@code n} is the number of nodes.
+     * The neighbors of each node are stored as gaps between successive
+     * neighbors. The first neighbor is stored as its difference with the node
+     * itself, mapped to a non-negative number by zigzag encoding. Each gap is
+     * written as a variable-length integer using 7 bits per byte, so gaps
+     * smaller than 128 take a single byte. The position of the first neighbor
+     * of each node is stored separately, which provides random access to the
+     * neighbors of each node. For networks with many nodes that are connected
+     * mostly to nodes with nearby numbers, this often reduces the memory
+     * needed for storing neighbors by a factor of 2 to 4.
      * </p>
      *
      * <p>
-     * The node weights are set to 1.
+     * Neighbors in compressed format can be traversed sequentially using a
+     * {@link NeighborCursor}. Node weights and edge weights are shared with
+     * this network. Networks derived from a compressed network, such as
+     * subnetworks and reduced networks, are stored in uncompressed format.
      * </p>
      *
-     * @return Normalized network
+     * @return Network with neighbors stored in compressed format
+     *
+     * @throws IllegalArgumentException The neighbors of a node are not sorted
      */
-    public Network createNormalizedNetworkUsingFractionalization()
+    public Network createCompressedNetwork() throws IllegalArgumentException
     {
-        int i;
-        long j;
-        Network normalizedNetwork;
-
-        normalizedNetwork = new Network();
+        int i, j, k, value;
+        long l;
+        Network compressedNetwork;
 
-        normalizedNetwork.nNodes = nNodes;
-        normalizedNetwork.nEdges = nEdges;
-        normalizedNetwork.nodeWeights = nl.cwts.util.Arrays.createDoubleArrayOfOnes(nNodes);
-        normalizedNetwork.firstNeighborIndices = firstNeighborIndices;
-        normalizedNetwork.neighbors = neighbors;
+        if (compressedNeighbors != null)
+            return this;
 
-        normalizedNetwork.edgeWeights = edgeWeights.clone();
+        compressedNetwork = new Network();
+        compressedNetwork.nNodes = nNodes;
+        compressedNetwork.nEdges = nEdges;
+        compressedNetwork.nodeWeights = nodeWeights;
+        compressedNetwork.firstNeighborIndices = firstNeighborIndices;
+        compressedNetwork.edgeWeights = edgeWeights;
+        compressedNetwork.offHeapEdgeWeights = offHeapEdgeWeights;
+        compressedNetwork.singlePrecisionEdgeWeights = singlePrecisionEdgeWeights;
+        shareEdgeWeightsHelper(compressedNetwork);
+        compressedNetwork.totalEdgeWeightSelfLinks = totalEdgeWeightSelfLinks;
+        compressedNetwork.edgeWeightNormalization = edgeWeightNormalization;
+        compressedNetwork.normalizationNodeWeights = normalizationNodeWeights;
+        compressedNetwork.normalizationTotalNodeWeight = normalizationTotalNodeWeight;
+
+        compressedNetwork.firstNeighborPositions = new long[nNodes + 1];
+        compressedNetwork.compressedNeighbors = new LargeByteArray(0);
+        compressedNetwork.compressedNeighbors.ensureCapacity(nEdges);
         for (i = 0; i < nNodes; i++)
-            for (j = firstNeighborIndices[i]; j < firstNeighborIndices[i + 1]; j++)
-                normalizedNetwork.edgeWeights.divide(j, (2 / (nNodes / nodeWeights[i] + nNodes / nodeWeights[neighbors.get(j)])));
+        {
+            j = i;
+            for (l = firstNeighborIndices[i]; l < firstNeighborIndices[i + 1]; l++)
+            {
+                k = (neighbors != null) ? neighbors.get(l) : offHeapNeighbors.get(l);
+                if (l == firstNeighborIndices[i])
+                    value = ((k - i) << 1) ^ ((k - i) >> 31);
+                else if (k >= j)
+                    value = k - j;
+                else
+                    throw new IllegalArgumentException("For each node, corresponding elements of neighbors array must be in increasing order.");
+                do
+                {
+                    compressedNetwork.compressedNeighbors.append((byte)((value >>> 7 != 0) ? ((value & 0x7F) | 0x80) : value));
+                    value >>>= 7;
+                } while (value != 0);
+                j = k;
+            }
+            compressedNetwork.firstNeighborPositions[i + 1] = compressedNetwork.compressedNeighbors.size();
+        }
+        compressedNetwork.compressedNeighbors.shrink();
 
-        normalizedNetwork.totalEdgeWeightSelfLinks = 0;
+        return compressedNetwork;
+    }
 
-        return normalizedNetwork;
+    /**
+     * Creates a copy of the network in which the neighbors of the nodes are
+     * stored in uncompressed format.
+     *
+     * <p>
+     * Node weights and edge weights are shared with this network.
+     * </p>
+     *
+     * @return Network with neighbors stored in uncompressed format
+     *
+     * @see #createCompressedNetwork()
+     */
+    public Network createUncompressedNetwork()
+    {
+        Network uncompressedNetwork;
+
+        if (compressedNeighbors == null)
+            return this;
+
+        uncompressedNetwork = createNetworkWithNeighborsOnHeapHelper();
+        shareEdgeWeightsHelper(uncompressedNetwork);
+        return uncompressedNetwork;
+    }
+
+    /**
+     * Indicates whether the neighbors and the edge weights are stored outside
+     * the Java heap.
+     *
+     * @return Whether the neighbors and the edge weights are stored outside
+     *         the Java heap
+     *
+     * @see #createOffHeapNetwork()
+     */
+    public boolean isOffHeap()
+    {
+        return (offHeapNeighbors != null);
+    }
+
+    /**
+     * Creates a copy of the network in which the neighbors and the edge
+     * weights are stored outside the Java heap.
+     *
+     * <p>
+     * Neighbors and edge weights account for almost all memory needed for a
+     * large network. Storing them outside the Java heap, in direct byte
+     * buffers, keeps the Java heap small, so the duration of garbage
+     * collection pauses does not depend on the size of the network. Node
+     * weights and the indices of the first neighbor of each node are shared
+     * with this network and remain on the Java heap. Edge weights stored in
+     * single precision are stored outside the Java heap in double precision.
+     * If each edge has a weight of 1, edge weights are not stored.
+     * </p>
+     *
+     * <p>
+     * Networks derived from a network stored outside the Java heap, such as
+     * subnetworks and reduced networks, are stored on the Java heap. The
+     * memory outside the Java heap can be released using {@link
+     * #releaseOffHeapMemory()}.
+     * </p>
+     *
+     * @return Network with neighbors and edge weights stored outside the Java
+     *         heap
+     */
+    public Network createOffHeapNetwork()
+    {
+        int i;
+        long j;
+        NeighborCursor neighborCursor;
+        Network offHeapNetwork;
+
+        if (offHeapNeighbors != null)
+            return this;
+
+        offHeapNetwork = new Network();
+        offHeapNetwork.nNodes = nNodes;
+        offHeapNetwork.nEdges = nEdges;
+        offHeapNetwork.nodeWeights = nodeWeights;
+        offHeapNetwork.firstNeighborIndices = firstNeighborIndices;
+        offHeapNetwork.totalEdgeWeightSelfLinks = totalEdgeWeightSelfLinks;
+
+        offHeapNetwork.offHeapNeighbors = new OffHeapIntArray(nEdges);
+        if (!hasUnitEdgeWeights())
+            offHeapNetwork.offHeapEdgeWeights = new OffHeapDoubleArray(nEdges);
+        neighborCursor = new NeighborCursor(this);
+        j = 0;
+        for (i = 0; i < nNodes; i++)
+        {
+            neighborCursor.reset(i);
+            while (neighborCursor.hasNext())
+            {
+                offHeapNetwork.offHeapNeighbors.set(j, neighborCursor.nextNeighbor());
+                if (offHeapNetwork.offHeapEdgeWeights != null)
+                    offHeapNetwork.offHeapEdgeWeights.set(j, neighborCursor.getEdgeWeight());
+                j++;
+            }
+        }
+
+        return offHeapNetwork;
+    }
+
+    /**
+     * Releases the memory outside the Java heap in which the neighbors and the
+     * edge weights are stored.
+     *
+     * <p>
+     * The memory is released immediately, without waiting for the garbage
+     * collector. Afterwards, the network must not be used anymore. This also
+     * applies to networks that share neighbors or edge weights with this
+     * network, such as networks created using {@link
+     * #createNetworkWithoutNodeWeights()}. If the neighbors and the edge
+     * weights are read from a memory-mapped file (see {@link
+     * #loadBinary(String filename, boolean offHeap)}), the file is unmapped.
+     * If the network is not stored outside the Java heap, this method has no
+     * effect.
+     * </p>
+     *
+     * @see #createOffHeapNetwork()
+     */
+    public void releaseOffHeapMemory()
+    {
+        if (offHeapNeighbors != null)
+            offHeapNeighbors.release();
+        if (offHeapEdgeWeights != null)
+            offHeapEdgeWeights.release();
+    }
+
+    private Network createNetworkWithNeighborsOnHeapHelper()
+    {
+        int i;
+        long j;
+        NeighborCursor neighborCursor;
+        Network uncompressedNetwork;
+
+        uncompressedNetwork = new Network();
+        uncompressedNetwork.nNodes = nNodes;
+        uncompressedNetwork.nEdges = nEdges;
+        uncompressedNetwork.nodeWeights = nodeWeights;
+        uncompressedNetwork.firstNeighborIndices = firstNeighborIndices;
+        uncompressedNetwork.edgeWeights = edgeWeights;
+        uncompressedNetwork.offHeapEdgeWeights = offHeapEdgeWeights;
+        uncompressedNetwork.singlePrecisionEdgeWeights = singlePrecisionEdgeWeights;
+        uncompressedNetwork.totalEdgeWeightSelfLinks = totalEdgeWeightSelfLinks;
+        uncompressedNetwork.edgeWeightNormalization = edgeWeightNormalization;
+        uncompressedNetwork.normalizationNodeWeights = normalizationNodeWeights;
+        uncompressedNetwork.normalizationTotalNodeWeight = normalizationTotalNodeWeight;
+
+        uncompressedNetwork.neighbors = new LargeIntArray(nEdges);
+        neighborCursor = new NeighborCursor(this);
+        j = 0;
+        for (i = 0; i < nNodes; i++)
+        {
+            neighborCursor.reset(i);
+            while (neighborCursor.hasNext())
+            {
+                uncompressedNetwork.neighbors.set(j, neighborCursor.nextNeighbor());
+                j++;
+            }
+        }
+
+        return uncompressedNetwork;
+    }
+
+    /**
+     * Creates a copy of the network in which the edge weights have been
+     * normalized using the association strength.
+     *
+     * <p>
+     * The normalized weight {@code a'[i][j]} of the edge between nodes {@code
+     * i} and {@code j} is given by
+     * </p>
+     *
+     * <blockquote>
+     * {@code a'[i][j] = a[i][j] / (n[i] * n[j] / (2 * m))},
+     * </blockquote>
+     *
+     * <p>
+     * where {@code a[i][j]} is the non-normalized weight of the edge between
+     * nodes {@code i} and {@code j}, {@code n[i]} is the weight of node {@code
+     * i}, and {@code m} is half the total node weight.
+     * </p>
+     *
+     * <p>
+     * If each node's weight equals the total weight of the edges between the
+     * node and its neighbors, the edge weights are normalized by dividing them
+     * by the expected edge weights in the random configuration model.
+     * </p>
+     *
+     * <p>
+     * The node weights are set to 1.
+     * </p>
+     *
+     * @return Normalized network
+     */
+    public Network createNormalizedNetworkUsingAssociationStrength()
+    {
+        return createNormalizedNetworkUsingAssociationStrength(false);
+    }
+
+    /**
+     * Creates a network in which the edge weights have been normalized using
+     * the association strength, optionally by normalizing the edge weights of
+     * this network in place.
+     *
+     * <p>
+     * See {@link #createNormalizedNetworkUsingAssociationStrength()}. If
+     * {@code inPlace} is true and the edge weights are stored in double
+     * precision, the normalized edge weights overwrite the edge weights of
+     * this network, so that no copy of the edge weights needs to be made. This
+     * network must then not be used anymore.
+     *
+     * <p>
+     * The edge weights of this network are copied nevertheless if they may be
+     * shared with another network, for instance a network created using
+     * {@link #createNetworkWithoutNodeWeights()} or a normalized view, or if
+     * they are stored in a read-only memory-mapped file (see {@link
+     * #loadBinary(String filename, boolean offHeap)}). Overwriting them would
+     * silently change the other network or would fail.
+     * </p>
+     *
+     * <p>
+     * For large networks, the edge weights are normalized in parallel.
+     * </p>
+     *
+     * @param inPlace Indicates whether to normalize the edge weights of this
+     *                network in place
+     *
+     * @return Normalized network
+     */
+    public Network createNormalizedNetworkUsingAssociationStrength(boolean inPlace)
+    {
+        return createNormalizedNetworkHelper(inPlace, NORMALIZATION_ASSOCIATION_STRENGTH);
+    }
+
+    /**
+     * Creates a network in which the edge weights are normalized using the
+     * association strength when they are read, without storing the normalized
+     * edge weights.
+     *
+     * <p>
+     * The edge weights are the same as in {@link
+     * #createNormalizedNetworkUsingAssociationStrength()}. However, the
+     * neighbors and the stored edge weights are shared with this network, so
+     * that hardly any memory is needed for the created network. Reading an
+     * edge weight then involves a division, so algorithms that read each edge
+     * weight many times will run somewhat slower.
+     * </p>
+     *
+     * @return Normalized network
+     */
+    public Network createNormalizedNetworkViewUsingAssociationStrength()
+    {
+        return createNormalizedNetworkViewHelper(NORMALIZATION_ASSOCIATION_STRENGTH);
+    }
+
+    /**
+     * Creates a copy of the network in which the edge weights have been
+     * normalized using fractionalization.
+     *
+     * <p>
+     * The normalized weight {@code a'[i][j]} of the edge between nodes {@code
+     * i} and {@code j} is given by
+     * </p>
+     *
+     * <blockquote>
+     * {@code a'[i][j] = a[i][j] * (n / n[i] + n / n[j]) / 2},
+     * </blockquote>
+     *
+     * <p>
+     * where {@code a[i][j]} is the non-normalized weight of the edge between
+     * nodes {@code i} and {@code j}, {@code n[i]} is the weight of node {@code
+     * i}, and {@code n} is the number of nodes.
+     * </p>
+     *
+     * <p>
+     * The node weights are set to 1.
+     * </p>
+     *
+     * @return Normalized network
+     */
+    public Network createNormalizedNetworkUsingFractionalization()
+    {
+        return createNormalizedNetworkUsingFractionalization(false);
+    }
+
+    /**
+     * Creates a network in which the edge weights have been normalized using
+     * fractionalization, optionally by normalizing the edge weights of this
+     * network in place.
+     *
+     * <p>
+     * See {@link #createNormalizedNetworkUsingFractionalization()}. If {@code
+     * inPlace} is true and the edge weights are stored in double precision,
+     * the normalized edge weights overwrite the edge weights of this network,
+     * so that no copy of the edge weights needs to be made. This network must
+     * then not be used anymore.
+     *
+     * <p>
+     * The edge weights of this network are copied nevertheless if they may be
+     * shared with another network, for instance a network created using
+     * {@link #createNetworkWithoutNodeWeights()} or a normalized view, or if
+     * they are stored in a read-only memory-mapped file (see {@link
+     * #loadBinary(String filename, boolean offHeap)}). Overwriting them would
+     * silently change the other network or would fail.
+     * </p>
+     *
+     * <p>
+     * For large networks, the edge weights are normalized in parallel.
+     * </p>
+     *
+     * @param inPlace Indicates whether to normalize the edge weights of this
+     *                network in place
+     *
+     * @return Normalized network
+     */
+    public Network createNormalizedNetworkUsingFractionalization(boolean inPlace)
+    {
+        return createNormalizedNetworkHelper(inPlace, NORMALIZATION_FRACTIONALIZATION);
+    }
+
+    /**
+     * Creates a network in which the edge weights are normalized using
+     * fractionalization when they are read, without storing the normalized
+     * edge weights.
+     *
+     * <p>
+     * The edge weights are the same as in {@link
+     * #createNormalizedNetworkUsingFractionalization()}. However, the
+     * neighbors and the stored edge weights are shared with this network, so
+     * that hardly any memory is needed for the created network. Reading an
+     * edge weight then involves a division, so algorithms that read each edge
+     * weight many times will run somewhat slower.
+     * </p>
+     *
+     * @return Normalized network
+     */
+    public Network createNormalizedNetworkViewUsingFractionalization()
+    {
+        return createNormalizedNetworkViewHelper(NORMALIZATION_FRACTIONALIZATION);
     }
 
     /**
@@ -864,6 +2051,14 @@ public class Network implements Serializable
      * randomly.
      * </p>
      *
+     * <p>
+     * The threshold for edge weights is determined using selection rather
+     * than sorting. Ties are broken using a hash of the two nodes of an edge
+     * and a seed drawn from {@code random}, so no random numbers need to be
+     * stored. The pruned network is created in a time and an amount of memory
+     * linear in the number of edges.
+     * </p>
+     *
      * @param maxNEdges Maximum number of edges
      * @param random    Random number generator
      *
@@ -871,12 +2066,13 @@ public class Network implements Serializable
      */
     public Network createPrunedNetwork(long maxNEdges, Random random)
     {
-        double edgeWeightThreshold, randomNumberThreshold;
+        double edgeWeight, edgeWeightThreshold, randomNumber, randomNumberThreshold;
         LargeDoubleArray edgeWeights;
-        LargeDoubleArray randomNumbers, randomNumbersEdgesAtThreshold;
-        int j;
-        long i, nEdgesAboveThreshold, nEdgesAtThreshold;
-        long k;
+        LargeDoubleArray randomNumbersEdgesAtThreshold;
+        int j, k;
+        long i, nEdgesAboveThreshold, nEdgesAtThreshold, nEdgesAtRandomNumberThreshold, nodePairThreshold, seed;
+        long[] nodePairsAtRandomNumberThreshold;
+        NeighborCursor neighborCursor;
         Network prunedNetwork;
 
         maxNEdges *= 2;
@@ -884,52 +2080,71 @@ public class Network implements Serializable
         if (maxNEdges >= nEdges)
             return this;
 
+        seed = random.nextLong();
+
         edgeWeights = new LargeDoubleArray(nEdges / 2);
+        neighborCursor = new NeighborCursor(this);
         i = 0;
         for (j = 0; j < nNodes; j++)
         {
-            k = firstNeighborIndices[j];
-            while ((k < firstNeighborIndices[j + 1]) && (neighbors.get(k) < j))
+            neighborCursor.reset(j);
+            while (neighborCursor.hasNext() && (neighborCursor.nextNeighbor() < j))
             {
-                edgeWeights.set(i, this.edgeWeights.get(k));
+                edgeWeights.set(i, neighborCursor.getEdgeWeight());
                 i++;
-                k++;
             }
         }
-        edgeWeights.sort();
-        edgeWeightThreshold = edgeWeights.get((nEdges - maxNEdges) / 2);
+        edgeWeightThreshold = selectHelper(edgeWeights, (nEdges - maxNEdges) / 2);
 
         nEdgesAboveThreshold = 0;
-        while (edgeWeights.get(nEdges / 2 - nEdgesAboveThreshold - 1) > edgeWeightThreshold)
-            nEdgesAboveThreshold++;
         nEdgesAtThreshold = 0;
-        while ((nEdgesAboveThreshold + nEdgesAtThreshold < nEdges / 2) && (edgeWeights.get(nEdges / 2 - nEdgesAboveThreshold - nEdgesAtThreshold - 1) == edgeWeightThreshold))
-            nEdgesAtThreshold++;
-
-        randomNumbers = new LargeDoubleArray(nNodes * nNodes);
-        for (i = 0; i < randomNumbers.size(); i++)
-            randomNumbers.set(i, random.nextDouble());
-
+        for (i = 0; i < edgeWeights.size(); i++)
+            if (edgeWeights.get(i) > edgeWeightThreshold)
+                nEdgesAboveThreshold++;
+            else if (edgeWeights.get(i) == edgeWeightThreshold)
+                nEdgesAtThreshold++;
+        edgeWeights = null;
+
+        // Among the edges at the threshold, retain the edges with the highest
+        // random numbers.
         randomNumbersEdgesAtThreshold = new LargeDoubleArray(nEdgesAtThreshold);
         i = 0;
         for (j = 0; j < nNodes; j++)
         {
-            k = firstNeighborIndices[j];
-            while ((k < firstNeighborIndices[j + 1]) && (neighbors.get(k) < j))
-            {
-                if (this.edgeWeights.get(k) == edgeWeightThreshold)
+            neighborCursor.reset(j);
+            while (neighborCursor.hasNext() && ((k = neighborCursor.nextNeighbor()) < j))
+                if (neighborCursor.getEdgeWeight() == edgeWeightThreshold)
                 {
-                    randomNumbersEdgesAtThreshold.set(i,
-                                                      getRandomNumber(j,
-                                                                      neighbors.get(k), randomNumbers));
+                    randomNumbersEdgesAtThreshold.set(i, getRandomNumber(j, k, seed));
+                    i++;
+                }
+        }
+        randomNumberThreshold = selectHelper(randomNumbersEdgesAtThreshold, nEdgesAboveThreshold + nEdgesAtThreshold - maxNEdges / 2);
+
+        // Random numbers are not necessarily unique. Among the edges at both
+        // thresholds, retain the edges with the highest node pairs, so that
+        // exactly the maximum number of edges is retained.
+        nEdgesAtRandomNumberThreshold = 0;
+        for (i = 0; i < randomNumbersEdgesAtThreshold.size(); i++)
+            if (randomNumbersEdgesAtThreshold.get(i) > randomNumberThreshold)
+                nEdgesAboveThreshold++;
+            else if (randomNumbersEdgesAtThreshold.get(i) == randomNumberThreshold)
+                nEdgesAtRandomNumberThreshold++;
+        randomNumbersEdgesAtThreshold = null;
+        nodePairsAtRandomNumberThreshold = new long[(int)nEdgesAtRandomNumberThreshold];
+        i = 0;
+        for (j = 0; j < nNodes; j++)
+        {
+            neighborCursor.reset(j);
+            while (neighborCursor.hasNext() && ((k = neighborCursor.nextNeighbor()) < j))
+                if ((neighborCursor.getEdgeWeight() == edgeWeightThreshold) && (getRandomNumber(j, k, seed) == randomNumberThreshold))
+                {
+                    nodePairsAtRandomNumberThreshold[(int)i] = getNodePair(j, k);
                     i++;
                 }
-                k++;
-            }
         }
-        randomNumbersEdgesAtThreshold.sort();
-        randomNumberThreshold =
-                randomNumbersEdgesAtThreshold.get(nEdgesAboveThreshold + nEdgesAtThreshold - maxNEdges / 2);
+        Arrays.sort(nodePairsAtRandomNumberThreshold);
+        nodePairThreshold = nodePairsAtRandomNumberThreshold[(int)(nEdgesAboveThreshold + nEdgesAtRandomNumberThreshold - maxNEdges / 2)];
 
         prunedNetwork = new Network();
 
@@ -943,13 +2158,23 @@ public class Network implements Serializable
         i = 0;
         for (j = 0; j < nNodes; j++)
         {
-            for (k = firstNeighborIndices[j]; k < firstNeighborIndices[j + 1]; k++)
-                if ((this.edgeWeights.get(k) > edgeWeightThreshold) || ((this.edgeWeights.get(k) == edgeWeightThreshold) && (getRandomNumber(j, neighbors.get(k), randomNumbers) >= randomNumberThreshold)))
+            neighborCursor.reset(j);
+            while (neighborCursor.hasNext())
+            {
+                k = neighborCursor.nextNeighbor();
+                edgeWeight = neighborCursor.getEdgeWeight();
+                if (edgeWeight == edgeWeightThreshold)
                 {
-                    prunedNetwork.neighbors.set(i, neighbors.get(k));
-                    prunedNetwork.edgeWeights.set(i, this.edgeWeights.get(k));
-                    i++;
+                    randomNumber = getRandomNumber(j, k, seed);
+                    if ((randomNumber < randomNumberThreshold) || ((randomNumber == randomNumberThreshold) && (getNodePair(j, k) < nodePairThreshold)))
+                        continue;
                 }
+                else if (edgeWeight < edgeWeightThreshold)
+                    continue;
+                prunedNetwork.neighbors.set(i, k);
+                prunedNetwork.edgeWeights.set(i, edgeWeight);
+                i++;
+            }
             prunedNetwork.firstNeighborIndices[j + 1] = i;
         }
 
@@ -968,10 +2193,10 @@ public class Network implements Serializable
     public Network createSubnetwork(int[] nodes)
     {
         LargeDoubleArray subnetworkEdgeWeights;
-        int i, j;
-        long k;
+        int i, j, k;
         int[] subnetworkNodes;
         LargeIntArray subnetworkNeighbors;
+        NeighborCursor neighborCursor;
         Network subnetwork;
 
         subnetwork = new Network();
@@ -999,19 +2224,24 @@ public class Network implements Serializable
             subnetwork.firstNeighborIndices = new long[subnetwork.nNodes + 1];
             subnetworkNeighbors = new LargeIntArray(nEdges);
             subnetworkEdgeWeights = new LargeDoubleArray(nEdges);
+            neighborCursor = new NeighborCursor(this);
             for (i = 0; i < subnetwork.nNodes; i++)
             {
                 j = nodes[i];
                 subnetwork.nodeWeights[i] = nodeWeights[j];
-                for (k = firstNeighborIndices[j]; k < firstNeighborIndices[j + 1]; k++)
-                    if (subnetworkNodes[neighbors.get(k)] >= 0)
+                neighborCursor.reset(j);
+                while (neighborCursor.hasNext())
+                {
+                    k = neighborCursor.nextNeighbor();
+                    if (subnetworkNodes[k] >= 0)
                     {
                         subnetworkNeighbors.set(subnetwork.nEdges,
-                                                subnetworkNodes[neighbors.get(k)]);
+                                                subnetworkNodes[k]);
                         subnetworkEdgeWeights.set(subnetwork.nEdges,
-                                                  edgeWeights.get(k));
+                                                  neighborCursor.getEdgeWeight());
                         subnetwork.nEdges++;
                     }
+                }
                 subnetwork.firstNeighborIndices[i + 1] = subnetwork.nEdges;
             }
             subnetwork.neighbors = subnetworkNeighbors.copyOfRange(0, subnetwork.nEdges);
@@ -1082,26 +2312,66 @@ public class Network implements Serializable
     /**
      * Creates induced subnetworks for the clusters in a clustering.
      *
+     * <p>
+     * For large networks, the subnetworks are created in parallel (see {@link
+     * #createSubnetworks(Clustering clustering, boolean parallel)}).
+     * </p>
+     *
      * @param clustering Clustering
      *
      * @return Subnetworks
      */
     public Network[] createSubnetworks(Clustering clustering)
     {
-        LargeDoubleArray subnetworkEdgeWeights;
-        int i;
-        int[] subnetworkNodes;
-        LargeIntArray subnetworkNeighbors;
+        return createSubnetworks(clustering, nEdges >= PARALLEL_SUBNETWORKS_MIN_N_EDGES);
+    }
+
+    /**
+     * Creates induced subnetworks for the clusters in a clustering, optionally
+     * in parallel.
+     *
+     * <p>
+     * The neighbors of the nodes in each subnetwork are first counted, after
+     * which the arrays of the subnetwork are allocated with their exact size
+     * and are filled in. No temporary arrays proportional to the number of
+     * edges in the network are needed. Subnetworks consisting of a single
+     * node share the same empty arrays of neighbors and edge weights. If
+     * {@code parallel} is true, the clusters are divided into chunks with
+     * roughly equal numbers of edges, and the chunks are processed by multiple
+     * threads. The subnetworks are the same as the ones created sequentially.
+     * </p>
+     *
+     * @param clustering Clustering
+     * @param parallel   Indicates whether to create the subnetworks in parallel
+     *
+     * @return Subnetworks
+     */
+    public Network[] createSubnetworks(Clustering clustering, boolean parallel)
+    {
+        int[] firstClusterPerChunk, subnetworkNodes;
         int[][] nodesPerCluster;
+        IntStream chunks;
+        Network emptySubnetwork;
         Network[] subnetworks;
 
         subnetworks = new Network[clustering.nClusters];
         nodesPerCluster = clustering.getNodesPerCluster();
         subnetworkNodes = new int[nNodes];
-        subnetworkNeighbors = new LargeIntArray(nEdges);
-        subnetworkEdgeWeights = new LargeDoubleArray(nEdges);
-        for (i = 0; i < clustering.nClusters; i++)
-            subnetworks[i] = createSubnetwork(clustering, i, nodesPerCluster[i], subnetworkNodes, subnetworkNeighbors, subnetworkEdgeWeights);
+        emptySubnetwork = new Network();
+        emptySubnetwork.firstNeighborIndices = new long[2];
+        emptySubnetwork.neighbors = new LargeIntArray(0);
+        emptySubnetwork.edgeWeights = new LargeDoubleArray(0);
+        if (parallel)
+        {
+            firstClusterPerChunk = getClusterChunksHelper(nodesPerCluster, Runtime.getRuntime().availableProcessors());
+            chunks = IntStream.range(0, firstClusterPerChunk.length - 1).parallel();
+        }
+        else
+        {
+            firstClusterPerChunk = new int[] { 0, clustering.nClusters };
+            chunks = IntStream.range(0, 1);
+        }
+        chunks.forEach(chunk -> createSubnetworksHelper(clustering, nodesPerCluster, firstClusterPerChunk[chunk], firstClusterPerChunk[chunk + 1], subnetworkNodes, emptySubnetwork, subnetworks));
         return subnetworks;
     }
 
@@ -1115,6 +2385,79 @@ public class Network implements Serializable
         return createSubnetwork(identifyComponents(), 0);
     }
 
+    /**
+     * Creates a copy of the network in which the nodes are renumbered.
+     *
+     * <p>
+     * Node {@code i} in the new network corresponds to node {@code
+     * nodeOrder[i]} in this network. Renumbering the nodes so that nodes
+     * that are connected to each other have nearby numbers improves the
+     * locality of memory accesses in algorithms that look up values for the
+     * neighbors of a node, such as the cluster of each neighbor. Suitable
+     * orders are provided by {@link #calcNodeOrderByDegree()}, {@link
+     * #calcNodeOrderUsingReverseCuthillMcKee()}, and {@link
+     * #calcNodeOrderByCluster(Clustering clustering)}.
+     * </p>
+     *
+     * <p>
+     * The neighbors of each node are sorted in the new network. Edge weights
+     * are stored in double precision, unless the network has unit edge
+     * weights. Clusterings and layouts can be converted between the two node
+     * numberings using {@link Clustering#createClusteringWithNodeOrder(int[]
+     * nodeOrder)} and {@link Layout#createLayoutWithNodeOrder(int[]
+     * nodeOrder)}, using {@link
+     * nl.cwts.util.Arrays#calcInversePermutation(int[] permutation)} to
+     * convert back to the node numbering of this network.
+     * </p>
+     *
+     * @param nodeOrder Node in this network for each node in the new network
+     *
+     * @return Network with renumbered nodes
+     *
+     * @throws IllegalArgumentException Node order is not a permutation of the
+     *                                  nodes
+     */
+    public Network createNetworkWithNodeOrder(int[] nodeOrder) throws IllegalArgumentException
+    {
+        int i;
+        int[] firstNodePerChunk, newNodes;
+        IntStream chunks;
+        Network newNetwork;
+
+        if (nodeOrder.length != nNodes)
+            throw new IllegalArgumentException("Length of node order must be equal to the number of nodes.");
+        newNodes = nl.cwts.util.Arrays.calcInversePermutation(nodeOrder);
+
+        newNetwork = new Network();
+        newNetwork.nNodes = nNodes;
+        newNetwork.nEdges = nEdges;
+        newNetwork.nodeWeights = new double[nNodes];
+        newNetwork.firstNeighborIndices = new long[nNodes + 1];
+        for (i = 0; i < nNodes; i++)
+        {
+            newNetwork.nodeWeights[i] = nodeWeights[nodeOrder[i]];
+            newNetwork.firstNeighborIndices[i + 1] = newNetwork.firstNeighborIndices[i] + getNNeighbors(nodeOrder[i]);
+        }
+        newNetwork.neighbors = new LargeIntArray(nEdges);
+        if (!hasUnitEdgeWeights())
+            newNetwork.edgeWeights = new LargeDoubleArray(nEdges);
+        newNetwork.totalEdgeWeightSelfLinks = totalEdgeWeightSelfLinks;
+
+        if (nEdges >= PARALLEL_NODE_ORDER_MIN_N_EDGES)
+        {
+            firstNodePerChunk = newNetwork.getNodeChunksHelper(Runtime.getRuntime().availableProcessors());
+            chunks = IntStream.range(0, firstNodePerChunk.length - 1).parallel();
+        }
+        else
+        {
+            firstNodePerChunk = new int[] { 0, nNodes };
+            chunks = IntStream.range(0, 1);
+        }
+        chunks.forEach(chunk -> createNetworkWithNodeOrderHelper(firstNodePerChunk[chunk], firstNodePerChunk[chunk + 1], nodeOrder, newNodes, newNetwork));
+
+        return newNetwork;
+    }
+
     /**
      * Creates a reduced (or aggregate) network based on a clustering.
      *
@@ -1127,19 +2470,53 @@ public class Network implements Serializable
      * the two corresponding clusters in the original network.
      * </p>
      *
-     * @param clustering Clustering
+     * <p>
+     * For large networks, the reduced network is created in parallel (see
+     * {@link #createReducedNetwork(Clustering clustering, boolean parallel)}).
+     * </p>
+     *
+     * @param clustering Clustering
      *
      * @return Reduced network
      */
     public Network createReducedNetwork(Clustering clustering)
+    {
+        return createReducedNetwork(clustering, nEdges >= PARALLEL_REDUCED_NETWORK_MIN_N_EDGES);
+    }
+
+    /**
+     * Creates a reduced (or aggregate) network based on a clustering,
+     * optionally in parallel.
+     *
+     * <p>
+     * See {@link #createReducedNetwork(Clustering clustering)}. If {@code
+     * parallel} is true, the clusters are divided into chunks with roughly
+     * equal numbers of edges, and the chunks are processed by multiple
+     * threads. Each thread accumulates edge weights in a dense array if the
+     * number of clusters is small, or in a hash table otherwise. The results
+     * of the chunks are then combined using a prefix sum. The reduced network
+     * is exactly the same as the one created sequentially, including the order
+     * of the neighbors of each node and the rounding of edge weights.
+     * </p>
+     *
+     * @param clustering Clustering
+     * @param parallel   Indicates whether to create the reduced network in
+     *                   parallel
+     *
+     * @return Reduced network
+     */
+    public Network createReducedNetwork(Clustering clustering, boolean parallel)
     {
         LargeDoubleArray reducedNetworkEdgeWeights1, reducedNetworkEdgeWeights2;
         int i, j, k, l, n;
-        long m;
         LargeIntArray reducedNetworkNeighbors1, reducedNetworkNeighbors2;
         int[][] nodesPerCluster;
+        NeighborCursor neighborCursor;
         Network reducedNetwork;
 
+        if (parallel)
+            return createReducedNetworkInParallelHelper(clustering);
+
         reducedNetwork = new Network();
 
         reducedNetwork.nNodes = clustering.nClusters;
@@ -1153,6 +2530,7 @@ public class Network implements Serializable
         reducedNetworkNeighbors2 = new LargeIntArray(clustering.nClusters - 1);
         reducedNetworkEdgeWeights2 = new LargeDoubleArray(clustering.nClusters);
         nodesPerCluster = clustering.getNodesPerCluster();
+        neighborCursor = new NeighborCursor(this);
         for (i = 0; i < clustering.nClusters; i++)
         {
             j = 0;
@@ -1162,9 +2540,10 @@ public class Network implements Serializable
 
                 reducedNetwork.nodeWeights[i] += nodeWeights[l];
 
-                for (m = firstNeighborIndices[l]; m < firstNeighborIndices[l + 1]; m++)
+                neighborCursor.reset(l);
+                while (neighborCursor.hasNext())
                 {
-                    n = clustering.clusters[neighbors.get(m)];
+                    n = clustering.clusters[neighborCursor.nextNeighbor()];
                     if (n != i)
                     {
                         if (reducedNetworkEdgeWeights2.get(n) == 0)
@@ -1172,10 +2551,10 @@ public class Network implements Serializable
                             reducedNetworkNeighbors2.set(j, n);
                             j++;
                         }
-                        reducedNetworkEdgeWeights2.add(n, edgeWeights.get(m));
+                        reducedNetworkEdgeWeights2.add(n, neighborCursor.getEdgeWeight());
                     }
                     else
-                        reducedNetwork.totalEdgeWeightSelfLinks += edgeWeights.get(m);
+                        reducedNetwork.totalEdgeWeightSelfLinks += neighborCursor.getEdgeWeight();
                 }
             }
 
@@ -1197,6 +2576,12 @@ public class Network implements Serializable
     /**
      * Identifies the connected components of the network.
      *
+     * <p>
+     * For large networks, the connected components are identified in parallel
+     * (see {@link ComponentsAlgorithm#findClustering(Network network, boolean
+     * parallel)}).
+     * </p>
+     *
      * @return Connected components
      */
     public Clustering identifyComponents()
@@ -1207,6 +2592,160 @@ public class Network implements Serializable
         return componentsAlgorithm.findClustering(this);
     }
 
+    /**
+     * Calculates an order of the nodes in decreasing order of their number of
+     * neighbors.
+     *
+     * <p>
+     * Nodes with the same number of neighbors keep their relative order. In
+     * the resulting order, nodes with many neighbors, whose data is accessed
+     * most frequently, are stored close to each other.
+     * </p>
+     *
+     * @return Node order, listing the nodes in their new order
+     *
+     * @see #createNetworkWithNodeOrder(int[] nodeOrder)
+     */
+    public int[] calcNodeOrderByDegree()
+    {
+        int i;
+        int[] nodeOrder;
+        long[] keys;
+
+        // Sort nodes together with their number, which makes the sort stable.
+        keys = new long[nNodes];
+        for (i = 0; i < nNodes; i++)
+            keys[i] = ((long)(Integer.MAX_VALUE - getNNeighbors(i)) << 32) | i;
+        Arrays.sort(keys);
+        nodeOrder = new int[nNodes];
+        for (i = 0; i < nNodes; i++)
+            nodeOrder[i] = (int)keys[i];
+        return nodeOrder;
+    }
+
+    /**
+     * Calculates an order of the nodes using the reverse Cuthill-McKee
+     * algorithm.
+     *
+     * <p>
+     * The nodes in each connected component are visited using breadth-first
+     * search, starting from a node with the smallest number of neighbors and
+     * visiting the unvisited neighbors of each node in increasing order of
+     * their number of neighbors. The resulting order is reversed. In this
+     * order, the neighbors of a node tend to be close to the node itself.
+     * </p>
+     *
+     * @return Node order, listing the nodes in their new order
+     *
+     * @see #createNetworkWithNodeOrder(int[] nodeOrder)
+     */
+    public int[] calcNodeOrderUsingReverseCuthillMcKee()
+    {
+        boolean[] nodesVisited;
+        int i, j, k, l, m, n, maxNNeighbors;
+        int[] nodeOrder, nodesByDegree;
+        long[] keys;
+        NeighborCursor neighborCursor;
+
+        nodesByDegree = calcNodeOrderByDegree();
+        maxNNeighbors = (nNodes > 0) ? getNNeighbors(nodesByDegree[0]) : 0;
+        keys = new long[maxNNeighbors];
+        nodesVisited = new boolean[nNodes];
+        nodeOrder = new int[nNodes];
+        neighborCursor = new NeighborCursor(this);
+        j = 0;
+        for (i = nNodes - 1; i >= 0; i--)
+            if (!nodesVisited[nodesByDegree[i]])
+            {
+                nodeOrder[j] = nodesByDegree[i];
+                nodesVisited[nodesByDegree[i]] = true;
+                k = j;
+                j++;
+                do
+                {
+                    neighborCursor.reset(nodeOrder[k]);
+                    n = 0;
+                    while (neighborCursor.hasNext())
+                    {
+                        l = neighborCursor.nextNeighbor();
+                        if (!nodesVisited[l])
+                        {
+                            keys[n] = ((long)getNNeighbors(l) << 32) | l;
+                            nodesVisited[l] = true;
+                            n++;
+                        }
+                    }
+                    Arrays.sort(keys, 0, n);
+                    for (m = 0; m < n; m++)
+                    {
+                        nodeOrder[j] = (int)keys[m];
+                        j++;
+                    }
+                    k++;
+                } while (k < j);
+            }
+
+        for (i = 0; i < nNodes / 2; i++)
+        {
+            k = nodeOrder[i];
+            nodeOrder[i] = nodeOrder[nNodes - 1 - i];
+            nodeOrder[nNodes - 1 - i] = k;
+        }
+        return nodeOrder;
+    }
+
+    /**
+     * Calculates an order of the nodes in which the nodes in each cluster are
+     * consecutive.
+     *
+     * <p>
+     * Clusters are ordered by their number, and the nodes in a cluster keep
+     * their relative order. Since most edges are typically between nodes in
+     * the same cluster, for instance when using a clustering obtained in a
+     * previous run or at a lower resolution, the neighbors of a node tend to
+     * be close to the node itself.
+     * </p>
+     *
+     * @param clustering Clustering
+     *
+     * @return Node order, listing the nodes in their new order
+     *
+     * @see #createNetworkWithNodeOrder(int[] nodeOrder)
+     */
+    public int[] calcNodeOrderByCluster(Clustering clustering)
+    {
+        int i, j;
+        int[] nodeOrder;
+        int[][] nodesPerCluster;
+
+        nodesPerCluster = clustering.getNodesPerCluster();
+        nodeOrder = new int[nNodes];
+        j = 0;
+        for (i = 0; i < clustering.nClusters; i++)
+        {
+            System.arraycopy(nodesPerCluster[i], 0, nodeOrder, j, nodesPerCluster[i].length);
+            j += nodesPerCluster[i].length;
+        }
+        return nodeOrder;
+    }
+
+    /**
+     * Identifies the connected components of the network, optionally in
+     * parallel.
+     *
+     * @param parallel Indicates whether to identify the connected components
+     *                 in parallel
+     *
+     * @return Connected components
+     */
+    public Clustering identifyComponents(boolean parallel)
+    {
+        ComponentsAlgorithm componentsAlgorithm;
+
+        componentsAlgorithm = new ComponentsAlgorithm();
+        return componentsAlgorithm.findClustering(this, parallel);
+    }
+
     /**
      * Checks the integrity of the network.
      *
@@ -1230,9 +2769,45 @@ public class Network implements Serializable
      */
     public void checkIntegrity() throws IllegalArgumentException
     {
-        LargeBooleanArray checked;
-        int i, k;
-        long j, l;
+        checkIntegrity(INTEGRITY_CHECK_FULL);
+    }
+
+    /**
+     * Checks the integrity of the network at a specified level.
+     *
+     * <p>
+     * If {@code level} is {@link #INTEGRITY_CHECK_NONE}, nothing is checked.
+     * If {@code level} is {@link #INTEGRITY_CHECK_STRUCTURE}, it is checked
+     * whether variables have a correct value, arrays have a correct length,
+     * and edges are sorted correctly. If {@code level} is {@link
+     * #INTEGRITY_CHECK_FULL}, it is also checked whether edges are stored in
+     * both directions with the same weight (see {@link #checkIntegrity()}).
+     * </p>
+     *
+     * <p>
+     * For large networks, the check is performed in parallel. The neighbors
+     * are read using a {@link NeighborCursor}, so neighbors that are stored
+     * outside the Java heap or in compressed form are not copied. To check
+     * whether edges are stored in both directions, the edges are sorted by
+     * their target node using a counting sort and are then merged with the
+     * neighbors of each node. This requires 8 bytes of memory per edge.
+     * </p>
+     *
+     * @param level Level of the check
+     *
+     * @throws IllegalArgumentException An illegal argument was provided in the
+     *                                  construction of the network.
+     */
+    public void checkIntegrity(int level) throws IllegalArgumentException
+    {
+        boolean parallel;
+        int[] firstNodePerChunk;
+        String errorMessage;
+        AtomicLongArray positions;
+        LargeLongArray reverseEdges;
+
+        if (level == INTEGRITY_CHECK_NONE)
+            return;
 
         // Check whether variables have a correct value and arrays have a
         // correct length.
@@ -1257,190 +2832,255 @@ public class Network implements Serializable
         if (firstNeighborIndices[nNodes] != nEdges)
             throw new IllegalArgumentException("Last element of firstNeighborIndices array must be equal to nEdges.");
 
-        if (neighbors.size() != nEdges)
-            throw new IllegalArgumentException("Length of neighbors array must be equal to nEdges.");
-
-        if (edgeWeights.size() != nEdges)
-            throw new IllegalArgumentException("Length of edgeWeights array must be equal to nEdges.");
-
-        // Check whether edges are sorted correctly.
-        for (i = 0; i < nNodes; i++)
+        if (compressedNeighbors != null)
         {
-            if (firstNeighborIndices[i + 1] < firstNeighborIndices[i])
-                throw new IllegalArgumentException("Elements of firstNeighborIndices array must be in non-decreasing order.");
+            if (firstNeighborPositions.length != nNodes + 1)
+                throw new IllegalArgumentException("Length of firstNeighborPositions array must be equal to nNodes + 1.");
 
-            for (j = firstNeighborIndices[i]; j < firstNeighborIndices[i + 1]; j++)
-            {
-                k = neighbors.get(j);
+            if (firstNeighborPositions[nNodes] != compressedNeighbors.size())
+                throw new IllegalArgumentException("Last element of firstNeighborPositions array must be equal to the size of the compressedNeighbors array.");
+        }
+        else if (offHeapNeighbors != null)
+        {
+            if (offHeapNeighbors.size() != nEdges)
+                throw new IllegalArgumentException("Length of offHeapNeighbors array must be equal to nEdges.");
+        }
+        else if (neighbors.size() != nEdges)
+            throw new IllegalArgumentException("Length of neighbors array must be equal to nEdges.");
 
-                if (k < 0)
-                    throw new IllegalArgumentException("Elements of neighbors array must have non-negative values.");
-                else if (k >= nNodes)
-                    throw new IllegalArgumentException("Elements of neighbors array must have values less than nNodes.");
+        if ((edgeWeights != null) && (edgeWeights.size() != nEdges))
+            throw new IllegalArgumentException("Length of edgeWeights array must be equal to nEdges.");
 
-                if (j > firstNeighborIndices[i])
-                {
-                    l = neighbors.get(j - 1);
-                    if (k < l)
-                        throw new IllegalArgumentException("For each node, corresponding elements of neighbors array must be in increasing order.");
-                    else if (k == l)
-                        throw new IllegalArgumentException("For each node, corresponding elements of neighbors array must not include duplicate values.");
-                }
-            }
-        }
+        if ((singlePrecisionEdgeWeights != null) && (singlePrecisionEdgeWeights.size() != nEdges))
+            throw new IllegalArgumentException("Length of singlePrecisionEdgeWeights array must be equal to nEdges.");
 
-        // Check whether edges are stored in both directions.
-        checked = new LargeBooleanArray(nEdges);
-        for (i = 0; i < nNodes; i++)
-            for (j = firstNeighborIndices[i]; j < firstNeighborIndices[i + 1]; j++)
-                if (!checked.get(j))
-                {
-                    k = neighbors.get(j);
+        if ((offHeapEdgeWeights != null) && (offHeapEdgeWeights.size() != nEdges))
+            throw new IllegalArgumentException("Length of offHeapEdgeWeights array must be equal to nEdges.");
 
-                    l = neighbors.binarySearch(firstNeighborIndices[k], firstNeighborIndices[k+1], i);
-                    if (l < 0)
-                        throw new IllegalArgumentException("Edges must be stored in both directions.");
-                    if (edgeWeights.get(j) != edgeWeights.get(l))
-                        throw new IllegalArgumentException("Edge weights must be the same in both directions.");
+        parallel = (nEdges >= PARALLEL_INTEGRITY_CHECK_MIN_N_EDGES);
+        firstNodePerChunk = parallel ? getNodeChunksHelper(Runtime.getRuntime().availableProcessors()) : new int[] { 0, nNodes };
 
-                    checked.set(j, true);
-                    checked.set(l, true);
-                }
+        // Check whether edges are sorted correctly.
+        errorMessage = getChunkStreamHelper(firstNodePerChunk, parallel).mapToObj(chunk -> checkNeighborsHelper(firstNodePerChunk[chunk], firstNodePerChunk[chunk + 1])).filter(Objects::nonNull).findFirst().orElse(null);
+        if (errorMessage != null)
+            throw new IllegalArgumentException(errorMessage);
+
+        if (level == INTEGRITY_CHECK_STRUCTURE)
+            return;
+
+        // Check whether edges are stored in both directions. Each edge is
+        // first stored among the edges of its target node, together with its
+        // source node and its index among the edges of its source node. For
+        // each node, the stored edges are then sorted by their source node and
+        // merged with the neighbors of the node.
+        reverseEdges = new LargeLongArray(nEdges);
+        positions = new AtomicLongArray(Arrays.copyOf(firstNeighborIndices, nNodes));
+        errorMessage = getChunkStreamHelper(firstNodePerChunk, parallel).mapToObj(chunk -> storeReverseEdgesHelper(firstNodePerChunk[chunk], firstNodePerChunk[chunk + 1], reverseEdges, positions)).filter(Objects::nonNull).findFirst().orElse(null);
+        if (errorMessage != null)
+            throw new IllegalArgumentException(errorMessage);
+        errorMessage = getChunkStreamHelper(firstNodePerChunk, parallel).mapToObj(chunk -> checkReverseEdgesHelper(firstNodePerChunk[chunk], firstNodePerChunk[chunk + 1], reverseEdges)).filter(Objects::nonNull).findFirst().orElse(null);
+        if (errorMessage != null)
+            throw new IllegalArgumentException(errorMessage);
     }
 
     /**
      * Sorts a list of edges and the corresponding edge weights.
+     *
+     * <p>
+     * Edges are sorted by their first node and then by their second node. The
+     * sort is stable. It is performed using a least significant digit radix
+     * sort with 16-bit digits, skipping digits that are the same for all
+     * edges.
+     * </p>
      * 
      * @param edges       Edge list
      * @param edgeWeights Edge weights
      */
     public static void sortEdges(LargeIntArray[] edges, LargeDoubleArray edgeWeights)
     {
-        class EdgeComparator
-        {
-            LargeIntArray[] edges;
-            LargeLongArray indices;
+        boolean skipDigit;
+        int i, j, shift;
+        long k, l, nEdges;
+        long[] positions;
+        LargeDoubleArray edgeWeightsSorted, edgeWeightsUnsorted, tmp;
+        LargeIntArray keys;
+        LargeIntArray[] edgesSorted;
 
-            public EdgeComparator(LargeIntArray[] edges, LargeLongArray indices)
+        nEdges = edges[0].size();
+        positions = new long[RADIX_SORT_N_BUCKETS + 1];
+        edgesSorted = null;
+        edgeWeightsSorted = null;
+        edgeWeightsUnsorted = edgeWeights;
+        for (i = 0; i < 4; i++)
+        {
+            keys = edges[1 - i / 2];
+            shift = (i % 2) * RADIX_SORT_N_BITS;
+
+            // Count the number of edges per bucket.
+            Arrays.fill(positions, 0);
+            for (k = 0; k < nEdges; k++)
+                positions[getRadixSortBucketHelper(keys.get(k), shift) + 1]++;
+            skipDigit = false;
+            for (j = 1; j <= RADIX_SORT_N_BUCKETS; j++)
             {
-                this.edges = edges;
-                this.indices = indices;
+                if (positions[j] == nEdges)
+                    skipDigit = true;
+                positions[j] += positions[j - 1];
             }
+            if (skipDigit)
+                continue;
 
-            public int compare(long i, long j)
+            // Move edges to their buckets.
+            if (edgesSorted == null)
             {
-                long a = indices.get(i);
-                long b = indices.get(j);
-                if (edges[0].get(a) > edges[0].get(b))
-                    return 1;
-                if (edges[0].get(a) < edges[0].get(b))
-                    return -1;
-                if (edges[1].get(a) > edges[1].get(b))
-                    return 1;
-                if (edges[1].get(a) < edges[1].get(b))
-                    return -1;
-                return 0;
+                edgesSorted = new LargeIntArray[2];
+                edgesSorted[0] = new LargeIntArray(nEdges);
+                edgesSorted[1] = new LargeIntArray(nEdges);
+                edgeWeightsSorted = (edgeWeights != null) ? new LargeDoubleArray(nEdges) : null;
+            }
+            for (k = 0; k < nEdges; k++)
+            {
+                l = positions[getRadixSortBucketHelper(keys.get(k), shift)]++;
+                edgesSorted[0].set(l, edges[0].get(k));
+                edgesSorted[1].set(l, edges[1].get(k));
+                if (edgeWeights != null)
+                    edgeWeightsSorted.set(l, edgeWeightsUnsorted.get(k));
+            }
+            keys = edges[0];
+            edges[0] = edgesSorted[0];
+            edgesSorted[0] = keys;
+            keys = edges[1];
+            edges[1] = edgesSorted[1];
+            edgesSorted[1] = keys;
+            if (edgeWeights != null)
+            {
+                tmp = edgeWeightsUnsorted;
+                edgeWeightsUnsorted = edgeWeightsSorted;
+                edgeWeightsSorted = tmp;
             }
         }
 
-        LargeDoubleArray edgeWeightsSorted;
-        long i, nEdges;
-        LargeIntArray[] edgesSorted;
-        LargeLongArray indices;
-
-        nEdges = edges[0].size();
-
-        // Determine sorting order.
-        indices = new LargeLongArray(nEdges);
-        for (i = 0; i < nEdges; i++)
-            indices.set(i, i);
-
-        indices.sort(new EdgeComparator(edges, indices)::compare);
-
-        // Sort edges.
-        edgesSorted = new LargeIntArray[2];
-        edgesSorted[0] = new LargeIntArray(nEdges);
-        edgesSorted[1] = new LargeIntArray(nEdges);
-        for (i = 0; i < nEdges; i++)
-        {
-            edgesSorted[0].set(i, edges[0].get(indices.get(i)) );
-            edgesSorted[1].set(i, edges[1].get(indices.get(i)) );
-        }
-        edges[0] = edgesSorted[0];
-        edges[1] = edgesSorted[1];
-
-        // Sort edge weights.
-        if (edgeWeights != null)
-        {
-            edgeWeightsSorted = new LargeDoubleArray(nEdges);
-            for (i = 0; i < nEdges; i++)
-                edgeWeightsSorted.set(i, edgeWeights.get(indices.get(i)) );
-            edgeWeights.updateFrom(edgeWeightsSorted);
-        }
+        // Store sorted edge weights in the original array.
+        if ((edgeWeights != null) && (edgeWeightsUnsorted != edgeWeights))
+            edgeWeights.updateFrom(edgeWeightsUnsorted);
     }
 
-    private Network()
+    Network()
     {
     }
 
     private Network(int nNodes, double[] nodeWeights, boolean setNodeWeightsToTotalEdgeWeights, LargeIntArray[] edges, LargeDoubleArray edgeWeights, boolean sortedEdges, boolean checkIntegrity)
     {
-        LargeDoubleArray edgeWeights2;
-        long i, j;
-        int k;
-        LargeIntArray[] edges2;
+        this(nNodes, nodeWeights, setNodeWeightsToTotalEdgeWeights, edges, edgeWeights, sortedEdges, checkIntegrity, false);
+    }
 
+    private Network(int nNodes, double[] nodeWeights, boolean setNodeWeightsToTotalEdgeWeights, LargeIntArray[] edges, LargeDoubleArray edgeWeights, boolean sortedEdges, boolean checkIntegrity, boolean parallel)
+    {
+        long i, j, nSelfLinks;
+        int k, l;
+        long[] positions;
+        LargeLongArray selfLinks;
+
+        // All arrays are allocated only once, at their final size, so that
+        // the memory needed to create a large network is not much more than
+        // the memory needed to store the edges and the network itself.
+        this.nNodes = nNodes;
         if (!sortedEdges)
         {
-            edges2 = new LargeIntArray[2];
-            edges2[0] = new LargeIntArray(2 * edges[0].size());
-            edges2[1] = new LargeIntArray(2 * edges[1].size());
-            edgeWeights2 = (edgeWeights != null) ? new LargeDoubleArray(2 * edges[0].size()) : null;
-            i = 0;
+            // Count the number of neighbors of each node.
+            firstNeighborIndices = new long[nNodes + 1];
+            nSelfLinks = 0;
             for (j = 0; j < edges[0].size(); j++)
             {
-                edges2[0].set(i, edges[0].get(j));
-                edges2[1].set(i, edges[1].get(j));
-                if (edgeWeights != null)
-                    edgeWeights2.set(i, edgeWeights.get(j));
-                i++;
-                if (edges[0].get(j) != edges[1].get(j))
+                k = edges[0].get(j);
+                l = edges[1].get(j);
+                if ((k < 0) || (l < 0))
+                    throw new IllegalArgumentException("Elements of edges array must have non-negative values.");
+                else if ((k >= nNodes) || (l >= nNodes))
+                    throw new IllegalArgumentException("Elements of edges array must have values less than nNodes.");
+                if (k != l)
                 {
-                    edges2[0].set(i, edges[1].get(j));
-                    edges2[1].set(i, edges[0].get(j));
-                    if (edgeWeights != null)
-                        edgeWeights2.set(i, edgeWeights.get(j));
-                    i++;
+                    firstNeighborIndices[k + 1]++;
+                    firstNeighborIndices[l + 1]++;
                 }
+                else
+                    nSelfLinks++;
             }
-            edges = edges2;
-            if (edgeWeights != null)
-                edgeWeights = edgeWeights2;
-            sortEdges(edges, edgeWeights);
-        }
-
-        this.nNodes = nNodes;
-        nEdges = 0;
-        firstNeighborIndices = new long[nNodes + 1];
-        neighbors = new LargeIntArray(edges[0].size());
-        this.edgeWeights = new LargeDoubleArray(edges[0].size());
-        totalEdgeWeightSelfLinks = 0;
-        k = 1;
-        for (j = 0; j < edges[0].size(); j++)
-            if (edges[0].get(j) != edges[1].get(j))
+            for (k = 1; k <= nNodes; k++)
+                firstNeighborIndices[k] += firstNeighborIndices[k - 1];
+            nEdges = firstNeighborIndices[nNodes];
+
+            // Store each edge in both directions.
+            neighbors = new LargeIntArray(nEdges);
+            this.edgeWeights = (edgeWeights != null) ? new LargeDoubleArray(nEdges) : null;
+            selfLinks = new LargeLongArray(nSelfLinks);
+            nSelfLinks = 0;
+            positions = Arrays.copyOf(firstNeighborIndices, nNodes);
+            for (j = 0; j < edges[0].size(); j++)
             {
-                for (; k <= edges[0].get(j); k++)
-                    firstNeighborIndices[k] = nEdges;
-                neighbors.set(nEdges, edges[1].get(j));
-                this.edgeWeights.set(nEdges, (edgeWeights != null) ? edgeWeights.get(j) : 1);
-                nEdges++;
+                k = edges[0].get(j);
+                l = edges[1].get(j);
+                if (k == l)
+                {
+                    selfLinks.set(nSelfLinks, j);
+                    nSelfLinks++;
+                }
+                else
+                {
+                    i = positions[k]++;
+                    neighbors.set(i, l);
+                    if (edgeWeights != null)
+                        this.edgeWeights.set(i, edgeWeights.get(j));
+                    i = positions[l]++;
+                    neighbors.set(i, k);
+                    if (edgeWeights != null)
+                        this.edgeWeights.set(i, edgeWeights.get(j));
+                }
             }
+            positions = null;
+
+            // Sort the neighbors of each node.
+            if (parallel)
+                IntStream.range(0, nNodes).parallel().forEach(this::sortNeighborsHelper);
             else
-                totalEdgeWeightSelfLinks += (edgeWeights != null) ? edgeWeights.get(j) : 1;
-        for (; k <= nNodes; k++)
-            firstNeighborIndices[k] = nEdges;
-	this.neighbors.resize(nEdges); this.neighbors.shrink();
-        this.edgeWeights.resize(nEdges); this.edgeWeights.shrink();
+                for (k = 0; k < nNodes; k++)
+                    sortNeighborsHelper(k);
+
+            // Sum the weights of self links in order of the nodes.
+            selfLinks.sort((a, b) -> Integer.compare(edges[0].get(selfLinks.get(a)), edges[0].get(selfLinks.get(b))));
+            totalEdgeWeightSelfLinks = 0;
+            for (j = 0; j < selfLinks.size(); j++)
+                totalEdgeWeightSelfLinks += (edgeWeights != null) ? edgeWeights.get(selfLinks.get(j)) : 1;
+        }
+        else
+        {
+            // Count the number of edges that are not self links.
+            nEdges = 0;
+            for (j = 0; j < edges[0].size(); j++)
+                if (edges[0].get(j) != edges[1].get(j))
+                    nEdges++;
+
+            firstNeighborIndices = new long[nNodes + 1];
+            neighbors = new LargeIntArray(nEdges);
+            this.edgeWeights = (edgeWeights != null) ? new LargeDoubleArray(nEdges) : null;
+            nEdges = 0;
+            totalEdgeWeightSelfLinks = 0;
+            k = 1;
+            for (j = 0; j < edges[0].size(); j++)
+                if (edges[0].get(j) != edges[1].get(j))
+                {
+                    for (; k <= edges[0].get(j); k++)
+                        firstNeighborIndices[k] = nEdges;
+                    neighbors.set(nEdges, edges[1].get(j));
+                    if (edgeWeights != null)
+                        this.edgeWeights.set(nEdges, edgeWeights.get(j));
+                    nEdges++;
+                }
+                else
+                    totalEdgeWeightSelfLinks += (edgeWeights != null) ? edgeWeights.get(j) : 1;
+            for (; k <= nNodes; k++)
+                firstNeighborIndices[k] = nEdges;
+        }
 
         this.nodeWeights = (nodeWeights != null) ? nodeWeights.clone() : (setNodeWeightsToTotalEdgeWeights ? getTotalEdgeWeightPerNodeHelper() : nl.cwts.util.Arrays.createDoubleArrayOfOnes(nNodes));
 
@@ -1454,8 +3094,7 @@ public class Network implements Serializable
         nEdges = neighbors.size();
         this.firstNeighborIndices = firstNeighborIndices.clone();
         this.neighbors = neighbors.clone();
-        this.edgeWeights = (edgeWeights != null) ? edgeWeights.clone() :
-                new LargeDoubleArray(nEdges, 1);
+        this.edgeWeights = (edgeWeights != null) ? edgeWeights.clone() : null;
         totalEdgeWeightSelfLinks = 0;
 
         this.nodeWeights = (nodeWeights != null) ? nodeWeights.clone() : (setNodeWeightsToTotalEdgeWeights ? getTotalEdgeWeightPerNodeHelper() : nl.cwts.util.Arrays.createDoubleArrayOfOnes(nNodes));
@@ -1464,6 +3103,69 @@ public class Network implements Serializable
             checkIntegrity();
     }
 
+    void sortNeighborsHelper(int node)
+    {
+        double edgeWeight;
+        double[] edgeWeightsSorted;
+        int i, j, neighbor, nNeighbors;
+        long k, l;
+        long[] keys;
+
+        // Check whether the neighbors are already sorted.
+        for (k = firstNeighborIndices[node] + 1; k < firstNeighborIndices[node + 1]; k++)
+            if (neighbors.get(k - 1) > neighbors.get(k))
+                break;
+        if (k >= firstNeighborIndices[node + 1])
+            return;
+
+        nNeighbors = (int)(firstNeighborIndices[node + 1] - firstNeighborIndices[node]);
+        if (nNeighbors <= INSERTION_SORT_MAX_N_NEIGHBORS)
+        {
+            // Use stable insertion sort for small numbers of neighbors.
+            for (k = firstNeighborIndices[node] + 1; k < firstNeighborIndices[node + 1]; k++)
+            {
+                neighbor = neighbors.get(k);
+                edgeWeight = (edgeWeights != null) ? edgeWeights.get(k) : 1;
+                for (l = k; (l > firstNeighborIndices[node]) && (neighbors.get(l - 1) > neighbor); l--)
+                {
+                    neighbors.set(l, neighbors.get(l - 1));
+                    if (edgeWeights != null)
+                        edgeWeights.set(l, edgeWeights.get(l - 1));
+                }
+                neighbors.set(l, neighbor);
+                if (edgeWeights != null)
+                    edgeWeights.set(l, edgeWeight);
+            }
+        }
+        else
+        {
+            // Sort neighbors together with their original positions, which
+            // makes the sort stable.
+            keys = new long[nNeighbors];
+            for (i = 0; i < nNeighbors; i++)
+                keys[i] = ((long)neighbors.get(firstNeighborIndices[node] + i) << 32) | i;
+            Arrays.sort(keys);
+            for (i = 0; i < nNeighbors; i++)
+                neighbors.set(firstNeighborIndices[node] + i, (int)(keys[i] >>> 32));
+            if (edgeWeights != null)
+            {
+                edgeWeightsSorted = new double[nNeighbors];
+                for (i = 0; i < nNeighbors; i++)
+                {
+                    j = (int)keys[i];
+                    edgeWeightsSorted[i] = edgeWeights.get(firstNeighborIndices[node] + j);
+                }
+                for (i = 0; i < nNeighbors; i++)
+                    edgeWeights.set(firstNeighborIndices[node] + i, edgeWeightsSorted[i]);
+            }
+        }
+    }
+
+    private static int getRadixSortBucketHelper(int key, int shift)
+    {
+        return ((key ^ Integer.MIN_VALUE) >>> shift) & (RADIX_SORT_N_BUCKETS - 1);
+    }
+
     private double[] getTotalEdgeWeightPerNodeHelper()
     {
         double[] totalEdgeWeightPerNode;
@@ -1471,67 +3173,336 @@ public class Network implements Serializable
 
         totalEdgeWeightPerNode = new double[nNodes];
         for (i = 0; i < nNodes; i++)
-            totalEdgeWeightPerNode[i] = edgeWeights.calcSum(firstNeighborIndices[i], firstNeighborIndices[i + 1]);
+            totalEdgeWeightPerNode[i] = calcEdgeWeightSumOfNodesHelper(i, i + 1);
         return totalEdgeWeightPerNode;
     }
 
-    private double getRandomNumber(int node1, int node2, LargeDoubleArray randomNumbers)
+    /**
+     * Divides an edge weight by its expected value for the weights of the
+     * nodes of the edge. The edge weight is returned unchanged for {@link
+     * #NORMALIZATION_NONE}.
+     */
+    static double normalizeEdgeWeightHelper(double edgeWeight, int normalization, double nodeWeight1, double nodeWeight2, double totalNodeWeight, int nNodes)
+    {
+        if (normalization == NORMALIZATION_ASSOCIATION_STRENGTH)
+            return edgeWeight / ((nodeWeight1 * nodeWeight2) / totalNodeWeight);
+        else if (normalization == NORMALIZATION_FRACTIONALIZATION)
+            return edgeWeight / (2 / (nNodes / nodeWeight1 + nNodes / nodeWeight2));
+        else
+            return edgeWeight;
+    }
+
+    double getEdgeWeightHelper(int node, int neighbor, long edge)
     {
-        int i, j;
+        if (edgeWeightNormalization == NORMALIZATION_NONE)
+            return getEdgeWeightHelper(edge);
 
-        if (node1 < node2)
-        {
-            i = node1;
-            j = node2;
-        }
+        return normalizeEdgeWeightHelper(getEdgeWeightHelper(edge), edgeWeightNormalization, normalizationNodeWeights[node], normalizationNodeWeights[neighbor], normalizationTotalNodeWeight, nNodes);
+    }
+
+    /**
+     * Returns the stored weight of an edge, without normalizing it.
+     */
+    private double getEdgeWeightHelper(long edge)
+    {
+        if (edgeWeights != null)
+            return edgeWeights.get(edge);
+        else if (singlePrecisionEdgeWeights != null)
+            return singlePrecisionEdgeWeights.get(edge);
+        else if (offHeapEdgeWeights != null)
+            return offHeapEdgeWeights.get(edge);
         else
-        {
-            i = node2;
-            j = node1;
-        }
-        return randomNumbers.get(i * nNodes + j);
+            return 1;
     }
 
-    private Network createSubnetwork(Clustering clustering, int cluster, int[] nodes, int[] subnetworkNodes, LargeIntArray subnetworkNeighbors, LargeDoubleArray subnetworkEdgeWeights)
+    private double calcEdgeWeightSumHelper(long from, long to)
     {
-        int i, j;
-        long k;
-        Network subnetwork;
+        if (edgeWeights != null)
+            return edgeWeights.calcSum(from, to);
+        else if (singlePrecisionEdgeWeights != null)
+            return singlePrecisionEdgeWeights.calcSum(from, to);
+        else if (offHeapEdgeWeights != null)
+            return offHeapEdgeWeights.calcSum(from, to);
+        else
+            return to - from;
+    }
 
-        subnetwork = new Network();
+    /**
+     * Calculates the sum of the weights of the edges of a range of nodes. The
+     * edge weights are added up in the order in which they are stored.
+     */
+    private double calcEdgeWeightSumOfNodesHelper(int firstNode, int endNode)
+    {
+        double totalEdgeWeight;
+        int i;
+        NeighborCursor neighborCursor;
 
-        subnetwork.nNodes = nodes.length;
+        if (edgeWeightNormalization == NORMALIZATION_NONE)
+            return calcEdgeWeightSumHelper(firstNeighborIndices[firstNode], firstNeighborIndices[endNode]);
 
-        if (subnetwork.nNodes == 1)
+        totalEdgeWeight = 0;
+        neighborCursor = new NeighborCursor(this);
+        for (i = firstNode; i < endNode; i++)
         {
-            subnetwork.nEdges = 0;
-            subnetwork.nodeWeights = new double[1];
-            subnetwork.nodeWeights[0] = nodeWeights[nodes[0]];
-            subnetwork.firstNeighborIndices = new long[2];
-            subnetwork.neighbors = new LargeIntArray(0);
-            subnetwork.edgeWeights = new LargeDoubleArray(0);
+            neighborCursor.reset(i);
+            while (neighborCursor.hasNext())
+            {
+                neighborCursor.nextNeighbor();
+                totalEdgeWeight += neighborCursor.getEdgeWeight();
+            }
         }
-        else
-        {
-            for (i = 0; i < nodes.length; i++)
-                subnetworkNodes[nodes[i]] = i;
+        return totalEdgeWeight;
+    }
 
-            subnetwork.nEdges = 0;
-            subnetwork.nodeWeights = new double[subnetwork.nNodes];
-            subnetwork.firstNeighborIndices = new long[subnetwork.nNodes + 1];
-            for (i = 0; i < subnetwork.nNodes; i++)
-            {
-                j = nodes[i];
+    private double[] getEdgeWeightsHelper(int node)
+    {
+        double[] edgeWeights;
+
+        edgeWeights = new double[getNNeighbors(node)];
+        getEdgeWeights(node, edgeWeights);
+        return edgeWeights;
+    }
+
+    private LargeDoubleArray getEdgeWeightsHelper()
+    {
+        LargeDoubleArray edgeWeights;
+        int i;
+        NeighborCursor neighborCursor;
+
+        if ((this.edgeWeights != null) && (edgeWeightNormalization == NORMALIZATION_NONE))
+            return this.edgeWeights.clone();
+
+        edgeWeights = new LargeDoubleArray(nEdges);
+        neighborCursor = new NeighborCursor(this);
+        for (i = 0; i < nNodes; i++)
+        {
+            neighborCursor.reset(i);
+            while (neighborCursor.hasNext())
+            {
+                neighborCursor.nextNeighbor();
+                edgeWeights.set(neighborCursor.getEdge(), neighborCursor.getEdgeWeight());
+            }
+        }
+        return edgeWeights;
+    }
+
+    private Network createNetworkWithNodeWeightsHelper(double[] nodeWeights)
+    {
+        Network network;
+
+        network = new Network();
+        network.nNodes = nNodes;
+        network.nEdges = nEdges;
+        network.nodeWeights = nodeWeights;
+        network.firstNeighborIndices = firstNeighborIndices;
+        network.neighbors = neighbors;
+        network.offHeapNeighbors = offHeapNeighbors;
+        network.firstNeighborPositions = firstNeighborPositions;
+        network.compressedNeighbors = compressedNeighbors;
+        network.edgeWeights = edgeWeights;
+        network.offHeapEdgeWeights = offHeapEdgeWeights;
+        network.singlePrecisionEdgeWeights = singlePrecisionEdgeWeights;
+        shareEdgeWeightsHelper(network);
+        network.totalEdgeWeightSelfLinks = totalEdgeWeightSelfLinks;
+        network.edgeWeightNormalization = edgeWeightNormalization;
+        network.normalizationNodeWeights = normalizationNodeWeights;
+        network.normalizationTotalNodeWeight = normalizationTotalNodeWeight;
+        return network;
+    }
+
+    /**
+     * Records that the stored edge weights of this network are shared with
+     * another network.
+     */
+    private void shareEdgeWeightsHelper(Network network)
+    {
+        if ((edgeWeights != null) || (offHeapEdgeWeights != null) || (singlePrecisionEdgeWeights != null))
+        {
+            sharedEdgeWeights = true;
+            network.sharedEdgeWeights = true;
+        }
+    }
+
+    /**
+     * Creates a copy of a network in which edge weights are normalized when
+     * they are read. In the copy, the normalized edge weights are stored.
+     */
+    private Network createNetworkWithStoredEdgeWeightsHelper()
+    {
+        Network network;
+
+        network = new Network();
+        network.nNodes = nNodes;
+        network.nEdges = nEdges;
+        network.nodeWeights = nodeWeights;
+        network.firstNeighborIndices = firstNeighborIndices;
+        network.neighbors = neighbors;
+        network.offHeapNeighbors = offHeapNeighbors;
+        network.firstNeighborPositions = firstNeighborPositions;
+        network.compressedNeighbors = compressedNeighbors;
+        network.edgeWeights = getEdgeWeightsHelper();
+        network.totalEdgeWeightSelfLinks = totalEdgeWeightSelfLinks;
+        return network;
+    }
+
+    private Network createNormalizedNetworkViewHelper(int normalization)
+    {
+        Network normalizedNetwork;
+
+        if (edgeWeightNormalization != NORMALIZATION_NONE)
+            return createNetworkWithStoredEdgeWeightsHelper().createNormalizedNetworkViewHelper(normalization);
+
+        normalizedNetwork = createNetworkWithNodeWeightsHelper(nl.cwts.util.Arrays.createDoubleArrayOfOnes(nNodes));
+        normalizedNetwork.totalEdgeWeightSelfLinks = 0;
+        normalizedNetwork.edgeWeightNormalization = normalization;
+        normalizedNetwork.normalizationNodeWeights = nodeWeights;
+        normalizedNetwork.normalizationTotalNodeWeight = getTotalNodeWeight();
+        return normalizedNetwork;
+    }
+
+    private static long getBinaryFormatFileSizeHelper(int nNodes, long nEdges)
+    {
+        return BINARY_FORMAT_HEADER_SIZE + (long)nNodes * Double.BYTES + ((long)nNodes + 1) * Long.BYTES + (nEdges + nEdges % 2) * Integer.BYTES + nEdges * Double.BYTES;
+    }
+
+    private static ByteBuffer mapBinaryFormatHelper(FileChannel fileChannel, long position, long size) throws IOException
+    {
+        return fileChannel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static void putBinaryFormatHeaderHelper(ByteBuffer buffer, int nNodes, long nEdges, double totalEdgeWeightSelfLinks)
+    {
+        buffer.put(BINARY_FORMAT_MAGIC);
+        buffer.putInt(BINARY_FORMAT_VERSION);
+        buffer.putInt(nNodes);
+        buffer.putLong(nEdges);
+        buffer.putDouble(totalEdgeWeightSelfLinks);
+        buffer.position(buffer.position() + BINARY_FORMAT_HEADER_SIZE - BINARY_FORMAT_MAGIC.length - 2 * Integer.BYTES - Long.BYTES - Double.BYTES);
+    }
+
+    static void writeBinaryFormatHelper(FileChannel fileChannel, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            fileChannel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Returns a random number between 0 and 1 for an edge, based on a hash of
+     * the nodes of the edge and a seed. The random number does not depend on
+     * the order of the nodes.
+     */
+    private static double getRandomNumber(int node1, int node2, long seed)
+    {
+        long hash;
+
+        // Mixing function of the SplitMix64 random number generator.
+        hash = seed + getNodePair(node1, node2) * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        hash ^= hash >>> 31;
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    private static long getNodePair(int node1, int node2)
+    {
+        return (node1 < node2) ? (((long)node1 << 32) | node2) : (((long)node2 << 32) | node1);
+    }
+
+    /**
+     * Returns the value at a specified index in the array that would be
+     * obtained by sorting the values in ascending order. The values are
+     * partially reordered. Quickselect is used, which requires linear time on
+     * average.
+     */
+    private static double selectHelper(LargeDoubleArray values, long index)
+    {
+        double pivot, value;
+        long from, i, j, to;
+
+        from = 0;
+        to = values.size() - 1;
+        while (from < to)
+        {
+            // Use the median of three values as pivot.
+            i = from + ((to - from) >>> 1);
+            pivot = Math.max(Math.min(values.get(from), values.get(i)), Math.min(Math.max(values.get(from), values.get(i)), values.get(to)));
+
+            // Hoare partitioning, which splits runs of equal values evenly.
+            i = from;
+            j = to;
+            while (i <= j)
+            {
+                while (values.get(i) < pivot)
+                    i++;
+                while (values.get(j) > pivot)
+                    j--;
+                if (i <= j)
+                {
+                    value = values.get(i);
+                    values.set(i, values.get(j));
+                    values.set(j, value);
+                    i++;
+                    j--;
+                }
+            }
+
+            if (index <= j)
+                to = j;
+            else if (index >= i)
+                from = i;
+            else
+                return values.get(index);
+        }
+        return values.get(index);
+    }
+
+    private Network createSubnetwork(Clustering clustering, int cluster, int[] nodes, int[] subnetworkNodes, LargeIntArray subnetworkNeighbors, LargeDoubleArray subnetworkEdgeWeights)
+    {
+        int i, j, k;
+        NeighborCursor neighborCursor;
+        Network subnetwork;
+
+        subnetwork = new Network();
+
+        subnetwork.nNodes = nodes.length;
+
+        if (subnetwork.nNodes == 1)
+        {
+            subnetwork.nEdges = 0;
+            subnetwork.nodeWeights = new double[1];
+            subnetwork.nodeWeights[0] = nodeWeights[nodes[0]];
+            subnetwork.firstNeighborIndices = new long[2];
+            subnetwork.neighbors = new LargeIntArray(0);
+            subnetwork.edgeWeights = new LargeDoubleArray(0);
+        }
+        else
+        {
+            for (i = 0; i < nodes.length; i++)
+                subnetworkNodes[nodes[i]] = i;
+
+            subnetwork.nEdges = 0;
+            subnetwork.nodeWeights = new double[subnetwork.nNodes];
+            subnetwork.firstNeighborIndices = new long[subnetwork.nNodes + 1];
+            neighborCursor = new NeighborCursor(this);
+            for (i = 0; i < subnetwork.nNodes; i++)
+            {
+                j = nodes[i];
                 subnetwork.nodeWeights[i] = nodeWeights[j];
-                for (k = firstNeighborIndices[j]; k < firstNeighborIndices[j + 1]; k++)
-                    if (clustering.clusters[neighbors.get(k)] == cluster)
+                neighborCursor.reset(j);
+                while (neighborCursor.hasNext())
+                {
+                    k = neighborCursor.nextNeighbor();
+                    if (clustering.clusters[k] == cluster)
                     {
                         subnetworkNeighbors.set(subnetwork.nEdges,
-                                                subnetworkNodes[neighbors.get(k)]);
+                                                subnetworkNodes[k]);
                         subnetworkEdgeWeights.set(subnetwork.nEdges,
-                                                  edgeWeights.get(k));
+                                                  neighborCursor.getEdgeWeight());
                         subnetwork.nEdges++;
                     }
+                }
                 subnetwork.firstNeighborIndices[i + 1] = subnetwork.nEdges;
             }
             subnetwork.neighbors = subnetworkNeighbors.copyOfRange(0, subnetwork.nEdges);
@@ -1543,6 +3514,570 @@ public class Network implements Serializable
         return subnetwork;
     }
 
+    /**
+     * Creates a network with the same structure as this network in which each
+     * edge weight has been normalized using {@link
+     * #normalizeEdgeWeightHelper}. The node weights are set to 1.
+     */
+    private Network createNormalizedNetworkHelper(boolean inPlace, int normalization)
+    {
+        double totalNodeWeight;
+        int[] firstNodePerChunk;
+        IntStream chunks;
+        Network normalizedNetwork;
+
+        normalizedNetwork = new Network();
+
+        normalizedNetwork.nNodes = nNodes;
+        normalizedNetwork.nEdges = nEdges;
+        normalizedNetwork.nodeWeights = nl.cwts.util.Arrays.createDoubleArrayOfOnes(nNodes);
+        normalizedNetwork.firstNeighborIndices = firstNeighborIndices;
+        normalizedNetwork.neighbors = neighbors;
+        normalizedNetwork.offHeapNeighbors = offHeapNeighbors;
+        normalizedNetwork.firstNeighborPositions = firstNeighborPositions;
+        normalizedNetwork.compressedNeighbors = compressedNeighbors;
+
+        // Edge weights that may be shared with another network, such as the
+        // stored edge weights of a normalized view, and edge weights in a
+        // read-only memory-mapped file are never overwritten.
+        // Edge weights that are overwritten are recorded as shared, so that
+        // they are not overwritten again through this network.
+        if (inPlace && !sharedEdgeWeights && (edgeWeights != null) && (edgeWeightNormalization == NORMALIZATION_NONE))
+        {
+            normalizedNetwork.edgeWeights = edgeWeights;
+            sharedEdgeWeights = true;
+        }
+        else if (inPlace && !sharedEdgeWeights && (offHeapEdgeWeights != null) && !offHeapEdgeWeights.isReadOnly() && (edgeWeightNormalization == NORMALIZATION_NONE))
+        {
+            normalizedNetwork.offHeapEdgeWeights = offHeapEdgeWeights;
+            sharedEdgeWeights = true;
+        }
+        else
+            normalizedNetwork.edgeWeights = new LargeDoubleArray(nEdges);
+
+        if (nEdges >= PARALLEL_NORMALIZATION_MIN_N_EDGES)
+        {
+            firstNodePerChunk = getNodeChunksHelper(Runtime.getRuntime().availableProcessors());
+            chunks = IntStream.range(0, firstNodePerChunk.length - 1).parallel();
+        }
+        else
+        {
+            firstNodePerChunk = new int[] { 0, nNodes };
+            chunks = IntStream.range(0, 1);
+        }
+        totalNodeWeight = getTotalNodeWeight();
+        chunks.forEach(chunk -> normalizeEdgeWeightsHelper(firstNodePerChunk[chunk], firstNodePerChunk[chunk + 1], normalization, totalNodeWeight, normalizedNetwork));
+
+        normalizedNetwork.totalEdgeWeightSelfLinks = 0;
+
+        return normalizedNetwork;
+    }
+
+    private void createNetworkWithNodeOrderHelper(int firstNode, int endNode, int[] nodeOrder, int[] newNodes, Network newNetwork)
+    {
+        int i;
+        long j;
+        NeighborCursor neighborCursor;
+
+        neighborCursor = new NeighborCursor(this);
+        for (i = firstNode; i < endNode; i++)
+        {
+            j = newNetwork.firstNeighborIndices[i];
+            neighborCursor.reset(nodeOrder[i]);
+            while (neighborCursor.hasNext())
+            {
+                newNetwork.neighbors.set(j, newNodes[neighborCursor.nextNeighbor()]);
+                if (newNetwork.edgeWeights != null)
+                    newNetwork.edgeWeights.set(j, neighborCursor.getEdgeWeight());
+                j++;
+            }
+            newNetwork.sortNeighborsHelper(i);
+        }
+    }
+
+    private void normalizeEdgeWeightsHelper(int firstNode, int endNode, int normalization, double totalNodeWeight, Network normalizedNetwork)
+    {
+        double edgeWeight;
+        int i, j;
+        NeighborCursor neighborCursor;
+
+        neighborCursor = new NeighborCursor(this);
+        for (i = firstNode; i < endNode; i++)
+        {
+            neighborCursor.reset(i);
+            while (neighborCursor.hasNext())
+            {
+                j = neighborCursor.nextNeighbor();
+                edgeWeight = normalizeEdgeWeightHelper(neighborCursor.getEdgeWeight(), normalization, nodeWeights[i], nodeWeights[j], totalNodeWeight, nNodes);
+                if (normalizedNetwork.edgeWeights != null)
+                    normalizedNetwork.edgeWeights.set(neighborCursor.getEdge(), edgeWeight);
+                else
+                    normalizedNetwork.offHeapEdgeWeights.set(neighborCursor.getEdge(), edgeWeight);
+            }
+        }
+    }
+
+    /**
+     * Divides the nodes into chunks of consecutive nodes with roughly equal
+     * numbers of edges. Returns the first node of each chunk, followed by the
+     * number of nodes.
+     */
+    int[] getNodeChunksHelper(int nThreads)
+    {
+        int i, j, nChunks;
+        int[] firstNodePerChunk;
+
+        nChunks = N_CHUNKS_PER_THREAD * nThreads;
+        firstNodePerChunk = new int[nChunks + 1];
+        for (i = 1; i < nChunks; i++)
+        {
+            j = Arrays.binarySearch(firstNeighborIndices, nEdges / nChunks * i);
+            if (j < 0)
+                j = -j - 1;
+            firstNodePerChunk[i] = Math.max(Math.min(j, nNodes), firstNodePerChunk[i - 1]);
+        }
+        firstNodePerChunk[nChunks] = nNodes;
+        return firstNodePerChunk;
+    }
+
+    private static IntStream getChunkStreamHelper(int[] firstNodePerChunk, boolean parallel)
+    {
+        return parallel ? IntStream.range(0, firstNodePerChunk.length - 1).parallel() : IntStream.range(0, firstNodePerChunk.length - 1);
+    }
+
+    /**
+     * Checks whether the neighbors of the nodes {@code firstNode}, ..., {@code
+     * endNode - 1} are sorted correctly. Returns an error message, or null if
+     * the neighbors are sorted correctly.
+     */
+    private String checkNeighborsHelper(int firstNode, int endNode)
+    {
+        int i, k, l;
+        NeighborCursor neighborCursor;
+
+        neighborCursor = new NeighborCursor(this);
+        for (i = firstNode; i < endNode; i++)
+        {
+            if (firstNeighborIndices[i + 1] < firstNeighborIndices[i])
+                return "Elements of firstNeighborIndices array must be in non-decreasing order.";
+
+            l = -1;
+            neighborCursor.reset(i);
+            while (neighborCursor.hasNext())
+            {
+                k = neighborCursor.nextNeighbor();
+
+                if (k < 0)
+                    return "Elements of neighbors array must have non-negative values.";
+                else if (k >= nNodes)
+                    return "Elements of neighbors array must have values less than nNodes.";
+
+                if (k < l)
+                    return "For each node, corresponding elements of neighbors array must be in increasing order.";
+                else if (k == l)
+                    return "For each node, corresponding elements of neighbors array must not include duplicate values.";
+                l = k;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores the edges of the nodes {@code firstNode}, ..., {@code endNode -
+     * 1} among the edges of their target nodes. Returns an error message, or
+     * null if there is enough space among the edges of each target node.
+     */
+    private String storeReverseEdgesHelper(int firstNode, int endNode, LargeLongArray reverseEdges, AtomicLongArray positions)
+    {
+        int i, k;
+        long j;
+        NeighborCursor neighborCursor;
+
+        neighborCursor = new NeighborCursor(this);
+        for (i = firstNode; i < endNode; i++)
+        {
+            neighborCursor.reset(i);
+            while (neighborCursor.hasNext())
+            {
+                k = neighborCursor.nextNeighbor();
+                j = positions.getAndIncrement(k);
+                if (j >= firstNeighborIndices[k + 1])
+                    return "Edges must be stored in both directions.";
+                reverseEdges.set(j, ((long)i << 32) | (neighborCursor.getEdge() - firstNeighborIndices[i]));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the edges stored among the edges of the nodes {@code
+     * firstNode}, ..., {@code endNode - 1} match the neighbors of the nodes.
+     * Returns an error message, or null if the edges match.
+     */
+    private String checkReverseEdgesHelper(int firstNode, int endNode, LargeLongArray reverseEdges)
+    {
+        int i, j, k;
+        long[] sortedReverseEdges;
+        NeighborCursor neighborCursor;
+
+        neighborCursor = new NeighborCursor(this);
+        for (i = firstNode; i < endNode; i++)
+        {
+            sortedReverseEdges = reverseEdges.toArray(firstNeighborIndices[i], firstNeighborIndices[i + 1]);
+            Arrays.sort(sortedReverseEdges);
+            neighborCursor.reset(i);
+            for (j = 0; j < sortedReverseEdges.length; j++)
+            {
+                k = (int)(sortedReverseEdges[j] >>> 32);
+                if (neighborCursor.nextNeighbor() != k)
+                    return "Edges must be stored in both directions.";
+                if (getEdgeWeightHelper(neighborCursor.getEdge()) != getEdgeWeightHelper(firstNeighborIndices[k] + (int)sortedReverseEdges[j]))
+                    return "Edge weights must be the same in both directions.";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Divides clusters into chunks of consecutive clusters with roughly equal
+     * numbers of edges. Returns the first cluster of each chunk, followed by
+     * the number of clusters.
+     */
+    private int[] getClusterChunksHelper(int[][] nodesPerCluster, int nThreads)
+    {
+        int i, j, nChunks;
+        int[] firstClusterPerChunk;
+        long nEdgesInChunk, nEdgesPerChunk;
+
+        nEdgesPerChunk = Math.max(nEdges / ((long)N_CHUNKS_PER_THREAD * nThreads), 1);
+        firstClusterPerChunk = new int[(int)Math.min(nEdges / nEdgesPerChunk, nodesPerCluster.length) + 2];
+        nChunks = 0;
+        nEdgesInChunk = 0;
+        for (i = 0; i < nodesPerCluster.length; i++)
+        {
+            for (j = 0; j < nodesPerCluster[i].length; j++)
+                nEdgesInChunk += firstNeighborIndices[nodesPerCluster[i][j] + 1] - firstNeighborIndices[nodesPerCluster[i][j]];
+            if ((nEdgesInChunk >= nEdgesPerChunk) || (i == nodesPerCluster.length - 1))
+            {
+                nChunks++;
+                firstClusterPerChunk[nChunks] = i + 1;
+                nEdgesInChunk = 0;
+            }
+        }
+        return Arrays.copyOf(firstClusterPerChunk, nChunks + 1);
+    }
+
+    /**
+     * Creates the subnetworks for the clusters {@code firstCluster}, ...,
+     * {@code endCluster - 1}. The neighbors of each node in a subnetwork are
+     * first counted, so that the arrays of the subnetwork can be allocated
+     * with their exact size. Subnetworks consisting of a single node share the
+     * arrays of {@code emptySubnetwork}.
+     */
+    private void createSubnetworksHelper(Clustering clustering, int[][] nodesPerCluster, int firstCluster, int endCluster, int[] subnetworkNodes, Network emptySubnetwork, Network[] subnetworks)
+    {
+        int i, j, k;
+        int[] nodes;
+        long l;
+        NeighborCursor neighborCursor;
+        Network subnetwork;
+
+        neighborCursor = new NeighborCursor(this);
+        for (i = firstCluster; i < endCluster; i++)
+        {
+            nodes = nodesPerCluster[i];
+
+            subnetwork = new Network();
+            subnetwork.nNodes = nodes.length;
+            subnetwork.nodeWeights = new double[nodes.length];
+            for (j = 0; j < nodes.length; j++)
+                subnetwork.nodeWeights[j] = nodeWeights[nodes[j]];
+            subnetwork.totalEdgeWeightSelfLinks = 0;
+
+            if (nodes.length == 1)
+            {
+                subnetwork.nEdges = 0;
+                subnetwork.firstNeighborIndices = emptySubnetwork.firstNeighborIndices;
+                subnetwork.neighbors = emptySubnetwork.neighbors;
+                subnetwork.edgeWeights = emptySubnetwork.edgeWeights;
+            }
+            else
+            {
+                for (j = 0; j < nodes.length; j++)
+                    subnetworkNodes[nodes[j]] = j;
+
+                // Count the neighbors of each node in the subnetwork.
+                subnetwork.firstNeighborIndices = new long[nodes.length + 1];
+                for (j = 0; j < nodes.length; j++)
+                {
+                    l = 0;
+                    neighborCursor.reset(nodes[j]);
+                    while (neighborCursor.hasNext())
+                        if (clustering.clusters[neighborCursor.nextNeighbor()] == i)
+                            l++;
+                    subnetwork.firstNeighborIndices[j + 1] = subnetwork.firstNeighborIndices[j] + l;
+                }
+                subnetwork.nEdges = subnetwork.firstNeighborIndices[nodes.length];
+
+                // Fill in the neighbors and the edge weights.
+                subnetwork.neighbors = new LargeIntArray(subnetwork.nEdges);
+                subnetwork.edgeWeights = new LargeDoubleArray(subnetwork.nEdges);
+                l = 0;
+                for (j = 0; j < nodes.length; j++)
+                {
+                    neighborCursor.reset(nodes[j]);
+                    while (neighborCursor.hasNext())
+                    {
+                        k = neighborCursor.nextNeighbor();
+                        if (clustering.clusters[k] == i)
+                        {
+                            subnetwork.neighbors.set(l, subnetworkNodes[k]);
+                            subnetwork.edgeWeights.set(l, neighborCursor.getEdgeWeight());
+                            l++;
+                        }
+                    }
+                }
+            }
+
+            subnetworks[i] = subnetwork;
+        }
+    }
+
+    private Network createReducedNetworkInParallelHelper(Clustering clustering)
+    {
+        boolean dense;
+        int i, j, nChunks, nThreads;
+        int[] firstClusterPerChunk;
+        long k;
+        int[][] nodesPerCluster;
+        AtomicInteger nextChunk;
+        Network reducedNetwork;
+        ReducedNetworkAggregator[] aggregators;
+
+        reducedNetwork = new Network();
+        reducedNetwork.nNodes = clustering.nClusters;
+        reducedNetwork.nodeWeights = new double[clustering.nClusters];
+        reducedNetwork.firstNeighborIndices = new long[clustering.nClusters + 1];
+        nodesPerCluster = clustering.getNodesPerCluster();
+
+        nThreads = Runtime.getRuntime().availableProcessors();
+        firstClusterPerChunk = getClusterChunksHelper(nodesPerCluster, nThreads);
+        nChunks = firstClusterPerChunk.length - 1;
+
+        // Aggregate the chunks in parallel.
+        dense = ((long)clustering.nClusters * nThreads <= nEdges / 4);
+        nextChunk = new AtomicInteger();
+        aggregators = new ReducedNetworkAggregator[nThreads];
+        for (i = 0; i < nThreads; i++)
+            aggregators[i] = new ReducedNetworkAggregator(clustering, nodesPerCluster, reducedNetwork, dense, firstClusterPerChunk, nChunks, nextChunk);
+        Arrays.stream(aggregators).parallel().forEach(ReducedNetworkAggregator::run);
+
+        // Combine the results of the chunks.
+        for (i = 0; i < clustering.nClusters; i++)
+            reducedNetwork.firstNeighborIndices[i + 1] += reducedNetwork.firstNeighborIndices[i];
+        reducedNetwork.nEdges = reducedNetwork.firstNeighborIndices[clustering.nClusters];
+        reducedNetwork.neighbors = new LargeIntArray(reducedNetwork.nEdges);
+        reducedNetwork.edgeWeights = new LargeDoubleArray(reducedNetwork.nEdges);
+        reducedNetwork.totalEdgeWeightSelfLinks = totalEdgeWeightSelfLinks;
+        for (ReducedNetworkAggregator aggregator : aggregators)
+            for (i = 0; i < aggregator.nAggregatedChunks; i++)
+            {
+                j = aggregator.aggregatedChunks[i];
+                reducedNetwork.neighbors.updateFrom(aggregator.neighbors, aggregator.firstNeighborIndexPerChunk[i], aggregator.firstNeighborIndexPerChunk[i + 1], reducedNetwork.firstNeighborIndices[firstClusterPerChunk[j]]);
+                reducedNetwork.edgeWeights.updateFrom(aggregator.edgeWeights, aggregator.firstNeighborIndexPerChunk[i], aggregator.firstNeighborIndexPerChunk[i + 1], reducedNetwork.firstNeighborIndices[firstClusterPerChunk[j]]);
+            }
+
+        // Sum the weights of self links in the same order as when creating the
+        // reduced network sequentially.
+        for (i = 0; i < nChunks; i++)
+            for (ReducedNetworkAggregator aggregator : aggregators)
+            {
+                j = aggregator.getIndexOfAggregatedChunk(i);
+                if (j >= 0)
+                {
+                    for (k = aggregator.firstSelfLinkIndexPerChunk[j]; k < aggregator.firstSelfLinkIndexPerChunk[j + 1]; k++)
+                        reducedNetwork.totalEdgeWeightSelfLinks += aggregator.selfLinkEdgeWeights.get(k);
+                    break;
+                }
+            }
+
+        return reducedNetwork;
+    }
+
+    /**
+     * Aggregates chunks of clusters when creating a reduced network in
+     * parallel.
+     *
+     * <p>
+     * Each aggregator takes chunks from a shared counter until no chunks are
+     * left. The neighbors and edge weights of the reduced network obtained for
+     * the chunks, and the weights of edges within clusters, are appended to
+     * arrays owned by the aggregator.
+     * </p>
+     */
+    private class ReducedNetworkAggregator implements Runnable
+    {
+        Clustering clustering;
+        int[][] nodesPerCluster;
+        Network reducedNetwork;
+        boolean dense;
+        int[] firstClusterPerChunk;
+        int nChunks;
+        AtomicInteger nextChunk;
+
+        int nAggregatedChunks;
+        int[] aggregatedChunks;
+        long[] firstNeighborIndexPerChunk;
+        long[] firstSelfLinkIndexPerChunk;
+        LargeIntArray neighbors;
+        LargeDoubleArray edgeWeights;
+        LargeDoubleArray selfLinkEdgeWeights;
+
+        int[] clusters;
+        double[] edgeWeightPerCluster;
+        int[] neighboringClusters;
+        int[] neighboringClusterSlots;
+
+        ReducedNetworkAggregator(Clustering clustering, int[][] nodesPerCluster, Network reducedNetwork, boolean dense, int[] firstClusterPerChunk, int nChunks, AtomicInteger nextChunk)
+        {
+            this.clustering = clustering;
+            this.nodesPerCluster = nodesPerCluster;
+            this.reducedNetwork = reducedNetwork;
+            this.dense = dense;
+            this.firstClusterPerChunk = firstClusterPerChunk;
+            this.nChunks = nChunks;
+            this.nextChunk = nextChunk;
+        }
+
+        int getIndexOfAggregatedChunk(int chunk)
+        {
+            int i;
+
+            i = Arrays.binarySearch(aggregatedChunks, 0, nAggregatedChunks, chunk);
+            return (i >= 0) ? i : -1;
+        }
+
+        public void run()
+        {
+            int chunk, i, j, k, l, n, slot;
+            long nEdgesInCluster;
+            NeighborCursor neighborCursor;
+
+            nAggregatedChunks = 0;
+            aggregatedChunks = new int[1];
+            firstNeighborIndexPerChunk = new long[2];
+            firstSelfLinkIndexPerChunk = new long[2];
+            neighbors = new LargeIntArray(0);
+            edgeWeights = new LargeDoubleArray(0);
+            selfLinkEdgeWeights = new LargeDoubleArray(0);
+            if (dense)
+                edgeWeightPerCluster = new double[clustering.nClusters];
+            else
+            {
+                clusters = new int[0];
+                edgeWeightPerCluster = new double[0];
+            }
+            neighboringClusters = new int[16];
+            neighboringClusterSlots = new int[16];
+            neighborCursor = new NeighborCursor(Network.this);
+
+            // Chunks are taken in increasing order, so aggregatedChunks is
+            // sorted.
+            while ((chunk = nextChunk.getAndIncrement()) < nChunks)
+            {
+                for (i = firstClusterPerChunk[chunk]; i < firstClusterPerChunk[chunk + 1]; i++)
+                {
+                    if (!dense)
+                    {
+                        nEdgesInCluster = 0;
+                        for (k = 0; k < nodesPerCluster[i].length; k++)
+                            nEdgesInCluster += firstNeighborIndices[nodesPerCluster[i][k] + 1] - firstNeighborIndices[nodesPerCluster[i][k]];
+                        ensureHashTableCapacity((int)Math.min(nEdgesInCluster, clustering.nClusters));
+                    }
+
+                    j = 0;
+                    for (k = 0; k < nodesPerCluster[i].length; k++)
+                    {
+                        l = nodesPerCluster[i][k];
+
+                        reducedNetwork.nodeWeights[i] += nodeWeights[l];
+
+                        neighborCursor.reset(l);
+                        while (neighborCursor.hasNext())
+                        {
+                            n = clustering.clusters[neighborCursor.nextNeighbor()];
+                            if (n != i)
+                            {
+                                slot = dense ? n : getHashTableSlot(n);
+                                if (edgeWeightPerCluster[slot] == 0)
+                                {
+                                    if (j == neighboringClusters.length)
+                                    {
+                                        neighboringClusters = Arrays.copyOf(neighboringClusters, 2 * j);
+                                        neighboringClusterSlots = Arrays.copyOf(neighboringClusterSlots, 2 * j);
+                                    }
+                                    neighboringClusters[j] = n;
+                                    neighboringClusterSlots[j] = slot;
+                                    j++;
+                                }
+                                edgeWeightPerCluster[slot] += neighborCursor.getEdgeWeight();
+                            }
+                            else
+                                selfLinkEdgeWeights.append(neighborCursor.getEdgeWeight());
+                        }
+                    }
+
+                    for (k = 0; k < j; k++)
+                    {
+                        neighbors.append(neighboringClusters[k]);
+                        edgeWeights.append(edgeWeightPerCluster[neighboringClusterSlots[k]]);
+                        edgeWeightPerCluster[neighboringClusterSlots[k]] = 0;
+                    }
+                    if (!dense)
+                        for (k = 0; k < j; k++)
+                            clusters[neighboringClusterSlots[k]] = -1;
+                    reducedNetwork.firstNeighborIndices[i + 1] = j;
+                }
+
+                if (nAggregatedChunks == aggregatedChunks.length)
+                {
+                    aggregatedChunks = Arrays.copyOf(aggregatedChunks, 2 * nAggregatedChunks);
+                    firstNeighborIndexPerChunk = Arrays.copyOf(firstNeighborIndexPerChunk, 2 * nAggregatedChunks + 1);
+                    firstSelfLinkIndexPerChunk = Arrays.copyOf(firstSelfLinkIndexPerChunk, 2 * nAggregatedChunks + 1);
+                }
+                aggregatedChunks[nAggregatedChunks] = chunk;
+                nAggregatedChunks++;
+                firstNeighborIndexPerChunk[nAggregatedChunks] = neighbors.size();
+                firstSelfLinkIndexPerChunk[nAggregatedChunks] = selfLinkEdgeWeights.size();
+            }
+        }
+
+        private void ensureHashTableCapacity(int nKeys)
+        {
+            int capacity;
+
+            capacity = Integer.highestOneBit(Math.max(2 * nKeys - 1, 1)) << 1;
+            if (capacity > clusters.length)
+            {
+                clusters = new int[capacity];
+                Arrays.fill(clusters, -1);
+                edgeWeightPerCluster = new double[capacity];
+            }
+        }
+
+        private int getHashTableSlot(int cluster)
+        {
+            int mask, slot;
+
+            mask = clusters.length - 1;
+            slot = (cluster * 0x9E3779B9) & mask;
+            while ((clusters[slot] != cluster) && (clusters[slot] != -1))
+                slot = (slot + 1) & mask;
+            clusters[slot] = cluster;
+            return slot;
+        }
+    }
+
     /**
      * Iterable starting from a certain element to a certain element.
      */
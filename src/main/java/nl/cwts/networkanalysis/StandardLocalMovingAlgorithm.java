@@ -76,6 +76,10 @@ public class StandardLocalMovingAlgorithm extends IncrementalCPMClusteringAlgori
      * be moved.
      * </p>
      *
+     * <p>
+     * If the algorithm is cancelled, it stops iterating over the nodes.
+     * </p>
+     *
      * @param network    Network
      * @param clustering Clustering
      *
@@ -87,10 +91,11 @@ public class StandardLocalMovingAlgorithm extends IncrementalCPMClusteringAlgori
         double maxQualityValueIncrement, qualityValueIncrement;
         double[] clusterWeights, edgeWeightPerCluster;
         int bestCluster, currentCluster, i, j, l, m, nNeighboringClusters, nUnstableNodes, nUnusedClusters;
-        long k;
         int[] neighboringClusters, nNodesPerCluster, nodeOrder, unusedClusters;
+        long nVisitedNodes;
+        NeighborCursor neighborCursor;
 
-        if (network.nNodes == 1)
+        if ((network.nNodes == 1) || isCancelled())
             return false;
 
         update = false;
@@ -122,7 +127,9 @@ public class StandardLocalMovingAlgorithm extends IncrementalCPMClusteringAlgori
          */
         edgeWeightPerCluster = new double[network.nNodes];
         neighboringClusters = new int[network.nNodes];
+        neighborCursor = new NeighborCursor(network);
         nUnstableNodes = network.nNodes;
+        nVisitedNodes = 0;
         i = 0;
         do
         {
@@ -148,15 +155,16 @@ public class StandardLocalMovingAlgorithm extends IncrementalCPMClusteringAlgori
              */
             neighboringClusters[0] = unusedClusters[nUnusedClusters - 1];
             nNeighboringClusters = 1;
-            for (k = network.firstNeighborIndices[j]; k < network.firstNeighborIndices[j + 1]; k++)
+            neighborCursor.reset(j);
+            while (neighborCursor.hasNext())
             {
-                l = clustering.clusters[network.neighbors.get(k)];
+                l = clustering.clusters[neighborCursor.nextNeighbor()];
                 if (edgeWeightPerCluster[l] == 0)
                 {
                     neighboringClusters[nNeighboringClusters] = l;
                     nNeighboringClusters++;
                 }
-                edgeWeightPerCluster[l] += network.edgeWeights.get(k);
+                edgeWeightPerCluster[l] += neighborCursor.getEdgeWeight();
             }
 
             /*
@@ -213,6 +221,10 @@ public class StandardLocalMovingAlgorithm extends IncrementalCPMClusteringAlgori
             }
 
             i = (i < network.nNodes - 1) ? (i + 1) : 0;
+
+            nVisitedNodes++;
+            if (((nVisitedNodes % CANCELLATION_CHECK_INTERVAL) == 0) && isCancelled())
+                break;
         } while (nUnstableNodes > 0);
 
         if (update)
@@ -169,23 +169,30 @@ public abstract class VOSLayoutAlgorithm implements Cloneable, QualityLayoutAlgo
     public double calcQuality(Network network, Layout layout)
     {
         double distance, distance1, distance2, quality;
-        int i, j;
-        long k;
+        int i, j, k;
+        NeighborCursor neighborCursor;
 
         quality = 0;
 
+        neighborCursor = new NeighborCursor(network);
         for (i = 0; i < network.nNodes; i++)
-            for (k = network.firstNeighborIndices[i]; k < network.firstNeighborIndices[i + 1]; k++)
-                if (network.neighbors.get(k) < i)
+        {
+            neighborCursor.reset(i);
+            while (neighborCursor.hasNext())
+            {
+                k = neighborCursor.nextNeighbor();
+                if (k < i)
                 {
-                    distance1 = layout.coordinates[0][i] - layout.coordinates[0][network.neighbors.get(k)];
-                    distance2 = layout.coordinates[1][i] - layout.coordinates[1][network.neighbors.get(k)];
+                    distance1 = layout.coordinates[0][i] - layout.coordinates[0][k];
+                    distance2 = layout.coordinates[1][i] - layout.coordinates[1][k];
                     distance = Math.sqrt(distance1 * distance1 + distance2 * distance2);
                     if (attraction != 0)
-                        quality += network.edgeWeights.get(k) * FastMath.fastPow(distance, attraction) / attraction;
+                        quality += neighborCursor.getEdgeWeight() * FastMath.fastPow(distance, attraction) / attraction;
                     else
-                        quality += network.edgeWeights.get(k) * Math.log(distance);
+                        quality += neighborCursor.getEdgeWeight() * Math.log(distance);
                 }
+            }
+        }
 
         for (i = 0; i < network.nNodes; i++)
             for (j = 0; j < i; j++)
@@ -1,15 +1,39 @@
 package nl.cwts.networkanalysis.run;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import nl.cwts.networkanalysis.Clustering;
+import nl.cwts.networkanalysis.ExternalMemoryNetworkBuilder;
 import nl.cwts.networkanalysis.Layout;
 import nl.cwts.networkanalysis.Network;
 import nl.cwts.util.LargeDoubleArray;
@@ -19,6 +43,12 @@ import nl.cwts.util.LargeIntArray;
  * Utility functions for file I/O.
  *
  * <p>
+ * Files compressed using gzip are recognized automatically when they are
+ * read. Files whose name ends with {@link #GZIP_FILENAME_EXTENSION} are
+ * compressed using gzip when they are written.
+ * </p>
+ *
+ * <p>
  * All methods in this class are static.
  * </p>
  *
@@ -33,74 +63,392 @@ public class FileIO
      */
     public static final String COLUMN_SEPARATOR = "\t";
 
+    /**
+     * Filename extension of files that are compressed using gzip when they
+     * are written.
+     */
+    public static final String GZIP_FILENAME_EXTENSION = ".gz";
+
+    /**
+     * Maximum size in bytes of a chunk of an edge list file that is parsed by
+     * a single thread.
+     */
+    private static final long MAX_EDGE_LIST_CHUNK_SIZE = 1 << 29;
+
+    /**
+     * Size in bytes of a chunk of an edge list file that is read at once when
+     * using external memory.
+     */
+    private static final long EXTERNAL_MEMORY_EDGE_LIST_CHUNK_SIZE = 1 << 24;
+
+    /**
+     * Size in bytes of the decompressed data that is read at once from a gzip
+     * file that can only be decompressed sequentially.
+     */
+    private static final int GZIP_CHUNK_SIZE = 1 << 24;
+
+    /**
+     * Minimum size in bytes of the compressed data in a batch of BGZF blocks
+     * that is decompressed by a single thread.
+     */
+    private static final int BGZF_BATCH_SIZE = 1 << 22;
+
+    /**
+     * Size in bytes of the buffers of gzip streams.
+     */
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
     /**
      * Reads an edge list from a file and creates a network.
      *
+     * <p>
+     * The edge list is read in parallel using as many threads as there are
+     * available processors.
+     * </p>
+     *
      * @param filename       Filename
      * @param weightedEdges  Indicates whether edges have weights
      * @param sortedEdgeList Indicates whether the edge list is sorted
      *
      * @return Network
+     *
+     * @see #readEdgeList(String filename, boolean weightedEdges, boolean
+     * sortedEdgeList, int nThreads)
      */
     public static Network readEdgeList(String filename, boolean weightedEdges, boolean sortedEdgeList)
+    {
+        return readEdgeList(filename, weightedEdges, sortedEdgeList, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Reads an edge list in which nodes are represented by arbitrary
+     * identifiers from a file and creates a network.
+     *
+     * <p>
+     * The edge list is read in parallel using as many threads as there are
+     * available processors.
+     * </p>
+     *
+     * @param filename       Filename
+     * @param weightedEdges  Indicates whether edges have weights
+     * @param sortedEdgeList Indicates whether the edge list is sorted
+     * @param nodeDictionary Dictionary to which the node identifiers are added
+     *
+     * @return Network
+     *
+     * @see #readEdgeList(String filename, boolean weightedEdges, boolean
+     * sortedEdgeList, int nThreads, NodeDictionary nodeDictionary)
+     */
+    public static Network readEdgeList(String filename, boolean weightedEdges, boolean sortedEdgeList, NodeDictionary nodeDictionary)
+    {
+        return readEdgeList(filename, weightedEdges, sortedEdgeList, Runtime.getRuntime().availableProcessors(), nodeDictionary);
+    }
+
+    /**
+     * Reads an edge list from a file and creates a network using a specified
+     * number of threads.
+     *
+     * <p>
+     * The file is split into chunks at line boundaries, and the chunks are
+     * parsed in parallel. Each chunk is parsed directly from a memory-mapped
+     * region of the file into separate arrays of nodes and edge weights,
+     * without creating intermediate strings. The arrays are concatenated in
+     * the order of the chunks, so the resulting network does not depend on
+     * the number of threads.
+     * </p>
+     *
+     * <p>
+     * If the file is compressed using gzip, it is decompressed while the
+     * decompressed chunks are parsed in parallel. If the file is in the BGZF
+     * format, which consists of many independently compressed blocks (see
+     * {@code bgzip}), batches of blocks are also decompressed in parallel.
+     * </p>
+     *
+     * <p>
+     * If the edge list is not sorted, each edge is stored in both directions
+     * when the network is created, so only the structure of the network is
+     * checked (see {@link Network#INTEGRITY_CHECK_STRUCTURE}). If the edge
+     * list is sorted, it is also checked whether edges are stored in both
+     * directions (see {@link Network#INTEGRITY_CHECK_FULL}).
+     * </p>
+     *
+     * @param filename       Filename
+     * @param weightedEdges  Indicates whether edges have weights
+     * @param sortedEdgeList Indicates whether the edge list is sorted
+     * @param nThreads       Number of threads
+     *
+     * @return Network
+     */
+    public static Network readEdgeList(String filename, boolean weightedEdges, boolean sortedEdgeList, int nThreads)
+    {
+        return readEdgeList(filename, weightedEdges, sortedEdgeList, nThreads, null);
+    }
+
+    /**
+     * Reads an edge list in which nodes are represented by arbitrary
+     * identifiers from a file and creates a network using a specified number
+     * of threads.
+     *
+     * <p>
+     * See {@link #readEdgeList(String filename, boolean weightedEdges, boolean
+     * sortedEdgeList, int nThreads)}. Nodes may be represented by 64-bit
+     * integers or by arbitrary strings. Each thread maps the identifiers in its
+     * chunk of the file to zero-index integer numbers using a dictionary of its
+     * own. The dictionaries of the chunks are then added sequentially to
+     * {@code nodeDictionary} in the order of the chunks, so that nodes are
+     * numbered in the order in which they first appear in the file. While the
+     * dictionary of a chunk is added, the nodes of the previous chunks are
+     * translated in parallel. Identifiers that are already in {@code
+     * nodeDictionary}, for instance because the dictionary was read using
+     * {@link #readNodeDictionary(String filename)}, keep their number. If
+     * {@code nodeDictionary} is null, nodes must be represented by zero-index
+     * integer numbers.
+     * </p>
+     *
+     * <p>
+     * If the edge list is sorted based on the node identifiers, it is sorted
+     * again based on the numbers of the nodes.
+     * </p>
+     *
+     * @param filename       Filename
+     * @param weightedEdges  Indicates whether edges have weights
+     * @param sortedEdgeList Indicates whether the edge list is sorted
+     * @param nThreads       Number of threads
+     * @param nodeDictionary Dictionary to which the node identifiers are
+     *                       added, or null
+     *
+     * @return Network
+     */
+    public static Network readEdgeList(String filename, boolean weightedEdges, boolean sortedEdgeList, int nThreads, NodeDictionary nodeDictionary)
+    {
+        Network network = null;
+        try
+        {
+            network = readEdgeListHelper(filename, weightedEdges, sortedEdgeList, nThreads, nodeDictionary);
+        }
+        catch (NoSuchFileException e)
+        {
+            System.err.println("Error while reading edge list from file: File not found.");
+            System.exit(-1);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Error while reading edge list from file: " + e.getMessage());
+            System.exit(-1);
+        }
+        catch (IllegalStateException e)
+        {
+            System.err.println("Error while reading edge list from file: " + e.getMessage());
+            System.exit(-1);
+        }
+        catch (ExecutionException | InterruptedException e)
+        {
+            System.err.println("Error while reading edge list from file: " + e.getMessage());
+            System.exit(-1);
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println("Error while creating network: " + e.getMessage());
+            System.exit(-1);
+        }
+        return network;
+    }
+
+    /**
+     * Reads an edge list from a file and creates a network using a specified
+     * number of threads, throwing an exception if the edge list cannot be
+     * read.
+     *
+     * <p>
+     * See {@link #readEdgeList(String filename, boolean weightedEdges, boolean
+     * sortedEdgeList, int nThreads, NodeDictionary nodeDictionary)}. If a line
+     * cannot be parsed, the message of the exception includes the number of
+     * the line in the file.
+     * </p>
+     *
+     * @throws IOException          Could not read the edge list
+     * @throws ExecutionException   Could not parse a chunk of the file
+     * @throws InterruptedException Interrupted while parsing the file
+     */
+    static Network readEdgeListHelper(String filename, boolean weightedEdges, boolean sortedEdgeList, int nThreads, NodeDictionary nodeDictionary) throws IOException, ExecutionException, InterruptedException
     {
         // Read edge list.
         LargeIntArray[] edges = new LargeIntArray[2];
-        edges[0] = new LargeIntArray(0); edges[0].ensureCapacity(100);
-        edges[1] = new LargeIntArray(0); edges[1].ensureCapacity(100);
-        LargeDoubleArray edgeWeights = weightedEdges ? new LargeDoubleArray(0) : null;
-        if (edgeWeights != null)
-            edgeWeights.ensureCapacity(100);
+        LargeDoubleArray edgeWeights = null;
         int nNodes = 0;
-        BufferedReader reader = null;
+        FileChannel fileChannel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        ExecutorService executorService = Executors.newFixedThreadPool(nThreads);
         try
         {
-            reader = new BufferedReader(new FileReader(filename));
-            String line = reader.readLine();
-            int lineNo = 0;
-            while (line != null)
+            EdgeListChunkParser[] chunkParsers;
+            Future<?>[] futures;
+            if (isGzipFile(fileChannel))
             {
-                lineNo++;
-                String[] columns = line.split(COLUMN_SEPARATOR);
-                if ((!weightedEdges && ((columns.length < 2) || (columns.length > 3))) || (weightedEdges && (columns.length != 3)))
-                    throw new IOException("Incorrect number of columns (line " + lineNo + ").");
-
-                int node1;
-                int node2;
-                try
+                // Parse each decompressed chunk while the next chunks are
+                // decompressed, limiting the number of chunks waiting to be parsed.
+                GzipChunkReader chunkReader = new GzipChunkReader(fileChannel, executorService, nThreads);
+                List<EdgeListChunkParser> chunkParserList = new ArrayList<>();
+                List<Future<?>> futureList = new ArrayList<>();
+                ByteBuffer chunk;
+                while ((chunk = chunkReader.nextChunk()) != null)
                 {
-                    node1 = Integer.parseUnsignedInt(columns[0]);
-                    node2 = Integer.parseUnsignedInt(columns[1]);
+                    if (futureList.size() >= 2 * nThreads)
+                        futureList.get(futureList.size() - 2 * nThreads).get();
+                    EdgeListChunkParser chunkParser = new EdgeListChunkParser(chunk, weightedEdges, nodeDictionary != null);
+                    chunkParserList.add(chunkParser);
+                    futureList.add(executorService.submit(chunkParser));
                 }
-                catch (NumberFormatException e)
+                chunkParsers = chunkParserList.toArray(new EdgeListChunkParser[0]);
+                futures = futureList.toArray(new Future<?>[0]);
+            }
+            else
+            {
+                // Count the lines in the chunks, so that the edges can be
+                // parsed directly into arrays of exactly the right size.
+                long[] chunkBoundaries = getEdgeListChunkBoundaries(fileChannel, nThreads);
+                chunkParsers = new EdgeListChunkParser[chunkBoundaries.length - 1];
+                futures = new Future<?>[chunkParsers.length];
+                for (int i = 0; i < chunkParsers.length; i++)
                 {
-                    throw new IOException("Node must be represented by a zero-index integer number (line " + lineNo + ").");
+                    EdgeListChunkParser chunkParser = new EdgeListChunkParser(fileChannel.map(FileChannel.MapMode.READ_ONLY, chunkBoundaries[i], chunkBoundaries[i + 1] - chunkBoundaries[i]), weightedEdges, nodeDictionary != null);
+                    chunkParsers[i] = chunkParser;
+                    futures[i] = executorService.submit(chunkParser::countLines);
                 }
-                edges[0].append(node1);
-                edges[1].append(node2);
-                if (node1 >= nNodes)
-                    nNodes = node1 + 1;
-                if (node2 >= nNodes)
-                    nNodes = node2 + 1;
+                long nLines = 0;
+                for (int i = 0; i < futures.length; i++)
+                    nLines += (Long)futures[i].get();
+                edges[0] = new LargeIntArray(nLines);
+                edges[1] = new LargeIntArray(nLines);
+                edgeWeights = weightedEdges ? new LargeDoubleArray(nLines) : null;
+                long firstEdge = 0;
+                for (int i = 0; i < chunkParsers.length; i++)
+                {
+                    long nChunkLines = (Long)futures[i].get();
+                    chunkParsers[i].setEdgeArrays(edges, edgeWeights, firstEdge);
+                    firstEdge += nChunkLines;
+                    futures[i] = executorService.submit(chunkParsers[i]);
+                }
+            }
+            for (int i = 0; i < futures.length; i++)
+                futures[i].get();
 
-                if (weightedEdges)
+            // Report the first error, if any, and determine the number of edges.
+            long nEdges = 0;
+            int lineNo = 0;
+            for (int i = 0; i < chunkParsers.length; i++)
+            {
+                if (chunkParsers[i].errorMessage != null)
+                    throw new IOException(chunkParsers[i].errorMessage + " (line " + (lineNo + chunkParsers[i].nLines) + ").");
+                lineNo += chunkParsers[i].nLines;
+                nEdges += chunkParsers[i].nEdges;
+                nNodes = Math.max(nNodes, chunkParsers[i].nNodes);
+            }
+
+            // Add the node identifiers of the chunks to the dictionary and
+            // translate the nodes of each chunk while the next chunk is added.
+            if (nodeDictionary != null)
+            {
+                for (int i = 0; i < chunkParsers.length; i++)
                 {
-                    double weight;
-                    try
-                    {
-                        weight = Double.parseDouble(columns[2]);
-                    }
-                    catch (NumberFormatException e)
-                    {
-                        throw new IOException("Edge weight must be a number (line " + lineNo + ").");
-                    }
-                    edgeWeights.append(weight);
+                    EdgeListChunkParser chunkParser = chunkParsers[i];
+                    int[] nodes = new int[chunkParser.nodeDictionary.getNNodes()];
+                    for (int j = 0; j < nodes.length; j++)
+                        nodes[j] = nodeDictionary.addNode(chunkParser.nodeDictionary, j);
+                    futures[i] = executorService.submit(() -> chunkParser.translateNodes(nodes));
                 }
+                for (int i = 0; i < futures.length; i++)
+                    futures[i].get();
+                nNodes = nodeDictionary.getNNodes();
+            }
 
-                line = reader.readLine();
+            // Concatenate the edges of the chunks, unless the edges have been
+            // parsed directly into the edge arrays.
+            if (edges[0] == null)
+            {
+                edges[0] = new LargeIntArray(nEdges);
+                edges[1] = new LargeIntArray(nEdges);
+                edgeWeights = weightedEdges ? new LargeDoubleArray(nEdges) : null;
+                long insertionPoint = 0;
+                for (int i = 0; i < chunkParsers.length; i++)
+                {
+                    long size = chunkParsers[i].nEdges;
+                    edges[0].updateFrom(chunkParsers[i].edges[0], 0, size, insertionPoint);
+                    edges[1].updateFrom(chunkParsers[i].edges[1], 0, size, insertionPoint);
+                    if (weightedEdges)
+                        edgeWeights.updateFrom(chunkParsers[i].edgeWeights, 0, size, insertionPoint);
+                    insertionPoint += size;
+                    chunkParsers[i] = null;
+                }
             }
+            if ((nodeDictionary != null) && sortedEdgeList)
+                Network.sortEdges(edges, edgeWeights);
         }
-        catch (FileNotFoundException e)
+        finally
+        {
+            executorService.shutdown();
+            fileChannel.close();
+        }
+
+        // Create network.
+        Network network;
+        if (weightedEdges)
+            network = new Network(nNodes, true, edges, edgeWeights, sortedEdgeList, false, nThreads > 1);
+        else
+            network = new Network(nNodes, true, edges, sortedEdgeList, false, nThreads > 1);
+        network.checkIntegrity(sortedEdgeList ? Network.INTEGRITY_CHECK_FULL : Network.INTEGRITY_CHECK_STRUCTURE);
+        return network;
+    }
+
+    /**
+     * Reads an edge list from a file and creates a network using a limited
+     * amount of memory.
+     *
+     * <p>
+     * Unlike {@link #readEdgeList(String filename, boolean weightedEdges,
+     * boolean sortedEdgeList)}, the edge list does not need to fit in memory.
+     * The file is parsed in chunks, and the edges are passed to an {@link
+     * ExternalMemoryNetworkBuilder}, which spills sorted runs of edges to
+     * temporary files. The resulting network is identical to the network
+     * created by {@code readEdgeList}. A file compressed using gzip is
+     * decompressed sequentially.
+     * </p>
+     *
+     * @param filename      Filename
+     * @param weightedEdges Indicates whether edges have weights
+     * @param maxMemory     Maximum amount of memory in bytes used for
+     *                      buffering edges
+     *
+     * @return Network
+     */
+    public static Network readEdgeListUsingExternalMemory(String filename, boolean weightedEdges, long maxMemory)
+    {
+        ExternalMemoryNetworkBuilder networkBuilder = new ExternalMemoryNetworkBuilder(weightedEdges, maxMemory, null);
+        FileChannel fileChannel = null;
+        try
+        {
+            fileChannel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+            GzipChunkReader chunkReader = isGzipFile(fileChannel) ? new GzipChunkReader(fileChannel, null, 1) : null;
+            long[] chunkBoundaries = (chunkReader == null) ? getEdgeListChunkBoundaries(fileChannel, (int)((fileChannel.size() + EXTERNAL_MEMORY_EDGE_LIST_CHUNK_SIZE - 1) / EXTERNAL_MEMORY_EDGE_LIST_CHUNK_SIZE)) : null;
+            int lineNo = 0;
+            for (int i = 0; ; i++)
+            {
+                ByteBuffer chunk;
+                if (chunkReader != null)
+                    chunk = chunkReader.nextChunk();
+                else
+                    chunk = (i < chunkBoundaries.length - 1) ? fileChannel.map(FileChannel.MapMode.READ_ONLY, chunkBoundaries[i], chunkBoundaries[i + 1] - chunkBoundaries[i]) : null;
+                if (chunk == null)
+                    break;
+                EdgeListChunkParser chunkParser = new EdgeListChunkParser(chunk, weightedEdges);
+                chunkParser.run();
+                if (chunkParser.errorMessage != null)
+                    throw new IOException(chunkParser.errorMessage + " (line " + (lineNo + chunkParser.nLines) + ").");
+                lineNo += chunkParser.nLines;
+                for (long j = 0; j < chunkParser.nEdges; j++)
+                    networkBuilder.addEdge(chunkParser.edges[0].get(j), chunkParser.edges[1].get(j), weightedEdges ? chunkParser.edgeWeights.get(j) : 1);
+            }
+        }
+        catch (NoSuchFileException e)
         {
             System.err.println("Error while reading edge list from file: File not found.");
             System.exit(-1);
@@ -110,12 +458,22 @@ public class FileIO
             System.err.println("Error while reading edge list from file: " + e.getMessage());
             System.exit(-1);
         }
+        catch (ExecutionException | InterruptedException e)
+        {
+            System.err.println("Error while reading edge list from file: " + e.getMessage());
+            System.exit(-1);
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println("Error while creating network: " + e.getMessage());
+            System.exit(-1);
+        }
         finally
         {
-            if (reader != null)
+            if (fileChannel != null)
                 try
                 {
-                    reader.close();
+                    fileChannel.close();
                 }
                 catch (IOException e)
                 {
@@ -128,10 +486,12 @@ public class FileIO
         Network network = null;
         try
         {
-            if (weightedEdges)
-                network = new Network(nNodes, true, edges, edgeWeights, sortedEdgeList, true);
-            else
-                network = new Network(nNodes, true, edges, sortedEdgeList, true);
+            network = networkBuilder.build(true, true);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Error while creating network: " + e.getMessage());
+            System.exit(-1);
         }
         catch (IllegalArgumentException e)
         {
@@ -150,13 +510,34 @@ public class FileIO
      * @return Clustering
      */
     public static Clustering readClustering(String filename, int nNodes)
+    {
+        return readClustering(filename, nNodes, null);
+    }
+
+    /**
+     * Reads a clustering in which nodes are represented by arbitrary
+     * identifiers from a file.
+     *
+     * <p>
+     * The identifiers are translated to nodes using {@code nodeDictionary}.
+     * If {@code nodeDictionary} is null, nodes must be represented by
+     * zero-index integer numbers.
+     * </p>
+     *
+     * @param filename       Filename
+     * @param nNodes         Number of nodes
+     * @param nodeDictionary Dictionary of node identifiers, or null
+     *
+     * @return Clustering
+     */
+    public static Clustering readClustering(String filename, int nNodes, NodeDictionary nodeDictionary)
     {
         int[] clusters = new int[nNodes];
         Arrays.fill(clusters, -1);
         BufferedReader reader = null;
         try
         {
-            reader = new BufferedReader(new FileReader(filename));
+            reader = createReader(filename);
             String line = reader.readLine();
             int lineNo = 0;
             while (line != null)
@@ -167,15 +548,18 @@ public class FileIO
                     throw new IOException("Incorrect number of columns (line " + lineNo + ").");
 
                 int node;
-                try
-                {
-                    node = Integer.parseUnsignedInt(columns[0]);
-                }
-                catch (NumberFormatException e)
-                {
-                    throw new IOException("Node must be represented by a zero-index integer number (line " + lineNo + ").");
-                }
-                if (node >= nNodes)
+                if (nodeDictionary != null)
+                    node = nodeDictionary.getNode(columns[0]);
+                else
+                    try
+                    {
+                        node = Integer.parseUnsignedInt(columns[0]);
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        throw new IOException("Node must be represented by a zero-index integer number (line " + lineNo + ").");
+                    }
+                if ((node < 0) || (node >= nNodes))
                     throw new IOException("Invalid node (line " + lineNo + ").");
                 int cluster;
                 try
@@ -229,14 +613,31 @@ public class FileIO
      * @param clustering Clustering
      */
     public static void writeClustering(String filename, Clustering clustering)
+    {
+        writeClustering(filename, clustering, null);
+    }
+
+    /**
+     * Writes a clustering to a file, representing nodes by their identifiers.
+     *
+     * <p>
+     * If {@code nodeDictionary} is null, nodes are represented by zero-index
+     * integer numbers.
+     * </p>
+     *
+     * @param filename       Filename
+     * @param clustering     Clustering
+     * @param nodeDictionary Dictionary of node identifiers, or null
+     */
+    public static void writeClustering(String filename, Clustering clustering, NodeDictionary nodeDictionary)
     {
         BufferedWriter writer = null;
         try
         {
-            writer = new BufferedWriter((filename == null) ? new OutputStreamWriter(System.out) : new FileWriter(filename));
+            writer = (filename == null) ? new BufferedWriter(new OutputStreamWriter(System.out)) : createWriter(filename);
             for (int i = 0; i < clustering.getNNodes(); i++)
             {
-                writer.write(i + COLUMN_SEPARATOR + clustering.getCluster(i));
+                writer.write(((nodeDictionary != null) ? nodeDictionary.getIdentifier(i) : Integer.toString(i)) + COLUMN_SEPARATOR + clustering.getCluster(i));
                 writer.newLine();
             }
         }
@@ -265,6 +666,117 @@ public class FileIO
         }
     }
 
+    /**
+     * Reads a dictionary of node identifiers from a file.
+     *
+     * <p>
+     * The file is expected to contain one identifier per line. The identifier
+     * on the first line is the identifier of node 0, and so on.
+     * </p>
+     *
+     * @param filename Filename
+     *
+     * @return Dictionary of node identifiers
+     *
+     * @see #writeNodeDictionary(String filename, NodeDictionary nodeDictionary)
+     */
+    public static NodeDictionary readNodeDictionary(String filename)
+    {
+        NodeDictionary nodeDictionary = new NodeDictionary();
+        BufferedReader reader = null;
+        try
+        {
+            reader = createReader(filename);
+            String line = reader.readLine();
+            int lineNo = 0;
+            while (line != null)
+            {
+                lineNo++;
+                if (line.isEmpty() || line.contains(COLUMN_SEPARATOR))
+                    throw new IOException("Invalid node identifier (line " + lineNo + ").");
+                if (nodeDictionary.addNode(line) != lineNo - 1)
+                    throw new IOException("Duplicate node identifier (line " + lineNo + ").");
+
+                line = reader.readLine();
+            }
+        }
+        catch (FileNotFoundException e)
+        {
+            System.err.println("Error while reading node dictionary from file: File not found.");
+            System.exit(-1);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Error while reading node dictionary from file: " + e.getMessage());
+            System.exit(-1);
+        }
+        finally
+        {
+            if (reader != null)
+                try
+                {
+                    reader.close();
+                }
+                catch (IOException e)
+                {
+                    System.err.println("Error while reading node dictionary from file: " + e.getMessage());
+                    System.exit(-1);
+                }
+        }
+
+        return nodeDictionary;
+    }
+
+    /**
+     * Writes a dictionary of node identifiers to a file.
+     *
+     * <p>
+     * The identifier of each node is written on a separate line, starting with
+     * node 0. The dictionary can be read using {@link
+     * #readNodeDictionary(String filename)}, so that the same nodes are
+     * represented by the same numbers when another edge list is read.
+     * </p>
+     *
+     * @param filename       Filename
+     * @param nodeDictionary Dictionary of node identifiers
+     */
+    public static void writeNodeDictionary(String filename, NodeDictionary nodeDictionary)
+    {
+        BufferedWriter writer = null;
+        try
+        {
+            writer = createWriter(filename);
+            for (int i = 0; i < nodeDictionary.getNNodes(); i++)
+            {
+                writer.write(nodeDictionary.getIdentifier(i));
+                writer.newLine();
+            }
+        }
+        catch (FileNotFoundException e)
+        {
+            System.err.println("Error while writing node dictionary to file: File not found.");
+            System.exit(-1);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Error while writing node dictionary to file: " + e.getMessage());
+            System.exit(-1);
+        }
+        finally
+        {
+            if (writer != null)
+                try
+                {
+                    writer.close();
+                }
+                catch (IOException e)
+                {
+                    System.err.println("Error while writing node dictionary to file: " + e.getMessage());
+                    System.exit(-1);
+                }
+        }
+    }
+
     /**
      * Reads a layout from a file.
      *
@@ -280,7 +792,7 @@ public class FileIO
         BufferedReader reader = null;
         try
         {
-            reader = new BufferedReader(new FileReader(filename));
+            reader = createReader(filename);
             String line = reader.readLine();
             int lineNo = 0;
             while (line != null)
@@ -361,7 +873,7 @@ public class FileIO
         BufferedWriter writer = null;
         try
         {
-            writer = new BufferedWriter((filename == null) ? new OutputStreamWriter(System.out) : new FileWriter(filename));
+            writer = (filename == null) ? new BufferedWriter(new OutputStreamWriter(System.out)) : createWriter(filename);
             for (int i = 0; i < layout.getNNodes(); i++)
             {
                 double[] coordinates = layout.getCoordinates(i);
@@ -394,7 +906,690 @@ public class FileIO
         }
     }
 
+    /**
+     * Splits an edge list file into chunks at line boundaries.
+     *
+     * <p>
+     * Each chunk starts at the beginning of a line. The number of chunks is at
+     * least {@code nChunks}, and chunks are not much larger than {@link
+     * #MAX_EDGE_LIST_CHUNK_SIZE}.
+     * </p>
+     *
+     * @param fileChannel File channel
+     * @param nChunks     Minimum number of chunks
+     *
+     * @return Boundaries of the chunks
+     *
+     * @throws IOException Could not read from the file channel
+     */
+    private static long[] getEdgeListChunkBoundaries(FileChannel fileChannel, int nChunks) throws IOException
+    {
+        long size = fileChannel.size();
+        nChunks = (int)Math.max(nChunks, (size + MAX_EDGE_LIST_CHUNK_SIZE - 1) / MAX_EDGE_LIST_CHUNK_SIZE);
+        long[] chunkBoundaries = new long[nChunks + 1];
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        for (int i = 1; i < nChunks; i++)
+        {
+            // Find the first line that starts at or after the nominal boundary.
+            long position = Math.max(chunkBoundaries[i - 1], size / nChunks * i);
+            chunkBoundaries[i] = size;
+            if (position > 0)
+            {
+                position--;
+                while (chunkBoundaries[i] == size)
+                {
+                    buffer.clear();
+                    int nBytes = fileChannel.read(buffer, position);
+                    if (nBytes < 0)
+                        break;
+                    for (int j = 0; j < nBytes; j++)
+                        if (buffer.get(j) == '\n')
+                        {
+                            chunkBoundaries[i] = position + j + 1;
+                            break;
+                        }
+                    position += nBytes;
+                }
+            }
+            else
+                chunkBoundaries[i] = 0;
+        }
+        chunkBoundaries[nChunks] = size;
+        return chunkBoundaries;
+    }
+
+    /**
+     * Indicates whether a file is compressed using gzip.
+     *
+     * @param fileChannel File channel
+     *
+     * @return Whether the file starts with the gzip magic number
+     *
+     * @throws IOException Could not read from the file channel
+     */
+    private static boolean isGzipFile(FileChannel fileChannel) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(2);
+        while (buffer.hasRemaining() && (fileChannel.read(buffer, buffer.position()) > 0))
+            ;
+        return (buffer.position() == 2) && (buffer.get(0) == (byte)0x1F) && (buffer.get(1) == (byte)0x8B);
+    }
+
+    /**
+     * Creates a reader for a file, decompressing the file if it is compressed
+     * using gzip.
+     *
+     * @param filename Filename
+     *
+     * @return Reader
+     *
+     * @throws IOException Could not open the file
+     */
+    private static BufferedReader createReader(String filename) throws IOException
+    {
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(filename), GZIP_BUFFER_SIZE);
+        try
+        {
+            inputStream.mark(2);
+            int b1 = inputStream.read();
+            int b2 = inputStream.read();
+            inputStream.reset();
+            if ((b1 == 0x1F) && (b2 == 0x8B))
+                inputStream = new GZIPInputStream(inputStream, GZIP_BUFFER_SIZE);
+        }
+        catch (IOException e)
+        {
+            inputStream.close();
+            throw e;
+        }
+        return new BufferedReader(new InputStreamReader(inputStream));
+    }
+
+    /**
+     * Creates a writer for a file, compressing the file using gzip if the
+     * filename ends with {@link #GZIP_FILENAME_EXTENSION}.
+     *
+     * @param filename Filename
+     *
+     * @return Writer
+     *
+     * @throws IOException Could not open the file
+     */
+    private static BufferedWriter createWriter(String filename) throws IOException
+    {
+        if (filename.endsWith(GZIP_FILENAME_EXTENSION))
+            return new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(filename), GZIP_BUFFER_SIZE)));
+        else
+            return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename)));
+    }
+
     private FileIO()
     {
     }
+
+    /**
+     * Reader for the decompressed data of a gzip file in chunks that end at
+     * line boundaries.
+     *
+     * <p>
+     * A gzip file consisting of a single member can only be decompressed
+     * sequentially. A file in the BGZF format, as created for instance by
+     * {@code bgzip}, consists of many members of at most 64 KB, and the size
+     * of each member is stored in its header. If an executor service is
+     * provided, the members of such a file are divided into batches, and the
+     * batches are decompressed in parallel.
+     * </p>
+     */
+    private static class GzipChunkReader
+    {
+        private FileChannel fileChannel;
+        private ExecutorService executorService;
+        private InputStream inputStream;
+        private long[] batchBoundaries;
+        private int nextBatch;
+        private int maxNBatchesInProgress;
+        private ArrayDeque<Future<byte[]>> batchFutures;
+        private byte[] remainder;
+
+        GzipChunkReader(FileChannel fileChannel, ExecutorService executorService, int nThreads) throws IOException
+        {
+            this.fileChannel = fileChannel;
+            this.executorService = executorService;
+            if (executorService != null)
+                batchBoundaries = getBgzfBatchBoundaries();
+            if (batchBoundaries != null)
+            {
+                maxNBatchesInProgress = 2 * nThreads;
+                batchFutures = new ArrayDeque<>();
+            }
+            else
+                inputStream = new GZIPInputStream(Channels.newInputStream(fileChannel.position(0)), GZIP_BUFFER_SIZE);
+            remainder = new byte[0];
+        }
+
+        /**
+         * Returns the next chunk of decompressed data. Each chunk, except
+         * possibly the last one, ends with a line feed.
+         *
+         * @return Chunk, or null if all data has been read
+         */
+        ByteBuffer nextChunk() throws IOException, ExecutionException, InterruptedException
+        {
+            while (true)
+            {
+                byte[] segment = nextSegment();
+                if (segment == null)
+                {
+                    if (remainder.length == 0)
+                        return null;
+                    ByteBuffer chunk = ByteBuffer.wrap(remainder);
+                    remainder = new byte[0];
+                    return chunk;
+                }
+
+                int i = segment.length - 1;
+                while ((i >= 0) && (segment[i] != '\n'))
+                    i--;
+                if (i < 0)
+                {
+                    remainder = Arrays.copyOf(remainder, remainder.length + segment.length);
+                    System.arraycopy(segment, 0, remainder, remainder.length - segment.length, segment.length);
+                }
+                else
+                {
+                    byte[] chunk = Arrays.copyOf(remainder, remainder.length + i + 1);
+                    System.arraycopy(segment, 0, chunk, remainder.length, i + 1);
+                    remainder = Arrays.copyOfRange(segment, i + 1, segment.length);
+                    return ByteBuffer.wrap(chunk);
+                }
+            }
+        }
+
+        /**
+         * Returns the next segment of decompressed data, which may end in the
+         * middle of a line.
+         */
+        private byte[] nextSegment() throws IOException, ExecutionException, InterruptedException
+        {
+            if (inputStream != null)
+            {
+                byte[] segment = new byte[GZIP_CHUNK_SIZE];
+                int n = 0;
+                int m;
+                while ((n < segment.length) && ((m = inputStream.read(segment, n, segment.length - n)) > 0))
+                    n += m;
+                return (n == 0) ? null : (n < segment.length) ? Arrays.copyOf(segment, n) : segment;
+            }
+
+            while ((nextBatch < batchBoundaries.length - 1) && (batchFutures.size() < maxNBatchesInProgress))
+            {
+                long from = batchBoundaries[nextBatch];
+                long to = batchBoundaries[nextBatch + 1];
+                batchFutures.add(executorService.submit(() -> decompressBatch(from, to)));
+                nextBatch++;
+            }
+            return batchFutures.isEmpty() ? null : batchFutures.poll().get();
+        }
+
+        private byte[] decompressBatch(long from, long to) throws IOException
+        {
+            ByteBuffer compressedData = ByteBuffer.allocate((int)(to - from));
+            while (compressedData.hasRemaining())
+                if (fileChannel.read(compressedData, from + compressedData.position()) < 0)
+                    throw new EOFException("Unexpected end of file.");
+
+            // A gzip input stream decompresses all consecutive members.
+            GZIPInputStream batchInputStream = new GZIPInputStream(new ByteArrayInputStream(compressedData.array()), GZIP_BUFFER_SIZE);
+            ByteArrayOutputStream decompressedData = new ByteArrayOutputStream(4 * compressedData.capacity());
+            byte[] buffer = new byte[GZIP_BUFFER_SIZE];
+            int n;
+            while ((n = batchInputStream.read(buffer)) > 0)
+                decompressedData.write(buffer, 0, n);
+            return decompressedData.toByteArray();
+        }
+
+        /**
+         * Determines the boundaries of batches of BGZF blocks by reading the
+         * header of each block.
+         *
+         * @return Boundaries of the batches, or null if the file is not in
+         * the BGZF format
+         */
+        private long[] getBgzfBatchBoundaries() throws IOException
+        {
+            long size = fileChannel.size();
+            long[] boundaries = new long[16];
+            int nBoundaries = 1;
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(18).order(ByteOrder.LITTLE_ENDIAN);
+            while (position < size)
+            {
+                header.clear();
+                while (header.hasRemaining() && (fileChannel.read(header, position + header.position()) > 0))
+                    ;
+                if (header.hasRemaining() || (header.get(0) != (byte)0x1F) || (header.get(1) != (byte)0x8B) || (header.get(2) != 8) || ((header.get(3) & 4) == 0) || (header.getShort(10) != 6) || (header.get(12) != 'B') || (header.get(13) != 'C') || (header.getShort(14) != 2))
+                    return null;
+                position += (header.getShort(16) & 0xFFFF) + 1;
+                if ((position - boundaries[nBoundaries - 1] >= BGZF_BATCH_SIZE) || (position >= size))
+                {
+                    if (nBoundaries == boundaries.length)
+                        boundaries = Arrays.copyOf(boundaries, 2 * boundaries.length);
+                    boundaries[nBoundaries] = position;
+                    nBoundaries++;
+                }
+            }
+            return (position == size) ? Arrays.copyOf(boundaries, nBoundaries) : null;
+        }
+    }
+
+    /**
+     * Parser for a chunk of an edge list file.
+     *
+     * <p>
+     * The chunk is parsed byte by byte. The columns of a line are identified
+     * and validated in the same way as {@code String.split} followed by {@code
+     * Integer.parseUnsignedInt} and {@code Double.parseDouble}. Node and edge
+     * weight values are parsed without creating strings, except for edge
+     * weights that cannot be parsed exactly using a fast path, such as numbers
+     * with more than 15 significant digits.
+     * </p>
+     *
+     * <p>
+     * If nodes are represented by arbitrary identifiers, the identifiers are
+     * added to a dictionary of the chunk. Integer identifiers are parsed
+     * without creating strings.
+     * </p>
+     *
+     * <p>
+     * The edges are stored either in arrays shared by all chunks, starting at
+     * a specified position (see {@link #setEdgeArrays(LargeIntArray[] edges,
+     * LargeDoubleArray edgeWeights, long firstEdge)}), or in arrays of the
+     * chunk itself. In the latter case, the lines in the chunk are counted
+     * before parsing, so that the arrays are allocated at their final size.
+     * </p>
+     */
+    private static class EdgeListChunkParser implements Runnable
+    {
+        /**
+         * Powers of ten that can be represented exactly as a double.
+         */
+        private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+        /**
+         * Maximum number of significant digits that can be parsed exactly
+         * using the fast path.
+         */
+        private static final int MAX_N_SIGNIFICANT_DIGITS = 15;
+
+        ByteBuffer buffer;
+        boolean weightedEdges;
+        LargeIntArray[] edges;
+        LargeDoubleArray edgeWeights;
+        long firstEdge;
+        long nEdges;
+        NodeDictionary nodeDictionary;
+        int nNodes;
+        int nLines;
+        String errorMessage;
+
+        private int[] columnStarts;
+        private int[] columnEnds;
+
+        EdgeListChunkParser(ByteBuffer buffer, boolean weightedEdges)
+        {
+            this(buffer, weightedEdges, false);
+        }
+
+        EdgeListChunkParser(ByteBuffer buffer, boolean weightedEdges, boolean nodeIdentifiers)
+        {
+            this.buffer = buffer;
+            this.weightedEdges = weightedEdges;
+            nodeDictionary = nodeIdentifiers ? new NodeDictionary() : null;
+            columnStarts = new int[3];
+            columnEnds = new int[3];
+        }
+
+        /**
+         * Sets the arrays in which the edges of the chunk are stored.
+         *
+         * @param edges       Edge arrays
+         * @param edgeWeights Edge weight array, or null
+         * @param firstEdge   Position of the first edge of the chunk
+         */
+        void setEdgeArrays(LargeIntArray[] edges, LargeDoubleArray edgeWeights, long firstEdge)
+        {
+            this.edges = edges;
+            this.edgeWeights = edgeWeights;
+            this.firstEdge = firstEdge;
+        }
+
+        /**
+         * Counts the lines in the chunk, which equals the number of edges if
+         * the chunk can be parsed.
+         *
+         * @return Number of lines
+         */
+        long countLines()
+        {
+            int end = buffer.limit();
+            long nLines = 0;
+            byte b = 0;
+            for (int i = 0; i < end; i++)
+            {
+                b = buffer.get(i);
+                if ((b == '\n') || ((b == '\r') && ((i + 1 == end) || (buffer.get(i + 1) != '\n'))))
+                    nLines++;
+            }
+            if ((end > 0) && (b != '\n') && (b != '\r'))
+                nLines++;
+            return nLines;
+        }
+
+        @Override
+        public void run()
+        {
+            if (edges == null)
+            {
+                long nLines = countLines();
+                setEdgeArrays(new LargeIntArray[] { new LargeIntArray(nLines), new LargeIntArray(nLines) }, weightedEdges ? new LargeDoubleArray(nLines) : null, 0);
+            }
+
+            int end = buffer.limit();
+            int lineStart = 0;
+            while (lineStart < end)
+            {
+                int lineEnd = lineStart;
+                byte b = 0;
+                while ((lineEnd < end) && ((b = buffer.get(lineEnd)) != '\n') && (b != '\r'))
+                    lineEnd++;
+                nLines++;
+
+                if (!parseLine(lineStart, lineEnd))
+                {
+                    buffer = null;
+                    return;
+                }
+
+                // Skip the line terminator, which is "\n", "\r", or "\r\n".
+                lineStart = lineEnd;
+                if (lineStart < end)
+                {
+                    lineStart++;
+                    if ((b == '\r') && (lineStart < end) && (buffer.get(lineStart) == '\n'))
+                        lineStart++;
+                }
+            }
+            buffer = null;
+        }
+
+        private boolean parseLine(int lineStart, int lineEnd)
+        {
+            // Identify the columns, ignoring trailing empty columns.
+            int nColumns = 0;
+            int nFields = 0;
+            int fieldStart = lineStart;
+            for (int i = lineStart; ; i++)
+                if ((i == lineEnd) || (buffer.get(i) == '\t'))
+                {
+                    if (nFields < columnStarts.length)
+                    {
+                        columnStarts[nFields] = fieldStart;
+                        columnEnds[nFields] = i;
+                    }
+                    nFields++;
+                    if (i > fieldStart)
+                        nColumns = nFields;
+                    if (i == lineEnd)
+                        break;
+                    fieldStart = i + 1;
+                }
+            if (nFields == 1)
+                nColumns = 1;
+            if ((!weightedEdges && ((nColumns < 2) || (nColumns > 3))) || (weightedEdges && (nColumns != 3)))
+            {
+                errorMessage = "Incorrect number of columns";
+                return false;
+            }
+
+            long node1, node2;
+            if (nodeDictionary != null)
+            {
+                node1 = parseNodeIdentifier(columnStarts[0], columnEnds[0]);
+                node2 = parseNodeIdentifier(columnStarts[1], columnEnds[1]);
+                if ((node1 < 0) || (node2 < 0))
+                {
+                    errorMessage = "Node identifier must not be empty";
+                    return false;
+                }
+            }
+            else
+            {
+                node1 = parseNode(columnStarts[0], columnEnds[0]);
+                node2 = parseNode(columnStarts[1], columnEnds[1]);
+                if ((node1 < 0) || (node2 < 0))
+                {
+                    errorMessage = "Node must be represented by a zero-index integer number";
+                    return false;
+                }
+            }
+            edges[0].set(firstEdge + nEdges, (int)node1);
+            edges[1].set(firstEdge + nEdges, (int)node2);
+            if ((int)node1 >= nNodes)
+                nNodes = (int)node1 + 1;
+            if ((int)node2 >= nNodes)
+                nNodes = (int)node2 + 1;
+
+            if (weightedEdges)
+            {
+                double weight;
+                try
+                {
+                    weight = parseEdgeWeight(columnStarts[2], columnEnds[2]);
+                }
+                catch (NumberFormatException e)
+                {
+                    errorMessage = "Edge weight must be a number";
+                    return false;
+                }
+                edgeWeights.set(firstEdge + nEdges, weight);
+            }
+            nEdges++;
+
+            return true;
+        }
+
+        /**
+         * Parses a node in the same way as {@code Integer.parseUnsignedInt}.
+         *
+         * @param start Start of the column, inclusive
+         * @param end   End of the column, exclusive
+         *
+         * @return Node as an unsigned 32-bit value, or -1 if the column does
+         * not represent a valid node
+         */
+        private long parseNode(int start, int end)
+        {
+            int i = start;
+            if ((i < end) && (buffer.get(i) == '+'))
+                i++;
+            if (i == end)
+                return -1;
+            long value = 0;
+            for (; i < end; i++)
+            {
+                byte b = buffer.get(i);
+                if ((b < '0') || (b > '9'))
+                {
+                    if (b >= 0)
+                        return -1;
+
+                    // Non-ASCII characters may represent digits.
+                    try
+                    {
+                        return Integer.toUnsignedLong(Integer.parseUnsignedInt(getString(start, end)));
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        return -1;
+                    }
+                }
+                value = 10 * value + (b - '0');
+                if (value > 0xFFFFFFFFL)
+                    return -1;
+            }
+            return value;
+        }
+
+        /**
+         * Parses a node identifier and adds it to the dictionary of the chunk.
+         *
+         * <p>
+         * Canonical decimal representations of integers with at most 18 digits
+         * are parsed directly. Other identifiers are added to the dictionary
+         * as strings, which the dictionary may still recognize as integers.
+         * </p>
+         *
+         * @param start Start of the column, inclusive
+         * @param end   End of the column, exclusive
+         *
+         * @return Node in the dictionary of the chunk, or -1 if the column is
+         * empty
+         */
+        private int parseNodeIdentifier(int start, int end)
+        {
+            if (start == end)
+                return -1;
+            int i = start;
+            boolean negative = (buffer.get(i) == '-');
+            if (negative)
+                i++;
+            if ((i < end) && (end - i <= 18) && ((buffer.get(i) != '0') || ((end - i == 1) && !negative)))
+            {
+                long value = 0;
+                byte b;
+                for (; (i < end) && ((b = buffer.get(i)) >= '0') && (b <= '9'); i++)
+                    value = 10 * value + (b - '0');
+                if (i == end)
+                    return nodeDictionary.addNode(negative ? -value : value);
+            }
+            return nodeDictionary.addNode(getString(start, end));
+        }
+
+        /**
+         * Replaces the nodes in the dictionary of the chunk by the
+         * corresponding nodes in another dictionary.
+         *
+         * @param nodes Node in the other dictionary for each node in the
+         *              dictionary of the chunk
+         */
+        void translateNodes(int[] nodes)
+        {
+            for (long i = firstEdge; i < firstEdge + nEdges; i++)
+            {
+                edges[0].set(i, nodes[edges[0].get(i)]);
+                edges[1].set(i, nodes[edges[1].get(i)]);
+            }
+            nodeDictionary = null;
+        }
+
+        /**
+         * Parses an edge weight in the same way as {@code Double.parseDouble}.
+         *
+         * <p>
+         * Decimal numbers with at most {@link #MAX_N_SIGNIFICANT_DIGITS}
+         * significant digits and a small enough exponent are parsed directly.
+         * In this case, both the significand and the power of ten can be
+         * represented exactly as a double, so a single multiplication or
+         * division yields the correctly rounded result. Other numbers are
+         * parsed using {@code Double.parseDouble}.
+         * </p>
+         *
+         * @param start Start of the column, inclusive
+         * @param end   End of the column, exclusive
+         *
+         * @return Edge weight
+         *
+         * @throws NumberFormatException The column does not represent a number
+         */
+        private double parseEdgeWeight(int start, int end) throws NumberFormatException
+        {
+            int i = start;
+            byte b = (i < end) ? buffer.get(i) : 0;
+            boolean negative = (b == '-');
+            if ((b == '-') || (b == '+'))
+                i++;
+
+            long significand = 0;
+            int nDigits = 0;
+            int nSignificantDigits = 0;
+            int exponent = 0;
+            for (; (i < end) && ((b = buffer.get(i)) >= '0') && (b <= '9'); i++)
+            {
+                nDigits++;
+                if ((significand > 0) || (b > '0'))
+                {
+                    nSignificantDigits++;
+                    if (nSignificantDigits <= MAX_N_SIGNIFICANT_DIGITS)
+                        significand = 10 * significand + (b - '0');
+                    else
+                        exponent++;
+                }
+            }
+            if ((i < end) && (buffer.get(i) == '.'))
+                for (i++; (i < end) && ((b = buffer.get(i)) >= '0') && (b <= '9'); i++)
+                {
+                    nDigits++;
+                    if ((significand > 0) || (b > '0'))
+                    {
+                        nSignificantDigits++;
+                        if (nSignificantDigits <= MAX_N_SIGNIFICANT_DIGITS)
+                        {
+                            significand = 10 * significand + (b - '0');
+                            exponent--;
+                        }
+                    }
+                    else
+                        exponent--;
+                }
+            if ((i < end) && (((b = buffer.get(i)) == 'e') || (b == 'E')) && (nDigits > 0))
+            {
+                i++;
+                b = (i < end) ? buffer.get(i) : 0;
+                boolean negativeExponent = (b == '-');
+                if ((b == '-') || (b == '+'))
+                    i++;
+                int explicitExponent = 0;
+                int nExponentDigits = 0;
+                for (; (i < end) && ((b = buffer.get(i)) >= '0') && (b <= '9'); i++)
+                {
+                    nExponentDigits++;
+                    if (explicitExponent < 10000)
+                        explicitExponent = 10 * explicitExponent + (b - '0');
+                }
+                if (nExponentDigits == 0)
+                    nDigits = 0;
+                exponent += negativeExponent ? -explicitExponent : explicitExponent;
+            }
+
+            // Use Double.parseDouble if the fast path cannot be applied.
+            if ((i < end) || (nDigits == 0) || (nSignificantDigits > MAX_N_SIGNIFICANT_DIGITS) || ((significand > 0) && ((exponent < -22) || (exponent > 22))))
+                return Double.parseDouble(getString(start, end));
+
+            double value = (double)significand;
+            if ((significand > 0) && (exponent > 0))
+                value *= POWERS_OF_TEN[exponent];
+            else if ((significand > 0) && (exponent < 0))
+                value /= POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+
+        private String getString(int start, int end)
+        {
+            byte[] bytes = new byte[end - start];
+            ByteBuffer duplicateBuffer = buffer.duplicate();
+            duplicateBuffer.position(start);
+            duplicateBuffer.get(bytes);
+            return new String(bytes, Charset.defaultCharset());
+        }
+    }
 }
@@ -0,0 +1,285 @@
+package nl.cwts.networkanalysis.run;
+
+import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Dictionary that maps node identifiers to zero-index integer numbers.
+ *
+ * <p>
+ * A node identifier is either a 64-bit integer, such as a publication ID, or
+ * an arbitrary string, such as a DOI. Nodes are numbered in the order in which
+ * their identifiers are added to the dictionary. A string that is the
+ * canonical decimal representation of a 64-bit integer (without a plus sign or
+ * leading zeros) is treated as the corresponding integer, so that for
+ * instance the identifiers {@code "42"} and {@code 42} refer to the same node,
+ * whereas {@code "042"} refers to a different node.
+ * </p>
+ *
+ * <p>
+ * Integer identifiers are stored as primitive values and are looked up using
+ * a {@link Long2IntOpenHashMap}. String identifiers are looked up using an
+ * {@link Object2IntOpenHashMap}. Each string identifier is stored only once.
+ * The number of nodes is limited to {@link #MAX_N_NODES}.
+ * </p>
+ *
+ * @author Ludo Waltman
+ * @author Nees Jan van Eck
+ * @author Vincent Traag
+ */
+public final class NodeDictionary
+{
+    /**
+     * Maximum number of nodes.
+     *
+     * <p>
+     * A hash table with the default load factor of 0.75 holds at most 0.75
+     * times 2^30 keys.
+     * </p>
+     */
+    public static final int MAX_N_NODES = (int)(Hash.DEFAULT_LOAD_FACTOR * (1 << 30));
+
+    /**
+     * Initial number of nodes for which memory is allocated.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Number of nodes.
+     */
+    private int nNodes;
+
+    /**
+     * Identifier of each node. For a node with a string identifier, this is
+     * the index of the string in {@link #stringIdentifiers}.
+     */
+    private long[] identifiers;
+
+    /**
+     * Indicates for each node whether the node has a string identifier.
+     *
+     * <p>
+     * If no node has a string identifier, this array is null.
+     * </p>
+     */
+    private boolean[] hasStringIdentifier;
+
+    /**
+     * String identifiers.
+     */
+    private String[] stringIdentifiers;
+
+    /**
+     * Number of string identifiers.
+     */
+    private int nStringIdentifiers;
+
+    /**
+     * Node with each integer identifier.
+     */
+    private Long2IntOpenHashMap integerIdentifierNodes;
+
+    /**
+     * Node with each string identifier.
+     */
+    private Object2IntOpenHashMap<String> stringIdentifierNodes;
+
+    /**
+     * Constructs an empty dictionary.
+     */
+    public NodeDictionary()
+    {
+        identifiers = new long[INITIAL_CAPACITY];
+        integerIdentifierNodes = new Long2IntOpenHashMap();
+        integerIdentifierNodes.defaultReturnValue(-1);
+        stringIdentifierNodes = new Object2IntOpenHashMap<String>();
+        stringIdentifierNodes.defaultReturnValue(-1);
+    }
+
+    /**
+     * Returns the number of nodes.
+     *
+     * @return Number of nodes
+     */
+    public int getNNodes()
+    {
+        return nNodes;
+    }
+
+    /**
+     * Returns the node with an integer identifier.
+     *
+     * @param identifier Identifier
+     *
+     * @return Node, or -1 if the identifier is not in the dictionary
+     */
+    public int getNode(long identifier)
+    {
+        return integerIdentifierNodes.get(identifier);
+    }
+
+    /**
+     * Returns the node with a string identifier.
+     *
+     * @param identifier Identifier
+     *
+     * @return Node, or -1 if the identifier is not in the dictionary
+     */
+    public int getNode(String identifier)
+    {
+        if (isIntegerIdentifier(identifier))
+            return getNode(Long.parseLong(identifier));
+
+        return stringIdentifierNodes.getInt(identifier);
+    }
+
+    /**
+     * Returns the identifier of a node.
+     *
+     * @param node Node
+     *
+     * @return Identifier
+     */
+    public String getIdentifier(int node)
+    {
+        return ((hasStringIdentifier != null) && hasStringIdentifier[node]) ? stringIdentifiers[(int)identifiers[node]] : Long.toString(identifiers[node]);
+    }
+
+    /**
+     * Adds a node with an integer identifier, unless the identifier is already
+     * in the dictionary.
+     *
+     * @param identifier Identifier
+     *
+     * @return Node
+     *
+     * @throws IllegalStateException The number of nodes would exceed {@link
+     *                               #MAX_N_NODES}
+     */
+    public int addNode(long identifier) throws IllegalStateException
+    {
+        int node;
+
+        node = integerIdentifierNodes.get(identifier);
+        if (node < 0)
+        {
+            ensureCapacityHelper();
+            node = nNodes;
+            identifiers[node] = identifier;
+            integerIdentifierNodes.put(identifier, node);
+            nNodes++;
+        }
+        return node;
+    }
+
+    /**
+     * Adds a node with a string identifier, unless the identifier is already
+     * in the dictionary.
+     *
+     * @param identifier Identifier
+     *
+     * @return Node
+     *
+     * @throws IllegalStateException The number of nodes would exceed {@link
+     *                               #MAX_N_NODES}
+     */
+    public int addNode(String identifier) throws IllegalStateException
+    {
+        int node;
+
+        if (isIntegerIdentifier(identifier))
+            return addNode(Long.parseLong(identifier));
+
+        node = stringIdentifierNodes.getInt(identifier);
+        if (node < 0)
+        {
+            ensureCapacityHelper();
+            if (hasStringIdentifier == null)
+                hasStringIdentifier = new boolean[identifiers.length];
+            if (stringIdentifiers == null)
+                stringIdentifiers = new String[INITIAL_CAPACITY];
+            else if (nStringIdentifiers == stringIdentifiers.length)
+                stringIdentifiers = Arrays.copyOf(stringIdentifiers, (int)Math.min(2L * stringIdentifiers.length, MAX_N_NODES));
+            node = nNodes;
+            stringIdentifiers[nStringIdentifiers] = identifier;
+            identifiers[node] = nStringIdentifiers;
+            hasStringIdentifier[node] = true;
+            nStringIdentifiers++;
+            stringIdentifierNodes.put(identifier, node);
+            nNodes++;
+        }
+        return node;
+    }
+
+    /**
+     * Adds a node with the same identifier as a node in another dictionary,
+     * unless the identifier is already in this dictionary.
+     *
+     * @param nodeDictionary Other dictionary
+     * @param node           Node in the other dictionary
+     *
+     * @return Node in this dictionary
+     */
+    int addNode(NodeDictionary nodeDictionary, int node)
+    {
+        if ((nodeDictionary.hasStringIdentifier != null) && nodeDictionary.hasStringIdentifier[node])
+            return addNode(nodeDictionary.stringIdentifiers[(int)nodeDictionary.identifiers[node]]);
+        else
+            return addNode(nodeDictionary.identifiers[node]);
+    }
+
+    /**
+     * Indicates whether a string is the canonical decimal representation of a
+     * 64-bit integer.
+     *
+     * @param identifier Identifier
+     *
+     * @return Whether the identifier represents a 64-bit integer
+     */
+    static boolean isIntegerIdentifier(String identifier)
+    {
+        int i, n;
+        char c;
+
+        n = identifier.length();
+        i = ((n > 1) && (identifier.charAt(0) == '-')) ? 1 : 0;
+        if ((n == i) || (n - i > 19) || ((identifier.charAt(i) == '0') && (n > 1)))
+            return false;
+        for (; i < n; i++)
+        {
+            c = identifier.charAt(i);
+            if ((c < '0') || (c > '9'))
+                return false;
+        }
+        if (n - ((identifier.charAt(0) == '-') ? 1 : 0) < 19)
+            return true;
+        try
+        {
+            Long.parseLong(identifier);
+            return true;
+        }
+        catch (NumberFormatException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Ensures that there is room for one more node.
+     */
+    private void ensureCapacityHelper()
+    {
+        if (nNodes == MAX_N_NODES)
+            throw new IllegalStateException("Number of nodes must not exceed " + MAX_N_NODES + ".");
+
+        if (nNodes == identifiers.length)
+        {
+            identifiers = Arrays.copyOf(identifiers, (int)Math.min(2L * identifiers.length, MAX_N_NODES));
+            if (hasStringIdentifier != null)
+                hasStringIdentifier = Arrays.copyOf(hasStringIdentifier, identifiers.length);
+        }
+    }
+}
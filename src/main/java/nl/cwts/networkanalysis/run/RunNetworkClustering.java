@@ -1,9 +1,29 @@
 package nl.cwts.networkanalysis.run;
 
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.HashSet;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
 
 import nl.cwts.networkanalysis.CPMClusteringAlgorithm;
+import nl.cwts.networkanalysis.CancellationToken;
 import nl.cwts.networkanalysis.Clustering;
+import nl.cwts.networkanalysis.FastLocalMovingAlgorithm;
 import nl.cwts.networkanalysis.IterativeCPMClusteringAlgorithm;
 import nl.cwts.networkanalysis.LeidenAlgorithm;
 import nl.cwts.networkanalysis.LouvainAlgorithm;
@@ -36,6 +56,13 @@ public final class RunNetworkClustering
     public static final int ASSOCIATION_STRENGTH = 1;
     public static final int FRACTIONALIZATION = 2;
 
+    /**
+     * Node order IDs.
+     */
+    public static final int ORIGINAL_NODE_ORDER = 0;
+    public static final int DEGREE_NODE_ORDER = 1;
+    public static final int RCM_NODE_ORDER = 2;
+
     /**
      * Clustering algorithm IDs.
      */
@@ -52,6 +79,11 @@ public final class RunNetworkClustering
      */
     public static final String[] NORMALIZATION_NAMES = { "none", "AssociationStrength", "Fractionalization" };
 
+    /**
+     * Node order names.
+     */
+    public static final String[] NODE_ORDER_NAMES = { "none", "Degree", "RCM" };
+
     /**
      * Clustering algorithm names.
      */
@@ -67,6 +99,11 @@ public final class RunNetworkClustering
      */
     public static final int DEFAULT_NORMALIZATION = NO_NORMALIZATION;
 
+    /**
+     * Default node order.
+     */
+    public static final int DEFAULT_NODE_ORDER = ORIGINAL_NODE_ORDER;
+
     /**
      * Default clustering algorithm.
      */
@@ -87,6 +124,11 @@ public final class RunNetworkClustering
      */
     public static final int DEFAULT_N_RANDOM_STARTS = 1;
 
+    /**
+     * Default number of threads used to run random starts.
+     */
+    public static final int DEFAULT_N_THREADS = 1;
+
     /**
      * Default number of iterations.
      */
@@ -97,6 +139,12 @@ public final class RunNetworkClustering
      */
     public static final double DEFAULT_RANDOMNESS = LeidenAlgorithm.DEFAULT_RANDOMNESS;
 
+    /**
+     * Type of the notifications sent by garbage collectors at the end of a
+     * garbage collection.
+     */
+    private static final String GARBAGE_COLLECTION_NOTIFICATION = "com.sun.management.gc.notification";
+
     /**
      * Description text.
      */
@@ -115,10 +163,14 @@ public final class RunNetworkClustering
           + "Leiden or the Louvain algorithm.\n"
           + "\n"
           + "The file in <filename> is expected to contain a tab-separated edge list\n"
-          + "(without a header line). Nodes are represented by zero-index integer numbers.\n"
+          + "(without a header line). Nodes are represented by zero-index integer numbers,\n"
+          + "unless the --node-identifiers option is used.\n"
           + "Only undirected networks are supported. Each edge should be included only once\n"
           + "in the file.\n"
           + "\n"
+          + "Input files compressed using gzip are decompressed automatically. Output files\n"
+          + "whose name ends with .gz are compressed using gzip.\n"
+          + "\n"
           + "Options:\n"
           + "-q --quality-function {" + QUALITY_FUNCTION_NAMES[CPM] + "|" + QUALITY_FUNCTION_NAMES[MODULARITY] + "} (default: " + QUALITY_FUNCTION_NAMES[DEFAULT_QUALITY_FUNCTION] + ")\n"
           + "    Quality function to be optimized. Either the CPM (constant Potts model) or\n"
@@ -134,12 +186,28 @@ public final class RunNetworkClustering
           + "    Louvain algorithm can be used.\n"
           + "-s --random-starts <random starts> (default: " + DEFAULT_N_RANDOM_STARTS + ")\n"
           + "    Number of random starts of the algorithm.\n"
+          + "--threads <threads> (default: " + DEFAULT_N_THREADS + ")\n"
+          + "    Number of threads used to run random starts in parallel. Each random start\n"
+          + "    has its own random number generator, whose seed is derived from --seed, so\n"
+          + "    the final clustering does not depend on the number of threads.\n"
           + "-i --iterations <iterations> (default: " + DEFAULT_N_ITERATIONS + ")\n"
           + "    Number of iterations of the algorithm.\n"
           + "--randomness <randomness> (default: " + DEFAULT_RANDOMNESS + ")\n"
           + "    Randomness parameter of the Leiden algorithm.\n"
+          + "--parallel-local-moving\n"
+          + "    Move nodes in parallel in the local moving phase of the Leiden algorithm.\n"
+          + "    This speeds up the algorithm for large networks, but the results depend on\n"
+          + "    the scheduling of the threads and can no longer be reproduced using --seed.\n"
           + "--seed <seed> (default: random)\n"
           + "    Seed of the random number generator.\n"
+          + "--time-limit <time limit> (default: no time limit)\n"
+          + "    Maximum time in seconds for running the algorithm. When the time limit has\n"
+          + "    been reached, the algorithm stops and the best clustering found so far is\n"
+          + "    used as the final clustering.\n"
+          + "--max-memory <max. memory> (default: no memory limit)\n"
+          + "    Maximum memory in megabytes for running the algorithm. When the total heap\n"
+          + "    memory in use after a garbage collection exceeds this amount, the algorithm\n"
+          + "    stops and the best clustering found so far is used as the final clustering.\n"
           + "-w --weighted-edges\n"
           + "    Indicates that the edge list file has a third column containing edge\n"
           + "    weights.\n"
@@ -147,6 +215,25 @@ public final class RunNetworkClustering
           + "    Indicates that the edge list file is sorted. The file should be sorted based\n"
           + "    on the nodes in the first column, followed by the nodes in the second\n"
           + "    column. Each edge should be included in both directions in the file.\n"
+          + "--node-order {" + NODE_ORDER_NAMES[ORIGINAL_NODE_ORDER] + "|" + NODE_ORDER_NAMES[DEGREE_NODE_ORDER] + "|" + NODE_ORDER_NAMES[RCM_NODE_ORDER] + "} (default: " + NODE_ORDER_NAMES[DEFAULT_NODE_ORDER] + ")\n"
+          + "    Order in which nodes are stored while running the algorithm. Nodes can be\n"
+          + "    ordered by decreasing number of neighbors (" + NODE_ORDER_NAMES[DEGREE_NODE_ORDER] + ") or using the reverse\n"
+          + "    Cuthill-McKee algorithm (" + NODE_ORDER_NAMES[RCM_NODE_ORDER] + "). Reordering nodes can speed up the\n"
+          + "    algorithm for large networks. The output uses the original node numbers.\n"
+          + "--node-identifiers\n"
+          + "    Indicates that nodes in the edge list file are represented by arbitrary\n"
+          + "    identifiers, for instance 64-bit integer numbers or strings. The identifiers\n"
+          + "    are mapped to zero-index integer numbers, in the order in which they first\n"
+          + "    appear in the file. Nodes in the initial and the final clustering are\n"
+          + "    represented by their identifiers.\n"
+          + "--input-node-dictionary <filename> (default: empty dictionary)\n"
+          + "    Read the mapping of node identifiers to zero-index integer numbers from the\n"
+          + "    specified file. The file is expected to contain one identifier per line,\n"
+          + "    starting with the identifier of node 0. Implies --node-identifiers.\n"
+          + "--output-node-dictionary <filename> (default: none)\n"
+          + "    Write the mapping of node identifiers to zero-index integer numbers to the\n"
+          + "    specified file, so that it can be reused using --input-node-dictionary.\n"
+          + "    Implies --node-identifiers.\n"
           + "--input-clustering <filename> (default: singleton clustering)\n"
           + "    Read the initial clustering from the specified file. The file is expected to\n"
           + "    contain two tab-separated columns (without a header line), first a column of\n"
@@ -176,17 +263,25 @@ public final class RunNetworkClustering
 
         boolean useModularity = (DEFAULT_QUALITY_FUNCTION == MODULARITY);
         int normalization = DEFAULT_NORMALIZATION;
+        int nodeOrderMethod = DEFAULT_NODE_ORDER;
         double resolution = DEFAULT_RESOLUTION;
         int minClusterSize = DEFAULT_MIN_CLUSTER_SIZE;
         boolean useLouvain = (DEFAULT_ALGORITHM == LOUVAIN);
         int nRandomStarts = DEFAULT_N_RANDOM_STARTS;
+        int nThreads = DEFAULT_N_THREADS;
         int nIterations = DEFAULT_N_ITERATIONS;
         double randomness = DEFAULT_RANDOMNESS;
+        boolean parallelLocalMoving = false;
+        double timeLimit = 0;
+        long maxMemory = 0;
 
         long seed = 0;
         boolean useSeed = false;
         boolean weightedEdges = false;
         boolean sortedEdgeList = false;
+        boolean nodeIdentifiers = false;
+        String inputNodeDictionaryFilename = null;
+        String outputNodeDictionaryFilename = null;
         String initialClusteringFilename = null;
         String finalClusteringFilename = null;
         String edgeListFilename = null;
@@ -271,6 +366,22 @@ public final class RunNetworkClustering
                     }
                     argIndex += 2;
                 }
+                else if (arg.equals("--threads"))
+                {
+                    try
+                    {
+                        if ((argIndex + 1) >= args.length)
+                            throw new NumberFormatException();
+                        nThreads = Integer.parseInt(args[argIndex + 1]);
+                        if (nThreads <= 0)
+                            throw new NumberFormatException();
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        throw new IllegalArgumentException("Value must be a positive integer number.");
+                    }
+                    argIndex += 2;
+                }
                 else if (arg.equals("-i") || arg.equals("--iterations"))
                 {
                     try
@@ -303,6 +414,11 @@ public final class RunNetworkClustering
                     }
                     argIndex += 2;
                 }
+                else if (arg.equals("--parallel-local-moving"))
+                {
+                    parallelLocalMoving = true;
+                    argIndex++;
+                }
                 else if (arg.equals("--seed"))
                 {
                     try
@@ -318,6 +434,38 @@ public final class RunNetworkClustering
                     useSeed = true;
                     argIndex += 2;
                 }
+                else if (arg.equals("--time-limit"))
+                {
+                    try
+                    {
+                        if ((argIndex + 1) >= args.length)
+                            throw new NumberFormatException();
+                        timeLimit = Double.parseDouble(args[argIndex + 1]);
+                        if (!(timeLimit > 0))
+                            throw new NumberFormatException();
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        throw new IllegalArgumentException("Value must be a positive number.");
+                    }
+                    argIndex += 2;
+                }
+                else if (arg.equals("--max-memory"))
+                {
+                    try
+                    {
+                        if ((argIndex + 1) >= args.length)
+                            throw new NumberFormatException();
+                        maxMemory = Long.parseLong(args[argIndex + 1]);
+                        if (maxMemory <= 0)
+                            throw new NumberFormatException();
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        throw new IllegalArgumentException("Value must be a positive integer number.");
+                    }
+                    argIndex += 2;
+                }
                 else if (arg.equals("-w") || arg.equals("--weighted-edges"))
                 {
                     weightedEdges = true;
@@ -328,6 +476,39 @@ public final class RunNetworkClustering
                     sortedEdgeList = true;
                     argIndex++;
                 }
+                else if (arg.equals("--node-order"))
+                {
+                    if (((argIndex + 1) >= args.length) || (!args[argIndex + 1].equals(NODE_ORDER_NAMES[ORIGINAL_NODE_ORDER]) && !args[argIndex + 1].equals(NODE_ORDER_NAMES[DEGREE_NODE_ORDER]) && !args[argIndex + 1].equals(NODE_ORDER_NAMES[RCM_NODE_ORDER])))
+                        throw new IllegalArgumentException("Value must be '" + NODE_ORDER_NAMES[ORIGINAL_NODE_ORDER] + "', '" + NODE_ORDER_NAMES[DEGREE_NODE_ORDER] + "', or '" + NODE_ORDER_NAMES[RCM_NODE_ORDER] + "'.");
+                    if (args[argIndex + 1].equals(NODE_ORDER_NAMES[ORIGINAL_NODE_ORDER]))
+                        nodeOrderMethod = ORIGINAL_NODE_ORDER;
+                    else if (args[argIndex + 1].equals(NODE_ORDER_NAMES[DEGREE_NODE_ORDER]))
+                        nodeOrderMethod = DEGREE_NODE_ORDER;
+                    else if (args[argIndex + 1].equals(NODE_ORDER_NAMES[RCM_NODE_ORDER]))
+                        nodeOrderMethod = RCM_NODE_ORDER;
+                    argIndex += 2;
+                }
+                else if (arg.equals("--node-identifiers"))
+                {
+                    nodeIdentifiers = true;
+                    argIndex++;
+                }
+                else if (arg.equals("--input-node-dictionary"))
+                {
+                    if ((argIndex + 1) >= args.length)
+                        throw new IllegalArgumentException("Missing value.");
+                    inputNodeDictionaryFilename = args[argIndex + 1];
+                    nodeIdentifiers = true;
+                    argIndex += 2;
+                }
+                else if (arg.equals("--output-node-dictionary"))
+                {
+                    if ((argIndex + 1) >= args.length)
+                        throw new IllegalArgumentException("Missing value.");
+                    outputNodeDictionaryFilename = args[argIndex + 1];
+                    nodeIdentifiers = true;
+                    argIndex += 2;
+                }
                 else if (arg.equals("--input-clustering"))
                 {
                     if ((argIndex + 1) >= args.length)
@@ -358,19 +539,37 @@ public final class RunNetworkClustering
         }
         edgeListFilename = args[argIndex];
 
+        // Read node dictionary from file.
+        NodeDictionary nodeDictionary = null;
+        if (inputNodeDictionaryFilename != null)
+        {
+            System.out.println("Reading node dictionary from '" + inputNodeDictionaryFilename + "'.");
+            nodeDictionary = FileIO.readNodeDictionary(inputNodeDictionaryFilename);
+            System.out.println("Node dictionary consists of " + nodeDictionary.getNNodes() + " nodes.");
+        }
+        else if (nodeIdentifiers)
+            nodeDictionary = new NodeDictionary();
+
         // Read edge list from file.
         System.out.println("Reading " + (sortedEdgeList ? "sorted " : "") + "edge list from '" + edgeListFilename + "'.");
         long startTimeEdgeListFile = System.currentTimeMillis();
-        Network network = FileIO.readEdgeList(edgeListFilename, weightedEdges, sortedEdgeList);
+        Network network = FileIO.readEdgeList(edgeListFilename, weightedEdges, sortedEdgeList, nodeDictionary);
         System.out.println("Reading " + (sortedEdgeList ? "sorted " : "") + "edge list took " + (System.currentTimeMillis() - startTimeEdgeListFile) / 1000 + "s.");
         System.out.println("Network consists of " + network.getNNodes() + " nodes and " + network.getNEdges() + " edges" + (weightedEdges ? " with a total edge weight of " + network.getTotalEdgeWeight() : "") + ".");
 
+        // Write node dictionary to file.
+        if (outputNodeDictionaryFilename != null)
+        {
+            System.out.println("Writing node dictionary to '" + outputNodeDictionaryFilename + "'.");
+            FileIO.writeNodeDictionary(outputNodeDictionaryFilename, nodeDictionary);
+        }
+
         // Read initial clustering from file.
         Clustering initialClustering = null;
         if (initialClusteringFilename != null)
         {
             System.out.println("Reading initial clustering from '" + initialClusteringFilename + "'.");
-            initialClustering = FileIO.readClustering(initialClusteringFilename, network.getNNodes());
+            initialClustering = FileIO.readClustering(initialClusteringFilename, network.getNNodes(), nodeDictionary);
             System.out.println("Initial clustering consists of " + initialClustering.getNClusters() + " clusters.");
         }
         else
@@ -379,6 +578,18 @@ public final class RunNetworkClustering
             initialClustering = new Clustering(network.getNNodes());
         }
 
+        // Reorder nodes.
+        int[] nodeOrder = null;
+        if (nodeOrderMethod != ORIGINAL_NODE_ORDER)
+        {
+            System.out.println("Reordering nodes using " + NODE_ORDER_NAMES[nodeOrderMethod] + " node order.");
+            long startTimeNodeOrder = System.currentTimeMillis();
+            nodeOrder = (nodeOrderMethod == DEGREE_NODE_ORDER) ? network.calcNodeOrderByDegree() : network.calcNodeOrderUsingReverseCuthillMcKee();
+            network = network.createNetworkWithNodeOrder(nodeOrder);
+            initialClustering = initialClustering.createClusteringWithNodeOrder(nodeOrder);
+            System.out.println("Reordering nodes took " + (System.currentTimeMillis() - startTimeNodeOrder) / 1000 + "s.");
+        }
+
         // Run algorithm for network clustering.
         System.out.println("Running " + (useLouvain ? ALGORITHM_NAMES[LOUVAIN] : ALGORITHM_NAMES[LEIDEN]) + " algorithm.");
         System.out.println("Quality function:             " + (useModularity ? QUALITY_FUNCTION_NAMES[MODULARITY] : QUALITY_FUNCTION_NAMES[CPM]));
@@ -387,41 +598,88 @@ public final class RunNetworkClustering
         System.out.println("Resolution parameter:         " + resolution);
         System.out.println("Minimum cluster size:         " + minClusterSize);
         System.out.println("Number of random starts:      " + nRandomStarts);
+        if (nRandomStarts > 1)
+            System.out.println("Number of threads:            " + Math.min(nThreads, nRandomStarts));
         System.out.println("Number of iterations:         " + nIterations);
         if (!useLouvain)
             System.out.println("Randomness parameter:         " + randomness);
         System.out.println("Random number generator seed: " + (useSeed ? seed : "random"));
+        if (timeLimit > 0)
+            System.out.println("Time limit:                   " + timeLimit + "s");
+        if (maxMemory > 0)
+            System.out.println("Maximum memory:               " + maxMemory + "MB");
 
         long startTimeAlgorithm = System.currentTimeMillis();
+        CancellationToken cancellationToken = null;
+        NotificationListener maxMemoryListener = null;
+        if ((timeLimit > 0) || (maxMemory > 0))
+        {
+            cancellationToken = (timeLimit > 0) ? new CancellationToken((long)(1000 * timeLimit)) : new CancellationToken();
+            if (maxMemory > 0)
+                maxMemoryListener = addMaxMemoryListener(cancellationToken, maxMemory << 20);
+        }
         if (!useModularity)
         {
             if (normalization == NO_NORMALIZATION)
                 network = network.createNetworkWithoutNodeWeights();
             else if (normalization == ASSOCIATION_STRENGTH)
-                network = network.createNormalizedNetworkUsingAssociationStrength();
+                network = network.createNormalizedNetworkUsingAssociationStrength(true);
             else if (normalization == FRACTIONALIZATION)
-                network = network.createNormalizedNetworkUsingFractionalization();
+                network = network.createNormalizedNetworkUsingFractionalization(true);
         }
         double resolution2 = useModularity ? (resolution / (2 * network.getTotalEdgeWeight() + network.getTotalEdgeWeightSelfLinks())) : resolution;
         Random random = useSeed ? new Random(seed) : new Random();
-        IterativeCPMClusteringAlgorithm algorithm = useLouvain ? new LouvainAlgorithm(resolution2, nIterations, random) : new LeidenAlgorithm(resolution2, nIterations, randomness, random);
+        long[] seeds = new long[nRandomStarts];
+        for (int i = 0; i < nRandomStarts; i++)
+            seeds[i] = random.nextLong();
+        IterativeCPMClusteringAlgorithm algorithm = createAlgorithm(useLouvain, resolution2, nIterations, randomness, parallelLocalMoving, cancellationToken, random);
+
+        /*
+         * Run the random starts, each using an algorithm with its own random
+         * number generator. The results of the random starts are processed in
+         * the order in which the random starts finish, and only the best
+         * clustering found so far is kept. If several random starts yield the
+         * same quality, the clustering of the first of these random starts is
+         * kept.
+         */
         Clustering finalClustering = null;
         double maxQuality = Double.NEGATIVE_INFINITY;
-        for (int i = 0; i < nRandomStarts; i++)
+        int bestRandomStart = -1;
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(nThreads, nRandomStarts));
+        try
         {
-            Clustering clustering = initialClustering.clone();
-            algorithm.improveClustering(network, clustering);
-            double quality = algorithm.calcQuality(network, clustering);
-            if (nRandomStarts > 1)
-                System.out.println("Quality function in random start " + (i + 1) + " equals " + quality + ".");
-            if (quality > maxQuality)
+            CompletionService<RandomStartResult> completionService = new ExecutorCompletionService<RandomStartResult>(executorService);
+            for (int i = 0; i < nRandomStarts; i++)
+                completionService.submit(createRandomStart(i, createAlgorithm(useLouvain, resolution2, nIterations, randomness, parallelLocalMoving, cancellationToken, new Random(seeds[i])), network, initialClustering));
+            for (int i = 0; i < nRandomStarts; i++)
             {
-                finalClustering = clustering;
-                maxQuality = quality;
+                RandomStartResult result = completionService.take().get();
+                if (nRandomStarts > 1)
+                    System.out.println("Quality function in random start " + (result.randomStart + 1) + " equals " + result.quality + ".");
+                if ((result.quality > maxQuality) || ((result.quality == maxQuality) && (result.randomStart < bestRandomStart)))
+                {
+                    finalClustering = result.clustering;
+                    maxQuality = result.quality;
+                    bestRandomStart = result.randomStart;
+                }
             }
         }
+        catch (ExecutionException | InterruptedException e)
+        {
+            System.err.println("Error while running algorithm: " + e.getMessage());
+            System.exit(-1);
+        }
+        finally
+        {
+            executorService.shutdown();
+            if (maxMemoryListener != null)
+                removeMaxMemoryListener(maxMemoryListener);
+        }
+        int cancellationReason = (cancellationToken != null) ? cancellationToken.getReason() : CancellationToken.NOT_CANCELLED;
         finalClustering.orderClustersByNNodes();
         System.out.println("Running algorithm took " + (System.currentTimeMillis() - startTimeAlgorithm) / 1000 + "s.");
+        if (cancellationReason != CancellationToken.NOT_CANCELLED)
+            System.out.println("Algorithm was stopped because the " + ((cancellationReason == CancellationToken.MAX_MEMORY_EXCEEDED) ? "maximum memory was exceeded" : "time limit was reached") + "; using the best clustering found so far.");
         if (nRandomStarts > 1)
             System.out.println("Maximum value of quality function in " + nRandomStarts + " random starts equals " + maxQuality + ".");
         else
@@ -433,13 +691,135 @@ public final class RunNetworkClustering
             algorithm.removeSmallClustersBasedOnNNodes(network, finalClustering, minClusterSize);
         }
         System.out.println("Final clustering consists of " + finalClustering.getNClusters() + " clusters.");
+        if (nodeOrder != null)
+            finalClustering = finalClustering.createClusteringWithNodeOrder(nl.cwts.util.Arrays.calcInversePermutation(nodeOrder));
 
         // Write final clustering to file (or to standard output).
         System.out.println("Writing final clustering to " + ((finalClusteringFilename == null) ? "standard output." : "'" + finalClusteringFilename + "'."));
-        FileIO.writeClustering(finalClusteringFilename, finalClustering);
+        FileIO.writeClustering(finalClusteringFilename, finalClustering, nodeDictionary);
+    }
+
+    /**
+     * Creates the algorithm used in a random start.
+     */
+    private static IterativeCPMClusteringAlgorithm createAlgorithm(boolean useLouvain, double resolution, int nIterations, double randomness, boolean parallelLocalMoving, CancellationToken cancellationToken, Random random)
+    {
+        FastLocalMovingAlgorithm localMovingAlgorithm;
+        IterativeCPMClusteringAlgorithm algorithm;
+
+        if (useLouvain)
+            algorithm = new LouvainAlgorithm(resolution, nIterations, random);
+        else
+        {
+            localMovingAlgorithm = new FastLocalMovingAlgorithm(resolution, FastLocalMovingAlgorithm.DEFAULT_N_ITERATIONS, random);
+            localMovingAlgorithm.setParallel(parallelLocalMoving);
+            algorithm = new LeidenAlgorithm(resolution, nIterations, randomness, localMovingAlgorithm, random);
+        }
+        algorithm.setCancellationToken(cancellationToken);
+        return algorithm;
+    }
+
+    /**
+     * Creates a random start, which improves a copy of the initial clustering
+     * using an algorithm and calculates the quality of the resulting
+     * clustering.
+     */
+    private static Callable<RandomStartResult> createRandomStart(int randomStart, IterativeCPMClusteringAlgorithm algorithm, Network network, Clustering initialClustering)
+    {
+        return () ->
+        {
+            Clustering clustering;
+
+            clustering = initialClustering.clone();
+            algorithm.improveClustering(network, clustering);
+            return new RandomStartResult(randomStart, clustering, algorithm.calcQuality(network, clustering));
+        };
+    }
+
+    /**
+     * Adds a listener that cancels a cancellation token when the total heap
+     * memory in use after a garbage collection exceeds a maximum amount of
+     * memory.
+     *
+     * <p>
+     * The listener is notified by the garbage collectors at the end of each
+     * garbage collection. Garbage that has not yet been collected therefore
+     * does not count towards the maximum amount of memory. The listener
+     * should be removed using {@link
+     * #removeMaxMemoryListener(NotificationListener listener)} once the
+     * algorithm has finished.
+     * </p>
+     */
+    private static NotificationListener addMaxMemoryListener(CancellationToken cancellationToken, long maxMemory)
+    {
+        Set<String> heapMemoryPoolNames;
+        NotificationListener listener;
+
+        heapMemoryPoolNames = new HashSet<String>();
+        for (MemoryPoolMXBean memoryPoolMXBean : ManagementFactory.getMemoryPoolMXBeans())
+            if (memoryPoolMXBean.getType() == MemoryType.HEAP)
+                heapMemoryPoolNames.add(memoryPoolMXBean.getName());
+        listener = (notification, handback) ->
+        {
+            TabularData memoryUsageAfterGC;
+            CompositeData memoryUsage;
+            long usedMemory;
+
+            if (!notification.getType().equals(GARBAGE_COLLECTION_NOTIFICATION))
+                return;
+            memoryUsageAfterGC = (TabularData)((CompositeData)((CompositeData)notification.getUserData()).get("gcInfo")).get("memoryUsageAfterGc");
+            usedMemory = 0;
+            for (String heapMemoryPoolName : heapMemoryPoolNames)
+            {
+                memoryUsage = memoryUsageAfterGC.get(new Object[] { heapMemoryPoolName });
+                if (memoryUsage != null)
+                    usedMemory += MemoryUsage.from((CompositeData)memoryUsage.get("value")).getUsed();
+            }
+            if (usedMemory > maxMemory)
+                cancellationToken.cancel(CancellationToken.MAX_MEMORY_EXCEEDED);
+        };
+        for (GarbageCollectorMXBean garbageCollectorMXBean : ManagementFactory.getGarbageCollectorMXBeans())
+            if (garbageCollectorMXBean instanceof NotificationEmitter)
+                ((NotificationEmitter)garbageCollectorMXBean).addNotificationListener(listener, null, null);
+        return listener;
+    }
+
+    /**
+     * Removes a listener added using {@link
+     * #addMaxMemoryListener(CancellationToken cancellationToken, long
+     * maxMemory)}.
+     */
+    private static void removeMaxMemoryListener(NotificationListener listener)
+    {
+        for (GarbageCollectorMXBean garbageCollectorMXBean : ManagementFactory.getGarbageCollectorMXBeans())
+            if (garbageCollectorMXBean instanceof NotificationEmitter)
+                try
+                {
+                    ((NotificationEmitter)garbageCollectorMXBean).removeNotificationListener(listener);
+                }
+                catch (ListenerNotFoundException e)
+                {
+                }
     }
 
     private RunNetworkClustering()
     {
     }
+
+    /**
+     * Clustering found in a random start, together with its quality.
+     */
+    private static class RandomStartResult
+    {
+        int randomStart;
+        Clustering clustering;
+        double quality;
+
+        RandomStartResult(int randomStart, Clustering clustering, double quality)
+        {
+            this.randomStart = randomStart;
+            this.clustering = clustering;
+            this.quality = quality;
+        }
+    }
 }
@@ -1,6 +1,12 @@
 package nl.cwts.networkanalysis.run;
 
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import nl.cwts.networkanalysis.GradientDescentVOSLayoutAlgorithm;
 import nl.cwts.networkanalysis.Layout;
@@ -32,6 +38,13 @@ public class RunNetworkLayout
     public static final int ASSOCIATION_STRENGTH = 1;
     public static final int FRACTIONALIZATION = 2;
 
+    /**
+     * Node order IDs.
+     */
+    public static final int ORIGINAL_NODE_ORDER = 0;
+    public static final int DEGREE_NODE_ORDER = 1;
+    public static final int RCM_NODE_ORDER = 2;
+
     /**
      * Quality function names.
      */
@@ -42,6 +55,11 @@ public class RunNetworkLayout
      */
     public static final String[] NORMALIZATION_NAMES = { "none", "AssociationStrength", "Fractionalization" };
 
+    /**
+     * Node order names.
+     */
+    public static final String[] NODE_ORDER_NAMES = { "none", "Degree", "RCM" };
+
     /**
      * Edge weight increment unconnected nodes.
      */
@@ -57,6 +75,11 @@ public class RunNetworkLayout
      */
     public static final int DEFAULT_NORMALIZATION = NO_NORMALIZATION;
 
+    /**
+     * Default node order.
+     */
+    public static final int DEFAULT_NODE_ORDER = ORIGINAL_NODE_ORDER;
+
     /**
      * Default attraction parameter.
      */
@@ -72,6 +95,11 @@ public class RunNetworkLayout
      */
     public static final int DEFAULT_N_RANDOM_STARTS = 1;
 
+    /**
+     * Default number of threads used to run random starts.
+     */
+    public static final int DEFAULT_N_THREADS = 1;
+
     /**
      * Default maximum number of iterations.
      */
@@ -119,6 +147,9 @@ public class RunNetworkLayout
           + "Only undirected networks are supported. Each edge should be included only once\n"
           + "in the file.\n"
           + "\n"
+          + "Input files compressed using gzip are decompressed automatically. Output files\n"
+          + "whose name ends with .gz are compressed using gzip.\n"
+          + "\n"
           + "Options:\n"
           + "-q --quality-function {" + QUALITY_FUNCTION_NAMES[VOS] + "|" + QUALITY_FUNCTION_NAMES[LINLOG] + "} (default: " + QUALITY_FUNCTION_NAMES[DEFAULT_QUALITY_FUNCTION] + ")\n"
           + "    Quality function to be optimized. Either the VOS (visualization of\n"
@@ -131,6 +162,10 @@ public class RunNetworkLayout
           + "    Repulsion parameter of the VOS quality function.\n"
           + "-s --random-starts <random starts> (default: " + DEFAULT_N_RANDOM_STARTS + ")\n"
           + "    Number of random starts of the gradient descent algorithm.\n"
+          + "--threads <threads> (default: " + DEFAULT_N_THREADS + ")\n"
+          + "    Number of threads used to run random starts in parallel. Each random start\n"
+          + "    has its own random number generator, whose seed is derived from --seed, so\n"
+          + "    the final layout does not depend on the number of threads.\n"
           + "-i --max-iterations <max. iterations> (default: " + DEFAULT_MAX_N_ITERATIONS + ")\n"
           + "    Maximum number of iterations of the gradient descent algorithm.\n"
           + "--initial-step-size <initial step size> (default: " + DEFAULT_INITIAL_STEP_SIZE + ")\n"
@@ -152,6 +187,11 @@ public class RunNetworkLayout
           + "    Indicates that the edge list file is sorted. The file should be sorted based\n"
           + "    on the nodes in the first column, followed by the nodes in the second\n"
           + "    column. Each edge should be included in both directions in the file.\n"
+          + "--node-order {" + NODE_ORDER_NAMES[ORIGINAL_NODE_ORDER] + "|" + NODE_ORDER_NAMES[DEGREE_NODE_ORDER] + "|" + NODE_ORDER_NAMES[RCM_NODE_ORDER] + "} (default: " + NODE_ORDER_NAMES[DEFAULT_NODE_ORDER] + ")\n"
+          + "    Order in which nodes are stored while running the algorithm. Nodes can be\n"
+          + "    ordered by decreasing number of neighbors (" + NODE_ORDER_NAMES[DEGREE_NODE_ORDER] + ") or using the reverse\n"
+          + "    Cuthill-McKee algorithm (" + NODE_ORDER_NAMES[RCM_NODE_ORDER] + "). Reordering nodes can speed up the\n"
+          + "    algorithm for large networks. The output uses the original node numbers.\n"
           + "--input-layout <filename> (default: random layout)\n"
           + "    Read the initial layout from the specified file. The file is expected to\n"
           + "    contain three tab-separated columns (without a header line), first a column\n"
@@ -181,9 +221,11 @@ public class RunNetworkLayout
 
         boolean useLinLog = (DEFAULT_QUALITY_FUNCTION == LINLOG);
         int normalization = DEFAULT_NORMALIZATION;
+        int nodeOrderMethod = DEFAULT_NODE_ORDER;
         int attraction = DEFAULT_ATTRACTION;
         int repulsion = DEFAULT_REPULSION;
         int nRandomStarts = DEFAULT_N_RANDOM_STARTS;
+        int nThreads = DEFAULT_N_THREADS;
         int maxNIterations = DEFAULT_MAX_N_ITERATIONS;
         double initialStepSize = DEFAULT_INITIAL_STEP_SIZE;
         double minStepSize = DEFAULT_MIN_STEP_SIZE;
@@ -267,6 +309,22 @@ public class RunNetworkLayout
                     }
                     argIndex += 2;
                 }
+                else if (arg.equals("--threads"))
+                {
+                    try
+                    {
+                        if ((argIndex + 1) >= args.length)
+                            throw new NumberFormatException();
+                        nThreads = Integer.parseInt(args[argIndex + 1]);
+                        if (nThreads <= 0)
+                            throw new NumberFormatException();
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        throw new IllegalArgumentException("Value must be a positive integer number.");
+                    }
+                    argIndex += 2;
+                }
                 else if (arg.equals("-i") || arg.equals("--max-iterations"))
                 {
                     try
@@ -372,6 +430,18 @@ public class RunNetworkLayout
                     sortedEdgeList = true;
                     argIndex++;
                 }
+                else if (arg.equals("--node-order"))
+                {
+                    if (((argIndex + 1) >= args.length) || (!args[argIndex + 1].equals(NODE_ORDER_NAMES[ORIGINAL_NODE_ORDER]) && !args[argIndex + 1].equals(NODE_ORDER_NAMES[DEGREE_NODE_ORDER]) && !args[argIndex + 1].equals(NODE_ORDER_NAMES[RCM_NODE_ORDER])))
+                        throw new IllegalArgumentException("Value must be '" + NODE_ORDER_NAMES[ORIGINAL_NODE_ORDER] + "', '" + NODE_ORDER_NAMES[DEGREE_NODE_ORDER] + "', or '" + NODE_ORDER_NAMES[RCM_NODE_ORDER] + "'.");
+                    if (args[argIndex + 1].equals(NODE_ORDER_NAMES[ORIGINAL_NODE_ORDER]))
+                        nodeOrderMethod = ORIGINAL_NODE_ORDER;
+                    else if (args[argIndex + 1].equals(NODE_ORDER_NAMES[DEGREE_NODE_ORDER]))
+                        nodeOrderMethod = DEGREE_NODE_ORDER;
+                    else if (args[argIndex + 1].equals(NODE_ORDER_NAMES[RCM_NODE_ORDER]))
+                        nodeOrderMethod = RCM_NODE_ORDER;
+                    argIndex += 2;
+                }
                 else if (arg.equals("--input-layout"))
                 {
                     if ((argIndex + 1) >= args.length)
@@ -422,6 +492,19 @@ public class RunNetworkLayout
             initialLayout = FileIO.readLayout(initialLayoutFilename, network.getNNodes());
         }
 
+        // Reorder nodes.
+        int[] nodeOrder = null;
+        if (nodeOrderMethod != ORIGINAL_NODE_ORDER)
+        {
+            System.out.println("Reordering nodes using " + NODE_ORDER_NAMES[nodeOrderMethod] + " node order.");
+            long startTimeNodeOrder = System.currentTimeMillis();
+            nodeOrder = (nodeOrderMethod == DEGREE_NODE_ORDER) ? network.calcNodeOrderByDegree() : network.calcNodeOrderUsingReverseCuthillMcKee();
+            network = network.createNetworkWithNodeOrder(nodeOrder);
+            if (initialLayout != null)
+                initialLayout = initialLayout.createLayoutWithNodeOrder(nodeOrder);
+            System.out.println("Reordering nodes took " + (System.currentTimeMillis() - startTimeNodeOrder) / 1000 + "s.");
+        }
+
         // Run algorithm for network layout.
         System.out.println("Running gradient descent VOS layout algorithm.");
         System.out.println("Quality function:                              " + (useLinLog ? QUALITY_FUNCTION_NAMES[LINLOG] : QUALITY_FUNCTION_NAMES[VOS]));
@@ -430,6 +513,8 @@ public class RunNetworkLayout
         System.out.println("Attraction parameter:                          " + attraction);
         System.out.println("Repulsion parameter:                           " + repulsion);
         System.out.println("Number of random starts:                       " + nRandomStarts);
+        if (nRandomStarts > 1)
+            System.out.println("Number of threads:                             " + Math.min(nThreads, nRandomStarts));
         System.out.println("Maximum number of iterations:                  " + maxNIterations);
         System.out.println("Initial step size:                             " + initialStepSize);
         System.out.println("Minimum step size:                             " + minStepSize);
@@ -443,29 +528,57 @@ public class RunNetworkLayout
             if (normalization == NO_NORMALIZATION)
                 network = network.createNetworkWithoutNodeWeights();
             else if (normalization == ASSOCIATION_STRENGTH)
-                network = network.createNormalizedNetworkUsingAssociationStrength();
+                network = network.createNormalizedNetworkUsingAssociationStrength(true);
             else if (normalization == FRACTIONALIZATION)
-                network = network.createNormalizedNetworkUsingFractionalization();
+                network = network.createNormalizedNetworkUsingFractionalization(true);
         }
         double edgeWeightIncrement = (network.identifyComponents().getNClusters() > 1) ? EDGE_WEIGHT_INCREMENT_UNCONNECTED_NODES : 0;
         Random random = useSeed ? new Random(seed) : new Random();
-        GradientDescentVOSLayoutAlgorithm algorithm = new GradientDescentVOSLayoutAlgorithm(attraction, repulsion, edgeWeightIncrement, random);
+        long[] seeds = new long[nRandomStarts];
+        for (int i = 0; i < nRandomStarts; i++)
+            seeds[i] = random.nextLong();
+
+        /*
+         * Run the random starts, each using an algorithm with its own random
+         * number generator. The results of the random starts are processed in
+         * the order in which the random starts finish, and only the best layout
+         * found so far is kept. If several random starts yield the same
+         * quality, the layout of the first of these random starts is kept.
+         */
         Layout finalLayout = null;
         double minQuality = Double.POSITIVE_INFINITY;
-        for (int i = 0; i < nRandomStarts; i++)
+        int bestRandomStart = -1;
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(nThreads, nRandomStarts));
+        try
         {
-            Layout layout = (initialLayout != null) ? initialLayout.clone() : new Layout(network.getNNodes(), random);
-            algorithm.improveLayout(network, layout);
-            double quality = algorithm.calcQuality(network, layout);
-            if (nRandomStarts > 1)
-                System.out.println("Quality function in random start " + (i + 1) + " equals " + quality + ".");
-            if (quality < minQuality)
+            CompletionService<RandomStartResult> completionService = new ExecutorCompletionService<RandomStartResult>(executorService);
+            for (int i = 0; i < nRandomStarts; i++)
+                completionService.submit(createRandomStart(i, attraction, repulsion, edgeWeightIncrement, seeds[i], network, initialLayout));
+            for (int i = 0; i < nRandomStarts; i++)
             {
-                finalLayout = layout;
-                minQuality = quality;
+                RandomStartResult result = completionService.take().get();
+                if (nRandomStarts > 1)
+                    System.out.println("Quality function in random start " + (result.randomStart + 1) + " equals " + result.quality + ".");
+                if ((result.quality < minQuality) || ((result.quality == minQuality) && (result.randomStart < bestRandomStart)))
+                {
+                    finalLayout = result.layout;
+                    minQuality = result.quality;
+                    bestRandomStart = result.randomStart;
+                }
             }
         }
+        catch (ExecutionException | InterruptedException e)
+        {
+            System.err.println("Error while running algorithm: " + e.getMessage());
+            System.exit(-1);
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
         finalLayout.standardize(true);
+        if (nodeOrder != null)
+            finalLayout = finalLayout.createLayoutWithNodeOrder(nl.cwts.util.Arrays.calcInversePermutation(nodeOrder));
         System.out.println("Running algorithm took " + (System.currentTimeMillis() - startTimeAlgorithm) / 1000 + "s.");
         if (nRandomStarts > 1)
             System.out.println("Minimum value of quality function in " + nRandomStarts + " random starts equals " + minQuality + ".");
@@ -477,7 +590,46 @@ public class RunNetworkLayout
         FileIO.writeLayout(finalLayoutFilename, finalLayout);
     }
 
+    /**
+     * Creates a random start, which improves a copy of the initial layout, or
+     * a random layout if there is no initial layout, using an algorithm with
+     * its own random number generator and calculates the quality of the
+     * resulting layout.
+     */
+    private static Callable<RandomStartResult> createRandomStart(int randomStart, int attraction, int repulsion, double edgeWeightIncrement, long seed, Network network, Layout initialLayout)
+    {
+        return () ->
+        {
+            GradientDescentVOSLayoutAlgorithm algorithm;
+            Layout layout;
+            Random random;
+
+            random = new Random(seed);
+            algorithm = new GradientDescentVOSLayoutAlgorithm(attraction, repulsion, edgeWeightIncrement, random);
+            layout = (initialLayout != null) ? initialLayout.clone() : new Layout(network.getNNodes(), random);
+            algorithm.improveLayout(network, layout);
+            return new RandomStartResult(randomStart, layout, algorithm.calcQuality(network, layout));
+        };
+    }
+
     private RunNetworkLayout()
     {
     }
+
+    /**
+     * Layout found in a random start, together with its quality.
+     */
+    private static class RandomStartResult
+    {
+        int randomStart;
+        Layout layout;
+        double quality;
+
+        RandomStartResult(int randomStart, Layout layout, double quality)
+        {
+            this.randomStart = randomStart;
+            this.layout = layout;
+            this.quality = quality;
+        }
+    }
 }
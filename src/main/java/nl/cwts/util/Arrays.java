@@ -269,14 +269,65 @@ public final class Arrays
      */
     public static int[] generateRandomPermutation(int nElements, Random random)
     {
-        int i;
         int[] permutation;
 
         permutation = new int[nElements];
+        generateRandomPermutation(permutation, nElements, random);
+        return permutation;
+    }
+
+    /**
+     * Generates a random permutation in an existing array.
+     *
+     * <p>
+     * A random permutation of the integers {@code 0, ..., nElements - 1} is
+     * stored in the first {@code nElements} elements of {@code permutation}.
+     * Given the same state of the random number generator, the permutation is
+     * the same as the permutation generated by {@link
+     * #generateRandomPermutation(int nElements, Random random)}.
+     * </p>
+     *
+     * @param permutation Array in which the permutation is stored
+     * @param nElements   Number of elements
+     * @param random      Random number generator
+     */
+    public static void generateRandomPermutation(int[] permutation, int nElements, Random random)
+    {
+        int i;
+
         for (i = 0; i < nElements; i++)
             permutation[i] = i;
-        permuteRandomly(permutation, random);
-        return permutation;
+        permuteRandomly(permutation, nElements, random);
+    }
+
+    /**
+     * Calculates the inverse of a permutation.
+     *
+     * <p>
+     * If {@code permutation[i] = j}, then {@code inversePermutation[j] = i}.
+     * </p>
+     *
+     * @param permutation Permutation of the integers {@code 0, ...,
+     *                    permutation.length - 1}
+     *
+     * @return Inverse permutation
+     *
+     * @throws IllegalArgumentException Not a permutation
+     */
+    public static int[] calcInversePermutation(int[] permutation)
+    {
+        int i;
+        int[] inversePermutation;
+
+        inversePermutation = new int[permutation.length];
+        java.util.Arrays.fill(inversePermutation, -1);
+        for (i = 0; i < permutation.length; i++)
+        {
+            if ((permutation[i] < 0) || (permutation[i] >= permutation.length) || (inversePermutation[permutation[i]] >= 0))
+                throw new IllegalArgumentException("Elements must be a permutation of the integers 0, ..., " + (permutation.length - 1) + ".");
+            inversePermutation[permutation[i]] = i;
+        }
+        return inversePermutation;
     }
 
     /**
@@ -290,12 +341,29 @@ public final class Arrays
      * @param random   Random number generator
      */
     public static void permuteRandomly(int[] elements, Random random)
+    {
+        permuteRandomly(elements, elements.length, random);
+    }
+
+    /**
+     * Randomly permutes the first elements.
+     *
+     * <p>
+     * Randomly permutes the elements 0, ..., nElements - 1. The other
+     * elements are not changed.
+     * </p>
+     *
+     * @param elements  Elements
+     * @param nElements Number of elements to permute
+     * @param random    Random number generator
+     */
+    public static void permuteRandomly(int[] elements, int nElements, Random random)
     {
         int i, j, k;
 
-        for (i = 0; i < elements.length; i++)
+        for (i = 0; i < nElements; i++)
         {
-            j = random.nextInt(elements.length);
+            j = random.nextInt(nElements);
             k = elements[i];
             elements[i] = elements[j];
             elements[j] = k;
@@ -0,0 +1,106 @@
+package nl.cwts.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Allocation and release of direct byte buffers.
+ *
+ * <p>
+ * The memory of a direct byte buffer is normally released only after the
+ * buffer has been garbage collected. This class releases the memory
+ * immediately by invoking the cleaner of the buffer. On Java 9 and later this
+ * is done using {@code sun.misc.Unsafe.invokeCleaner}, on Java 8 using the
+ * {@code cleaner} method of the buffer. If neither is available, the memory is
+ * released by the garbage collector.
+ * </p>
+ *
+ * @author Ludo Waltman
+ * @author Nees Jan van Eck
+ * @author Vincent Traag
+ */
+final class DirectBuffers
+{
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static
+    {
+        Class<?> unsafeClass;
+        Field field;
+        Method invokeCleaner;
+        Object unsafe;
+
+        unsafe = null;
+        invokeCleaner = null;
+        try
+        {
+            unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+        }
+        catch (Exception e)
+        {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private DirectBuffers()
+    {
+    }
+
+    /**
+     * Allocates a direct byte buffer in native byte order.
+     *
+     * @param capacity Capacity in bytes
+     *
+     * @return Direct byte buffer
+     */
+    static ByteBuffer allocate(int capacity)
+    {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Releases the memory of a direct byte buffer.
+     *
+     * <p>
+     * The buffer and any views of the buffer must not be used afterwards.
+     * </p>
+     *
+     * @param buffer Direct byte buffer
+     */
+    static void release(ByteBuffer buffer)
+    {
+        Method cleanerMethod;
+        Object cleaner;
+
+        if ((buffer == null) || !buffer.isDirect())
+            return;
+
+        try
+        {
+            if (INVOKE_CLEANER != null)
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            else
+            {
+                cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null)
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        }
+        catch (Exception e)
+        {
+            // The memory will be released by the garbage collector.
+        }
+    }
+}
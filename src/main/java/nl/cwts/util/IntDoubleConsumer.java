@@ -0,0 +1,27 @@
+package nl.cwts.util;
+
+/**
+ * Operation that accepts an int-valued and a double-valued argument and
+ * returns no result.
+ *
+ * <p>
+ * This is the primitive specialization of {@link java.util.function.BiConsumer}
+ * for {@code int} and {@code double}, which is not provided by {@code
+ * java.util.function}.
+ * </p>
+ *
+ * @author Ludo Waltman
+ * @author Nees Jan van Eck
+ * @author Vincent Traag
+ */
+@FunctionalInterface
+public interface IntDoubleConsumer
+{
+    /**
+     * Performs the operation on the given arguments.
+     *
+     * @param intValue    Int-valued argument
+     * @param doubleValue Double-valued argument
+     */
+    void accept(int intValue, double doubleValue);
+}
@@ -0,0 +1,1077 @@
+package nl.cwts.util;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/* We need the fastutil package for sorting purposes. */
+import it.unimi.dsi.fastutil.BigArrays;
+import it.unimi.dsi.fastutil.longs.LongComparator;
+
+/**
+ * <p>
+ * This class enables arrays of floats up to 64-bits in size (for the exact
+ * maximum size, please see {@link #MAX_SIZE}). As a single array is limited to
+ * 32-bits in Java, this is done by having an array of arrays. We use a
+ * {@code long} to index this array of arrays, and use bitwise operators
+ * to extract the two indices for the array of arrays. The largest index is
+ * extracted using {@link #getSegment} while the smallest index is extracted
+ * using {@link #getOffset}, where the actual value is located in
+ * {@code values[segment][offset]}.
+ * </p>
+ *
+ * <p>
+ * In addition, this class enables a dynamic array, and can be dynamically
+ * enlarged or shrunken. The total capacity is indicated by {@link #capacity()},
+ * while the actual number of elements is indicated by {@link #size()}. When
+ * constructing new arrays, typically the size is set equal to the capacity,
+ * with the restriction that we always at least reserve a minimum capacity
+ * (indicated by {@link #MINIMUM_INITIAL_CAPACITY}). This dynamic array then
+ * also supports {@link #push} and {@link #pop} operations.
+ * </p>
+ *
+ * <p>
+ * This class also contains a number of convenience functions to easily {@link
+ * #add}, {@link #subtract}, {@link #multiply} and {@link #divide} elements.
+ * This is more efficient than calling both {@code set} and
+ * {@code get} because this requires to retrieve indices twice.
+ * </p>
+ * 
+ * @author Vincent Traag
+ * @author Nees Jan van Eck
+ */
+public final class LargeFloatArray implements Cloneable
+{
+    /**
+     * The number of bits to use for each individual array.
+     */
+    public static final byte ARRAY_BIT_SIZE = 30;
+    /**
+     * The maximum size of each individual array.
+     */
+    public static final int MAX_SIZE_ARRAY = 1 << ARRAY_BIT_SIZE;
+    /**
+     * Minimum initial capacity of the array.
+     */
+    public static final long MINIMUM_INITIAL_CAPACITY = 10;
+    /**
+     * The relative increase in the capacity when increasing the capacity.
+     */
+    public static final double RELATIVE_CAPACITY_INCREASE = 0.5;
+    /**
+     * The maximum size of the array in total.
+     */
+    public static final long MAX_SIZE = ((1L << 31) - 5) * MAX_SIZE_ARRAY;
+    /**
+     * The array mask that is used to obtain the proper lower index.
+     */
+    private static final long ARRAY_MASK = MAX_SIZE_ARRAY - 1;
+    /**
+     * The current total capacity of the array.
+     */
+    private long capacity;
+
+    /**
+     * The current total size of the array.
+     */
+    private long size;
+
+    /**
+     * The actual array of arrays that is used as storage.
+     */
+    private float[][] values;
+
+    /***************************************************************************
+     * Constructors
+     **************************************************************************/
+
+    /**
+     * Constructs a new empty array of specified size.
+     *
+     * <p>
+     * Both the capacity and the size is being set to {@code size}, with
+     * all elements initialised to their default value. If instead, you prefer
+     * an empty array, but reserve capacity, pass {@code 0}
+     * {@code size} here and use {@link #ensureCapacity(long)}.
+     * </p>
+     *
+     * @param size Size of the array
+     */
+    public LargeFloatArray(long size)
+    {
+        int nSegments, segment;
+        long remainingLength;
+
+        if (size < 0)
+            throw new IllegalArgumentException("Size cannot be negative.");
+
+        this.capacity = Math.max(size, MINIMUM_INITIAL_CAPACITY);
+        this.size = size;
+
+        // Construct number of arrays that are needed
+        nSegments = getSegment(capacity);
+        if (getOffset(capacity) > 0)
+            nSegments += 1; // Add one if there was a remainder
+        this.values = new float[nSegments][];
+
+        // Create each separate array
+        remainingLength = capacity;
+        segment = 0;
+        while (remainingLength > MAX_SIZE_ARRAY)
+        {
+            // As long as longer than a single array, we allocate up until
+            // MAX_SIZE_ARRAY
+            this.values[segment] = new float[MAX_SIZE_ARRAY];
+            remainingLength -= MAX_SIZE_ARRAY;
+            segment++;
+        }
+
+        // We now allocate the last part
+        if (remainingLength > 0)
+            this.values[segment] = new float[(int)remainingLength];
+    }
+
+    /**
+     * Constructs a new array of indicated size with all elements set to a
+     * constant value.
+     *
+     * @param size     Size of the array
+     * @param constant Constant value to set
+     */
+    public LargeFloatArray(long size, float constant)
+    {
+        this(size);
+
+        this.fill(constant);
+    }
+
+    /**
+     * Constructs a new array copying the values of the supplied array.
+     *
+     * @param values Array to copy from
+     */
+    public LargeFloatArray(float[] values)
+    {
+        this(values.length);
+
+        int offset, segment;
+
+        offset = 0;
+        segment = 0;
+
+        for (float x : values)
+        {
+            if (offset >= MAX_SIZE_ARRAY)
+            {
+                offset = 0;
+                segment++;
+            }
+            this.values[segment][offset] = x;
+            offset++;
+        }
+    }
+
+    /***************************************************************************
+     * Getting / setting elements and appropriate indices
+     **************************************************************************/
+
+    /**
+     * Gets the segment of the index.
+     *
+     * @param index Index
+     *
+     * @return Segment
+     */
+    public static int getSegment(long index)
+    {
+        return (int)(index >>> ARRAY_BIT_SIZE);
+    }
+
+    /**
+     * Gets the offset within a particular segment of the index.
+     *
+     * @param index Index
+     *
+     * @return Offset within particular segment
+     */
+    public static int getOffset(long index)
+    {
+        return (int)(index & ARRAY_MASK);
+    }
+
+    /**
+     * Gets the number of segments.
+     *
+     * @return Number of segments
+     */
+    public int nSegments()
+    {
+        return values.length;
+    }
+
+    /**
+     * Gets the length of the indicated segment.
+     *
+     * @param segment Segment
+     *
+     * @return Length of segment
+     */
+    public int length(int segment)
+    {
+        return this.values[segment].length;
+    }
+
+    /**
+     * Gets value element based on long index.
+     *
+     * @param index Index of element
+     *
+     * @return Value of element
+     */
+    public float get(long index)
+    {
+        return this.values[getSegment(index)][getOffset(index)];
+    }
+
+    /**
+     * Gets value element based on segment and offset.
+     *
+     * @param segment Segment of element
+     * @param offset  Offset of element
+     *
+     * @return Value of element
+     */
+    public float get(int segment, int offset)
+    {
+        return this.values[segment][offset];
+    }
+
+    /**
+     * Sets element to value for indicated index.
+     *
+     * @param index Index of element
+     * @param value Value
+     */
+    public void set(long index, float value)
+    {
+        this.values[getSegment(index)][getOffset(index)] = value;
+    }
+
+    /**
+     * Sets element to value for indicated segment and offset.
+     *
+     * @param segment Segment of element
+     * @param offset  Offset of element
+     * @param value   Value
+     */
+    public void set(int segment, int offset, float value)
+    {
+        this.values[segment][offset] = value;
+    }
+
+    /**
+     * Fills entire array with constant.
+     *
+     * @param constant Constant
+     */
+    public void fill(float constant)
+    {
+        fill(0, this.size, constant);
+    }
+
+    /**
+     * Fills indicated range with constant.
+     *
+     * @param from     From index, inclusive
+     * @param to       To index, exclusive
+     * @param constant Constant
+     */
+    public void fill(long from, long to, float constant)
+    {
+        // Determine initial indices for this array
+        int segmentTo, offsetTo, segment;
+
+        segmentTo = getSegment(to);
+        offsetTo = getOffset(to);
+
+        // Fill first segment
+        segment = getSegment(from);
+        Arrays.fill(this.values[segment], getOffset(from),
+                segment == segmentTo ? getOffset(to) : this.values[segment].length, constant);
+        segment++;
+
+        // Fill subsequent segments
+        for (; segment < segmentTo; segment++)
+            Arrays.fill(this.values[segment], 0, this.values[segment].length, constant);
+
+        // Fill last segment
+        if (segment == segmentTo && offsetTo > 0)
+            Arrays.fill(this.values[segment], 0, offsetTo, constant);
+    }
+
+    /***************************************************************************
+     * Dynamic array functions
+     **************************************************************************/
+
+    /**
+     * Appends a specified value to the end of the array.
+     *
+     * @param value Value
+     *
+     * @see #push
+     * @see #pop
+     */
+    public void append(float value)
+    {
+        ensureCapacity(size + 1);
+        set(size, value);
+        size++;
+    }
+
+    /**
+     * Appends a specified value to the end of the array.
+     *
+     * @param value Value
+     *
+     * @see #append
+     * @see #pop
+     */
+    public void push(float value)
+    {
+        append(value);
+    }
+
+    /**
+     * Pops last value off the end of the array.
+     *
+     * @return Last value
+     */
+    public float pop()
+    {
+        float value;
+        value = get(size - 1);
+        size--;
+        return value;
+    }
+
+    /**
+     * Removes all elements from the array.
+     */
+    public void clear()
+    {
+        size = 0;
+    }
+
+    /**
+     * Increases the capacity to ensure that the array has at least the minimum
+     * capacity.
+     *
+     * <p>
+     * The capacity is increased with a percentage indicated by {@link
+     * #RELATIVE_CAPACITY_INCREASE}, unless the indicated minimum capacity
+     * exceeds this.
+     * </p>
+     *
+     * @param minCapacity Minimum capacity
+     */
+    public void ensureCapacity(long minCapacity)
+    {
+        float[][] newValues;
+        int nOldSegments, nNewSegments, segment;
+        long newCapacity, oldCapacity, remainingLength;
+
+        oldCapacity = capacity;
+        if (minCapacity > oldCapacity)
+        {
+            newCapacity = (long)((1 + RELATIVE_CAPACITY_INCREASE) * oldCapacity);
+            if (newCapacity < minCapacity)
+                newCapacity = minCapacity;
+
+            // Determine the number of new segments that we will need to
+            // allocate
+            nNewSegments = getSegment(newCapacity);
+            if (getOffset(newCapacity) > 0)
+                nNewSegments += 1; // Add one if there was a remainder
+            newValues = new float[nNewSegments][];
+
+            // Determine which array we need to increase
+            nOldSegments = getSegment(oldCapacity);
+            if (getOffset(oldCapacity) > 0)
+                nOldSegments += 1; // Add one if there was a remainder
+
+            // Simply refer to the previously existing segments for all segments
+            // except for the last one.
+            remainingLength = newCapacity;
+            for (segment = 0; segment < nOldSegments - 1; segment++)
+            {
+                newValues[segment] = values[segment];
+                remainingLength -= values[segment].length;
+            }
+
+            // We now need to copy only the last old segment
+            if (remainingLength > MAX_SIZE_ARRAY)
+                newValues[segment] = Arrays.copyOf(values[segment], MAX_SIZE_ARRAY);
+            else
+                newValues[segment] = Arrays.copyOf(values[segment], (int)remainingLength);
+            remainingLength -= newValues[segment].length;
+            segment++;
+
+            // For the remaining segments, we can simply allocate new arrays
+            while (remainingLength > MAX_SIZE_ARRAY)
+            {
+                // As long as longer than a single array, we allocate up until
+                // MAX_SIZE_ARRAY
+                newValues[segment] = new float[MAX_SIZE_ARRAY];
+
+                remainingLength -= MAX_SIZE_ARRAY;
+                segment++;
+            }
+
+            // Allocate the last part
+            if (remainingLength > 0)
+                newValues[segment] = new float[(int)remainingLength];
+
+            // Assign to current values
+            this.values = newValues;
+            this.capacity = newCapacity;
+        }
+    }
+
+    /**
+     * Resizes array.
+     *
+     * @param size New size
+     */
+    public void resize(long size)
+    {
+        this.size = size;
+    }
+
+    /**
+     * Shrinks capacity to fit actual size.
+     */
+    public void shrink()
+    {
+        float[][] newValues;
+        int segment, nNewSegments;
+        long newCapacity, oldCapacity, remainingLength;
+
+        newCapacity = size;
+        oldCapacity = capacity;
+
+        if (newCapacity < oldCapacity)
+        {
+            // Determine the number of new segments
+            nNewSegments = getSegment(newCapacity);
+            if (getOffset(newCapacity) > 0)
+                nNewSegments += 1; // Add one if there was a remainder
+            newValues = new float[nNewSegments][];
+
+            // Simply refer to the previously existing arrays for the first
+            // couple of arrays
+            remainingLength = newCapacity;
+            for (segment = 0; segment < nNewSegments - 1; segment++)
+            {
+                newValues[segment] = values[segment];
+                remainingLength -= newValues[segment].length;
+            }
+
+            if (remainingLength > MAX_SIZE_ARRAY)
+                // This should not be possible
+                throw new IndexOutOfBoundsException("Error while shrinking array to fit capacity to actual size.");
+
+            // Truncate the last segment to the new capacity
+            if (remainingLength > 0)
+                newValues[segment] = Arrays.copyOf(values[segment], (int)remainingLength);
+
+            // Assign to actual values
+            this.values = newValues;
+            this.capacity = newCapacity;
+        }
+    }
+
+    /**
+     * Gets size of array.
+     *
+     * <p>This is always less than or equal to the capacity.</p>
+     *
+     * @return Size
+     */
+    public long size()
+    {
+        return size;
+    }
+
+    /**
+     * Gets capacity of array.
+     *
+     * <p>This is always greater than or equal to the size.</p>
+     *
+     * @return Capacity
+     */
+    public long capacity()
+    {
+        return capacity;
+    }
+
+    /***************************************************************************
+     * Helper functions
+     **************************************************************************/
+
+    /**
+     * Adds addition to existing element.
+     *
+     * @param index    Index of element
+     * @param addition Value to add
+     */
+    public void add(long index, float addition)
+    {
+        this.values[getSegment(index)][getOffset(index)] += addition;
+    }
+
+    /**
+     * Subtracts subtraction from existing element.
+     *
+     * @param index       Index of element
+     * @param subtraction Value to subtract
+     */
+    public void subtract(long index, float subtraction)
+    {
+        this.values[getSegment(index)][getOffset(index)] -= subtraction;
+    }
+
+    /**
+     * Multiplies existing element by multiplier.
+     *
+     * @param index      Index of element
+     * @param multiplier Multiplier
+     */
+    public void multiply(long index, float multiplier)
+    {
+        this.values[getSegment(index)][getOffset(index)] *= multiplier;
+    }
+
+    /**
+     * Divides existing element by divisor.
+     *
+     * @param index   Index of element
+     * @param divisor Divisor
+     */
+    public void divide(long index, float divisor)
+    {
+        this.values[getSegment(index)][getOffset(index)] /= divisor;
+    }
+
+    /**
+     * Calculates the sum of all elements.
+     *
+     * @return Sum
+     */
+    public double calcSum()
+    {
+        return calcSum(0, size);
+    }
+
+    /**
+     * Calculates the sum of all elements in the indicated range.
+     *
+     * @param from From index, inclusive
+     * @param to   To index, exclusive
+     *
+     * @return Sum
+     */
+    public double calcSum(long from, long to)
+    {
+        double sum;
+        int segment, offset;
+        long i;
+
+        sum = 0.0;
+        segment = getSegment(from);
+        offset = getOffset(from);
+
+        for (i = from; i < to; i++)
+        {
+            if (offset >= MAX_SIZE_ARRAY)
+            {
+                offset = 0;
+                segment++;
+            }
+
+            sum += values[segment][offset];
+
+            offset++;
+        }
+        return sum;
+    }
+
+    /**
+     * Calculates the average of all elements.
+     *
+     * @return Average
+     */
+    public double calcAverage()
+    {
+        return calcSum() / this.capacity;
+    }
+
+    /**
+     * Calculates the maximum of all elements.
+     *
+     * @return Maximum
+     */
+    public float calcMaximum()
+    {
+        float max;
+        int offset, segment;
+        long i;
+
+        max = Float.NEGATIVE_INFINITY;
+        offset = 0;
+        segment = 0;
+
+        for (i = 0; i < size; i++)
+        {
+            if (offset >= MAX_SIZE_ARRAY)
+            {
+                offset = 0;
+                segment++;
+            }
+            if (this.values[segment][offset] > max)
+                max = this.values[segment][offset];
+            offset++;
+        }
+        return max;
+    }
+
+    /**
+     * Calculates the minimum of all elements.
+     *
+     * @return Minimum
+     */
+    public float calcMinimum()
+    {
+        float min;
+        int offset, segment;
+        long i;
+
+        min = Float.POSITIVE_INFINITY;
+        offset = 0;
+        segment = 0;
+
+        for (i = 0; i < size; i++)
+        {
+            if (offset >= MAX_SIZE_ARRAY)
+            {
+                offset = 0;
+                segment++;
+            }
+            if (this.values[segment][offset] < min)
+                min = this.values[segment][offset];
+            offset++;
+        }
+        return min;
+    }
+
+    /**
+     * Swaps two elements.
+     *
+     * @param indexA First element to swap
+     * @param indexB Second element to swap
+     */
+    public void swap(long indexA, long indexB)
+    {
+        float tmp;
+        int segmentA, offsetA, segmentB, offsetB;
+
+        segmentA = getSegment(indexA);
+        offsetA = getOffset(indexA);
+
+        segmentB = getSegment(indexB);
+        offsetB = getOffset(indexB);
+
+        tmp = values[segmentA][offsetA];
+        values[segmentA][offsetA] = values[segmentB][offsetB];
+        values[segmentB][offsetB] = tmp;
+    }
+
+    /**
+     * Compares two elements.
+     *
+     * @param indexA First element to compare
+     * @param indexB Second element to compare
+     *
+     * @return Integer indicating which element is greater. In particular, it
+     * returns -1 if the first is less than the second, +1 if the first is
+     * greater than the second, and 0 if both are equal.
+     */
+    private int compare(long indexA, long indexB)
+    {
+        return Float.compare(get(indexA), get(indexB));
+    }
+
+    /***************************************************************************
+     * Sorting and Binary Search
+     **************************************************************************/
+
+    /**
+     * Sorts elements in ascending order using merge sort.
+     */
+    public void mergeSort()
+    {
+        BigArrays.mergeSort(0, capacity, this::compare, this::swap);
+    }
+
+    /**
+     * Sorts elements in ascending order using quick sort.
+     */
+    public void quickSort()
+    {
+        BigArrays.quickSort(0, capacity, this::compare, this::swap);
+    }
+
+    /**
+     * Sorts elements in ascending order using merge sort.
+     */
+    public void sort()
+    {
+        mergeSort();
+    }
+
+    /**
+     * Sorts elements in a specified order using merge sort.
+     *
+     * @param comparator Comparator indicating the desired ordering
+     */
+    public void sort(LongComparator comparator)
+    {
+        BigArrays.mergeSort(0, size, comparator, this::swap);
+    }
+
+    /**
+     * Searches for the specified value using binary search.
+     *
+     * <p>
+     * The array must be sorted in ascending order prior to making this call. If
+     * it is not sorted, the results are undefined. If the array contains
+     * multiple elements with the specified value, there is no guarantee which
+     * one will be found.
+     * </p>
+     *
+     * @param value The value to search for
+     *
+     * @return Index of the search key, if it is contained in the array;
+     * otherwise, (-(insertion point) - 1). The insertion point is defined as
+     * the point at which the key would be inserted into the array: the index of
+     * the first element greater than the key, or the total size if all elements
+     * in the array are less than the specified key. Note that this guarantees
+     * that the return value will be non-negative if and only if the key is
+     * found.
+     */
+    public long binarySearch(float value)
+    {
+        return binarySearch(0, size, value);
+    }
+
+    /**
+     * Searches for the specified value using binary search in the indicated
+     * range.
+     *
+     * <p>
+     * The (range of the) array must be sorted in ascending order prior to
+     * making this call. If it is not sorted, the results are undefined. If the
+     * array contains multiple elements with the specified value, there is no
+     * guarantee which one will be found.
+     * </p>
+     *
+     * @param from  From index, inclusive
+     * @param to    To index, exclusive
+     * @param value The value to search for
+     *
+     * @return Index of the search key, if it is contained in the array;
+     * otherwise, (-(insertion point) - 1). The insertion point is defined as
+     * the point at which the key would be inserted into the array: the index of
+     * the first element greater than the key, or the total size if all elements
+     * in the array are less than the specified key. Note that this guarantees
+     * that the return value will be non-negative if and only if the key is
+     * found.
+     */
+    public long binarySearch(long from, long to, float value)
+    {
+        long minIdx, maxIdx, midIdx;
+
+        minIdx = from;
+        maxIdx = to - 1;
+        midIdx = -1;
+
+        if (value < get(minIdx))
+            return -1;
+
+        if (value > get(maxIdx))
+            return -to - 1;
+
+        while (minIdx < maxIdx - 1)
+        {
+            midIdx = (minIdx + maxIdx) / 2;
+            if (get(midIdx) > value)
+                maxIdx = midIdx;
+            else
+                minIdx = midIdx;
+        }
+        // We now know that get(minIdx) <= value <= get(maxIdx) so check bounds
+        if (value == get(minIdx))
+            return minIdx;
+        else if (value == get(maxIdx))
+            return maxIdx;
+        else
+            return -maxIdx - 1;
+    }
+
+    /**
+     * Updates this array from the provided array.
+     *
+     * @param array Array to update from
+     */
+    public void updateFrom(LargeFloatArray array)
+    {
+        updateFrom(array, 0, array.size(), 0);
+    }
+
+    /**
+     * Updates this array from the provided array.
+     *
+     * <p>
+     * Values from other array starting at {@code from} until
+     * {@code to} (exclusive) will be copied to this array, starting
+     * from the {@code insertionPoint} onwards.
+     * </p>
+     *
+     * @param array          Array to update from
+     * @param from           Index in {@code array} from where to update,
+     *                       inclusive
+     * @param to             Index in {@code array} until where to update,
+     *                       exclusive
+     * @param insertionPoint Starting index in this array to update
+     */
+    public void updateFrom(LargeFloatArray array, long from, long to, long insertionPoint)
+    {
+        long length, i;
+        int segmentFrom, offsetFrom, segment, offset;
+
+        length = to - from;
+        // Determine initial indices for this array
+        segmentFrom = getSegment(from);
+        offsetFrom = getOffset(from);
+
+        // Determine initial indices for new array
+        segment = getSegment(insertionPoint);
+        offset = getOffset(insertionPoint);
+
+        for (i = 0; i < length; i++)
+        {
+            if (offsetFrom >= MAX_SIZE_ARRAY)
+            {
+                offsetFrom = 0;
+                segmentFrom++;
+            }
+            if (offset >= MAX_SIZE_ARRAY)
+            {
+                offset = 0;
+                segment++;
+            }
+
+            // Copy actual value
+            this.values[segment][offset] = array.values[segmentFrom][offsetFrom];
+
+            offsetFrom++;
+            offset++;
+        }
+    }
+
+    /**
+     * Updates this array from the provided buffer.
+     *
+     * <p>
+     * All remaining values in {@code buffer} will be copied to this array,
+     * starting from the {@code insertionPoint} onwards. Values are copied in
+     * bulk, one segment at a time. The position of {@code buffer} is
+     * advanced by the number of copied values.
+     * </p>
+     *
+     * @param buffer         Buffer to update from
+     * @param insertionPoint Starting index in this array to update
+     */
+    public void updateFrom(FloatBuffer buffer, long insertionPoint)
+    {
+        int length, segment, offset;
+
+        // Determine initial indices for this array
+        segment = getSegment(insertionPoint);
+        offset = getOffset(insertionPoint);
+
+        while (buffer.hasRemaining())
+        {
+            length = Math.min(buffer.remaining(), this.values[segment].length - offset);
+            buffer.get(this.values[segment], offset, length);
+            offset = 0;
+            segment++;
+        }
+    }
+
+    /**
+     * Copies the specified range to a buffer.
+     *
+     * <p>
+     * Values are copied in bulk, one segment at a time, starting at the
+     * current position of {@code buffer}. The position of {@code buffer} is
+     * advanced by the number of copied values.
+     * </p>
+     *
+     * @param from   From index, inclusive
+     * @param to     To index, exclusive
+     * @param buffer Buffer to copy to
+     */
+    public void copyTo(long from, long to, FloatBuffer buffer)
+    {
+        int length, segment, offset;
+        long remainingLength;
+
+        // Determine initial indices for this array
+        segment = getSegment(from);
+        offset = getOffset(from);
+
+        remainingLength = to - from;
+        while (remainingLength > 0)
+        {
+            length = (int)Math.min(remainingLength, MAX_SIZE_ARRAY - offset);
+            buffer.put(this.values[segment], offset, length);
+            remainingLength -= length;
+            offset = 0;
+            segment++;
+        }
+    }
+
+    /**
+     * Copies the specified range to a new array.
+     *
+     * @param from From index, inclusive
+     * @param to   To index, exclusive
+     *
+     * @return New array
+     */
+    public LargeFloatArray copyOfRange(long from, long to)
+    {
+        long lengthNew, i;
+        int segmentOrig, offsetOrig, segmentNew, offsetNew;
+        LargeFloatArray copy;
+
+        lengthNew = to - from;
+        copy = new LargeFloatArray(lengthNew);
+
+        // Determine initial indices for this array
+        segmentOrig = getSegment(from);
+        offsetOrig = getOffset(from);
+
+        // Determine initial indices for new array
+        segmentNew = 0;
+        offsetNew = 0;
+
+        for (i = 0; i < lengthNew; i++)
+        {
+            if (offsetOrig >= MAX_SIZE_ARRAY)
+            {
+                offsetOrig = 0;
+                segmentOrig++;
+            }
+            if (offsetNew >= MAX_SIZE_ARRAY)
+            {
+                offsetNew = 0;
+                segmentNew++;
+            }
+
+            // Copy actual value
+            copy.values[segmentNew][offsetNew] = this.values[segmentOrig][offsetOrig];
+
+            offsetOrig++;
+            offsetNew++;
+        }
+        return copy;
+    }
+
+    /***************************************************************************
+     * Copying, cloning and updating
+     **************************************************************************/
+
+    /**
+     * Copies the values to an ordinary array.
+     *
+     * <p>
+     * Not all elements of this array may fit in an ordinary array.
+     * </p>
+     *
+     * @return Array
+     */
+    public float[] toArray()
+    {
+        return this.toArray(0, this.size);
+    }
+
+    /**
+     * Copies indicated range to an ordinary array.
+     *
+     * @param from From index, inclusive
+     * @param to   To index, exclusive
+     *
+     * @return Array
+     */
+    public float[] toArray(long from, long to)
+    {
+        // Upper bound of a single array seems to be Integer.MAX_VALUE - 5
+        int length, segment, offset, i;
+        float[] array;
+
+        length = (int)(to - from);
+        array = new float[length];
+
+        // Determine initial indices for this array
+        segment = getSegment(from);
+        offset = getOffset(from);
+
+        for (i = 0; i < length; i++)
+        {
+            if (offset >= MAX_SIZE_ARRAY)
+            {
+                offset = 0;
+                segment++;
+            }
+
+            array[i] = values[segment][offset];
+
+            offset++;
+        }
+
+        return array;
+    }
+
+    /**
+     * Clones the array.
+     *
+     * @return Cloned array
+     */
+    public LargeFloatArray clone()
+    {
+        LargeFloatArray clonedArray;
+
+        try
+        {
+            clonedArray = (LargeFloatArray)super.clone();
+            clonedArray.values = new float[values.length][];
+            for (int i = 0; i < values.length; i++)
+                clonedArray.values[i] = values[i].clone();
+            return clonedArray;
+        }
+        catch (CloneNotSupportedException e)
+        {
+            return null;
+        }
+    }
+}
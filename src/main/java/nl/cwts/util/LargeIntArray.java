@@ -1,5 +1,6 @@
 package nl.cwts.util;
 
+import java.nio.IntBuffer;
 import java.util.Arrays;
 import java.util.PrimitiveIterator;
 
@@ -933,6 +934,102 @@ public final class LargeIntArray implements Cloneable, Iterable<Integer>
         }
     }
 
+    /**
+     * Updates this array from the provided buffer.
+     *
+     * <p>
+     * All remaining values in {@code buffer} will be copied to this array,
+     * starting from the {@code insertionPoint} onwards. Values are copied in
+     * bulk, one segment at a time. The position of {@code buffer} is
+     * advanced by the number of copied values.
+     * </p>
+     *
+     * @param buffer         Buffer to update from
+     * @param insertionPoint Starting index in this array to update
+     */
+    public void updateFrom(IntBuffer buffer, long insertionPoint)
+    {
+        int length, segment, offset;
+
+        // Determine initial indices for this array
+        segment = getSegment(insertionPoint);
+        offset = getOffset(insertionPoint);
+
+        while (buffer.hasRemaining())
+        {
+            length = Math.min(buffer.remaining(), this.values[segment].length - offset);
+            buffer.get(this.values[segment], offset, length);
+            offset = 0;
+            segment++;
+        }
+    }
+
+    /**
+     * Copies the specified range to a buffer.
+     *
+     * <p>
+     * Values are copied in bulk, one segment at a time, starting at the
+     * current position of {@code buffer}. The position of {@code buffer} is
+     * advanced by the number of copied values.
+     * </p>
+     *
+     * @param from   From index, inclusive
+     * @param to     To index, exclusive
+     * @param buffer Buffer to copy to
+     */
+    public void copyTo(long from, long to, IntBuffer buffer)
+    {
+        int length, segment, offset;
+        long remainingLength;
+
+        // Determine initial indices for this array
+        segment = getSegment(from);
+        offset = getOffset(from);
+
+        remainingLength = to - from;
+        while (remainingLength > 0)
+        {
+            length = (int)Math.min(remainingLength, MAX_SIZE_ARRAY - offset);
+            buffer.put(this.values[segment], offset, length);
+            remainingLength -= length;
+            offset = 0;
+            segment++;
+        }
+    }
+
+    /**
+     * Copies the specified range to an ordinary array.
+     *
+     * <p>
+     * Values are copied in bulk, one segment at a time.
+     * </p>
+     *
+     * @param from        From index, inclusive
+     * @param to          To index, exclusive
+     * @param array       Array to copy to
+     * @param arrayOffset Starting index in {@code array}
+     */
+    public void copyTo(long from, long to, int[] array, int arrayOffset)
+    {
+        int length, segment, offset;
+        long remainingLength;
+
+        // Determine initial indices for this array
+        segment = getSegment(from);
+        offset = getOffset(from);
+
+        remainingLength = to - from;
+        while (remainingLength > 0)
+        {
+            length = (int)Math.min(remainingLength, MAX_SIZE_ARRAY - offset);
+            System.arraycopy(this.values[segment], offset, array, arrayOffset, length);
+            arrayOffset += length;
+            remainingLength -= length;
+            offset = 0;
+            segment++;
+        }
+    }
+
     /**
      * Copies the specified range to a new array.
      *
@@ -1008,30 +1105,10 @@ public final class LargeIntArray implements Cloneable, Iterable<Integer>
      */
     public int[] toArray(long from, long to)
     {
-        // Upper bound of a single array seems to be Integer.MAX_VALUE - 5
-        int length, segment, offset, i;
         int[] array;
 
-        length = (int)(to - from);
-        array = new int[length];
-
-        // Determine initial indices for this array
-        segment = getSegment(from);
-        offset = getOffset(from);
-
-        for (i = 0; i < length; i++)
-        {
-            if (offset >= MAX_SIZE_ARRAY)
-            {
-                offset = 0;
-                segment++;
-            }
-
-            array[i] = values[segment][offset];
-
-            offset++;
-        }
-
+        array = new int[(int)(to - from)];
+        copyTo(from, to, array, 0);
         return array;
     }
 
@@ -0,0 +1,325 @@
+package nl.cwts.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <p>
+ * This class enables fixed-size arrays of integers that are stored outside
+ * the Java heap. The elements are stored in direct byte buffers, each holding
+ * at most {@link #MAX_SIZE_ARRAY} elements. Similar to {@link LargeIntArray},
+ * a {@code long} is used to index the array, and bitwise operators are used
+ * to extract the segment ({@link #getSegment}) and the offset within the
+ * segment ({@link #getOffset}).
+ * </p>
+ *
+ * <p>
+ * Because the elements are not stored on the Java heap, the garbage collector
+ * does not need to process them, regardless of the size of the array. The
+ * memory of the array is released deterministically by calling {@link
+ * #release()}. After the memory has been released, the array must not be used
+ * anymore.
+ * </p>
+ *
+ * @author Ludo Waltman
+ * @author Nees Jan van Eck
+ * @author Vincent Traag
+ */
+public final class OffHeapIntArray
+{
+    /**
+     * The number of bits to use for each individual segment.
+     */
+    public static final byte ARRAY_BIT_SIZE = 27;
+    /**
+     * The maximum size of each individual segment.
+     */
+    public static final int MAX_SIZE_ARRAY = 1 << ARRAY_BIT_SIZE;
+    /**
+     * The array mask that is used to obtain the proper lower index.
+     */
+    private static final long ARRAY_MASK = MAX_SIZE_ARRAY - 1;
+
+    /**
+     * The size of the array.
+     */
+    private long size;
+
+    /**
+     * The direct byte buffers that are used as storage.
+     */
+    private ByteBuffer[] buffers;
+
+    /**
+     * Integer views of the direct byte buffers.
+     */
+    private IntBuffer[] values;
+
+    /**
+     * Constructs a new array of specified size.
+     *
+     * <p>
+     * All elements are initialised to 0.
+     * </p>
+     *
+     * @param size Size of the array
+     */
+    public OffHeapIntArray(long size)
+    {
+        int nSegments, segment;
+
+        this.size = size;
+        nSegments = (size > 0) ? getSegment(size - 1) + 1 : 0;
+        buffers = new ByteBuffer[nSegments];
+        values = new IntBuffer[nSegments];
+        for (segment = 0; segment < nSegments; segment++)
+        {
+            buffers[segment] = DirectBuffers.allocate((int)Math.min(size - ((long)segment << ARRAY_BIT_SIZE), MAX_SIZE_ARRAY) * Integer.BYTES);
+            values[segment] = buffers[segment].asIntBuffer();
+        }
+    }
+
+    /**
+     * Constructs a new array with the same values as an array on the Java
+     * heap.
+     *
+     * @param values Values
+     */
+    public OffHeapIntArray(LargeIntArray values)
+    {
+        this(values.size());
+        updateFrom(values);
+    }
+
+    /**
+     * Maps a region of a file to a read-only array.
+     *
+     * <p>
+     * The elements are not copied. They are read directly from the file, which
+     * is memory mapped in segments of at most {@link #MAX_SIZE_ARRAY}
+     * elements. The operating system loads the pages of the file when they are
+     * accessed and shares them with other processes that map the same file.
+     * The elements must be stored in the file in little-endian byte order.
+     * Elements of a mapped array cannot be set. Releasing the memory of the
+     * array unmaps the file.
+     * </p>
+     *
+     * @param fileChannel File channel
+     * @param position    Position in the file of the first element
+     * @param size        Size of the array
+     *
+     * @return Mapped array
+     *
+     * @throws IOException Could not map the file
+     */
+    public static OffHeapIntArray map(FileChannel fileChannel, long position, long size) throws IOException
+    {
+        int nSegments, segment;
+        OffHeapIntArray array;
+
+        array = new OffHeapIntArray(0);
+        array.size = size;
+        nSegments = (size > 0) ? getSegment(size - 1) + 1 : 0;
+        array.buffers = new ByteBuffer[nSegments];
+        array.values = new IntBuffer[nSegments];
+        for (segment = 0; segment < nSegments; segment++)
+        {
+            array.buffers[segment] = fileChannel.map(FileChannel.MapMode.READ_ONLY, position + ((long)segment << ARRAY_BIT_SIZE) * Integer.BYTES, Math.min(size - ((long)segment << ARRAY_BIT_SIZE), MAX_SIZE_ARRAY) * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            array.values[segment] = array.buffers[segment].asIntBuffer();
+        }
+        return array;
+    }
+
+    /**
+     * Gets the segment of the index.
+     *
+     * @param index Index
+     *
+     * @return Segment
+     */
+    public static int getSegment(long index)
+    {
+        return (int)(index >>> ARRAY_BIT_SIZE);
+    }
+
+    /**
+     * Gets the offset within a particular segment of the index.
+     *
+     * @param index Index
+     *
+     * @return Offset within particular segment
+     */
+    public static int getOffset(long index)
+    {
+        return (int)(index & ARRAY_MASK);
+    }
+
+    /**
+     * Gets value element based on long index.
+     *
+     * @param index Index of element
+     *
+     * @return Value of element
+     */
+    public int get(long index)
+    {
+        return values[getSegment(index)].get(getOffset(index));
+    }
+
+    /**
+     * Sets element to value for indicated index.
+     *
+     * @param index Index of element
+     * @param value Value
+     */
+    public void set(long index, int value)
+    {
+        values[getSegment(index)].put(getOffset(index), value);
+    }
+
+    /**
+     * Returns whether the array is read-only, which is the case for an array
+     * that is mapped to a file.
+     *
+     * @return Boolean indicating whether the array is read-only
+     *
+     * @see #map(FileChannel fileChannel, long position, long size)
+     */
+    public boolean isReadOnly()
+    {
+        return (buffers.length > 0) && buffers[0].isReadOnly();
+    }
+
+    /**
+     * Gets the size of the array.
+     *
+     * @return Size
+     */
+    public long size()
+    {
+        return size;
+    }
+
+    /**
+     * Updates this array from an array on the Java heap.
+     *
+     * @param array Array to update from
+     */
+    public void updateFrom(LargeIntArray array)
+    {
+        int segment;
+
+        for (segment = 0; segment < values.length; segment++)
+            array.copyTo((long)segment << ARRAY_BIT_SIZE, Math.min((long)(segment + 1) << ARRAY_BIT_SIZE, size), (IntBuffer)values[segment].duplicate().clear());
+    }
+
+    /**
+     * Updates this array from the provided buffer.
+     *
+     * <p>
+     * All remaining values in {@code buffer} are copied in bulk, starting at
+     * {@code insertionPoint}. The position of {@code buffer} is advanced by the
+     * number of copied values.
+     * </p>
+     *
+     * @param buffer         Buffer to update from
+     * @param insertionPoint Insertion point
+     */
+    public void updateFrom(IntBuffer buffer, long insertionPoint)
+    {
+        int length, segment, offset;
+        IntBuffer source, target;
+
+        // Determine initial indices for this array
+        segment = getSegment(insertionPoint);
+        offset = getOffset(insertionPoint);
+
+        while (buffer.hasRemaining())
+        {
+            length = Math.min(buffer.remaining(), values[segment].capacity() - offset);
+            source = buffer.slice();
+            source.limit(length);
+            target = values[segment].duplicate();
+            target.position(offset);
+            target.put(source);
+            buffer.position(buffer.position() + length);
+            offset = 0;
+            segment++;
+        }
+    }
+
+    /**
+     * Copies the specified range to a buffer.
+     *
+     * <p>
+     * Values are copied in bulk, one segment at a time, starting at the
+     * current position of {@code buffer}. The position of {@code buffer} is
+     * advanced by the number of copied values.
+     * </p>
+     *
+     * @param from   From index, inclusive
+     * @param to     To index, exclusive
+     * @param buffer Buffer to copy to
+     */
+    public void copyTo(long from, long to, IntBuffer buffer)
+    {
+        int length, segment, offset;
+        long remainingLength;
+        IntBuffer source;
+
+        // Determine initial indices for this array
+        segment = getSegment(from);
+        offset = getOffset(from);
+
+        remainingLength = to - from;
+        while (remainingLength > 0)
+        {
+            length = (int)Math.min(remainingLength, MAX_SIZE_ARRAY - offset);
+            source = values[segment].duplicate();
+            source.position(offset);
+            source.limit(offset + length);
+            buffer.put(source);
+            remainingLength -= length;
+            offset = 0;
+            segment++;
+        }
+    }
+
+    /**
+     * Copies the array to a new array on the Java heap.
+     *
+     * @return New array
+     */
+    public LargeIntArray toLargeIntArray()
+    {
+        int segment;
+        LargeIntArray array;
+
+        array = new LargeIntArray(size);
+        for (segment = 0; segment < values.length; segment++)
+            array.updateFrom((IntBuffer)values[segment].duplicate().clear(), (long)segment << ARRAY_BIT_SIZE);
+        return array;
+    }
+
+    /**
+     * Releases the memory of the array.
+     *
+     * <p>
+     * The array must not be used anymore after its memory has been released.
+     * Releasing the memory more than once has no effect.
+     * </p>
+     */
+    public void release()
+    {
+        int segment;
+
+        for (segment = 0; segment < buffers.length; segment++)
+            DirectBuffers.release(buffers[segment]);
+        size = 0;
+        buffers = new ByteBuffer[0];
+        values = new IntBuffer[0];
+    }
+}
@@ -0,0 +1,220 @@
+package nl.cwts.networkanalysis;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import nl.cwts.util.LargeDoubleArray;
+import nl.cwts.util.LargeIntArray;
+
+public class TestDynamicNetwork
+{
+    Random random;
+    int nNodes;
+    double[][] edgeWeights;
+
+    @BeforeEach
+    public void setUp()
+    {
+        random = new Random(1);
+        nNodes = 400;
+        edgeWeights = new double[nNodes][nNodes];
+        for (int i = 0; i < nNodes; i++)
+            for (int j = i + 1; j < nNodes; j++)
+                if (random.nextDouble() < 0.05)
+                {
+                    edgeWeights[i][j] = random.nextInt(10) + 1;
+                    edgeWeights[j][i] = edgeWeights[i][j];
+                }
+    }
+
+    Network createNetwork()
+    {
+        LargeIntArray[] edges = new LargeIntArray[2];
+        edges[0] = new LargeIntArray(0);
+        edges[1] = new LargeIntArray(0);
+        LargeDoubleArray edgeWeights = new LargeDoubleArray(0);
+        for (int i = 0; i < nNodes; i++)
+            for (int j = i + 1; j < nNodes; j++)
+                if (this.edgeWeights[i][j] != 0)
+                {
+                    edges[0].append(i);
+                    edges[1].append(j);
+                    edgeWeights.append(this.edgeWeights[i][j]);
+                }
+        return new Network(nNodes, true, edges, edgeWeights, false, true);
+    }
+
+    void update(DynamicNetwork dynamicNetwork, int nUpdates)
+    {
+        for (int k = 0; k < nUpdates; k++)
+        {
+            int i = random.nextInt(nNodes);
+            int j = random.nextInt(nNodes);
+            if (i == j)
+                continue;
+            if (random.nextBoolean())
+            {
+                // Integer edge weights keep the sums exact.
+                double edgeWeight = random.nextInt(10) + 1;
+                dynamicNetwork.addEdge(i, j, edgeWeight);
+                edgeWeights[i][j] += edgeWeight;
+                edgeWeights[j][i] += edgeWeight;
+            }
+            else
+            {
+                assertEquals(edgeWeights[i][j] != 0, dynamicNetwork.removeEdge(i, j));
+                edgeWeights[i][j] = 0;
+                edgeWeights[j][i] = 0;
+            }
+        }
+    }
+
+    void assertDynamicNetworkEquals(Network expectedNetwork, DynamicNetwork dynamicNetwork)
+    {
+        assertEquals(expectedNetwork.getNNodes(), dynamicNetwork.getNNodes());
+        assertEquals(expectedNetwork.getNEdges(), dynamicNetwork.getNEdges());
+        assertEquals(expectedNetwork.getTotalEdgeWeight(), dynamicNetwork.getTotalEdgeWeight());
+        assertArrayEquals(expectedNetwork.getNodeWeights(), dynamicNetwork.getNodeWeights());
+        DynamicNeighborCursor neighborCursor = new DynamicNeighborCursor(dynamicNetwork);
+        for (int i = 0; i < expectedNetwork.getNNodes(); i++)
+        {
+            assertEquals(expectedNetwork.getNNeighbors(i), dynamicNetwork.getNNeighbors(i));
+            int[] neighbors = dynamicNetwork.getNeighbors(i);
+            double[] edgeWeights = dynamicNetwork.getEdgeWeights(i);
+            assertEquals(expectedNetwork.getNNeighbors(i), neighbors.length);
+            neighborCursor.reset(i);
+            for (int j = 0; j < neighbors.length; j++)
+            {
+                assertEquals(this.edgeWeights[i][neighbors[j]], edgeWeights[j]);
+                assertEquals(edgeWeights[j], dynamicNetwork.getEdgeWeight(i, neighbors[j]));
+                assertTrue(neighborCursor.hasNext());
+                assertEquals(neighbors[j], neighborCursor.nextNeighbor());
+                assertEquals(edgeWeights[j], neighborCursor.getEdgeWeight());
+            }
+            assertFalse(neighborCursor.hasNext());
+        }
+    }
+
+    @Test
+    public void testUpdates()
+    {
+        DynamicNetwork dynamicNetwork = new DynamicNetwork(createNetwork(), true);
+        update(dynamicNetwork, 2000);
+        assertFalse(dynamicNetwork.isCompacting());
+        assertTrue(dynamicNetwork.getNDeltaEntries() > 0);
+        assertDynamicNetworkEquals(createNetwork(), dynamicNetwork);
+
+        TestNetwork.assertNetworkEquals(createNetwork(), dynamicNetwork.getNetwork());
+        assertEquals(0, dynamicNetwork.getNDeltaEntries());
+
+        update(dynamicNetwork, 2000);
+        assertDynamicNetworkEquals(createNetwork(), dynamicNetwork);
+        TestNetwork.assertNetworkEquals(createNetwork(), dynamicNetwork.getNetwork());
+    }
+
+    @Test
+    public void testCompressedNetwork()
+    {
+        DynamicNetwork dynamicNetwork = new DynamicNetwork(createNetwork().createCompressedNetwork(), true);
+        update(dynamicNetwork, 2000);
+        assertDynamicNetworkEquals(createNetwork(), dynamicNetwork);
+        TestNetwork.assertNetworkEquals(createNetwork(), dynamicNetwork.getNetwork());
+    }
+
+    @Test
+    public void testCompactionInBackground()
+    {
+        // Enough updates for the delta to be compacted in the background,
+        // while further updates are recorded.
+        DynamicNetwork dynamicNetwork = new DynamicNetwork(createNetwork(), true, 0);
+        update(dynamicNetwork, 100000);
+        assertDynamicNetworkEquals(createNetwork(), dynamicNetwork);
+        TestNetwork.assertNetworkEquals(createNetwork(), dynamicNetwork.getNetwork());
+        assertDynamicNetworkEquals(createNetwork(), dynamicNetwork);
+    }
+
+    @Test
+    public void testAddNode()
+    {
+        DynamicNetwork dynamicNetwork = new DynamicNetwork(createNetwork(), true);
+        int node = dynamicNetwork.addNode();
+        assertEquals(nNodes, node);
+        assertEquals(0, dynamicNetwork.getNodeWeight(node));
+        dynamicNetwork.addEdge(0, node, 2);
+        dynamicNetwork.addEdge(node, node, 3);
+        assertArrayEquals(new int[] { 0 }, dynamicNetwork.getNeighbors(node));
+        DynamicNeighborCursor neighborCursor = new DynamicNeighborCursor(dynamicNetwork);
+        neighborCursor.reset(node);
+        assertTrue(neighborCursor.hasNext());
+        assertEquals(0, neighborCursor.nextNeighbor());
+        assertEquals(2, neighborCursor.getEdgeWeight());
+        assertFalse(neighborCursor.hasNext());
+        assertEquals(2, dynamicNetwork.getNodeWeight(node));
+        assertEquals(3, dynamicNetwork.getTotalEdgeWeightSelfLinks());
+
+        Network network = dynamicNetwork.getNetwork();
+        network.checkIntegrity();
+        assertEquals(nNodes + 1, network.getNNodes());
+        assertArrayEquals(new int[] { 0 }, network.getNeighbors(node));
+        assertArrayEquals(new double[] { 2 }, network.getEdgeWeights(node));
+        assertEquals(3, network.getTotalEdgeWeightSelfLinks());
+    }
+
+    @Test
+    public void testSelfLinkUpdate()
+    {
+        DynamicNetwork dynamicNetwork = new DynamicNetwork(createNetwork(), true);
+        dynamicNetwork.addEdge(0, 0, 5);
+        assertEquals(0, dynamicNetwork.getNDeltaEntries());
+        assertEquals(5, dynamicNetwork.getNetwork().getTotalEdgeWeightSelfLinks());
+        dynamicNetwork.addEdge(1, 1, 2);
+        assertEquals(7, dynamicNetwork.getNetwork().getTotalEdgeWeightSelfLinks());
+    }
+
+    @Test
+    public void testFailedCompaction() throws Exception
+    {
+        DynamicNetwork dynamicNetwork = new DynamicNetwork(createNetwork(), true);
+        update(dynamicNetwork, 2000);
+
+        // Freeze the delta and let a background thread fail to create a new
+        // base network from it.
+        Method freezeDeltaHelper = DynamicNetwork.class.getDeclaredMethod("freezeDeltaHelper");
+        freezeDeltaHelper.setAccessible(true);
+        Runnable compaction = (Runnable)freezeDeltaHelper.invoke(dynamicNetwork);
+        Field network = compaction.getClass().getDeclaredField("network");
+        network.setAccessible(true);
+        network.set(compaction, null);
+        Thread compactionThread = new Thread(compaction);
+        compactionThread.start();
+        compactionThread.join();
+        Field compactionThreadField = DynamicNetwork.class.getDeclaredField("compactionThread");
+        compactionThreadField.setAccessible(true);
+        compactionThreadField.set(dynamicNetwork, compactionThread);
+
+        // Updates are not affected by the failure, and the updates in the
+        // frozen delta are kept.
+        update(dynamicNetwork, 2000);
+        assertFalse(dynamicNetwork.isCompacting());
+        assertDynamicNetworkEquals(createNetwork(), dynamicNetwork);
+
+        // The failure is reported once by compact().
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> dynamicNetwork.compact());
+        assertTrue(e.getCause() instanceof NullPointerException);
+        assertDynamicNetworkEquals(createNetwork(), dynamicNetwork);
+        update(dynamicNetwork, 2000);
+        assertDynamicNetworkEquals(createNetwork(), dynamicNetwork);
+        TestNetwork.assertNetworkEquals(createNetwork(), dynamicNetwork.getNetwork());
+        assertEquals(0, dynamicNetwork.getNDeltaEntries());
+    }
+}
@@ -0,0 +1,64 @@
+package nl.cwts.networkanalysis;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import nl.cwts.util.LargeDoubleArray;
+import nl.cwts.util.LargeIntArray;
+
+public class TestExternalMemoryNetworkBuilder
+{
+    LargeIntArray[] edges;
+    LargeDoubleArray edgeWeights;
+    int nNodes;
+
+    @BeforeEach
+    public void setUp()
+    {
+        nNodes = 200;
+        edgeWeights = new LargeDoubleArray(0);
+        edges = TestNetwork.createRandomEdges(nNodes, 1000, 1, edgeWeights);
+    }
+
+    ExternalMemoryNetworkBuilder createNetworkBuilder(boolean weightedEdges, long maxMemory) throws IOException
+    {
+        ExternalMemoryNetworkBuilder networkBuilder = new ExternalMemoryNetworkBuilder(weightedEdges, maxMemory, null);
+        for (long i = 0; i < edges[0].size(); i++)
+            networkBuilder.addEdge(edges[0].get(i), edges[1].get(i), edgeWeights.get(i));
+        return networkBuilder;
+    }
+
+    @Test
+    public void testBuildInMemory() throws IOException
+    {
+        Network network = createNetworkBuilder(true, ExternalMemoryNetworkBuilder.DEFAULT_MAX_MEMORY).build(true, true);
+        TestNetwork.assertNetworkEquals(new Network(nNodes, true, edges, edgeWeights, false, true), network);
+    }
+
+    @Test
+    public void testBuildUsingRuns() throws IOException
+    {
+        // A buffer of 100 edges results in more runs than can be merged at
+        // once.
+        Network network = createNetworkBuilder(true, 100 * 32).build(true, true);
+        TestNetwork.assertNetworkEquals(new Network(nNodes, true, edges, edgeWeights, false, true), network);
+
+        network = createNetworkBuilder(false, 100 * 16).build(false, true);
+        TestNetwork.assertNetworkEquals(new Network(nNodes, false, edges, false, true), network);
+    }
+
+    @Test
+    public void testBuildBinary() throws IOException
+    {
+        File file = File.createTempFile("network", ".bin");
+        file.deleteOnExit();
+
+        createNetworkBuilder(true, 100 * 32).buildBinary(file.getPath(), true);
+        Network network = Network.loadBinary(file.getPath());
+        network.checkIntegrity();
+        TestNetwork.assertNetworkEquals(new Network(nNodes, true, edges, edgeWeights, false, true), network);
+    }
+}
@@ -0,0 +1,538 @@
+package nl.cwts.networkanalysis;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import nl.cwts.util.LargeDoubleArray;
+import nl.cwts.util.LargeIntArray;
+
+public class TestNetwork
+{
+    Network testNetwork;
+
+    @BeforeEach
+    public void setUp()
+    {
+        int[][] edges = { { 0, 0, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 6, 6, 7 }, { 1, 9, 4, 6, 9, 5, 7, 8, 9, 4, 5, 7, 8, 9, 5, 6, 8, 9, 6, 7, 8, 7, 9, 8 } };
+        double[] edgeWeights = { 16, 90, 1, 1, 82, 2, 13, 72, 5, 13, 1, 2, 2, 2, 5, 15, 4, 2, 139, 6, 7, 4, 1, 15 };
+        LargeIntArray[] edges2 = new LargeIntArray[2];
+        edges2[0] = new LargeIntArray(edges[0]);
+        edges2[1] = new LargeIntArray(edges[1]);
+        LargeDoubleArray edgeWeights2 = new LargeDoubleArray(edgeWeights);
+        testNetwork = new Network(10, true, edges2, edgeWeights2, false, true);
+    }
+
+    /**
+     * Creates random edges without duplicates. Each edge connects a random
+     * node with the node itself or with one of the next 10 nodes, and is
+     * stored in a random direction. The weights of the edges are random
+     * integers between 1 and 10, so that many edges have the same weight.
+     *
+     * @param edgeWeights Array to which the edge weights are appended
+     */
+    static LargeIntArray[] createRandomEdges(int nNodes, long nEdges, long seed, LargeDoubleArray edgeWeights)
+    {
+        Random random = new Random(seed);
+        LargeIntArray[] edges = new LargeIntArray[] { new LargeIntArray(0), new LargeIntArray(0) };
+        Set<Long> addedEdges = new HashSet<>();
+        while (edges[0].size() < nEdges)
+        {
+            int i = random.nextInt(nNodes);
+            int j = i + random.nextInt(11);
+            if ((j < nNodes) && addedEdges.add((long)i * nNodes + j))
+            {
+                boolean reversed = random.nextBoolean();
+                edges[0].append(reversed ? j : i);
+                edges[1].append(reversed ? i : j);
+                edgeWeights.append(random.nextInt(10) + 1);
+            }
+        }
+        return edges;
+    }
+
+    static void assertNetworkEquals(Network expectedNetwork, Network network)
+    {
+        assertEquals(expectedNetwork.getNNodes(), network.getNNodes());
+        assertEquals(expectedNetwork.getNEdges(), network.getNEdges());
+        assertArrayEquals(expectedNetwork.getNodeWeights(), network.getNodeWeights());
+        assertEquals(expectedNetwork.getTotalEdgeWeightSelfLinks(), network.getTotalEdgeWeightSelfLinks());
+        for (int i = 0; i < expectedNetwork.getNNodes(); i++)
+        {
+            assertArrayEquals(expectedNetwork.getNeighbors(i), network.getNeighbors(i));
+            assertArrayEquals(expectedNetwork.getEdgeWeights(i), network.getEdgeWeights(i));
+        }
+    }
+
+    @Test
+    public void testSaveAndLoadBinary() throws IOException
+    {
+        File file = File.createTempFile("network", ".bin");
+        file.deleteOnExit();
+
+        testNetwork.saveBinary(file.getPath());
+        Network loadedNetwork = Network.loadBinary(file.getPath());
+        loadedNetwork.checkIntegrity();
+        assertNetworkEquals(testNetwork, loadedNetwork);
+    }
+
+    @Test
+    public void testSortEdges()
+    {
+        LargeIntArray[] edges = new LargeIntArray[2];
+        edges[0] = new LargeIntArray(new int[] { 3, 1, -2, 70000, 1, 3, -2 });
+        edges[1] = new LargeIntArray(new int[] { 0, 5, 4, 2, 2, 0, -100000 });
+        LargeDoubleArray edgeWeights = new LargeDoubleArray(new double[] { 1, 2, 3, 4, 5, 6, 7 });
+
+        Network.sortEdges(edges, edgeWeights);
+
+        assertArrayEquals(new int[] { -2, -2, 1, 1, 3, 3, 70000 }, edges[0].toArray());
+        assertArrayEquals(new int[] { -100000, 4, 2, 5, 0, 0, 2 }, edges[1].toArray());
+        assertArrayEquals(new double[] { 7, 3, 5, 2, 1, 6, 4 }, edgeWeights.toArray());
+    }
+
+    @Test
+    public void testConstructNetworkInParallel()
+    {
+        int nNodes = 100;
+        LargeDoubleArray edgeWeights = new LargeDoubleArray(0);
+        LargeIntArray[] edges = createRandomEdges(nNodes, 500, 1, edgeWeights);
+
+        Network network = new Network(nNodes, true, edges, edgeWeights, false, true, false);
+        Network parallelNetwork = new Network(nNodes, true, edges, edgeWeights, false, true, true);
+        assertNetworkEquals(network, parallelNetwork);
+    }
+
+    @Test
+    public void testCheckIntegrity()
+    {
+        testNetwork.checkIntegrity(Network.INTEGRITY_CHECK_FULL);
+
+        // Edge from node 1 to node 2 that is not stored in the other direction.
+        double[] nodeWeights = { 1, 1, 1 };
+        long[] firstNeighborIndices = { 0, 1, 3, 4 };
+        LargeIntArray neighbors = new LargeIntArray(new int[] { 1, 0, 2, 0 });
+        Network network = new Network(nodeWeights, firstNeighborIndices, neighbors, false);
+        network.checkIntegrity(Network.INTEGRITY_CHECK_NONE);
+        network.checkIntegrity(Network.INTEGRITY_CHECK_STRUCTURE);
+        assertThrows(IllegalArgumentException.class, () -> network.checkIntegrity(Network.INTEGRITY_CHECK_FULL));
+
+        // Edge weights that are not the same in both directions.
+        LargeIntArray neighbors2 = new LargeIntArray(new int[] { 1, 0 });
+        LargeDoubleArray edgeWeights = new LargeDoubleArray(new double[] { 1, 2 });
+        Network network2 = new Network(new double[] { 1, 1 }, new long[] { 0, 1, 2 }, neighbors2, edgeWeights, false);
+        network2.checkIntegrity(Network.INTEGRITY_CHECK_STRUCTURE);
+        assertThrows(IllegalArgumentException.class, () -> network2.checkIntegrity(Network.INTEGRITY_CHECK_FULL));
+
+        // Neighbors that are not sorted.
+        Network network3 = new Network(nodeWeights, new long[] { 0, 2, 3, 4 }, new LargeIntArray(new int[] { 2, 1, 0, 0 }), false);
+        assertThrows(IllegalArgumentException.class, () -> network3.checkIntegrity(Network.INTEGRITY_CHECK_STRUCTURE));
+
+        // Networks stored outside the Java heap or in compressed form are
+        // checked without copying their neighbors.
+        testNetwork.createOffHeapNetwork().checkIntegrity(Network.INTEGRITY_CHECK_FULL);
+        testNetwork.createCompressedNetwork().checkIntegrity(Network.INTEGRITY_CHECK_FULL);
+        assertThrows(IllegalArgumentException.class, () -> network.createOffHeapNetwork().checkIntegrity(Network.INTEGRITY_CHECK_FULL));
+        assertThrows(IllegalArgumentException.class, () -> network.createCompressedNetwork().checkIntegrity(Network.INTEGRITY_CHECK_FULL));
+        assertThrows(IllegalArgumentException.class, () -> network2.createOffHeapNetwork().checkIntegrity(Network.INTEGRITY_CHECK_FULL));
+        assertThrows(IllegalArgumentException.class, () -> network3.createOffHeapNetwork().checkIntegrity(Network.INTEGRITY_CHECK_STRUCTURE));
+    }
+
+    @Test
+    public void testCheckIntegrityInParallel()
+    {
+        // A network that is large enough for the check to be performed in
+        // parallel.
+        Random random = new Random(1);
+        int nNodes = 100000;
+        long nEdges = 600000;
+        LargeIntArray[] edges = new LargeIntArray[2];
+        edges[0] = new LargeIntArray(nEdges);
+        edges[1] = new LargeIntArray(nEdges);
+        for (long i = 0; i < nEdges; i++)
+        {
+            edges[0].set(i, (int)(i % nNodes));
+            edges[1].set(i, (int)((i % nNodes + i / nNodes + 1) % nNodes));
+        }
+        LargeDoubleArray edgeWeights = new LargeDoubleArray(nEdges);
+        for (long i = 0; i < nEdges; i++)
+            edgeWeights.set(i, random.nextDouble());
+        Network network = new Network(nNodes, true, edges, edgeWeights, false, true);
+        network.checkIntegrity(Network.INTEGRITY_CHECK_FULL);
+
+        network.edgeWeights.set(12345, 2);
+        assertThrows(IllegalArgumentException.class, () -> network.checkIntegrity(Network.INTEGRITY_CHECK_FULL));
+    }
+
+    @Test
+    public void testCreateReducedNetworkInParallel()
+    {
+        Random random = new Random(1);
+        int nNodes = 300;
+        LargeDoubleArray edgeWeights = new LargeDoubleArray(0);
+        Network network = new Network(nNodes, true, createRandomEdges(nNodes, 1000, 2, edgeWeights), edgeWeights, false, true);
+
+        // Both a small number of clusters, for which edge weights are
+        // accumulated in a dense array, and a large number of clusters, for
+        // which edge weights are accumulated in a hash table.
+        for (int nClusters : new int[] { 3, nNodes / 2, nNodes })
+        {
+            int[] clusters = new int[nNodes];
+            for (int i = 0; i < nNodes; i++)
+                clusters[i] = (i < nClusters) ? i : random.nextInt(nClusters);
+            Clustering clustering = new Clustering(clusters);
+            assertNetworkEquals(network.createReducedNetwork(clustering, false), network.createReducedNetwork(clustering, true));
+        }
+    }
+
+    @Test
+    public void testCreateSubnetworksInParallel()
+    {
+        Random random = new Random(1);
+        int nNodes = 300;
+        LargeDoubleArray edgeWeights = new LargeDoubleArray(0);
+        Network network = new Network(nNodes, true, createRandomEdges(nNodes, 2000, 3, edgeWeights), edgeWeights, false, true);
+
+        // Clusters of different sizes, including clusters of a single node.
+        int[] clusters = new int[nNodes];
+        for (int i = 0; i < nNodes; i++)
+            clusters[i] = (i < nNodes / 2) ? random.nextInt(10) : i;
+        Clustering clustering = new Clustering(clusters);
+        Network[] subnetworks = network.createSubnetworks(clustering, false);
+        Network[] parallelSubnetworks = network.createSubnetworks(clustering, true);
+        assertEquals(clustering.getNClusters(), subnetworks.length);
+        assertEquals(clustering.getNClusters(), parallelSubnetworks.length);
+        for (int i = 0; i < clustering.getNClusters(); i++)
+        {
+            Network subnetwork = network.createSubnetwork(clustering, i);
+            subnetworks[i].checkIntegrity();
+            assertNetworkEquals(subnetwork, subnetworks[i]);
+            assertNetworkEquals(subnetwork, parallelSubnetworks[i]);
+        }
+    }
+
+    @Test
+    public void testIdentifyComponentsInParallel()
+    {
+        Random random = new Random(1);
+        int nNodes = 20000;
+        LargeIntArray[] edges = new LargeIntArray[2];
+        edges[0] = new LargeIntArray(0);
+        edges[1] = new LargeIntArray(0);
+        for (int i = 0; i < nNodes; i++)
+            for (int j = 0; j < 2; j++)
+                if (random.nextDouble() < 0.3)
+                {
+                    // Mostly short edges, resulting in many components of
+                    // different sizes.
+                    int k = i + 1 + 10 * j + random.nextInt(10);
+                    if (k < nNodes)
+                    {
+                        edges[0].append(i);
+                        edges[1].append(k);
+                    }
+                }
+        Network network = new Network(nNodes, false, edges, false, true);
+
+        Clustering components = network.identifyComponents(false);
+        assertTrue(components.getNClusters() > 100);
+        for (int i = 0; i < 5; i++)
+            assertArrayEquals(components.getClusters(), network.identifyComponents(true).getClusters());
+        assertArrayEquals(components.getClusters(), network.createCompressedNetwork().identifyComponents(true).getClusters());
+        assertEquals(components.getNNodesPerCluster()[0], network.createSubnetworkLargestComponent().getNNodes());
+    }
+
+    @Test
+    public void testCreateNetworkWithNodeOrder()
+    {
+        Random random = new Random(1);
+        int nNodes = 300;
+        LargeDoubleArray edgeWeights = new LargeDoubleArray(0);
+        Network network = new Network(nNodes, true, createRandomEdges(nNodes, 1300, 4, edgeWeights), edgeWeights, false, true);
+        Clustering clustering = new LeidenAlgorithm(0.05, 10, LeidenAlgorithm.DEFAULT_RANDOMNESS, new Random(0)).findClustering(network);
+
+        int[][] nodeOrders = { network.calcNodeOrderByDegree(), network.calcNodeOrderUsingReverseCuthillMcKee(), network.calcNodeOrderByCluster(clustering) };
+        for (int[] nodeOrder : nodeOrders)
+        {
+            int[] newNodes = nl.cwts.util.Arrays.calcInversePermutation(nodeOrder);
+            Network newNetwork = network.createNetworkWithNodeOrder(nodeOrder);
+            newNetwork.checkIntegrity();
+            assertEquals(network.getNEdges(), newNetwork.getNEdges());
+            for (int i = 0; i < nNodes; i++)
+            {
+                assertEquals(network.getNodeWeight(nodeOrder[i]), newNetwork.getNodeWeight(i));
+                int[] neighbors = network.getNeighbors(nodeOrder[i]);
+                double[] expectedEdgeWeights = new double[nNodes];
+                for (int j = 0; j < neighbors.length; j++)
+                    expectedEdgeWeights[newNodes[neighbors[j]]] = network.getEdgeWeights(nodeOrder[i])[j];
+                int[] newNeighbors = newNetwork.getNeighbors(i);
+                assertEquals(neighbors.length, newNeighbors.length);
+                for (int j = 0; j < newNeighbors.length; j++)
+                    assertEquals(expectedEdgeWeights[newNeighbors[j]], newNetwork.getEdgeWeights(i)[j]);
+            }
+
+            // A clustering keeps its quality when its nodes are renumbered,
+            // and is restored when they are numbered back.
+            CPMClusteringAlgorithm algorithm = new LeidenAlgorithm(0.05, 10, LeidenAlgorithm.DEFAULT_RANDOMNESS, new Random(0));
+            Clustering newClustering = clustering.createClusteringWithNodeOrder(nodeOrder);
+            assertEquals(algorithm.calcQuality(network, clustering), algorithm.calcQuality(newNetwork, newClustering), 1e-9);
+            assertArrayEquals(clustering.getClusters(), newClustering.createClusteringWithNodeOrder(newNodes).getClusters());
+            Layout layout = new Layout(nNodes, random);
+            Layout newLayout = layout.createLayoutWithNodeOrder(nodeOrder).createLayoutWithNodeOrder(newNodes);
+            for (int i = 0; i < nNodes; i++)
+                assertArrayEquals(layout.getCoordinates(i), newLayout.getCoordinates(i));
+        }
+
+        // The reverse Cuthill-McKee order keeps the neighbors of a node close
+        // to the node itself, also if the nodes are first shuffled.
+        Network shuffledNetwork = network.createNetworkWithNodeOrder(nl.cwts.util.Arrays.generateRandomPermutation(nNodes, random));
+        Network rcmNetwork = shuffledNetwork.createNetworkWithNodeOrder(shuffledNetwork.calcNodeOrderUsingReverseCuthillMcKee());
+        long distance = 0;
+        long rcmDistance = 0;
+        for (int i = 0; i < nNodes; i++)
+        {
+            for (int j : shuffledNetwork.getNeighbors(i))
+                distance += Math.abs(i - j);
+            for (int j : rcmNetwork.getNeighbors(i))
+                rcmDistance += Math.abs(i - j);
+        }
+        assertTrue(rcmDistance < distance / 4);
+        assertThrows(IllegalArgumentException.class, () -> network.createNetworkWithNodeOrder(new int[nNodes]));
+    }
+
+    @Test
+    public void testCreatePrunedNetwork()
+    {
+        int nNodes = 500;
+        LargeDoubleArray edgeWeights = new LargeDoubleArray(0);
+        Network network = new Network(nNodes, true, createRandomEdges(nNodes, 3000, 5, edgeWeights), edgeWeights, false, true);
+
+        // Many edges have the same weight, so ties need to be broken. Each
+        // edge that is not a self-link is stored in both directions.
+        int maxNEdges = (int)(network.getNEdges() / 2);
+        Network prunedNetwork = network.createPrunedNetwork(maxNEdges, new Random(2));
+        prunedNetwork.checkIntegrity();
+        assertEquals(maxNEdges, prunedNetwork.getNEdges());
+        double[] sortedEdgeWeights = network.getEdgeWeights().toArray();
+        Arrays.sort(sortedEdgeWeights);
+        assertEquals(nl.cwts.util.Arrays.calcSum(sortedEdgeWeights, sortedEdgeWeights.length - 2 * maxNEdges, sortedEdgeWeights.length) / 2, prunedNetwork.getTotalEdgeWeight());
+        assertNetworkEquals(prunedNetwork, network.createPrunedNetwork(maxNEdges, new Random(2)));
+    }
+
+    @Test
+    public void testCreateNormalizedNetworkInPlace() throws IOException
+    {
+        Network expectedNetwork = testNetwork.createNormalizedNetworkUsingAssociationStrength();
+        Network normalizedNetwork = testNetwork.createOffHeapNetwork().createNormalizedNetworkUsingAssociationStrength(true);
+        assertNetworkEquals(expectedNetwork, normalizedNetwork);
+        assertNetworkEquals(expectedNetwork, testNetwork.createNetworkWithSinglePrecisionEdgeWeights().createNormalizedNetworkUsingAssociationStrength(true));
+
+        expectedNetwork = testNetwork.createNormalizedNetworkUsingFractionalization();
+        normalizedNetwork = testNetwork.createCompressedNetwork().createNormalizedNetworkUsingFractionalization(true);
+        assertNetworkEquals(expectedNetwork, normalizedNetwork);
+
+        // Edge weights shared with another network are not overwritten.
+        Network network = testNetwork.createOffHeapNetwork();
+        Network networkWithoutNodeWeights = network.createNetworkWithoutNodeWeights();
+        Network expectedNetworkWithoutNodeWeights = testNetwork.createNetworkWithoutNodeWeights();
+        assertNetworkEquals(expectedNetwork, network.createNormalizedNetworkUsingFractionalization(true));
+        assertNetworkEquals(expectedNetworkWithoutNodeWeights, networkWithoutNodeWeights);
+        assertNetworkEquals(expectedNetworkWithoutNodeWeights.createNormalizedNetworkUsingFractionalization(), networkWithoutNodeWeights.createNormalizedNetworkUsingFractionalization(true));
+        assertNetworkEquals(testNetwork, network);
+
+        // Edge weights that have been overwritten are not overwritten again.
+        network = testNetwork.createOffHeapNetwork();
+        normalizedNetwork = network.createNormalizedNetworkUsingFractionalization(true);
+        assertNetworkEquals(expectedNetwork, normalizedNetwork);
+        network.createNormalizedNetworkUsingFractionalization(true);
+        assertNetworkEquals(expectedNetwork, normalizedNetwork);
+
+        // Edge weights in a memory-mapped file are not overwritten.
+        File file = File.createTempFile("network", ".bin");
+        file.deleteOnExit();
+        testNetwork.saveBinary(file.getPath());
+        network = Network.loadBinary(file.getPath(), true);
+        assertNetworkEquals(expectedNetwork, network.createNormalizedNetworkUsingFractionalization(true));
+        assertNetworkEquals(testNetwork, network);
+        network.releaseOffHeapMemory();
+    }
+
+    @Test
+    public void testCreateNormalizedNetworkView() throws IOException
+    {
+        Network expectedNetwork = testNetwork.createNormalizedNetworkUsingAssociationStrength();
+        Network normalizedNetwork = testNetwork.createNormalizedNetworkViewUsingAssociationStrength();
+        assertNetworkEquals(expectedNetwork, normalizedNetwork);
+        assertEquals(expectedNetwork.getTotalEdgeWeight(), normalizedNetwork.getTotalEdgeWeight());
+        assertArrayEquals(expectedNetwork.getEdgeWeights().toArray(), normalizedNetwork.getEdgeWeights().toArray());
+        assertNetworkEquals(expectedNetwork, normalizedNetwork.createCompressedNetwork());
+        assertNetworkEquals(expectedNetwork, normalizedNetwork.createOffHeapNetwork());
+        assertNetworkEquals(expectedNetwork.createNetworkWithSinglePrecisionEdgeWeights(), normalizedNetwork.createNetworkWithSinglePrecisionEdgeWeights());
+        Clustering clustering = new Clustering(new int[] { 0, 0, 1, 1, 1, 2, 2, 2, 0, 1 });
+        assertNetworkEquals(expectedNetwork.createReducedNetwork(clustering), normalizedNetwork.createReducedNetwork(clustering));
+
+        File file = File.createTempFile("network", ".bin");
+        file.deleteOnExit();
+        normalizedNetwork.saveBinary(file.getPath());
+        assertNetworkEquals(expectedNetwork, Network.loadBinary(file.getPath()));
+
+        // Normalizing in place must not overwrite the shared edge weights.
+        assertNetworkEquals(expectedNetwork.createNormalizedNetworkUsingFractionalization(), normalizedNetwork.createNormalizedNetworkUsingFractionalization(true));
+        assertNetworkEquals(expectedNetwork, normalizedNetwork);
+
+        expectedNetwork = testNetwork.createNormalizedNetworkUsingFractionalization();
+        normalizedNetwork = testNetwork.createCompressedNetwork().createNormalizedNetworkViewUsingFractionalization();
+        assertNetworkEquals(expectedNetwork, normalizedNetwork);
+        assertEquals(expectedNetwork.getTotalEdgeWeight(), normalizedNetwork.getTotalEdgeWeight());
+        assertNetworkEquals(expectedNetwork, new DynamicNetwork(normalizedNetwork, false).getNetwork());
+    }
+
+    @Test
+    public void testCreateNetworkWithNodeWeights()
+    {
+        double[] nodeWeights = testNetwork.getNodeWeights();
+        nodeWeights[0] = 1;
+        Network network = testNetwork.createNetworkWithNodeWeights(nodeWeights);
+        nodeWeights[1] = 1;
+        assertEquals(1, network.getNodeWeight(0));
+        assertEquals(testNetwork.getNodeWeight(1), network.getNodeWeight(1));
+        assertArrayEquals(testNetwork.getEdgeWeights().toArray(), network.getEdgeWeights().toArray());
+        assertThrows(IllegalArgumentException.class, () -> testNetwork.createNetworkWithNodeWeights(new double[1]));
+    }
+
+    @Test
+    public void testCreateCompressedNetwork()
+    {
+        Network compressedNetwork = testNetwork.createCompressedNetwork();
+        assertTrue(compressedNetwork.isCompressed());
+        compressedNetwork.checkIntegrity();
+        assertNetworkEquals(testNetwork, compressedNetwork);
+        assertNetworkEquals(testNetwork, compressedNetwork.createUncompressedNetwork());
+
+        Clustering clustering = new Clustering(new int[] { 0, 0, 1, 1, 1, 2, 2, 2, 0, 1 });
+        assertNetworkEquals(testNetwork.createReducedNetwork(clustering), compressedNetwork.createReducedNetwork(clustering));
+        assertNetworkEquals(testNetwork.createNetworkWithoutNodeWeights(), compressedNetwork.createNetworkWithoutNodeWeights());
+        assertNetworkEquals(testNetwork.createPrunedNetwork(10, new Random(0)), compressedNetwork.createPrunedNetwork(10, new Random(0)));
+    }
+
+    @Test
+    public void testLeidenAlgorithmOnCompressedNetwork()
+    {
+        Network compressedNetwork = testNetwork.createCompressedNetwork();
+        LeidenAlgorithm algorithm = new LeidenAlgorithm(0.05, 10, LeidenAlgorithm.DEFAULT_RANDOMNESS, new Random(0));
+        Clustering clustering = algorithm.findClustering(testNetwork);
+        algorithm = new LeidenAlgorithm(0.05, 10, LeidenAlgorithm.DEFAULT_RANDOMNESS, new Random(0));
+        Clustering compressedClustering = algorithm.findClustering(compressedNetwork);
+        assertArrayEquals(clustering.getClusters(), compressedClustering.getClusters());
+        assertEquals(algorithm.calcQuality(testNetwork, clustering), algorithm.calcQuality(compressedNetwork, compressedClustering));
+    }
+
+    @Test
+    public void testUnitEdgeWeights() throws IOException
+    {
+        LargeIntArray[] edges = new LargeIntArray[2];
+        edges[0] = new LargeIntArray(new int[] { 0, 0, 1, 2, 3, 3, 4 });
+        edges[1] = new LargeIntArray(new int[] { 1, 2, 2, 3, 4, 3, 0 });
+        Network network = new Network(5, true, edges, new LargeDoubleArray(edges[0].size(), 1), false, true);
+        Network unitNetwork = new Network(5, true, edges, false, true);
+        assertTrue(unitNetwork.hasUnitEdgeWeights());
+        assertNetworkEquals(network, unitNetwork);
+        assertEquals(network.getTotalEdgeWeight(), unitNetwork.getTotalEdgeWeight());
+        assertArrayEquals(network.getEdgeWeights().toArray(), unitNetwork.getEdgeWeights().toArray());
+
+        File file = File.createTempFile("network", ".bin");
+        file.deleteOnExit();
+        unitNetwork.saveBinary(file.getPath());
+        assertNetworkEquals(network, Network.loadBinary(file.getPath()));
+
+        Network networkWithoutEdgeWeights = testNetwork.createNetworkWithoutEdgeWeights();
+        assertTrue(networkWithoutEdgeWeights.hasUnitEdgeWeights());
+        networkWithoutEdgeWeights.checkIntegrity();
+        assertEquals(testNetwork.getNEdges(), networkWithoutEdgeWeights.getTotalEdgeWeight());
+    }
+
+    @Test
+    public void testCreateNetworkWithSinglePrecisionEdgeWeights()
+    {
+        Network singlePrecisionNetwork = testNetwork.createNetworkWithSinglePrecisionEdgeWeights();
+        assertTrue(singlePrecisionNetwork.hasSinglePrecisionEdgeWeights());
+        singlePrecisionNetwork.checkIntegrity();
+        assertNetworkEquals(testNetwork, singlePrecisionNetwork);
+        assertArrayEquals(testNetwork.getTotalEdgeWeightPerNode(), singlePrecisionNetwork.getTotalEdgeWeightPerNode());
+
+        LeidenAlgorithm algorithm = new LeidenAlgorithm(0.05, 10, LeidenAlgorithm.DEFAULT_RANDOMNESS, new Random(0));
+        Clustering clustering = algorithm.findClustering(testNetwork);
+        algorithm = new LeidenAlgorithm(0.05, 10, LeidenAlgorithm.DEFAULT_RANDOMNESS, new Random(0));
+        Clustering singlePrecisionClustering = algorithm.findClustering(singlePrecisionNetwork.createCompressedNetwork());
+        assertArrayEquals(clustering.getClusters(), singlePrecisionClustering.getClusters());
+    }
+
+    @Test
+    public void testCreateOffHeapNetwork() throws IOException
+    {
+        Network offHeapNetwork = testNetwork.createOffHeapNetwork();
+        assertTrue(offHeapNetwork.isOffHeap());
+        offHeapNetwork.checkIntegrity();
+        assertNetworkEquals(testNetwork, offHeapNetwork);
+        assertNetworkEquals(testNetwork, offHeapNetwork.createCompressedNetwork());
+
+        LeidenAlgorithm algorithm = new LeidenAlgorithm(0.05, 10, LeidenAlgorithm.DEFAULT_RANDOMNESS, new Random(0));
+        Clustering clustering = algorithm.findClustering(testNetwork);
+        algorithm = new LeidenAlgorithm(0.05, 10, LeidenAlgorithm.DEFAULT_RANDOMNESS, new Random(0));
+        assertArrayEquals(clustering.getClusters(), algorithm.findClustering(offHeapNetwork).getClusters());
+
+        File file = File.createTempFile("network", ".bin");
+        file.deleteOnExit();
+        offHeapNetwork.saveBinary(file.getPath());
+        offHeapNetwork.releaseOffHeapMemory();
+        Network loadedNetwork = Network.loadBinary(file.getPath(), true);
+        assertTrue(loadedNetwork.isOffHeap());
+        assertNetworkEquals(testNetwork, loadedNetwork);
+        Network loadedNetwork2 = Network.loadBinary(file.getPath(), true);
+        assertNetworkEquals(testNetwork, loadedNetwork2);
+        algorithm = new LeidenAlgorithm(0.05, 10, LeidenAlgorithm.DEFAULT_RANDOMNESS, new Random(0));
+        assertArrayEquals(clustering.getClusters(), algorithm.findClustering(loadedNetwork).getClusters());
+        loadedNetwork.releaseOffHeapMemory();
+        loadedNetwork2.releaseOffHeapMemory();
+    }
+
+    @Test
+    public void testPrimitiveTraversal()
+    {
+        Network offHeapNetwork = testNetwork.createOffHeapNetwork();
+        Network[] networks = { testNetwork, testNetwork.createCompressedNetwork(), testNetwork.createNetworkWithSinglePrecisionEdgeWeights(), testNetwork.createNetworkWithoutEdgeWeights(), offHeapNetwork, testNetwork.createNormalizedNetworkViewUsingAssociationStrength() };
+        int[] neighbors = new int[testNetwork.getNNodes()];
+        double[] edgeWeights = new double[testNetwork.getNNodes()];
+        for (Network network : networks)
+            for (int i = 0; i < network.getNNodes(); i++)
+            {
+                int nNeighbors = network.getNeighbors(i, neighbors);
+                assertEquals(network.getNNeighbors(i), nNeighbors);
+                assertArrayEquals(network.getNeighbors(i), Arrays.copyOf(neighbors, nNeighbors));
+                assertEquals(nNeighbors, network.getEdgeWeights(i, edgeWeights));
+                assertArrayEquals(network.getEdgeWeights(i), Arrays.copyOf(edgeWeights, nNeighbors));
+                assertEquals(nNeighbors, network.getEndIncidentEdge(i) - network.getFirstIncidentEdge(i));
+
+                int[] nVisitedNeighbors = new int[1];
+                network.forEachNeighbor(i, (neighbor, edgeWeight) ->
+                {
+                    assertEquals(neighbors[nVisitedNeighbors[0]], neighbor);
+                    assertEquals(edgeWeights[nVisitedNeighbors[0]], edgeWeight);
+                    nVisitedNeighbors[0]++;
+                });
+                assertEquals(nNeighbors, nVisitedNeighbors[0]);
+            }
+        offHeapNetwork.releaseOffHeapMemory();
+    }
+}
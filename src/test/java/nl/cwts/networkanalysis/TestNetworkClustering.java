@@ -2,6 +2,8 @@ package nl.cwts.networkanalysis;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Random;
 
@@ -12,6 +14,12 @@ import nl.cwts.util.LargeIntArray;
 
 public class TestNetworkClustering
 {
+    /**
+     * Network with planted clusters, shared by the tests because it takes a
+     * while to create.
+     */
+    static Network plantedClusterNetwork;
+
     Network testNetwork;
 
     @BeforeEach
@@ -60,4 +68,196 @@ public class TestNetworkClustering
         assertEquals((14 - resolution * (3 * 3 + 3 * 3 + 2 * 2)) / 18, algorithm.calcQuality(testNetwork, clustering),
                 1e-10);
     }
+
+    /**
+     * Returns a network with 2000 planted clusters of 50 nodes. The network is
+     * created only once.
+     */
+    static synchronized Network getPlantedClusterNetwork()
+    {
+        if (plantedClusterNetwork == null)
+            plantedClusterNetwork = createPlantedClusterNetwork();
+        return plantedClusterNetwork;
+    }
+
+    /**
+     * Creates a network with 2000 planted clusters of 50 nodes.
+     */
+    static Network createPlantedClusterNetwork()
+    {
+        Random random = new Random(1);
+        int nNodes = 100000;
+        LargeIntArray[] edges = new LargeIntArray[] { new LargeIntArray(0), new LargeIntArray(0) };
+        for (int i = 0; i < nNodes; i++)
+        {
+            for (int j = i + 1; j < i + 50 - i % 50; j++)
+                if (random.nextDouble() < 0.2)
+                {
+                    edges[0].append(i);
+                    edges[1].append(j);
+                }
+            int k = random.nextInt(nNodes);
+            if (k / 50 != i / 50)
+            {
+                edges[0].append(i);
+                edges[1].append(k);
+            }
+        }
+        return new Network(nNodes, true, edges, false, false);
+    }
+
+    @Test
+    public void testParallelLocalMoving()
+    {
+        Network network = getPlantedClusterNetwork();
+        int nNodes = network.getNNodes();
+        double resolution = 1 / (2 * network.getTotalEdgeWeight());
+
+        FastLocalMovingAlgorithm algorithm = new FastLocalMovingAlgorithm(resolution, FastLocalMovingAlgorithm.DEFAULT_N_ITERATIONS, new Random(0));
+        Clustering clustering = new Clustering(nNodes);
+        algorithm.improveClusteringOneIteration(network, clustering, false);
+        double quality = algorithm.calcQuality(network, clustering);
+
+        Clustering parallelClustering = new Clustering(nNodes);
+        assertTrue(algorithm.improveClusteringOneIteration(network, parallelClustering, true));
+        double parallelQuality = algorithm.calcQuality(network, parallelClustering);
+        assertTrue(parallelQuality > 0.99 * quality);
+    }
+
+    @Test
+    public void testParallelLocalMovingWithoutUnusedClusters()
+    {
+        /*
+         * In a network without edges, each node is optimally assigned to its
+         * own cluster. Initially, pairs of nodes are in the odd-numbered
+         * clusters. The unused clusters, which are the even-numbered ones, are
+         * then all given to the first of two tasks, so that the second task
+         * runs out of unused clusters.
+         */
+        int nNodes = 1 << 16;
+        double[] nodeWeights = new double[nNodes];
+        java.util.Arrays.fill(nodeWeights, 1);
+        Network network = new Network(nodeWeights, new long[nNodes + 1], new LargeIntArray(0), false);
+        int[] clusters = new int[nNodes];
+        for (int i = 0; i < nNodes; i++)
+            clusters[i] = 2 * (i / 2) + 1;
+        FastLocalMovingAlgorithm algorithm = new FastLocalMovingAlgorithm(1, FastLocalMovingAlgorithm.DEFAULT_N_ITERATIONS, new Random(0));
+
+        Clustering clustering = new Clustering(clusters);
+        int[] nodeOrder = nl.cwts.util.Arrays.generateRandomPermutation(nNodes, new Random(1));
+        boolean[] stableNodes = new boolean[nNodes];
+        algorithm.moveNodesInParallelHelper(network, clustering, nodeOrder, stableNodes, 2);
+        int[] nNodesPerCluster = clustering.getNNodesPerCluster();
+        for (int i = 0; i < nNodes; i++)
+            if (stableNodes[i])
+                assertEquals(1, nNodesPerCluster[clustering.getCluster(i)]);
+
+        clustering = new Clustering(clusters);
+        assertTrue(algorithm.improveClusteringOneIteration(network, clustering, true));
+        assertEquals(nNodes, clustering.getNClusters());
+    }
+
+    /**
+     * Creates a clustering of the planted-cluster network in which each
+     * cluster consists of a number of planted clusters.
+     */
+    static Clustering createMergedPlantedClustering(int nPlantedClustersPerCluster)
+    {
+        int[] clusters = new int[getPlantedClusterNetwork().getNNodes()];
+        for (int i = 0; i < clusters.length; i++)
+            clusters[i] = i / (50 * nPlantedClustersPerCluster);
+        return new Clustering(clusters);
+    }
+
+    @Test
+    public void testParallelRefinement()
+    {
+        // The refinement does not depend on the number of threads.
+        Network network = getPlantedClusterNetwork();
+        double resolution = 1 / (2 * network.getTotalEdgeWeight());
+        LeidenAlgorithm algorithm = new LeidenAlgorithm(resolution, 1, LeidenAlgorithm.DEFAULT_RANDOMNESS, new Random(3));
+        Clustering clustering = createMergedPlantedClustering(10);
+        int[] refinedClusters = new int[network.getNNodes()];
+        int nRefinedClusters = algorithm.refineClustersHelper(network, clustering, refinedClusters, 5, 2);
+        assertTrue(nRefinedClusters > clustering.getNClusters());
+        for (int nThreads : new int[] { 3, 8 })
+        {
+            int[] refinedClusters2 = new int[network.getNNodes()];
+            assertEquals(nRefinedClusters, algorithm.refineClustersHelper(network, clustering, refinedClusters2, 5, nThreads));
+            assertArrayEquals(refinedClusters, refinedClusters2);
+        }
+    }
+
+    @Test
+    public void testParallelRefinementEqualsSequentialRefinement()
+    {
+        Network network = getPlantedClusterNetwork();
+        double resolution = 1 / (2 * network.getTotalEdgeWeight());
+        LeidenAlgorithm algorithm = new LeidenAlgorithm(resolution, 1, LeidenAlgorithm.DEFAULT_RANDOMNESS, new Random(3));
+        Clustering clustering = createMergedPlantedClustering(4);
+        int[] refinedClusters = new int[network.getNNodes()];
+        int nRefinedClusters = algorithm.refineClustersHelper(network, clustering, refinedClusters, 7, 1);
+        int[] parallelRefinedClusters = new int[network.getNNodes()];
+        assertEquals(nRefinedClusters, algorithm.refineClustersHelper(network, clustering, parallelRefinedClusters, 7, 4));
+        assertArrayEquals(refinedClusters, parallelRefinedClusters);
+    }
+
+    @Test
+    public void testCancellation()
+    {
+        CancellationToken cancellationToken = new CancellationToken(60000);
+        assertFalse(cancellationToken.isCancelled());
+        assertEquals(CancellationToken.NOT_CANCELLED, cancellationToken.getReason());
+        cancellationToken.cancel();
+        assertTrue(cancellationToken.isCancelled());
+        assertEquals(CancellationToken.CANCELLED, cancellationToken.getReason());
+        cancellationToken.cancel(CancellationToken.MAX_MEMORY_EXCEEDED);
+        assertEquals(CancellationToken.CANCELLED, cancellationToken.getReason());
+        assertEquals(CancellationToken.TIME_LIMIT_REACHED, new CancellationToken(0).getReason());
+        assertFalse(new CancellationToken(Long.MAX_VALUE).isCancelled());
+
+        // A cancelled algorithm does not change the clustering.
+        Network network = getPlantedClusterNetwork();
+        double resolution = 1 / (2 * network.getTotalEdgeWeight());
+        LouvainAlgorithm louvainAlgorithm = new LouvainAlgorithm(resolution, 0, new Random(4));
+        louvainAlgorithm.setCancellationToken(cancellationToken);
+        assertEquals(network.getNNodes(), louvainAlgorithm.findClustering(network).getNClusters());
+
+        // An algorithm that reaches its time limit returns a valid clustering
+        // that is at least as good as the initial clustering.
+        CancellationToken cancellationToken2 = new CancellationToken(1);
+        LeidenAlgorithm leidenAlgorithm = new LeidenAlgorithm(resolution, -1, LeidenAlgorithm.DEFAULT_RANDOMNESS, new Random(4));
+        leidenAlgorithm.setCancellationToken(cancellationToken2);
+        Clustering initialClustering = new Clustering(network.getNNodes());
+        Clustering clustering = initialClustering.clone();
+        leidenAlgorithm.improveClustering(network, clustering);
+        assertEquals(CancellationToken.TIME_LIMIT_REACHED, cancellationToken2.getReason());
+        assertEquals(network.getNNodes(), clustering.getNNodes());
+        int[] nNodesPerCluster = clustering.getNNodesPerCluster();
+        for (int i = 0; i < clustering.getNClusters(); i++)
+            assertTrue(nNodesPerCluster[i] > 0);
+        assertTrue(leidenAlgorithm.calcQuality(network, clustering) >= leidenAlgorithm.calcQuality(network, initialClustering));
+    }
+
+    @Test
+    public void testRefineCluster()
+    {
+        Network network = getPlantedClusterNetwork().createNormalizedNetworkUsingAssociationStrength();
+        int nNodes = network.getNNodes();
+        int[] clusters = new int[nNodes];
+        for (int i = 0; i < nNodes; i++)
+            clusters[i] = (i % 1000) / 100;
+        Clustering clustering = new Clustering(clusters);
+        int[][] nodesPerCluster = clustering.getNodesPerCluster();
+        int[] refinedClusters = new int[nNodes];
+        LocalMergingAlgorithm algorithm = new LocalMergingAlgorithm(1e-4, LocalMergingAlgorithm.DEFAULT_RANDOMNESS, new Random(0));
+        LocalMergingAlgorithm algorithm2 = new LocalMergingAlgorithm(1e-4, LocalMergingAlgorithm.DEFAULT_RANDOMNESS, new Random(0));
+        for (int i = 0; i < clustering.getNClusters(); i++)
+        {
+            Clustering expectedClustering = algorithm.findClustering(network.createSubnetwork(clustering, i));
+            assertEquals(expectedClustering.getNClusters(), algorithm2.refineCluster(network, clusters, nodesPerCluster[i], 0, nodesPerCluster[i].length, refinedClusters));
+            for (int j = 0; j < nodesPerCluster[i].length; j++)
+                assertEquals(expectedClustering.getCluster(j), refinedClusters[nodesPerCluster[i][j]]);
+        }
+    }
 }
@@ -0,0 +1,273 @@
+package nl.cwts.networkanalysis.run;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import nl.cwts.networkanalysis.Clustering;
+import nl.cwts.networkanalysis.Layout;
+import nl.cwts.networkanalysis.Network;
+
+public class TestFileIO
+{
+    byte[] edgeList;
+    File edgeListFile;
+
+    @BeforeEach
+    public void setUp() throws IOException
+    {
+        Random random = new Random(1);
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < 20000; i++)
+            for (int j = 0; j < 10; j++)
+                stringBuilder.append(i).append('\t').append((i + j * j + 1) % 20000).append('\t').append(random.nextInt(5) + 1).append('\n');
+        edgeList = stringBuilder.toString().getBytes(StandardCharsets.US_ASCII);
+        edgeListFile = writeTempFile(".txt", edgeList);
+    }
+
+    File createTempFile(String suffix) throws IOException
+    {
+        File file = File.createTempFile("fileio", suffix);
+        file.deleteOnExit();
+        return file;
+    }
+
+    File writeTempFile(String suffix, byte[] data) throws IOException
+    {
+        File file = createTempFile(suffix);
+        OutputStream outputStream = new FileOutputStream(file);
+        outputStream.write(data);
+        outputStream.close();
+        return file;
+    }
+
+    /**
+     * Writes data in the BGZF format, consisting of gzip members of at most
+     * 64 KB whose size is stored in an extra field of the header.
+     */
+    void writeBgzf(File file, byte[] data) throws IOException
+    {
+        OutputStream outputStream = new FileOutputStream(file);
+        byte[] compressedData = new byte[1 << 17];
+        for (int from = 0; from < data.length; from += 1 << 15)
+        {
+            int length = Math.min(1 << 15, data.length - from);
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            deflater.setInput(data, from, length);
+            deflater.finish();
+            int compressedLength = deflater.deflate(compressedData);
+            deflater.end();
+            CRC32 crc32 = new CRC32();
+            crc32.update(data, from, length);
+            int blockSize = 18 + compressedLength + 8;
+            outputStream.write(new byte[] { 0x1F, (byte)0x8B, 8, 4, 0, 0, 0, 0, 0, (byte)0xFF, 6, 0, 'B', 'C', 2, 0, (byte)(blockSize - 1), (byte)((blockSize - 1) >>> 8) });
+            outputStream.write(compressedData, 0, compressedLength);
+            long crc = crc32.getValue();
+            outputStream.write(new byte[] { (byte)crc, (byte)(crc >>> 8), (byte)(crc >>> 16), (byte)(crc >>> 24), (byte)length, (byte)(length >>> 8), (byte)(length >>> 16), (byte)(length >>> 24) });
+        }
+        outputStream.close();
+    }
+
+    static void assertNetworkEquals(Network expectedNetwork, Network network)
+    {
+        assertEquals(expectedNetwork.getNNodes(), network.getNNodes());
+        assertEquals(expectedNetwork.getNEdges(), network.getNEdges());
+        for (int i = 0; i < expectedNetwork.getNNodes(); i++)
+        {
+            assertArrayEquals(expectedNetwork.getNeighbors(i), network.getNeighbors(i));
+            assertArrayEquals(expectedNetwork.getEdgeWeights(i), network.getEdgeWeights(i));
+        }
+    }
+
+    @Test
+    public void testReadEdgeListWithMixedLineTerminators() throws IOException
+    {
+        // Lines are terminated by "\n", "\r", or "\r\n", and the last line
+        // has no terminator.
+        String[] lines = new String(edgeList, StandardCharsets.US_ASCII).split("\n");
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < lines.length; i++)
+        {
+            stringBuilder.append(lines[i]);
+            if (i < lines.length - 1)
+                stringBuilder.append((i % 3 == 0) ? "\n" : ((i % 3 == 1) ? "\r" : "\r\n"));
+        }
+        File mixedFile = writeTempFile(".txt", stringBuilder.toString().getBytes(StandardCharsets.US_ASCII));
+
+        Network network = FileIO.readEdgeList(edgeListFile.getPath(), true, false, 1);
+        assertEquals(lines.length, network.getNEdges());
+        assertNetworkEquals(network, FileIO.readEdgeList(mixedFile.getPath(), true, false, 4));
+        assertNetworkEquals(network, FileIO.readEdgeListUsingExternalMemory(mixedFile.getPath(), true, 1 << 20));
+    }
+
+    @Test
+    public void testReadEdgeListInParallel() throws IOException
+    {
+        // Lines are terminated by "\r\n". For some numbers of threads, the
+        // nominal boundary between two chunks falls between "\r" and "\n".
+        byte[] data = new String(edgeList, StandardCharsets.US_ASCII).replace("\n", "\r\n").getBytes(StandardCharsets.US_ASCII);
+        File crlfFile = writeTempFile(".txt", data);
+
+        Network network = FileIO.readEdgeList(edgeListFile.getPath(), true, false, 1);
+        assertNetworkEquals(network, FileIO.readEdgeList(crlfFile.getPath(), true, false, 1));
+        boolean boundaryInLineTerminator = false;
+        for (int nThreads = 2; nThreads <= 16; nThreads++)
+        {
+            for (int i = 1; i < nThreads; i++)
+                if (data[data.length / nThreads * i] == '\n')
+                    boundaryInLineTerminator = true;
+            assertNetworkEquals(network, FileIO.readEdgeList(edgeListFile.getPath(), true, false, nThreads));
+            assertNetworkEquals(network, FileIO.readEdgeList(crlfFile.getPath(), true, false, nThreads));
+        }
+        assertTrue(boundaryInLineTerminator);
+    }
+
+    @Test
+    public void testReadEdgeListWithInvalidLine() throws IOException
+    {
+        // The invalid line is in the last of several chunks.
+        String[] lines = new String(edgeList, StandardCharsets.US_ASCII).split("\n");
+        lines[180000] = "180000\tnode\t1";
+        File invalidFile = writeTempFile(".txt", String.join("\r\n", lines).getBytes(StandardCharsets.US_ASCII));
+
+        String message = assertThrows(IOException.class, () -> FileIO.readEdgeListHelper(invalidFile.getPath(), true, false, 1, null)).getMessage();
+        assertEquals("Node must be represented by a zero-index integer number (line 180001).", message);
+        for (int nThreads : new int[] { 2, 5, 16 })
+            assertEquals(message, assertThrows(IOException.class, () -> FileIO.readEdgeListHelper(invalidFile.getPath(), true, false, nThreads, null)).getMessage());
+    }
+
+    /**
+     * Creates a random decimal number, possibly with a sign, leading zeros,
+     * many digits, and an exponent.
+     */
+    static String createRandomNumber(Random random)
+    {
+        StringBuilder stringBuilder = new StringBuilder();
+        int sign = random.nextInt(3);
+        if (sign > 0)
+            stringBuilder.append((sign == 1) ? '-' : '+');
+        int nIntegerDigits = random.nextInt(22);
+        int nFractionDigits = (nIntegerDigits == 0) ? (1 + random.nextInt(22)) : random.nextInt(22);
+        for (int i = 0; i < nIntegerDigits; i++)
+            stringBuilder.append((char)('0' + random.nextInt(10)));
+        if ((nFractionDigits > 0) || random.nextBoolean())
+            stringBuilder.append('.');
+        for (int i = 0; i < nFractionDigits; i++)
+            stringBuilder.append((char)('0' + random.nextInt(10)));
+        if (random.nextBoolean())
+        {
+            stringBuilder.append(random.nextBoolean() ? 'e' : 'E');
+            sign = random.nextInt(3);
+            if (sign > 0)
+                stringBuilder.append((sign == 1) ? '-' : '+');
+            stringBuilder.append(random.nextInt(40));
+        }
+        return stringBuilder.toString();
+    }
+
+    @Test
+    public void testReadEdgeWeights() throws IOException
+    {
+        // Edge weights of node 0 are compared with Double.parseDouble.
+        String[] edgeWeights = new String[10000];
+        String[] specialEdgeWeights = { "1", "-2.5", "+3.25", "0.1", ".5", "5.", "007.500", "1e5", "1E-5", "-1.5e+10", "2e22", "2e23", "1e-22", "3e-23", "123456789012345", "1234567890123456", "9007199254740993", "0.30000000000000004", "3.141592653589793238462643383279", "0.000000000000000000000001234", "1e308", "2.5e-320", "1.7976931348623157e308", "4.9e-324" };
+        Random random = new Random(2);
+        for (int i = 0; i < edgeWeights.length; i++)
+            edgeWeights[i] = (i < specialEdgeWeights.length) ? specialEdgeWeights[i] : createRandomNumber(random);
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < edgeWeights.length; i++)
+            stringBuilder.append(0).append('\t').append(i + 1).append('\t').append(edgeWeights[i]).append('\n');
+        File weightsFile = writeTempFile(".txt", stringBuilder.toString().getBytes(StandardCharsets.US_ASCII));
+
+        for (int nThreads : new int[] { 1, 4 })
+        {
+            double[] readEdgeWeights = FileIO.readEdgeList(weightsFile.getPath(), true, false, nThreads).getEdgeWeights(0);
+            assertEquals(edgeWeights.length, readEdgeWeights.length);
+            for (int i = 0; i < edgeWeights.length; i++)
+                assertEquals(edgeWeights[i] + " " + Double.parseDouble(edgeWeights[i]), edgeWeights[i] + " " + readEdgeWeights[i]);
+        }
+    }
+
+    @Test
+    public void testReadGzipEdgeList() throws IOException
+    {
+        File gzipFile = createTempFile(".txt.gz");
+        OutputStream outputStream = new GZIPOutputStream(new FileOutputStream(gzipFile));
+        outputStream.write(edgeList);
+        outputStream.close();
+
+        Network network = FileIO.readEdgeList(edgeListFile.getPath(), true, false, 1);
+        assertNetworkEquals(network, FileIO.readEdgeList(gzipFile.getPath(), true, false, 4));
+        assertNetworkEquals(network, FileIO.readEdgeListUsingExternalMemory(gzipFile.getPath(), true, 1 << 20));
+    }
+
+    @Test
+    public void testReadBgzfEdgeList() throws IOException
+    {
+        File bgzfFile = createTempFile(".txt.gz");
+        writeBgzf(bgzfFile, edgeList);
+
+        // A BGZF file is also a valid gzip file.
+        GZIPInputStream inputStream = new GZIPInputStream(new FileInputStream(bgzfFile));
+        ByteArrayOutputStream decompressedData = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1 << 16];
+        int n;
+        while ((n = inputStream.read(buffer)) > 0)
+            decompressedData.write(buffer, 0, n);
+        inputStream.close();
+        assertArrayEquals(edgeList, decompressedData.toByteArray());
+
+        Network network = FileIO.readEdgeList(edgeListFile.getPath(), true, false, 1);
+        assertNetworkEquals(network, FileIO.readEdgeList(bgzfFile.getPath(), true, false, 4));
+    }
+
+    @Test
+    public void testWriteGzipClusteringAndLayout() throws IOException
+    {
+        Random random = new Random(2);
+        int nNodes = 1000;
+        int[] clusters = new int[nNodes];
+        for (int i = 0; i < nNodes; i++)
+            clusters[i] = random.nextInt(10);
+        Clustering clustering = new Clustering(clusters);
+        File clusteringFile = createTempFile(".txt.gz");
+        FileIO.writeClustering(clusteringFile.getPath(), clustering);
+        FileInputStream inputStream = new FileInputStream(clusteringFile);
+        assertEquals(0x1F, inputStream.read());
+        assertEquals(0x8B, inputStream.read());
+        inputStream.close();
+        assertArrayEquals(clustering.getClusters(), FileIO.readClustering(clusteringFile.getPath(), nNodes).getClusters());
+
+        Layout layout = new Layout(nNodes, random);
+        File layoutFile = createTempFile(".txt.gz");
+        FileIO.writeLayout(layoutFile.getPath(), layout);
+        Layout readLayout = FileIO.readLayout(layoutFile.getPath(), nNodes);
+        for (int i = 0; i < nNodes; i++)
+            assertEquals(Arrays.toString(layout.getCoordinates(i)), Arrays.toString(readLayout.getCoordinates(i)));
+
+        // Files without the gzip extension are not compressed.
+        File uncompressedFile = createTempFile(".txt");
+        FileIO.writeClustering(uncompressedFile.getPath(), clustering);
+        inputStream = new FileInputStream(uncompressedFile);
+        assertEquals('0', inputStream.read());
+        inputStream.close();
+    }
+}
@@ -0,0 +1,140 @@
+package nl.cwts.networkanalysis.run;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import nl.cwts.networkanalysis.Clustering;
+import nl.cwts.networkanalysis.Network;
+
+public class TestNodeDictionary
+{
+    @Test
+    public void testAddNode()
+    {
+        NodeDictionary nodeDictionary = new NodeDictionary();
+        assertEquals(0, nodeDictionary.addNode(9007199254740993L));
+        assertEquals(1, nodeDictionary.addNode("10.1000/xyz123"));
+        assertEquals(0, nodeDictionary.addNode("9007199254740993"));
+        assertEquals(2, nodeDictionary.addNode("042"));
+        assertEquals(3, nodeDictionary.addNode(42));
+        assertEquals(3, nodeDictionary.addNode("42"));
+        assertEquals(4, nodeDictionary.addNode("-0"));
+        assertEquals(5, nodeDictionary.addNode("9223372036854775808"));
+        assertEquals(6, nodeDictionary.addNode(Long.MIN_VALUE));
+        assertEquals(6, nodeDictionary.getNode(Long.toString(Long.MIN_VALUE)));
+        assertEquals(-1, nodeDictionary.getNode(43));
+        assertEquals(-1, nodeDictionary.getNode("10.1000/xyz124"));
+        assertEquals(7, nodeDictionary.getNNodes());
+        assertEquals("10.1000/xyz123", nodeDictionary.getIdentifier(1));
+        assertEquals("042", nodeDictionary.getIdentifier(2));
+        assertEquals("42", nodeDictionary.getIdentifier(3));
+
+        assertTrue(NodeDictionary.isIntegerIdentifier("0"));
+        assertTrue(NodeDictionary.isIntegerIdentifier("-9223372036854775808"));
+        assertFalse(NodeDictionary.isIntegerIdentifier("+1"));
+        assertFalse(NodeDictionary.isIntegerIdentifier("-"));
+        assertFalse(NodeDictionary.isIntegerIdentifier(""));
+    }
+
+    @Test
+    public void testAddManyNodes()
+    {
+        Random random = new Random(1);
+        long[] identifiers = new long[100000];
+        NodeDictionary nodeDictionary = new NodeDictionary();
+        for (int i = 0; i < identifiers.length; i++)
+        {
+            identifiers[i] = random.nextLong();
+            if (i % 2 == 0)
+                assertEquals(i, nodeDictionary.addNode(identifiers[i]));
+            else
+                assertEquals(i, nodeDictionary.addNode("doi:" + identifiers[i]));
+        }
+        for (int i = 0; i < identifiers.length; i++)
+            if (i % 2 == 0)
+                assertEquals(i, nodeDictionary.getNode(identifiers[i]));
+            else
+                assertEquals(i, nodeDictionary.getNode("doi:" + identifiers[i]));
+    }
+
+    @Test
+    public void testReadEdgeList() throws IOException
+    {
+        Random random = new Random(2);
+        int nNodes = 300;
+        String[] identifiers = new String[nNodes];
+        for (int i = 0; i < nNodes; i++)
+            identifiers[i] = (i % 3 == 0) ? "10.1000/" + i : Long.toString(random.nextLong());
+        File edgeListFile = File.createTempFile("edges", ".txt");
+        edgeListFile.deleteOnExit();
+        File integerEdgeListFile = File.createTempFile("edges", ".txt");
+        integerEdgeListFile.deleteOnExit();
+        PrintWriter writer = new PrintWriter(edgeListFile);
+        PrintWriter integerWriter = new PrintWriter(integerEdgeListFile);
+        for (int i = 0; i < nNodes - 1; i++)
+        {
+            writer.println(identifiers[i] + "\t" + identifiers[i + 1] + "\t1");
+            integerWriter.println(i + "\t" + (i + 1) + "\t1");
+        }
+        for (int i = 0; i < nNodes; i++)
+            for (int j = i + 2; j < nNodes; j++)
+                if (random.nextDouble() < 0.02)
+                {
+                    int weight = random.nextInt(5) + 1;
+                    writer.println(identifiers[i] + "\t" + identifiers[j] + "\t" + weight);
+                    integerWriter.println(i + "\t" + j + "\t" + weight);
+                }
+        writer.close();
+        integerWriter.close();
+
+        // Nodes are numbered in the order in which they first appear.
+        NodeDictionary nodeDictionary = new NodeDictionary();
+        Network network = FileIO.readEdgeList(edgeListFile.getPath(), true, false, 4, nodeDictionary);
+        assertEquals(nNodes, nodeDictionary.getNNodes());
+        for (int i = 0; i < nNodes; i++)
+            assertEquals(identifiers[i], nodeDictionary.getIdentifier(i));
+        Network integerNetwork = FileIO.readEdgeList(integerEdgeListFile.getPath(), true, false, 1);
+        assertEquals(integerNetwork.getNEdges(), network.getNEdges());
+        for (int i = 0; i < nNodes; i++)
+        {
+            assertArrayEquals(integerNetwork.getNeighbors(i), network.getNeighbors(i));
+            assertArrayEquals(integerNetwork.getEdgeWeights(i), network.getEdgeWeights(i));
+        }
+
+        // A dictionary that is read from a file keeps the numbers of the
+        // nodes.
+        File dictionaryFile = File.createTempFile("nodes", ".txt");
+        dictionaryFile.deleteOnExit();
+        NodeDictionary reversedNodeDictionary = new NodeDictionary();
+        for (int i = nNodes - 1; i >= 0; i--)
+            reversedNodeDictionary.addNode(identifiers[i]);
+        FileIO.writeNodeDictionary(dictionaryFile.getPath(), reversedNodeDictionary);
+        nodeDictionary = FileIO.readNodeDictionary(dictionaryFile.getPath());
+        network = FileIO.readEdgeList(edgeListFile.getPath(), true, false, 3, nodeDictionary);
+        assertEquals(nNodes, network.getNNodes());
+        for (int i = 0; i < nNodes; i++)
+            assertEquals(identifiers[i], nodeDictionary.getIdentifier(nNodes - 1 - i));
+        for (int i = 0; i < nNodes; i++)
+            assertEquals(integerNetwork.getTotalEdgeWeight(i), network.getTotalEdgeWeight(nNodes - 1 - i));
+
+        // Clusterings are written and read using the identifiers.
+        File clusteringFile = File.createTempFile("clustering", ".txt");
+        clusteringFile.deleteOnExit();
+        int[] clusters = new int[nNodes];
+        for (int i = 0; i < nNodes; i++)
+            clusters[i] = random.nextInt(10);
+        FileIO.writeClustering(clusteringFile.getPath(), new Clustering(clusters), nodeDictionary);
+        assertEquals(identifiers[nNodes - 1] + "\t" + clusters[0], Files.readAllLines(clusteringFile.toPath()).get(0));
+        assertArrayEquals(new Clustering(clusters).getClusters(), FileIO.readClustering(clusteringFile.getPath(), nNodes, nodeDictionary).getClusters());
+    }
+}
@@ -0,0 +1,214 @@
+package nl.cwts.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LargeByteArrayTest
+{
+    LargeByteArray a;
+
+    @BeforeEach
+    void setUp()
+    {
+        // Setup exactly twice the number of elements per array
+        a = new LargeByteArray(1000);
+    }
+
+    @Test
+    void get()
+    {
+        for (long i = 0; i < a.size(); i++)
+            assertEquals(a.get(i), 0);
+    }
+
+    @Test
+    void set()
+    {
+        for (long i = 0; i < a.size(); i++)
+            a.set(i, (byte)0);
+    }
+
+    @Test
+    void fill()
+    {
+        a.fill((byte)1);
+        for (long i = 0; i < a.size(); i++)
+            assertEquals(a.get(i), 1);
+    }
+
+    @Test
+    void append()
+    {
+        long s = a.size();
+        a.append((byte)1);
+        assertEquals(a.size(), s + 1);
+    }
+
+    @Test
+    void push()
+    {
+        long s = a.size();
+        a.push((byte)1);
+        assertEquals(a.size(), s + 1);
+    }
+
+    @Test
+    void pop()
+    {
+        long s = a.size();
+        byte x = a.get(s - 1);
+        byte y = a.pop();
+        assertEquals(a.size(), s - 1);
+        assertEquals(x, y);
+    }
+
+    @Test
+    void clear()
+    {
+        a.clear();
+        assertEquals(a.size(), 0);
+    }
+
+    @Test
+    void ensureCapacity()
+    {
+        long c = a.capacity();
+        a.ensureCapacity(a.capacity() + 1);
+        assertEquals(a.capacity(), c * (1 + LargeByteArray.RELATIVE_CAPACITY_INCREASE));
+    }
+
+    @Test
+    void resize()
+    {
+        long s = a.size();
+        a.resize(a.size() - 1);
+        assertEquals(a.size(), s - 1);
+    }
+
+    @Test
+    void shrink()
+    {
+        long c = a.capacity();
+        a.pop();
+        a.shrink();
+        assertEquals(a.capacity(), a.size());
+        assertEquals(a.capacity(), c - 1);
+    }
+
+    @Test
+    void swap()
+    {
+        a.set(0, (byte)0);
+        a.set(1, (byte)1);
+        a.swap(0, 1);
+        assertEquals(a.get(0), 1);
+        assertEquals(a.get(1), 0);
+    }
+
+    @Test
+    void mergeSort()
+    {
+        Random r = new Random(0);
+        for (long k = 0; k < a.size(); k++)
+            a.set(k, (byte)r.nextInt());
+
+        // Make sure there is one identical element
+        a.set(0, a.get(1));
+
+        a.mergeSort();
+        for (long i = 1; i < a.size(); i++)
+            assertTrue(a.get(i) >= a.get(i - 1));
+    }
+
+    @Test
+    void quickSort()
+    {
+        Random r = new Random(0);
+        for (long k = 0; k < a.size(); k++)
+            a.set(k, (byte)r.nextInt());
+
+        // Make sure there is one identical element
+        a.set(0, a.get(1));
+
+        a.quickSort();
+        for (long i = 1; i < a.size(); i++)
+            assertTrue(a.get(i) >= a.get(i - 1));
+    }
+
+    @Test
+    void sort()
+    {
+        Random r = new Random(0);
+        for (long k = 0; k < a.size(); k++)
+            a.set(k, (byte)r.nextInt());
+
+        // Make sure there is one identical element
+        a.set(0, a.get(1));
+
+        a.sort();
+        for (long i = 1; i < a.size(); i++)
+            assertTrue(a.get(i) >= a.get(i - 1));
+    }
+
+    @Test
+    void updateFrom()
+    {
+        Random r = new Random(0);
+        LargeByteArray a2 = new LargeByteArray(a.size() / 2);
+        for (long i = 0; i < a2.size(); i++)
+            a2.set(i, (byte)r.nextInt());
+
+        long insertionPoint = a.size() / 4;
+        a.updateFrom(a2, 0, a2.size(), insertionPoint);
+
+        for (long i = 0; i < a2.size(); i++)
+            assertEquals(a.get(insertionPoint + i), a2.get(i));
+    }
+
+    @Test
+    void copyOfRange()
+    {
+        Random r = new Random(0);
+        for (long i = 0; i < a.size(); i++)
+            a.set(i, (byte)r.nextInt());
+
+        long from = (long)(0.25 * a.size());
+        long to = (long)(0.75 * a.size());
+        LargeByteArray a2 = a.copyOfRange(from, to);
+
+        for (long i = 0; i < a2.size(); i++)
+            assertEquals(a2.get(i), a.get(i + from));
+    }
+
+    @Test
+    void toArray()
+    {
+        Random r = new Random(0);
+        for (long i = 0; i < a.size(); i++)
+            a.set(i, (byte)r.nextInt());
+
+        long from = (long)(0.2 * a.size());
+        long to = (long)(0.4 * a.size());
+        byte[] a2 = a.toArray(from, to);
+
+        for (int i = 0; i < a2.length; i++)
+            assertEquals(a2[i], a.get(i + from));
+    }
+
+    @Test
+    void testClone()
+    {
+        LargeByteArray a2 = a.clone();
+        for (long i = 0; i < a2.size(); i++)
+        {
+            assertEquals(a.get(i), a2.get(i));
+            a2.set(i, (byte)1);
+            assertEquals(0, a.get(i));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package nl.cwts.util;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.nio.DoubleBuffer;
 import java.util.Random;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -323,6 +324,56 @@ class LargeDoubleArrayTest
             assertEquals(a.get(insertionPoint + i), a2.get(i));
     }
 
+    @Test
+    void updateFromBuffer()
+    {
+        Random r = new Random(0);
+        DoubleBuffer buffer = DoubleBuffer.allocate((int)(a.size() / 2));
+        while (buffer.hasRemaining())
+            buffer.put(r.nextDouble());
+        buffer.flip();
+
+        long insertionPoint = a.size() / 4;
+        a.updateFrom(buffer, insertionPoint);
+
+        assertEquals(buffer.remaining(), 0);
+        for (int i = 0; i < buffer.limit(); i++)
+            assertEquals(a.get(insertionPoint + i), buffer.get(i));
+    }
+
+    @Test
+    void copyTo()
+    {
+        Random r = new Random(0);
+        for (long i = 0; i < a.size(); i++)
+            a.set(i, r.nextDouble());
+
+        long from = (long)(0.25 * a.size());
+        long to = (long)(0.75 * a.size());
+        DoubleBuffer buffer = DoubleBuffer.allocate((int)(to - from));
+        a.copyTo(from, to, buffer);
+
+        assertEquals(buffer.remaining(), 0);
+        for (int i = 0; i < buffer.limit(); i++)
+            assertEquals(buffer.get(i), a.get(i + from));
+    }
+
+    @Test
+    void copyToArray()
+    {
+        Random r = new Random(0);
+        for (long i = 0; i < a.size(); i++)
+            a.set(i, r.nextDouble());
+
+        long from = (long)(0.25 * a.size());
+        long to = (long)(0.75 * a.size());
+        double[] array = new double[(int)(to - from) + 1];
+        a.copyTo(from, to, array, 1);
+
+        for (int i = 1; i < array.length; i++)
+            assertEquals(array[i], a.get(i - 1 + from));
+    }
+
     @Test
     void copyOfRange()
     {
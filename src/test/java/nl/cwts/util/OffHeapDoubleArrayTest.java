@@ -0,0 +1,116 @@
+package nl.cwts.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.DoubleBuffer;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OffHeapDoubleArrayTest
+{
+    OffHeapDoubleArray a;
+
+    @BeforeEach
+    void setUp()
+    {
+        a = new OffHeapDoubleArray(1000);
+    }
+
+    @Test
+    void get()
+    {
+        for (long i = 0; i < a.size(); i++)
+            assertEquals(a.get(i), 0);
+    }
+
+    @Test
+    void set()
+    {
+        for (long i = 0; i < a.size(); i++)
+        {
+            a.set(i, i);
+            assertEquals(a.get(i), i);
+        }
+    }
+
+    @Test
+    void updateFrom()
+    {
+        Random r = new Random(0);
+        LargeDoubleArray a2 = new LargeDoubleArray(a.size());
+        for (long i = 0; i < a2.size(); i++)
+            a2.set(i, r.nextDouble());
+
+        a.updateFrom(a2);
+
+        for (long i = 0; i < a2.size(); i++)
+            assertEquals(a.get(i), a2.get(i));
+    }
+
+    @Test
+    void updateFromBuffer()
+    {
+        Random r = new Random(0);
+        DoubleBuffer buffer = DoubleBuffer.allocate((int)(a.size() / 2));
+        while (buffer.hasRemaining())
+            buffer.put(r.nextDouble());
+        buffer.flip();
+
+        long insertionPoint = a.size() / 4;
+        a.updateFrom(buffer, insertionPoint);
+
+        assertEquals(buffer.remaining(), 0);
+        for (int i = 0; i < buffer.limit(); i++)
+            assertEquals(a.get(insertionPoint + i), buffer.get(i));
+    }
+
+    @Test
+    void copyTo()
+    {
+        Random r = new Random(0);
+        for (long i = 0; i < a.size(); i++)
+            a.set(i, r.nextDouble());
+
+        long from = (long)(0.25 * a.size());
+        long to = (long)(0.75 * a.size());
+        DoubleBuffer buffer = DoubleBuffer.allocate((int)(to - from));
+        a.copyTo(from, to, buffer);
+
+        assertEquals(buffer.remaining(), 0);
+        for (int i = 0; i < buffer.limit(); i++)
+            assertEquals(buffer.get(i), a.get(i + from));
+    }
+
+    @Test
+    void toLargeDoubleArray()
+    {
+        Random r = new Random(0);
+        for (long i = 0; i < a.size(); i++)
+            a.set(i, r.nextDouble());
+
+        LargeDoubleArray a2 = a.toLargeDoubleArray();
+
+        assertEquals(a2.size(), a.size());
+        for (long i = 0; i < a.size(); i++)
+            assertEquals(a2.get(i), a.get(i));
+    }
+
+    @Test
+    void calcSum()
+    {
+        for (long i = 0; i < a.size(); i++)
+            a.set(i, i);
+
+        assertEquals(a.calcSum(10, 20), 145);
+    }
+
+    @Test
+    void release()
+    {
+        a.release();
+        assertEquals(a.size(), 0);
+        a.release();
+    }
+}